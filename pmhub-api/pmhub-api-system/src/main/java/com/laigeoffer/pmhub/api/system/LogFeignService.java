@@ -11,6 +11,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 
+import java.util.List;
+
 /**
  * 日志服务
  * 
@@ -38,4 +40,14 @@ public interface LogFeignService
      */
     @PostMapping("/system/monitor/logininfor")
     R<Boolean> saveLogininfor(@RequestBody SysLogininfor sysLogininfor, @RequestHeader(SecurityConstants.FROM_SOURCE) String source);
+
+    /**
+     * 批量保存访问记录
+     *
+     * @param sysLogininforList 访问实体集合
+     * @param source 请求来源
+     * @return 结果
+     */
+    @PostMapping("/system/monitor/logininfor/batch")
+    R<Boolean> saveLogininforBatch(@RequestBody List<SysLogininfor> sysLogininforList, @RequestHeader(SecurityConstants.FROM_SOURCE) String source);
 }
@@ -0,0 +1,349 @@
+package com.laigeoffer.pmhub.api.system.directory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.laigeoffer.pmhub.api.system.UserFeignService;
+import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
+import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
+import com.laigeoffer.pmhub.base.core.core.domain.R;
+import com.laigeoffer.pmhub.base.core.core.domain.entity.SysDept;
+import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
+import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.base.core.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户目录
+ * 按用户ID在本地缓存用户信息，列表页组装昵称、头像时优先读本地，全部命中时不发起远程调用；
+ * 未命中的用户登记到当前合并批次，批次内第一个请求线程等待一个合并窗口后代表所有请求调用一次 listOfInner，
+ * 同一用户同时只查询一次。远程调用始终在请求线程中发起，保留请求头透传。
+ * 系统服务修改用户后通过redis频道广播用户ID，各节点收到后清理本地缓存。
+ * 返回给调用方的是缓存对象的副本，调用方修改结果不会影响缓存和其他请求
+ *
+ * @author zw
+ */
+public class UserDirectory implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(UserDirectory.class);
+
+    /**
+     * 失效全部用户的消息体
+     */
+    public static final String EVICT_ALL = "*";
+
+    private final UserFeignService userFeignService;
+
+    private final UserDirectoryProperties properties;
+
+    private final Cache<Long, SysUserVO> cache;
+
+    /**
+     * 查询中的用户，同一用户的并发请求共享一次查询结果
+     */
+    private final Map<Long, CompletableFuture<SysUserVO>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * 失效版本号，加载期间发生过失效时本次结果不放入缓存，避免旧数据覆盖
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 当前正在收集的批次，由 this 保护
+     */
+    private PendingBatch pending;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder remoteCalls = new LongAdder();
+
+    private final LongAdder remoteErrors = new LongAdder();
+
+    public UserDirectory(UserFeignService userFeignService, UserDirectoryProperties properties) {
+        this.userFeignService = userFeignService;
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 获取单个用户
+     *
+     * @param userId 用户ID
+     * @return 用户信息，不存在时返回null
+     */
+    public SysUserVO getUser(Long userId) {
+        return getUsers(Collections.singletonList(userId)).get(userId);
+    }
+
+    /**
+     * 批量获取用户
+     *
+     * @param userIds 用户ID
+     * @return 用户ID与用户信息的映射，不存在的用户不在结果中
+     */
+    public Map<Long, SysUserVO> getUsers(Collection<Long> userIds) {
+        Map<Long, SysUserVO> result = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return result;
+        }
+        Map<Long, CompletableFuture<SysUserVO>> waiting = new LinkedHashMap<>();
+        List<Long> owned = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (userId == null || result.containsKey(userId) || waiting.containsKey(userId)) {
+                continue;
+            }
+            SysUserVO user = cache.getIfPresent(userId);
+            if (user != null) {
+                hits.increment();
+                result.put(userId, copy(user));
+                continue;
+            }
+            misses.increment();
+            CompletableFuture<SysUserVO> future = new CompletableFuture<>();
+            CompletableFuture<SysUserVO> existing = inflight.putIfAbsent(userId, future);
+            if (existing == null) {
+                owned.add(userId);
+                waiting.put(userId, future);
+            } else {
+                waiting.put(userId, existing);
+            }
+        }
+        if (!owned.isEmpty()) {
+            PendingBatch batch = join(owned);
+            if (batch != null) {
+                runBatch(batch);
+            }
+        }
+        for (Map.Entry<Long, CompletableFuture<SysUserVO>> entry : waiting.entrySet()) {
+            SysUserVO user = await(entry.getValue());
+            if (user != null) {
+                result.put(entry.getKey(), copy(user));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 清理指定用户的本地缓存
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        version.incrementAndGet();
+        cache.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        version.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * 运行统计，便于观察命中率和远程调用次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", cache.estimatedSize());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("remoteCalls", remoteCalls.sum());
+        stats.put("remoteErrors", remoteErrors.sum());
+        return stats;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (EVICT_ALL.equals(body)) {
+            invalidateAll();
+            return;
+        }
+        for (String userId : body.split(",")) {
+            if (StringUtils.isNotEmpty(userId)) {
+                try {
+                    invalidate(Long.valueOf(userId.trim()));
+                } catch (NumberFormatException e) {
+                    log.warn("无效的用户变更通知:{}", body);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把未命中的用户加入当前批次
+     *
+     * @return 新开的批次（调用方负责执行），加入已有批次时返回null
+     */
+    private synchronized PendingBatch join(List<Long> userIds) {
+        if (pending != null) {
+            pending.userIds.addAll(userIds);
+            return null;
+        }
+        pending = new PendingBatch(userIds);
+        return pending;
+    }
+
+    private synchronized List<Long> close(PendingBatch batch) {
+        if (pending == batch) {
+            pending = null;
+        }
+        return batch.userIds;
+    }
+
+    /**
+     * 等待合并窗口结束后查询整个批次，批次内所有用户的查询结果都在这里完成
+     */
+    private void runBatch(PendingBatch batch) {
+        long window = properties.getBatchWindowMillis();
+        if (window > 0) {
+            try {
+                Thread.sleep(window);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Long> userIds = close(batch);
+        int batchSize = Math.max(1, properties.getMaxBatchSize());
+        int next = 0;
+        try {
+            while (next < userIds.size()) {
+                int end = Math.min(next + batchSize, userIds.size());
+                List<Long> chunk = userIds.subList(next, end);
+                next = end;
+                load(chunk);
+            }
+        } finally {
+            // 某一批以Error中断时，之后的用户不会再查询，同样结束等待并移出查询中
+            if (next < userIds.size()) {
+                ServiceException aborted = new ServiceException("远程调用查询用户列表失败");
+                for (Long userId : userIds.subList(next, userIds.size())) {
+                    CompletableFuture<SysUserVO> future = inflight.remove(userId);
+                    if (future != null) {
+                        future.completeExceptionally(aborted);
+                    }
+                }
+            }
+        }
+    }
+
+    private void load(List<Long> userIds) {
+        long stamp = version.get();
+        Map<Long, SysUserVO> loaded = new HashMap<>();
+        Throwable error = null;
+        try {
+            remoteCalls.increment();
+            SysUserDTO sysUserDTO = new SysUserDTO();
+            sysUserDTO.setUserIds(new ArrayList<>(userIds));
+            R<List<SysUserVO>> result = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
+            if (result == null || !R.isSuccess(result)) {
+                throw new ServiceException("远程调用查询用户列表失败:" + (result == null ? null : result.getMsg()));
+            }
+            if (result.getData() != null) {
+                for (SysUserVO user : result.getData()) {
+                    loaded.put(user.getUserId(), user);
+                }
+            }
+            if (version.get() == stamp) {
+                cache.putAll(loaded);
+            }
+        } catch (Throwable e) {
+            // 任何异常都要结束本批的等待并移出查询中，否则同一用户之后的请求会一直等到超时
+            remoteErrors.increment();
+            error = e;
+        }
+        for (Long userId : userIds) {
+            CompletableFuture<SysUserVO> future = inflight.remove(userId);
+            if (future == null) {
+                continue;
+            }
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(loaded.get(userId));
+            }
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+    }
+
+    /**
+     * 复制用户信息，集合、数组和部门一并复制，调用方修改副本不影响缓存
+     */
+    private static SysUserVO copy(SysUserVO user) {
+        SysUserVO copy = new SysUserVO();
+        BeanUtils.copyProperties(user, copy);
+        if (user.getLeaderIds() != null) {
+            copy.setLeaderIds(new ArrayList<>(user.getLeaderIds()));
+        }
+        if (user.getLeaderNames() != null) {
+            copy.setLeaderNames(new ArrayList<>(user.getLeaderNames()));
+        }
+        if (user.getRoles() != null) {
+            copy.setRoles(new ArrayList<>(user.getRoles()));
+        }
+        if (user.getRoleIds() != null) {
+            copy.setRoleIds(user.getRoleIds().clone());
+        }
+        if (user.getPostIds() != null) {
+            copy.setPostIds(user.getPostIds().clone());
+        }
+        if (user.getDept() != null) {
+            SysDept dept = new SysDept();
+            BeanUtils.copyProperties(user.getDept(), dept);
+            copy.setDept(dept);
+        }
+        copy.setParams(new HashMap<>(user.getParams()));
+        return copy;
+    }
+
+    private SysUserVO await(CompletableFuture<SysUserVO> future) {
+        try {
+            return future.get(properties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("远程调用查询用户列表被中断");
+        } catch (TimeoutException e) {
+            throw new ServiceException("远程调用查询用户列表超时");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            throw new ServiceException("远程调用查询用户列表失败:" + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * 合并批次
+     */
+    private static final class PendingBatch {
+        private final List<Long> userIds;
+
+        private PendingBatch(List<Long> userIds) {
+            this.userIds = new ArrayList<>(userIds);
+        }
+    }
+}
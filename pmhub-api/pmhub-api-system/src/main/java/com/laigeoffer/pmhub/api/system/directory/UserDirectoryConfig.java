@@ -0,0 +1,40 @@
+package com.laigeoffer.pmhub.api.system.directory;
+
+import com.laigeoffer.pmhub.api.system.UserFeignService;
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 用户目录配置，仅在启用了用户远程服务的模块中生效
+ *
+ * @author zw
+ */
+@Configuration
+@EnableConfigurationProperties(UserDirectoryProperties.class)
+@ConditionalOnBean(UserFeignService.class)
+@ConditionalOnProperty(value = "system.user-directory.enabled", havingValue = "true", matchIfMissing = true)
+public class UserDirectoryConfig {
+    @Bean
+    public UserDirectory userDirectory(UserFeignService userFeignService, UserDirectoryProperties properties) {
+        return new UserDirectory(userFeignService, properties);
+    }
+
+    /**
+     * 订阅用户变更频道，连接断开后由容器自动重新订阅
+     */
+    @Bean
+    public RedisMessageListenerContainer userDirectoryEvictListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            UserDirectory userDirectory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(userDirectory, new ChannelTopic(CacheConstants.SYS_USER_EVICT_CHANNEL));
+        return container;
+    }
+}
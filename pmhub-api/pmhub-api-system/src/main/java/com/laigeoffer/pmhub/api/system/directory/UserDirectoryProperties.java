@@ -0,0 +1,89 @@
+package com.laigeoffer.pmhub.api.system.directory;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 用户目录配置（启动时生效）
+ *
+ * @author zw
+ */
+@ConfigurationProperties(prefix = "system.user-directory")
+public class UserDirectoryProperties {
+    /**
+     * 用户目录开关
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 最大缓存用户数
+     */
+    private long maximumSize = 20000;
+
+    /**
+     * 本地缓存有效期（秒），兜底用户变更通知丢失的情况
+     */
+    private long expireSeconds = 600;
+
+    /**
+     * 合并窗口（毫秒），窗口内并发请求中未命中的用户合并为一次远程查询
+     */
+    private long batchWindowMillis = 5;
+
+    /**
+     * 单次远程查询的最大用户数
+     */
+    private int maxBatchSize = 500;
+
+    /**
+     * 等待远程查询结果的超时时间（毫秒）
+     */
+    private long timeoutMillis = 5000;
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public long getExpireSeconds() {
+        return expireSeconds;
+    }
+
+    public void setExpireSeconds(long expireSeconds) {
+        this.expireSeconds = expireSeconds;
+    }
+
+    public long getBatchWindowMillis() {
+        return batchWindowMillis;
+    }
+
+    public void setBatchWindowMillis(long batchWindowMillis) {
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+}
@@ -47,6 +47,11 @@ public class SysUserDTO extends BaseEntity {
      */
     private String userName;
 
+    /**
+     * 用户账号组（精确匹配）
+     */
+    private List<String> userNames;
+
     /**
      * 用户企微id
      */
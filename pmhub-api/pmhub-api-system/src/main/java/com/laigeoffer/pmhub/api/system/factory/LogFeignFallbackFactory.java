@@ -9,6 +9,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.cloud.openfeign.FallbackFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * 日志服务降级处理
  * 
@@ -36,6 +38,12 @@ public class LogFeignFallbackFactory implements FallbackFactory<LogFeignService>
             {
                 return R.fail("保存登录日志失败:" + throwable.getMessage());
             }
+
+            @Override
+            public R<Boolean> saveLogininforBatch(List<SysLogininfor> sysLogininforList, String source)
+            {
+                return R.fail("批量保存登录日志失败:" + throwable.getMessage());
+            }
         };
 
     }
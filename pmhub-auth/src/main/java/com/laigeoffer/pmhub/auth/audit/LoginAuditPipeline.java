@@ -0,0 +1,292 @@
+package com.laigeoffer.pmhub.auth.audit;
+
+import com.alibaba.fastjson2.JSON;
+import com.laigeoffer.pmhub.api.system.LogFeignService;
+import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
+import com.laigeoffer.pmhub.base.core.core.domain.R;
+import com.laigeoffer.pmhub.base.core.core.domain.entity.SysLogininfor;
+import com.laigeoffer.pmhub.base.core.utils.BoundedRingBuffer;
+import com.laigeoffer.pmhub.base.core.utils.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录日志异步批量上报
+ * 登录、退出、密码错误等请求线程只把日志放入无锁环形队列，后台单线程按批调用系统服务批量接口；
+ * 系统服务不可用时整批写入本地落盘文件，恢复后优先回放，队列满或落盘超限时丢弃并计数
+ *
+ * @author zw
+ */
+@Component
+public class LoginAuditPipeline {
+    private static final Logger log = LoggerFactory.getLogger(LoginAuditPipeline.class);
+
+    private static final String SPILL_FILE = "logininfor.spill";
+
+    private static final String REPLAY_FILE = "logininfor.replay";
+
+    /**
+     * 系统服务不可用时的重试间隔
+     */
+    private static final long RETRY_INTERVAL_MILLIS = 10000;
+
+    @Autowired
+    private LoginAuditProperties properties;
+
+    @Autowired
+    private LogFeignService remoteLogService;
+
+    private BoundedRingBuffer<SysLogininfor> buffer;
+
+    private ScheduledExecutorService executor;
+
+    private Path spillFile;
+
+    private Path replayFile;
+
+    /**
+     * 上一次上报是否失败，失败期间新日志直接落盘，减少对系统服务的无效调用
+     */
+    private volatile boolean remoteDown;
+
+    private long nextRetryTime;
+
+    private final LongAdder enqueued = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder spilled = new LongAdder();
+
+    private final LongAdder replayed = new LongAdder();
+
+    private final LongAdder sendErrors = new LongAdder();
+
+    private long lastReportedDropped;
+
+    @PostConstruct
+    public void init() {
+        buffer = new BoundedRingBuffer<>(properties.getBufferSize());
+        Path dir = Paths.get(properties.getSpillDir());
+        spillFile = dir.resolve(SPILL_FILE);
+        replayFile = dir.resolve(REPLAY_FILE);
+        executor = new ScheduledThreadPoolExecutor(1,
+                new BasicThreadFactory.Builder().namingPattern("login-audit-%d").daemon(true).build());
+        executor.scheduleWithFixedDelay(this::flushSafely, properties.getFlushIntervalMillis(),
+                properties.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止时把队列中剩余的日志上报或落盘
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<SysLogininfor> batch = new ArrayList<>();
+        buffer.drain(batch::add, Integer.MAX_VALUE);
+        if (!batch.isEmpty() && (remoteDown || !send(batch))) {
+            spill(batch);
+        }
+    }
+
+    /**
+     * 提交一条登录日志，不阻塞调用线程
+     *
+     * @param logininfor 登录日志
+     */
+    public void submit(SysLogininfor logininfor) {
+        if (buffer.offer(logininfor)) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 运行统计，便于观察积压和丢弃情况
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", buffer.size());
+        stats.put("capacity", buffer.capacity());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("sent", sent.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("sendErrors", sendErrors.sum());
+        stats.put("remoteDown", remoteDown);
+        return stats;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+            reportDropped();
+        } catch (Exception e) {
+            log.error("登录日志上报处理异常", e);
+        }
+    }
+
+    private void flush() {
+        int batchSize = properties.getBatchSize();
+        List<SysLogininfor> batch = new ArrayList<>(batchSize);
+        while (buffer.drain(batch::add, batchSize) > 0) {
+            if (remoteDown || !send(batch)) {
+                spill(batch);
+            }
+            batch.clear();
+        }
+        // 队列清空后按间隔探测系统服务，恢复后回放落盘日志
+        if (Files.exists(spillFile) || Files.exists(replayFile)) {
+            if (System.currentTimeMillis() >= nextRetryTime) {
+                replay();
+            }
+        } else if (remoteDown && System.currentTimeMillis() >= nextRetryTime) {
+            remoteDown = false;
+        }
+    }
+
+    private boolean send(List<SysLogininfor> batch) {
+        try {
+            R<Boolean> result = remoteLogService.saveLogininforBatch(batch, SecurityConstants.INNER);
+            if (result != null && R.isSuccess(result)) {
+                sent.add(batch.size());
+                remoteDown = false;
+                return true;
+            }
+            log.warn("批量保存登录日志失败:{}", result == null ? null : result.getMsg());
+        } catch (Exception e) {
+            log.warn("批量保存登录日志失败:{}", e.getMessage());
+        }
+        sendErrors.increment();
+        remoteDown = true;
+        nextRetryTime = System.currentTimeMillis() + RETRY_INTERVAL_MILLIS;
+        return false;
+    }
+
+    /**
+     * 整批追加到落盘文件，每行一条json
+     */
+    private void spill(List<SysLogininfor> batch) {
+        try {
+            Files.createDirectories(spillFile.getParent());
+            if (Files.exists(spillFile) && Files.size(spillFile) >= properties.getMaxSpillBytes()) {
+                dropped.add(batch.size());
+                return;
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (SysLogininfor logininfor : batch) {
+                    writer.write(JSON.toJSONString(logininfor));
+                    writer.newLine();
+                }
+            }
+            spilled.add(batch.size());
+        } catch (IOException e) {
+            dropped.add(batch.size());
+            log.error("登录日志落盘失败，丢弃{}条", batch.size(), e);
+        }
+    }
+
+    /**
+     * 回放落盘日志：先把落盘文件改名为回放文件再逐批上报，中途失败时把未上报部分写回回放文件，下次继续
+     */
+    private void replay() {
+        try {
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(spillFile)) {
+                    return;
+                }
+                Files.move(spillFile, replayFile);
+            }
+            Path remainFile = replayFile.resolveSibling(REPLAY_FILE + ".tmp");
+            boolean finished = true;
+            boolean progressed = false;
+            try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+                List<SysLogininfor> batch;
+                while (!(batch = readBatch(reader)).isEmpty()) {
+                    if (!send(batch)) {
+                        finished = false;
+                        if (progressed) {
+                            writeRemain(remainFile, batch, reader);
+                        }
+                        break;
+                    }
+                    progressed = true;
+                    replayed.add(batch.size());
+                }
+            }
+            if (finished) {
+                Files.delete(replayFile);
+            } else if (progressed) {
+                Files.move(remainFile, replayFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            log.error("登录日志回放异常", e);
+        }
+    }
+
+    private List<SysLogininfor> readBatch(BufferedReader reader) throws IOException {
+        int batchSize = properties.getBatchSize();
+        List<SysLogininfor> batch = new ArrayList<>(batchSize);
+        String line;
+        while (batch.size() < batchSize && (line = reader.readLine()) != null) {
+            if (StringUtils.isNotEmpty(line)) {
+                batch.add(JSON.parseObject(line, SysLogininfor.class));
+            }
+        }
+        return batch;
+    }
+
+    private void writeRemain(Path remainFile, List<SysLogininfor> batch, BufferedReader reader) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(remainFile, StandardCharsets.UTF_8)) {
+            for (SysLogininfor logininfor : batch) {
+                writer.write(JSON.toJSONString(logininfor));
+                writer.newLine();
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    private void reportDropped() {
+        long droppedTotal = dropped.sum();
+        if (droppedTotal > lastReportedDropped) {
+            log.warn("登录日志累计丢弃{}条，当前积压{}条", droppedTotal, buffer.size());
+            lastReportedDropped = droppedTotal;
+        }
+    }
+}
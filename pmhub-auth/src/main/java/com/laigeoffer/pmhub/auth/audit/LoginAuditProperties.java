@@ -0,0 +1,78 @@
+package com.laigeoffer.pmhub.auth.audit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 登录日志异步上报配置（启动时生效）
+ *
+ * @author zw
+ */
+@Configuration
+@ConfigurationProperties(prefix = "auth.login-audit")
+public class LoginAuditProperties {
+    /**
+     * 待上报队列容量，队列满时丢弃并计数
+     */
+    private int bufferSize = 8192;
+
+    /**
+     * 单次批量上报的最大条数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 上报间隔（毫秒）
+     */
+    private long flushIntervalMillis = 1000;
+
+    /**
+     * 系统服务不可用时的落盘目录
+     */
+    private String spillDir = "logs/pmhub-auth/login-audit";
+
+    /**
+     * 落盘文件大小上限（字节），超出后丢弃并计数
+     */
+    private long maxSpillBytes = 100L * 1024 * 1024;
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public String getSpillDir() {
+        return spillDir;
+    }
+
+    public void setSpillDir(String spillDir) {
+        this.spillDir = spillDir;
+    }
+
+    public long getMaxSpillBytes() {
+        return maxSpillBytes;
+    }
+
+    public void setMaxSpillBytes(long maxSpillBytes) {
+        this.maxSpillBytes = maxSpillBytes;
+    }
+}
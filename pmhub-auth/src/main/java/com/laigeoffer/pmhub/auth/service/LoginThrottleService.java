@@ -0,0 +1,214 @@
+package com.laigeoffer.pmhub.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import com.laigeoffer.pmhub.base.core.utils.uuid.IdUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录失败限流
+ * 按账户和IP分别维护密码错误的滑动窗口（redis有序集合，成员为失败时间），窗口内错误次数达到上限即锁定；
+ * 检查、记录失败、登录成功清理都由同一段lua脚本原子完成，每次调用一次往返。
+ * 已锁定的账户和IP在本地短暂缓存，锁定期间的请求直接拒绝，不再访问redis也不做密码比对。
+ *
+ * @author zw
+ */
+@Component
+public class LoginThrottleService {
+    /**
+     * 本地锁定缓存的最长有效期，兜底后台手动解锁的情况
+     */
+    private static final long LOCAL_LOCK_MILLIS = 30 * 1000L;
+
+    private static final String OP_CHECK = "check";
+
+    private static final String OP_FAIL = "fail";
+
+    private static final String OP_SUCCESS = "success";
+
+    /**
+     * KEYS[1] 账户窗口 KEYS[2] IP窗口
+     * ARGV: 操作, 当前时间, 窗口长度, 锁定时长, 账户上限, IP上限, 本次失败的唯一成员
+     * 返回: {锁定来源(0未锁定 1账户 2IP), 账户窗口内错误次数, 剩余锁定毫秒数}
+     * 锁定状态以成员 locked 保存在窗口内，分值为解锁时间，删除窗口即解锁
+     */
+    private static final String THROTTLE_SCRIPT = "local op = ARGV[1]\n" +
+            "local now = tonumber(ARGV[2])\n" +
+            "local window = tonumber(ARGV[3])\n" +
+            "local lockMillis = tonumber(ARGV[4])\n" +
+            "local limits = {tonumber(ARGV[5]), tonumber(ARGV[6])}\n" +
+            "for i = 1, #KEYS do\n" +
+            "    local lockUntil = redis.call('zscore', KEYS[i], 'locked')\n" +
+            "    if lockUntil then\n" +
+            "        if tonumber(lockUntil) > now then\n" +
+            "            return {i, 0, tonumber(lockUntil) - now}\n" +
+            "        end\n" +
+            "        redis.call('zrem', KEYS[i], 'locked')\n" +
+            "    end\n" +
+            "end\n" +
+            "if op == 'success' then\n" +
+            "    redis.call('del', KEYS[1])\n" +
+            "    return {0, 0, 0}\n" +
+            "end\n" +
+            "if op ~= 'fail' then\n" +
+            "    return {0, 0, 0}\n" +
+            "end\n" +
+            "local result = {0, 0, 0}\n" +
+            "for i = 1, #KEYS do\n" +
+            "    redis.call('zremrangebyscore', KEYS[i], '-inf', now - window)\n" +
+            "    redis.call('zadd', KEYS[i], now, ARGV[7])\n" +
+            "    local count = redis.call('zcard', KEYS[i])\n" +
+            "    if i == 1 then\n" +
+            "        result[2] = count\n" +
+            "    end\n" +
+            "    if count >= limits[i] then\n" +
+            "        redis.call('zadd', KEYS[i], now + lockMillis, 'locked')\n" +
+            "        if result[1] == 0 then\n" +
+            "            result[1] = i\n" +
+            "            result[3] = lockMillis\n" +
+            "        end\n" +
+            "    end\n" +
+            "    redis.call('pexpire', KEYS[i], math.max(window, lockMillis))\n" +
+            "end\n" +
+            "return result";
+
+    private static final DefaultRedisScript<List> SCRIPT = new DefaultRedisScript<>(THROTTLE_SCRIPT, List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final int maxRetryCount = CacheConstants.PASSWORD_MAX_RETRY_COUNT;
+
+    private final int ipMaxRetryCount = CacheConstants.PASSWORD_IP_MAX_RETRY_COUNT;
+
+    private final long lockMillis = TimeUnit.MINUTES.toMillis(CacheConstants.PASSWORD_LOCK_TIME);
+
+    /**
+     * 本地锁定缓存，键为账户或IP窗口的redis key，值为解锁时间
+     */
+    private final Cache<String, Long> localLocks = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(LOCAL_LOCK_MILLIS, TimeUnit.MILLISECONDS)
+            .build();
+
+    /**
+     * 校验账户或IP是否已锁定
+     *
+     * @param username 用户名
+     * @param ip       登录IP
+     * @return 校验结果
+     */
+    public ThrottleResult check(String username, String ip) {
+        String userKey = getUserKey(username);
+        String ipKey = getIpKey(ip);
+        ThrottleResult local = checkLocal(userKey, ipKey);
+        if (local != null) {
+            return local;
+        }
+        return execute(OP_CHECK, userKey, ipKey);
+    }
+
+    /**
+     * 记录一次密码错误
+     *
+     * @param username 用户名
+     * @param ip       登录IP
+     * @return 记录后的结果，包含账户窗口内的错误次数
+     */
+    public ThrottleResult onFailure(String username, String ip) {
+        return execute(OP_FAIL, getUserKey(username), getIpKey(ip));
+    }
+
+    /**
+     * 登录成功，清理账户的错误记录
+     *
+     * @param username 用户名
+     * @param ip       登录IP
+     */
+    public void onSuccess(String username, String ip) {
+        execute(OP_SUCCESS, getUserKey(username), getIpKey(ip));
+    }
+
+    public int getMaxRetryCount() {
+        return maxRetryCount;
+    }
+
+    private ThrottleResult checkLocal(String userKey, String ipKey) {
+        long now = System.currentTimeMillis();
+        Long userLockUntil = localLocks.getIfPresent(userKey);
+        if (userLockUntil != null && userLockUntil > now) {
+            return new ThrottleResult(ThrottleResult.LOCKED_BY_USER, 0, userLockUntil - now);
+        }
+        Long ipLockUntil = localLocks.getIfPresent(ipKey);
+        if (ipLockUntil != null && ipLockUntil > now) {
+            return new ThrottleResult(ThrottleResult.LOCKED_BY_IP, 0, ipLockUntil - now);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ThrottleResult execute(String op, String userKey, String ipKey) {
+        long now = System.currentTimeMillis();
+        List<Long> values = stringRedisTemplate.execute(SCRIPT, Arrays.asList(userKey, ipKey), op,
+                String.valueOf(now), String.valueOf(lockMillis), String.valueOf(lockMillis),
+                String.valueOf(maxRetryCount), String.valueOf(ipMaxRetryCount), now + ":" + IdUtils.fastSimpleUUID());
+        ThrottleResult result = new ThrottleResult(values.get(0).intValue(), values.get(1).intValue(), values.get(2));
+        if (result.isLocked()) {
+            localLocks.put(result.getLockedBy() == ThrottleResult.LOCKED_BY_USER ? userKey : ipKey, now + result.getRemainMillis());
+        }
+        return result;
+    }
+
+    private String getUserKey(String username) {
+        return CacheConstants.PWD_ERR_WINDOW_KEY + username;
+    }
+
+    private String getIpKey(String ip) {
+        return CacheConstants.PWD_ERR_IP_WINDOW_KEY + ip;
+    }
+
+    /**
+     * 限流结果
+     */
+    public static class ThrottleResult {
+        public static final int LOCKED_BY_USER = 1;
+
+        public static final int LOCKED_BY_IP = 2;
+
+        private final int lockedBy;
+
+        private final int retryCount;
+
+        private final long remainMillis;
+
+        public ThrottleResult(int lockedBy, int retryCount, long remainMillis) {
+            this.lockedBy = lockedBy;
+            this.retryCount = retryCount;
+            this.remainMillis = remainMillis;
+        }
+
+        public boolean isLocked() {
+            return lockedBy != 0;
+        }
+
+        public int getLockedBy() {
+            return lockedBy;
+        }
+
+        public int getRetryCount() {
+            return retryCount;
+        }
+
+        public long getRemainMillis() {
+            return remainMillis;
+        }
+    }
+}
@@ -1,16 +1,14 @@
 package com.laigeoffer.pmhub.auth.service;
 
-import com.laigeoffer.pmhub.base.core.config.redis.RedisService;
 import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
 import com.laigeoffer.pmhub.base.core.constant.Constants;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
 import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.base.core.utils.ip.IpUtils;
 import com.laigeoffer.pmhub.base.security.utils.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.TimeUnit;
-
 /**
  * 登录密码方法
  *
@@ -19,49 +17,31 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class SysPasswordService {
     @Autowired
-    private RedisService redisService;
-
-    private int maxRetryCount = CacheConstants.PASSWORD_MAX_RETRY_COUNT;
+    private LoginThrottleService loginThrottleService;
 
     private int lockTime = CacheConstants.PASSWORD_LOCK_TIME;
 
     @Autowired
     private SysRecordLogService recordLogService;
 
-    /**
-     * 登录账户密码错误次数缓存键名
-     *
-     * @param username 用户名
-     * @return 缓存键key
-     */
-    private String getCacheKey(String username)
-    {
-        return CacheConstants.PWD_ERR_CNT_KEY + username;
-    }
-
     public void validate(SysUser user, String password)
     {
         String username = user.getUserName();
+        String ip = IpUtils.getIpAddr();
 
-        Integer retryCount = redisService.getCacheObject(getCacheKey(username));
-
-        if (retryCount == null)
+        // 已锁定的账户或IP直接拒绝，不做密码比对
+        LoginThrottleService.ThrottleResult throttle = loginThrottleService.check(username, ip);
+        if (throttle.isLocked())
         {
-            retryCount = 0;
-        }
-
-        if (retryCount >= Integer.valueOf(maxRetryCount).intValue())
-        {
-            String errMsg = String.format("密码输入错误%s次，帐户锁定%s分钟", maxRetryCount, lockTime);
-            recordLogService.recordLogininfor(username, Constants.LOGIN_FAIL,errMsg);
+            String errMsg = getLockedMessage(throttle);
+            recordLogService.recordLogininfor(username, Constants.LOGIN_FAIL, errMsg);
             throw new ServiceException(errMsg);
         }
 
         if (!matches(user, password))
         {
-            retryCount = retryCount + 1;
-            recordLogService.recordLogininfor(username, Constants.LOGIN_FAIL, String.format("密码输入错误%s次", retryCount));
-            redisService.setCacheObject(getCacheKey(username), retryCount, lockTime, TimeUnit.MINUTES);
+            throttle = loginThrottleService.onFailure(username, ip);
+            recordLogService.recordLogininfor(username, Constants.LOGIN_FAIL, String.format("密码输入错误%s次", throttle.getRetryCount()));
             throw new ServiceException("用户不存在/密码错误");
         }
         else
@@ -77,9 +57,15 @@ public class SysPasswordService {
 
     public void clearLoginRecordCache(String loginName)
     {
-        if (redisService.hasKey(getCacheKey(loginName)))
+        loginThrottleService.onSuccess(loginName, IpUtils.getIpAddr());
+    }
+
+    private String getLockedMessage(LoginThrottleService.ThrottleResult throttle)
+    {
+        if (throttle.getLockedBy() == LoginThrottleService.ThrottleResult.LOCKED_BY_IP)
         {
-            redisService.deleteObject(getCacheKey(loginName));
+            return String.format("当前IP密码错误次数过多，请%s分钟后再试", lockTime);
         }
+        return String.format("密码输入错误%s次，帐户锁定%s分钟", loginThrottleService.getMaxRetryCount(), lockTime);
     }
 }
@@ -1,14 +1,15 @@
 package com.laigeoffer.pmhub.auth.service;
 
-import com.laigeoffer.pmhub.api.system.LogFeignService;
+import com.laigeoffer.pmhub.auth.audit.LoginAuditPipeline;
 import com.laigeoffer.pmhub.base.core.constant.Constants;
-import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysLogininfor;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
 import com.laigeoffer.pmhub.base.core.utils.ip.IpUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+
 /**
  * 记录日志方法
  *
@@ -17,7 +18,7 @@ import org.springframework.stereotype.Component;
 @Component
 public class SysRecordLogService {
     @Autowired
-    private LogFeignService remoteLogService;
+    private LoginAuditPipeline loginAuditPipeline;
 
     /**
      * 记录登录信息
@@ -32,12 +33,14 @@ public class SysRecordLogService {
         logininfor.setUserName(username);
         logininfor.setIpaddr(IpUtils.getIpAddr());
         logininfor.setMsg(message);
+        // 异步批量上报，登录时间取事件发生时间
+        logininfor.setLoginTime(new Date());
         // 日志状态
         if (StringUtils.equalsAny(status, Constants.LOGIN_SUCCESS, Constants.LOGOUT, Constants.REGISTER)) {
             logininfor.setStatus(Constants.LOGIN_SUCCESS_STATUS);
         } else if (Constants.LOGIN_FAIL.equals(status)) {
             logininfor.setStatus(Constants.LOGIN_FAIL_STATUS);
         }
-        remoteLogService.saveLogininfor(logininfor, SecurityConstants.INNER);
+        loginAuditPipeline.submit(logininfor);
     }
 }
@@ -2,6 +2,7 @@ package com.laigeoffer.pmhub.base.core.annotation;
 
 
 import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import com.laigeoffer.pmhub.base.core.enums.LimitMode;
 import com.laigeoffer.pmhub.base.core.enums.LimitType;
 
 import java.lang.annotation.*;
@@ -34,4 +35,10 @@ public @interface RateLimiter {
      * 限流类型
      */
     public LimitType limitType() default LimitType.DEFAULT;
+
+    /**
+     * 限流模式，默认每次请求都在redis中精确计数；
+     * 登录、验证码等需要精确次数的限流保持默认，只有高并发且允许少量偏差的接口显式指定 {@link LimitMode#HYBRID}
+     */
+    public LimitMode mode() default LimitMode.EXACT;
 }
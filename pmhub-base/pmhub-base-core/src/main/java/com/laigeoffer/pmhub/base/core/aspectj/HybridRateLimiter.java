@@ -0,0 +1,189 @@
+package com.laigeoffer.pmhub.base.core.aspectj;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 租约式限流
+ * 每个实例从redis的全局窗口中批量租用一部分配额，放入本地令牌桶，请求在本地通过CAS扣减；
+ * 剩余令牌低于租约的一半时由后台线程提前续租，本地用尽时才同步访问redis。
+ * 全局窗口配额耗尽后本地记录窗口结束时间，窗口结束前的请求直接拒绝，不再访问redis。
+ * 未用完的租约随窗口结束作废，因此总放行量不会超过全局配额。
+ *
+ * @author zw
+ */
+public class HybridRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(HybridRateLimiter.class);
+
+    /**
+     * 每次租用全局配额的比例
+     */
+    private static final int LEASE_DIVISOR = 10;
+
+    private static final long CLEAN_INTERVAL_SECONDS = 60;
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+
+    private final RedisScript<List> leaseScript;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor;
+
+    @SuppressWarnings("rawtypes")
+    public HybridRateLimiter(RedisTemplate<Object, Object> redisTemplate, RedisScript<List> leaseScript) {
+        this.redisTemplate = redisTemplate;
+        this.leaseScript = leaseScript;
+        this.executor = new ScheduledThreadPoolExecutor(1,
+                new BasicThreadFactory.Builder().namingPattern("rate-limit-lease-%d").daemon(true).build());
+        // 定期清理窗口已结束的本地令牌桶，避免按IP限流时无限增长
+        this.executor.scheduleWithFixedDelay(this::cleanExpired, CLEAN_INTERVAL_SECONDS, CLEAN_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param key   限流key
+     * @param count 窗口内全局配额
+     * @param time  窗口长度（秒）
+     * @return 是否放行
+     */
+    public boolean tryAcquire(String key, int count, int time) {
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(k, count, time));
+        long now = System.currentTimeMillis();
+        if (bucket.exhaustedUntil > now) {
+            return false;
+        }
+        long remain = bucket.tryTake(now);
+        if (remain >= 0) {
+            if (remain < bucket.leaseSize / 2 + 1) {
+                renewAsync(bucket);
+            }
+            return true;
+        }
+        // 本地令牌用尽或窗口已结束，同步续租
+        synchronized (bucket) {
+            remain = bucket.tryTake(now);
+            if (remain >= 0) {
+                return true;
+            }
+            if (bucket.exhaustedUntil > now) {
+                return false;
+            }
+            lease(bucket);
+            return bucket.tryTake(System.currentTimeMillis()) >= 0;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void renewAsync(Bucket bucket) {
+        if (bucket.renewing.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    synchronized (bucket) {
+                        lease(bucket);
+                    }
+                } catch (Exception e) {
+                    log.warn("限流配额续租失败'{}':{}", bucket.key, e.getMessage());
+                } finally {
+                    bucket.renewing.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 从redis租用配额，调用方需持有bucket锁
+     */
+    @SuppressWarnings("unchecked")
+    private void lease(Bucket bucket) {
+        List<Object> keys = Collections.singletonList(bucket.key);
+        List<Long> result = redisTemplate.execute(leaseScript, keys, bucket.count, bucket.time, bucket.leaseSize);
+        long now = System.currentTimeMillis();
+        long granted = result.get(0);
+        long ttl = result.get(1);
+        long windowEnd = now + (ttl > 0 ? ttl : TimeUnit.SECONDS.toMillis(bucket.time));
+        if (granted <= 0) {
+            bucket.exhaustedUntil = windowEnd;
+            return;
+        }
+        bucket.grant(granted, windowEnd, now);
+    }
+
+    private void cleanExpired() {
+        long now = System.currentTimeMillis();
+        buckets.values().removeIf(bucket -> bucket.windowEnd < now && bucket.exhaustedUntil < now && !bucket.renewing.get());
+    }
+
+    /**
+     * 本地令牌桶，令牌只在所属的redis窗口内有效
+     */
+    private static final class Bucket {
+        private final String key;
+
+        private final int count;
+
+        private final int time;
+
+        private final int leaseSize;
+
+        private final AtomicLong tokens = new AtomicLong();
+
+        private final AtomicBoolean renewing = new AtomicBoolean();
+
+        private volatile long windowEnd;
+
+        private volatile long exhaustedUntil;
+
+        private Bucket(String key, int count, int time) {
+            this.key = key;
+            this.count = count;
+            this.time = time;
+            this.leaseSize = Math.max(1, count / LEASE_DIVISOR);
+        }
+
+        /**
+         * @return 扣减后剩余的令牌数，没有可用令牌时返回-1
+         */
+        private long tryTake(long now) {
+            if (windowEnd <= now) {
+                return -1;
+            }
+            for (; ; ) {
+                long current = tokens.get();
+                if (current <= 0) {
+                    return -1;
+                }
+                if (tokens.compareAndSet(current, current - 1)) {
+                    return current - 1;
+                }
+            }
+        }
+
+        private void grant(long granted, long newWindowEnd, long now) {
+            if (windowEnd <= now || newWindowEnd > windowEnd + 1000) {
+                // 新窗口，旧窗口剩余令牌作废
+                tokens.set(granted);
+            } else {
+                tokens.addAndGet(granted);
+            }
+            windowEnd = newWindowEnd;
+        }
+    }
+}
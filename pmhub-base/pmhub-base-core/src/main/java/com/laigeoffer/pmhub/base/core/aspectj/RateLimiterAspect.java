@@ -1,6 +1,7 @@
 package com.laigeoffer.pmhub.base.core.aspectj;
 
 import com.laigeoffer.pmhub.base.core.annotation.RateLimiter;
+import com.laigeoffer.pmhub.base.core.enums.LimitMode;
 import com.laigeoffer.pmhub.base.core.enums.LimitType;
 import com.laigeoffer.pmhub.base.core.exception.ServiceException;
 import com.laigeoffer.pmhub.base.core.utils.ServletUtils;
@@ -17,9 +18,14 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.lang.reflect.Method;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 限流处理
@@ -35,6 +41,15 @@ public class RateLimiterAspect {
 
     private RedisScript<Long> limitScript;
 
+    private RedisScript<List> leaseScript;
+
+    private volatile HybridRateLimiter hybridRateLimiter;
+
+    /**
+     * 各限流点的放行/拒绝计数，key为注解key加方法名，不含IP
+     */
+    private final Map<String, LongAdder[]> counters = new ConcurrentHashMap<>();
+
     @Autowired
     public void setRedisTemplate1(RedisTemplate<Object, Object> redisTemplate) {
         this.redisTemplate = redisTemplate;
@@ -45,24 +60,76 @@ public class RateLimiterAspect {
         this.limitScript = limitScript;
     }
 
+    @Autowired
+    @SuppressWarnings("rawtypes")
+    public void setLeaseScript(RedisScript<List> leaseScript) {
+        this.leaseScript = leaseScript;
+    }
+
     @Before("@annotation(rateLimiter)")
     public void doBefore(JoinPoint point, RateLimiter rateLimiter) throws Throwable {
         int time = rateLimiter.time();
         int count = rateLimiter.count();
 
         String combineKey = getCombineKey(rateLimiter, point);
-        List<Object> keys = Collections.singletonList(combineKey);
+        LongAdder[] counter = counters.computeIfAbsent(getStatKey(rateLimiter, point), k -> new LongAdder[]{new LongAdder(), new LongAdder()});
+        boolean allowed;
         try {
-            Long number = redisTemplate.execute(limitScript, keys, count, time);
-            if (StringUtils.isNull(number) || number.intValue() > count) {
-                throw new ServiceException("访问过于频繁，请稍候再试");
+            if (rateLimiter.mode() == LimitMode.HYBRID) {
+                allowed = getHybridRateLimiter().tryAcquire(combineKey, count, time);
+            } else {
+                List<Object> keys = Collections.singletonList(combineKey);
+                Long number = redisTemplate.execute(limitScript, keys, count, time);
+                allowed = StringUtils.isNotNull(number) && number.intValue() <= count;
+                if (log.isDebugEnabled()) {
+                    log.debug("限制请求'{}',当前请求'{}',缓存key'{}'", count, number, combineKey);
+                }
             }
-            log.info("限制请求'{}',当前请求'{}',缓存key'{}'", count, number.intValue(), combineKey);
-        } catch (ServiceException e) {
-            throw e;
         } catch (Exception e) {
             throw new RuntimeException("服务器限流异常，请稍候再试");
         }
+        if (!allowed) {
+            counter[1].increment();
+            throw new ServiceException("访问过于频繁，请稍候再试");
+        }
+        counter[0].increment();
+    }
+
+    /**
+     * 各限流点的放行/拒绝次数
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new HashMap<>();
+        counters.forEach((key, counter) -> {
+            Map<String, Long> stat = new HashMap<>();
+            stat.put("hits", counter[0].sum());
+            stat.put("rejects", counter[1].sum());
+            stats.put(key, stat);
+        });
+        return stats;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (hybridRateLimiter != null) {
+            hybridRateLimiter.shutdown();
+        }
+    }
+
+    private HybridRateLimiter getHybridRateLimiter() {
+        if (hybridRateLimiter == null) {
+            synchronized (this) {
+                if (hybridRateLimiter == null) {
+                    hybridRateLimiter = new HybridRateLimiter(redisTemplate, leaseScript);
+                }
+            }
+        }
+        return hybridRateLimiter;
+    }
+
+    private String getStatKey(RateLimiter rateLimiter, JoinPoint point) {
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        return rateLimiter.key() + method.getDeclaringClass().getName() + "-" + method.getName();
     }
 
     public String getCombineKey(RateLimiter rateLimiter, JoinPoint point) {
@@ -102,6 +102,20 @@ public class PmhubConfig {
         return getProfile() + "/task";
     }
 
+    /**
+     * 获取附件内容寻址存储路径
+     */
+    public static String getBlobPath() {
+        return getProfile() + "/blob";
+    }
+
+    /**
+     * 获取分片上传中的文件路径
+     */
+    public static String getChunkPath() {
+        return getProfile() + "/chunk";
+    }
+
     /**
      * 获取下载路径
      */
@@ -11,6 +11,8 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+
 /**
  * redis配置
  * 
@@ -49,6 +51,15 @@ public class RedisConfig extends CachingConfigurerSupport
         return redisScript;
     }
 
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public DefaultRedisScript<List> leaseScript() {
+        DefaultRedisScript<List> redisScript = new DefaultRedisScript<>();
+        redisScript.setScriptText(leaseScriptText());
+        redisScript.setResultType(List.class);
+        return redisScript;
+    }
+
     /**
      * 限流脚本
      */
@@ -66,4 +77,27 @@ public class RedisConfig extends CachingConfigurerSupport
                 "end\n" +
                 "return tonumber(current);";
     }
+
+    /**
+     * 限流配额租用脚本，从当前窗口剩余配额中最多取出指定数量
+     * 返回 {实际租到的数量, 窗口剩余毫秒数}
+     */
+    private String leaseScriptText() {
+        return "local key = KEYS[1]\n" +
+                "local count = tonumber(ARGV[1])\n" +
+                "local time = tonumber(ARGV[2])\n" +
+                "local want = tonumber(ARGV[3])\n" +
+                "local current = tonumber(redis.call('get', key) or '0')\n" +
+                "local ttl = redis.call('pttl', key)\n" +
+                "if current >= count then\n" +
+                "    return {0, ttl}\n" +
+                "end\n" +
+                "local grant = math.min(want, count - current)\n" +
+                "redis.call('incrby', key, grant)\n" +
+                "if ttl < 0 then\n" +
+                "    redis.call('expire', key, time)\n" +
+                "    ttl = time * 1000\n" +
+                "end\n" +
+                "return {grant, ttl}";
+    }
 }
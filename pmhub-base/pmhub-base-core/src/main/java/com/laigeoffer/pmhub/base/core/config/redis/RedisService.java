@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.*;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
@@ -259,6 +260,17 @@ public class RedisService {
         return kv;
     }
 
+    /**
+     * 发布消息，消息体按原始字符串发送，便于各订阅端直接读取
+     *
+     * @param channel 频道
+     * @param message 消息内容
+     */
+    public void publish(final String channel, final String message) {
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(
+                channel.getBytes(StandardCharsets.UTF_8), message.getBytes(StandardCharsets.UTF_8)));
+    }
+
     /**
      * 删除所有缓存数据（慎用）
      */
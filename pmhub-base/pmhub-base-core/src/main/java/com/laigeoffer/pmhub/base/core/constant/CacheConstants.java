@@ -11,6 +11,16 @@ public class CacheConstants {
      */
     public static final String LOGIN_TOKEN_KEY = "login_tokens:";
 
+    /**
+     * 登录用户失效通知 redis channel（消息体为用户唯一标识）
+     */
+    public static final String LOGIN_TOKEN_EVICT_CHANNEL = "login_tokens_evict";
+
+    /**
+     * 用户信息变更通知 redis channel（消息体为用户ID，* 表示全部）
+     */
+    public static final String SYS_USER_EVICT_CHANNEL = "sys_user_evict";
+
     /**
      * 验证码 redis key
      */
@@ -36,16 +46,56 @@ public class CacheConstants {
      */
     public static final String RATE_LIMIT_KEY = "rate_limit:";
 
+    /**
+     * 项目燃尽图 redis key
+     */
+    public static final String BURN_DOWN_CHART_KEY = "burn_down_chart:";
+
+    /**
+     * 任务统计计数 redis key
+     */
+    public static final String TASK_STATS_KEY = "task_stats:";
+
+    /**
+     * 任务统计待校准的项目集合 redis key（其他服务直接修改任务状态后登记项目id）
+     */
+    public static final String TASK_STATS_DIRTY_KEY = "task_stats_dirty";
+
+    /**
+     * 集群定时任务最近一次执行日期 redis key
+     */
+    public static final String CLUSTER_JOB_RUN_KEY = "cluster_job_run:";
+
+    /**
+     * 游标分页列表总数 redis key
+     */
+    public static final String LIST_TOTAL_KEY = "list_total:";
+
     /**
      * 登录账户密码错误次数 redis key
      */
     public static final String PWD_ERR_CNT_KEY = "pwd_err_cnt:";
 
+    /**
+     * 登录账户密码错误滑动窗口 redis key
+     */
+    public static final String PWD_ERR_WINDOW_KEY = "pwd_err_window:";
+
+    /**
+     * 登录IP密码错误滑动窗口 redis key
+     */
+    public static final String PWD_ERR_IP_WINDOW_KEY = "pwd_err_ip_window:";
+
     /**
      * 密码最大错误次数
      */
     public final static int PASSWORD_MAX_RETRY_COUNT = 5;
 
+    /**
+     * 同一IP密码最大错误次数（不区分账户）
+     */
+    public final static int PASSWORD_IP_MAX_RETRY_COUNT = 30;
+
     /**
      * 密码锁定时间，默认10（分钟）
      */
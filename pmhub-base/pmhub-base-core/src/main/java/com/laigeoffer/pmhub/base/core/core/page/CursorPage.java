@@ -0,0 +1,91 @@
+package com.laigeoffer.pmhub.base.core.core.page;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页数据对象
+ *
+ * @author zw
+ */
+public class CursorPage<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 列表数据
+     */
+    private List<T> list;
+
+    /**
+     * 下一页游标，没有下一页时为空
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 总记录数，短时间缓存的近似值
+     */
+    private long total;
+
+    public CursorPage() {
+    }
+
+    /**
+     * 由多查一行的结果组装一页数据
+     *
+     * @param rows     按排序字段和主键倒序查出的数据，最多 pageSize + 1 行
+     * @param pageSize 每页行数
+     * @param sortKey  取排序字段
+     * @param id       取主键
+     * @param total    总记录数
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, Date> sortKey, Function<T, String> id, long total) {
+        CursorPage<T> page = new CursorPage<>();
+        page.hasMore = rows.size() > pageSize;
+        page.list = page.hasMore ? rows.subList(0, pageSize) : rows;
+        if (page.hasMore) {
+            T last = page.list.get(pageSize - 1);
+            page.nextCursor = new PageCursor(sortKey.apply(last), id.apply(last)).encode();
+        }
+        page.total = total;
+        return page;
+    }
+
+    public List<T> getList() {
+        return list;
+    }
+
+    public void setList(List<T> list) {
+        this.list = list;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,90 @@
+package com.laigeoffer.pmhub.base.core.core.page;
+
+import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.base.core.utils.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 游标分页的位置
+ * 记录上一页最后一行的排序字段和主键，下一页从该位置之后继续查询，查询代价与翻到第几页无关；
+ * 对外只暴露编码后的字符串，前端原样回传即可
+ *
+ * @author zw
+ */
+public class PageCursor {
+
+    /**
+     * 默认每页行数
+     */
+    public static final int DEFAULT_PAGE_SIZE = 10;
+
+    /**
+     * 每页最大行数
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String SEPARATOR = ":";
+
+    /**
+     * 排序字段
+     */
+    private final Date sortKey;
+
+    /**
+     * 主键，排序字段相同时用于区分先后
+     */
+    private final String id;
+
+    public PageCursor(Date sortKey, String id) {
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    /**
+     * 解析前端回传的游标
+     *
+     * @param cursor 游标，为空表示第一页
+     * @return 游标位置，第一页返回null
+     */
+    public static PageCursor decode(String cursor) {
+        if (StringUtils.isEmpty(cursor)) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = value.indexOf(SEPARATOR);
+            return new PageCursor(new Date(Long.parseLong(value.substring(0, index))), value.substring(index + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ServiceException("分页游标无效");
+        }
+    }
+
+    /**
+     * 编码为前端使用的游标
+     */
+    public String encode() {
+        String value = sortKey.getTime() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 每页行数，未传时使用默认值，最大不超过 {@link #MAX_PAGE_SIZE}
+     */
+    public static int pageSize(Integer pageSize) {
+        if (pageSize == null || pageSize <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+
+    public Date getSortKey() {
+        return sortKey;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
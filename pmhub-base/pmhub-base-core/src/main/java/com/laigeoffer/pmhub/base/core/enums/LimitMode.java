@@ -0,0 +1,19 @@
+package com.laigeoffer.pmhub.base.core.enums;
+
+/**
+ * 限流模式
+ *
+ * @author zw
+ */
+
+public enum LimitMode {
+    /**
+     * 每次请求都在redis中计数，结果精确
+     */
+    EXACT,
+
+    /**
+     * 各实例从redis批量租用配额，在本地令牌桶中扣减，只在租约用尽或即将用尽时访问redis
+     */
+    HYBRID
+}
@@ -2,6 +2,7 @@ package com.laigeoffer.pmhub.base.core.filter;
 
 
 import com.laigeoffer.pmhub.base.core.enums.HttpMethod;
+import com.laigeoffer.pmhub.base.core.utils.PathPatternIndex;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
 
 import javax.servlet.*;
@@ -22,6 +23,8 @@ public class XssFilter implements Filter {
      */
     public List<String> excludes = new ArrayList<>();
 
+    private PathPatternIndex excludesIndex = PathPatternIndex.EMPTY;
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
         String tempExcludes = filterConfig.getInitParameter("excludes");
@@ -31,6 +34,7 @@ public class XssFilter implements Filter {
                 excludes.add(url[i]);
             }
         }
+        excludesIndex = PathPatternIndex.compile(excludes);
     }
 
     @Override
@@ -53,7 +57,7 @@ public class XssFilter implements Filter {
         if (method == null || HttpMethod.GET.matches(method) || HttpMethod.DELETE.matches(method)) {
             return true;
         }
-        return StringUtils.matches(url, excludes);
+        return excludesIndex.matches(url);
     }
 
     @Override
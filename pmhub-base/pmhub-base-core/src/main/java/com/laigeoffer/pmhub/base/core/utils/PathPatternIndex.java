@@ -0,0 +1,298 @@
+package com.laigeoffer.pmhub.base.core.utils;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 预编译的url匹配索引，规则与 {@link StringUtils#isMatch(String, String)} 一致:
+ * ? 表示单个字符;
+ * * 表示一层路径内的任意字符串，不可跨层级;
+ * ** 表示任意层路径;
+ * <p>
+ * 规则在构建时按类型拆分：无通配符的精确地址走哈希查找，形如 /xxx/** 的前缀规则走字符前缀树，
+ * 只含 * ? 的通配规则预先切分为路径段逐段比较，其余含 ** 或uri模板变量的规则交给AntPathMatcher。
+ * 匹配过程不创建任何对象，耗时不随规则数量线性增长。
+ * 实例不可变，配置变更时重新构建并整体替换即可。
+ *
+ * @author zw
+ */
+public final class PathPatternIndex {
+    /**
+     * 空索引，不匹配任何地址
+     */
+    public static final PathPatternIndex EMPTY = new PathPatternIndex(Collections.emptyList(), false);
+
+    private static final String SEPARATOR = "/";
+
+    private static final String DOUBLE_SEPARATOR = "//";
+
+    private static final String DOUBLE_WILDCARD = "**";
+
+    private static final String SUBTREE_SUFFIX = "/**";
+
+    /**
+     * 含uri模板变量、非结尾 ** 等复杂规则时使用，AntPathMatcher本身线程安全
+     */
+    private static final AntPathMatcher FALLBACK_MATCHER = new AntPathMatcher();
+
+    private final Set<String> exact = new HashSet<>();
+
+    private final Node prefixRoot = new Node();
+
+    private final SegmentPattern[] segmentPatterns;
+
+    private final String[] fallbackPatterns;
+
+    private final String[] allPatterns;
+
+    private final boolean literalPrefix;
+
+    private final boolean empty;
+
+    private PathPatternIndex(Collection<String> patterns, boolean literalPrefix) {
+        List<SegmentPattern> segments = new ArrayList<>();
+        List<String> fallbacks = new ArrayList<>();
+        boolean hasPattern = false;
+        for (String pattern : patterns) {
+            if (StringUtils.isEmpty(pattern)) {
+                continue;
+            }
+            hasPattern = true;
+            if (literalPrefix) {
+                prefixRoot.insert(pattern).anyTail = true;
+            } else if (pattern.indexOf('{') >= 0) {
+                fallbacks.add(pattern);
+            } else if (!hasWildcard(pattern)) {
+                exact.add(pattern);
+            } else if (pattern.endsWith(SUBTREE_SUFFIX) && !hasWildcard(pattern.substring(0, pattern.length() - SUBTREE_SUFFIX.length()))) {
+                prefixRoot.insert(pattern.substring(0, pattern.length() - SUBTREE_SUFFIX.length())).subtree = true;
+            } else if (pattern.contains(DOUBLE_WILDCARD)) {
+                // ** 与结尾分隔符等组合的边界情况较多，白名单不允许比AntPathMatcher匹配得更宽
+                fallbacks.add(pattern);
+            } else {
+                segments.add(new SegmentPattern(pattern));
+            }
+        }
+        this.segmentPatterns = segments.toArray(new SegmentPattern[0]);
+        this.fallbackPatterns = fallbacks.toArray(new String[0]);
+        this.allPatterns = patterns.toArray(new String[0]);
+        this.literalPrefix = literalPrefix;
+        this.empty = !hasPattern;
+    }
+
+    /**
+     * 按ant风格规则构建索引
+     *
+     * @param patterns 匹配规则
+     * @return 索引
+     */
+    public static PathPatternIndex compile(Collection<String> patterns) {
+        if (StringUtils.isEmpty(patterns)) {
+            return EMPTY;
+        }
+        return new PathPatternIndex(patterns, false);
+    }
+
+    /**
+     * 按字面前缀构建索引，等价于逐个判断 url.startsWith(prefix)
+     *
+     * @param prefixes 地址前缀
+     * @return 索引
+     */
+    public static PathPatternIndex prefixes(String... prefixes) {
+        return new PathPatternIndex(Arrays.asList(prefixes), true);
+    }
+
+    /**
+     * 判断url是否命中任一规则
+     *
+     * @param url 需要匹配的url
+     * @return 是否命中
+     */
+    public boolean matches(String url) {
+        if (empty || url == null) {
+            return false;
+        }
+        if (!literalPrefix && (url.isEmpty() || url.contains(DOUBLE_SEPARATOR))) {
+            // 空地址或含连续分隔符的非常规地址，按AntPathMatcher逐条比较，保证结果一致
+            for (String pattern : allPatterns) {
+                if (StringUtils.isNotEmpty(pattern) && FALLBACK_MATCHER.match(pattern, url)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (exact.contains(url) || prefixRoot.matches(url)) {
+            return true;
+        }
+        for (SegmentPattern pattern : segmentPatterns) {
+            if (pattern.matches(url)) {
+                return true;
+            }
+        }
+        for (String pattern : fallbackPatterns) {
+            if (FALLBACK_MATCHER.match(pattern, url)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    private static boolean hasWildcard(String pattern) {
+        return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+    }
+
+    /**
+     * 字符前缀树节点，子节点按字符有序存放，查找时二分
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+
+        private Node[] children = new Node[0];
+
+        /**
+         * 以此节点结尾的 /xxx/** 规则：匹配 /xxx 本身及其所有下级路径
+         */
+        private boolean subtree;
+
+        /**
+         * 以此节点结尾的字面前缀：匹配任意后续字符
+         */
+        private boolean anyTail;
+
+        private Node insert(String prefix) {
+            Node node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            return node;
+        }
+
+        private Node childOrCreate(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            if (idx >= 0) {
+                return children[idx];
+            }
+            int insertAt = -idx - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = new Node();
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+
+        private boolean matches(String url) {
+            Node node = this;
+            int len = url.length();
+            for (int i = 0; ; i++) {
+                if (node.anyTail || (node.subtree && (i == len || url.charAt(i) == '/'))) {
+                    return true;
+                }
+                if (i == len) {
+                    return false;
+                }
+                int idx = Arrays.binarySearch(node.keys, url.charAt(i));
+                if (idx < 0) {
+                    return false;
+                }
+                node = node.children[idx];
+            }
+        }
+    }
+
+    /**
+     * 预先切分为路径段、只含 * ? 的通配规则，匹配逻辑与AntPathMatcher一致
+     */
+    private static final class SegmentPattern {
+        private final String[] segments;
+
+        private final boolean leadingSeparator;
+
+        private final boolean trailingSeparator;
+
+        private SegmentPattern(String pattern) {
+            List<String> list = new ArrayList<>();
+            for (String segment : pattern.split(SEPARATOR)) {
+                if (!segment.isEmpty()) {
+                    list.add(segment);
+                }
+            }
+            this.segments = list.toArray(new String[0]);
+            this.leadingSeparator = pattern.startsWith(SEPARATOR);
+            this.trailingSeparator = pattern.endsWith(SEPARATOR);
+        }
+
+        private boolean matches(String url) {
+            if (url.startsWith(SEPARATOR) != leadingSeparator) {
+                return false;
+            }
+            return matchFrom(0, url, 0);
+        }
+
+        private boolean matchFrom(int segIdx, String url, int pos) {
+            int len = url.length();
+            while (pos < len && url.charAt(pos) == '/') {
+                pos++;
+            }
+            if (segIdx == segments.length) {
+                return pos == len && url.endsWith(SEPARATOR) == trailingSeparator;
+            }
+            String segment = segments[segIdx];
+            if (pos >= len) {
+                // 与AntPathMatcher一致：/xxx/* 可匹配 /xxx/
+                return segIdx == segments.length - 1 && "*".equals(segment) && url.endsWith(SEPARATOR);
+            }
+            int end = url.indexOf('/', pos);
+            if (end < 0) {
+                end = len;
+            }
+            return matchSegment(segment, url, pos, end) && matchFrom(segIdx + 1, url, end);
+        }
+
+        /**
+         * 单个路径段内的 * ? 通配比较
+         */
+        private static boolean matchSegment(String segment, String url, int from, int to) {
+            int p = 0;
+            int s = from;
+            int starP = -1;
+            int starS = -1;
+            int segLen = segment.length();
+            while (s < to) {
+                if (p < segLen && (segment.charAt(p) == '?' || segment.charAt(p) == url.charAt(s))) {
+                    p++;
+                    s++;
+                } else if (p < segLen && segment.charAt(p) == '*') {
+                    starP = p++;
+                    starS = s;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    s = ++starS;
+                } else {
+                    return false;
+                }
+            }
+            while (p < segLen && segment.charAt(p) == '*') {
+                p++;
+            }
+            return p == segLen;
+        }
+    }
+}
@@ -23,6 +23,11 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils {
      */
     private static final char SEPARATOR = '_';
 
+    /**
+     * 路径匹配器，线程安全，可复用
+     */
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
     /**
      * 获取参数不为空值
      *
@@ -469,8 +474,7 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils {
      * @return
      */
     public static boolean isMatch(String pattern, String url) {
-        AntPathMatcher matcher = new AntPathMatcher();
-        return matcher.match(pattern, url);
+        return PATH_MATCHER.match(pattern, url);
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,260 @@
+package com.laigeoffer.pmhub.base.core.utils.file;
+
+import com.laigeoffer.pmhub.base.core.utils.StringUtils;
+import com.laigeoffer.pmhub.base.core.utils.uuid.IdUtils;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 文件下载工具类
+ * 支持 Range 断点续传和多段请求（206），重叠的区间合并输出，Range 格式不正确时忽略并输出整个文件；ETag 或修改时间未变时返回 304；
+ * 容器支持 sendfile 时由容器直接把文件发送到连接，否则用 FileChannel.transferTo 输出，不经过堆内缓冲区
+ *
+ * @author zw
+ */
+public class FileDownloadUtils {
+
+    /**
+     * Tomcat sendfile 相关的请求属性
+     */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 小于该大小的文件直接输出，与 Tomcat 默认的 sendfile 阈值一致
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    /**
+     * 输出文件，Content-Type 和 Content-Disposition 由调用方提前设置
+     *
+     * @param filePath 文件路径
+     * @param request  请求
+     * @param response 响应
+     */
+    public static void writeFile(String filePath, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeFile(filePath, request, response, true);
+    }
+
+    /**
+     * 输出文件，Content-Type 和 Content-Disposition 由调用方提前设置
+     *
+     * @param filePath 文件路径
+     * @param request  请求
+     * @param response 响应
+     * @param sendfile 是否允许交给容器 sendfile，输出后立即删除的文件不能交给容器
+     */
+    public static void writeFile(String filePath, HttpServletRequest request, HttpServletResponse response, boolean sendfile)
+            throws IOException {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(filePath);
+        }
+        long length = file.length();
+        // 响应头中的时间精确到秒
+        long lastModified = file.lastModified() / 1000 * 1000;
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+
+        boolean readOnly = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        if (readOnly && notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        boolean head = "HEAD".equals(request.getMethod());
+        String rangeHeader = request.getHeader("Range");
+        List<long[]> regions = null;
+        if (readOnly && StringUtils.isNotEmpty(rangeHeader) && rangeApplies(request, etag, lastModified)) {
+            regions = regions(rangeHeader, length);
+        }
+        if (regions == null) {
+            response.setContentLengthLong(length);
+            if (!head) {
+                write(file, 0, length, request, response, sendfile);
+            }
+            return;
+        }
+        if (regions.isEmpty()) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                write(file, start, end - start + 1, request, response, sendfile);
+            }
+            return;
+        }
+        writeRanges(file, regions, length, response, head);
+    }
+
+    /**
+     * 解析 Range 为按起始位置排序、合并了重叠和相邻部分的区间
+     *
+     * @return 格式不正确或各段总长超过文件长度时返回null，按整个文件输出；没有可满足的区间时返回空列表，响应416
+     */
+    static List<long[]> regions(String rangeHeader, long length) {
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        List<long[]> regions = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            // 起始位置超出文件长度的区间不可满足，忽略
+            if (start >= length || end < start) {
+                continue;
+            }
+            total += end - start + 1;
+            if (total > length) {
+                // 与 HttpRange.toResourceRegions 一致，不为重复请求同一内容的多段请求放大输出
+                return null;
+            }
+            regions.add(new long[]{start, end});
+        }
+        regions.sort(Comparator.comparingLong(region -> region[0]));
+        List<long[]> merged = new ArrayList<>(regions.size());
+        for (long[] region : regions) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && region[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], region[1]);
+            } else {
+                merged.add(region);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 多段请求按 multipart/byteranges 输出
+     */
+    private static void writeRanges(File file, List<long[]> regions, long length, HttpServletResponse response, boolean head)
+            throws IOException {
+        String contentType = StringUtils.isEmpty(response.getContentType())
+                ? MediaType.APPLICATION_OCTET_STREAM_VALUE : response.getContentType();
+        String boundary = IdUtils.fastSimpleUUID();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (head) {
+            return;
+        }
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            for (long[] region : regions) {
+                long start = region[0];
+                long end = region[1];
+                out.write(("\r\n--" + boundary + "\r\nContent-Type: " + contentType
+                        + "\r\nContent-Range: bytes " + start + "-" + end + "/" + length + "\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                transfer(channel, start, end - start + 1, target);
+            }
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static void write(File file, long start, long count, HttpServletRequest request, HttpServletResponse response,
+                              boolean sendfile) throws IOException {
+        if (sendfile && count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 容器在请求处理结束后直接发送文件
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        ServletOutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(out));
+        }
+        out.flush();
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("文件在下载过程中被修改");
+            }
+            position += transferred;
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = dateHeader(request, "If-Modified-Since");
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * If-Range 与当前文件一致或没有 If-Range 时按 Range 输出，否则输出整个文件
+     */
+    private static boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (StringUtils.isEmpty(ifRange)) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.trim().equals(etag);
+        }
+        return dateHeader(request, "If-Range") == lastModified;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if ("*".equals(candidate) || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.laigeoffer.pmhub.base.core.utils.file;
 import cn.hutool.core.util.ObjectUtil;
 import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
 import com.laigeoffer.pmhub.base.core.utils.DateUtils;
+import com.laigeoffer.pmhub.base.core.utils.ServletUtils;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
 import com.laigeoffer.pmhub.base.core.utils.uuid.IdUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -25,35 +26,14 @@ public class FileUtils {
     public static String FILENAME_PATTERN = "[a-zA-Z0-9_\\-\\|\\.\\u4e00-\\u9fa5]+";
 
     /**
-     * 输出指定文件的byte数组
+     * 输出指定文件，支持 Range 和条件请求，见 {@link FileDownloadUtils}
      *
      * @param filePath 文件路径
      * @param response
      * @return
      */
     public static void writeBytes(String filePath, HttpServletResponse response) throws IOException {
-        FileInputStream fis = null;
-        OutputStream os = null;
-        try {
-            File file = new File(filePath);
-            if (!file.exists()) {
-                throw new FileNotFoundException(filePath);
-            }
-            fis = new FileInputStream(file);
-            response.setContentLength(fis.available());
-            response.setHeader("Content-Length", String.valueOf(fis.available()));
-            os = response.getOutputStream();
-            byte[] b = new byte[1024];
-            int length;
-            while ((length = fis.read(b)) > 0) {
-                os.write(b, 0, length);
-            }
-        } catch (IOException e) {
-            throw e;
-        } finally {
-            IOUtils.close(os);
-            IOUtils.close(fis);
-        }
+        FileDownloadUtils.writeFile(filePath, ServletUtils.getRequest(), response);
     }
 
 
@@ -128,6 +128,14 @@ public class ExcelUtil<T> {
      * 统计列表
      */
     private Map<Integer, Double> statistics = new HashMap<Integer, Double>();
+    /**
+     * 流式导出当前工作表序号
+     */
+    private int streamSheetIndex;
+    /**
+     * 流式导出当前工作表已写入的数据行数
+     */
+    private int streamSheetRows;
 
     public ExcelUtil(Class<T> clazz) {
         this.clazz = clazz;
@@ -623,21 +631,7 @@ public class ExcelUtil<T> {
             createSheet(sheetNo, index);
 
             // 产生一行
-            Row row = sheet.createRow(rownum);
-            int column = 0;
-            // 写入各个字段的列头名称
-            for (Object[] os : fields) {
-                Field field = (Field) os[0];
-                Excel excel = (Excel) os[1];
-                if (Collection.class.isAssignableFrom(field.getType())) {
-                    for (Field subField : subFields) {
-                        Excel subExcel = subField.getAnnotation(Excel.class);
-                        this.createHeadCell(subExcel, row, column++);
-                    }
-                } else {
-                    this.createHeadCell(excel, row, column++);
-                }
-            }
+            Row row = createHeadRow();
             if (Excel.Type.EXPORT.equals(type)) {
                 fillExcelData(index, row);
                 addStatisticsRow();
@@ -645,6 +639,98 @@ public class ExcelUtil<T> {
         }
     }
 
+    /**
+     * 写入各个字段的列头名称
+     *
+     * @return 列头行
+     */
+    private Row createHeadRow() {
+        Row row = sheet.createRow(rownum);
+        int column = 0;
+        for (Object[] os : fields) {
+            Field field = (Field) os[0];
+            Excel excel = (Excel) os[1];
+            if (Collection.class.isAssignableFrom(field.getType())) {
+                for (Field subField : subFields) {
+                    Excel subExcel = subField.getAnnotation(Excel.class);
+                    this.createHeadCell(subExcel, row, column++);
+                }
+            } else {
+                this.createHeadCell(excel, row, column++);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * 开始流式导出，只创建工作簿和列头，数据由 {@link #appendRows(List)} 分批写入
+     * 行数据由SXSSF按窗口刷到临时文件，内存占用只与每批的行数有关
+     *
+     * @param sheetName 工作表的名称
+     * @param title     标题
+     */
+    public void startStream(String sheetName, String title) {
+        this.init(null, sheetName, title, Excel.Type.EXPORT);
+        if (isSubList()) {
+            IOUtils.closeQuietly(wb);
+            throw new UtilException("流式导出不支持子列表");
+        }
+        this.streamSheetIndex = 0;
+        this.streamSheetRows = 0;
+        createHeadRow();
+    }
+
+    /**
+     * 追加一批数据，当前工作表写满后自动新建工作表
+     *
+     * @param rows 数据
+     */
+    public void appendRows(List<T> rows) {
+        for (T vo : rows) {
+            if (streamSheetRows >= sheetSize) {
+                addStatisticsRow();
+                streamSheetIndex++;
+                createSheet(streamSheetIndex + 1, streamSheetIndex);
+                createHeadRow();
+                streamSheetRows = 0;
+            }
+            Row row = sheet.createRow(rownum + 1 + streamSheetRows);
+            int column = 0;
+            for (Object[] os : fields) {
+                this.addCell((Excel) os[1], row, vo, (Field) os[0], column++);
+            }
+            streamSheetRows++;
+        }
+    }
+
+    /**
+     * 结束流式导出，把工作簿写入响应并清理临时文件
+     *
+     * @param response 返回数据
+     */
+    public void finishStream(HttpServletResponse response) {
+        try {
+            addStatisticsRow();
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setCharacterEncoding("utf-8");
+            wb.write(response.getOutputStream());
+        } catch (Exception e) {
+            log.error("导出Excel异常{}", e.getMessage());
+        } finally {
+            closeStream();
+        }
+    }
+
+    /**
+     * 放弃流式导出，清理临时文件
+     */
+    public void closeStream() {
+        if (wb instanceof SXSSFWorkbook) {
+            ((SXSSFWorkbook) wb).dispose();
+        }
+        IOUtils.closeQuietly(wb);
+    }
+
     /**
      * 填充excel数据
      *
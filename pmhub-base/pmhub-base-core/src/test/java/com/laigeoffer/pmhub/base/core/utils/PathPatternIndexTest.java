@@ -0,0 +1,109 @@
+package com.laigeoffer.pmhub.base.core.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 预编译索引与AntPathMatcher的匹配结果一致
+ *
+ * @author zw
+ */
+class PathPatternIndexTest {
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    /**
+     * 网关不校验白名单及XSS排除地址
+     */
+    private static final List<String> WHITES = Arrays.asList(
+            "/auth/logout", "/auth/login", "/auth/refreshRedis", "/auth/register", "/*/v2/api-docs", "/csrf",
+            "/profile/**", "/system/user/getInfo", "/project/statistics", "/project/doing",
+            "/project/queryMyTaskList", "/project/select", "/system/menu/getRouters", "/auth/limitTest",
+            "/system/notice");
+
+    private static final List<String> EDGE_PATTERNS = Arrays.asList(
+            "/**", "/**/*", "/**/a/*", "/a/**/b", "/a/**/*.js", "/a/*", "/*", "/a/?b", "/a/*.js", "a/*",
+            "/a/b/", "/a/**", "**", "/a/{id}", "/a/{id}/b");
+
+    private static final List<String> EDGE_PATHS = Arrays.asList(
+            "", "/", "//", "///", "/a", "/a/", "/a//", "//a", "/a/b", "/a/b/", "/a//b", "/ab", "/a/ab", "/a/xb",
+            "/a/x.js", "/a/b/c.js", "/a/b/b", "a", "a/", "a/b",
+            "/auth/login", "/auth/login/", "/auth//login", "//auth/login", "/auth/loginx",
+            "/system/v2/api-docs", "/system/v2/api-docs/", "//v2/api-docs", "/a/b/v2/api-docs",
+            "/profile", "/profile/", "/profile/a/b", "/profilex", "/profile//a", "//profile/a",
+            "/csrf/", "/system/notice/1");
+
+    @Test
+    void whitelistMatchesAnt() {
+        PathPatternIndex index = PathPatternIndex.compile(WHITES);
+        for (String path : paths()) {
+            assertEquals(antMatches(WHITES, path), index.matches(path), "白名单 " + path);
+        }
+    }
+
+    @Test
+    void singlePatternMatchesAnt() {
+        List<String> patterns = new ArrayList<>(WHITES);
+        patterns.addAll(EDGE_PATTERNS);
+        List<String> paths = paths();
+        for (String pattern : patterns) {
+            PathPatternIndex index = PathPatternIndex.compile(Collections.singletonList(pattern));
+            for (String path : paths) {
+                assertEquals(MATCHER.match(pattern, path), index.matches(path), pattern + " " + path);
+            }
+        }
+    }
+
+    @Test
+    void doubleWildcardDoesNotWidenTrailingStar() {
+        assertFalse(PathPatternIndex.compile(Collections.singletonList("/**/*")).matches("/"));
+        assertFalse(PathPatternIndex.compile(Collections.singletonList("/**/a/*")).matches("/a/"));
+        assertTrue(PathPatternIndex.compile(Collections.singletonList("/a/*")).matches("/a/"));
+    }
+
+    @Test
+    void literalPrefixes() {
+        PathPatternIndex index = PathPatternIndex.prefixes("/auth/", "/v2/api-docs");
+        assertTrue(index.matches("/auth/"));
+        assertTrue(index.matches("/v2/api-docs-ext"));
+        assertFalse(index.matches("/auth"));
+        assertFalse(index.matches("/system/auth/"));
+    }
+
+    /**
+     * 固定路径加上由 / a b . 组成的随机路径
+     */
+    private static List<String> paths() {
+        List<String> paths = new ArrayList<>(EDGE_PATHS);
+        Random random = new Random(20240501L);
+        char[] chars = {'/', '/', 'a', 'b', '.'};
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder path = new StringBuilder();
+            int len = random.nextInt(9);
+            for (int j = 0; j < len; j++) {
+                path.append(chars[random.nextInt(chars.length)]);
+            }
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+
+    private static boolean antMatches(List<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
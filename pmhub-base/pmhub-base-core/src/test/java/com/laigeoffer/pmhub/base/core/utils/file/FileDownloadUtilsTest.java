@@ -0,0 +1,66 @@
+package com.laigeoffer.pmhub.base.core.utils.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Range 解析：格式错误忽略、不可满足返回空、重叠合并、总长超出按整个文件输出
+ *
+ * @author zw
+ */
+class FileDownloadUtilsTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    void invalidHeaderIsIgnored() {
+        assertNull(FileDownloadUtils.regions("bytes=abc", LENGTH));
+        assertNull(FileDownloadUtils.regions("items=0-1", LENGTH));
+        assertNull(FileDownloadUtils.regions("bytes=5-3", LENGTH));
+    }
+
+    @Test
+    void unsatisfiableRangeIsEmpty() {
+        assertTrue(FileDownloadUtils.regions("bytes=1000-", LENGTH).isEmpty());
+        assertTrue(FileDownloadUtils.regions("bytes=2000-3000,1500-", LENGTH).isEmpty());
+    }
+
+    @Test
+    void unsatisfiablePartsAreDropped() {
+        List<long[]> regions = FileDownloadUtils.regions("bytes=2000-3000,0-9", LENGTH);
+        assertEquals(1, regions.size());
+        assertArrayEquals(new long[]{0, 9}, regions.get(0));
+    }
+
+    @Test
+    void singleAndSuffixRange() {
+        assertArrayEquals(new long[]{100, 999}, FileDownloadUtils.regions("bytes=100-", LENGTH).get(0));
+        assertArrayEquals(new long[]{900, 999}, FileDownloadUtils.regions("bytes=-100", LENGTH).get(0));
+        assertArrayEquals(new long[]{990, 999}, FileDownloadUtils.regions("bytes=990-5000", LENGTH).get(0));
+    }
+
+    @Test
+    void overlappingAndAdjacentRangesAreMerged() {
+        List<long[]> regions = FileDownloadUtils.regions("bytes=500-599,0-99,50-149,150-199,800-899", LENGTH);
+        assertEquals(3, regions.size());
+        assertArrayEquals(new long[]{0, 199}, regions.get(0));
+        assertArrayEquals(new long[]{500, 599}, regions.get(1));
+        assertArrayEquals(new long[]{800, 899}, regions.get(2));
+    }
+
+    @Test
+    void rangesLongerThanFileServeWholeFile() {
+        assertNull(FileDownloadUtils.regions("bytes=0-599,400-999", LENGTH));
+        StringBuilder header = new StringBuilder("bytes=0-199");
+        for (int i = 0; i < 5; i++) {
+            header.append(",0-199");
+        }
+        assertNull(FileDownloadUtils.regions(header.toString(), LENGTH));
+    }
+}
@@ -0,0 +1,39 @@
+package com.laigeoffer.pmhub.base.security.config;
+
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import com.laigeoffer.pmhub.base.security.properties.LoginUserCacheProperties;
+import com.laigeoffer.pmhub.base.security.service.LoginUserCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 登录用户本地缓存配置
+ *
+ * @author zw
+ */
+@Configuration
+@EnableConfigurationProperties(LoginUserCacheProperties.class)
+@ConditionalOnProperty(value = "security.login-user-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class LoginUserCacheConfig {
+    @Bean
+    public LoginUserCache loginUserCache(LoginUserCacheProperties properties) {
+        return new LoginUserCache(properties);
+    }
+
+    /**
+     * 订阅登录用户失效频道，连接断开后由容器自动重新订阅
+     */
+    @Bean
+    public RedisMessageListenerContainer loginUserEvictListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                        LoginUserCache loginUserCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(loginUserCache, new ChannelTopic(CacheConstants.LOGIN_TOKEN_EVICT_CHANNEL));
+        return container;
+    }
+}
@@ -1,10 +1,8 @@
 package com.laigeoffer.pmhub.base.security.config;
 
 import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
-import com.laigeoffer.pmhub.base.core.constant.Constants;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
@@ -15,13 +13,6 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class ResourcesConfig implements WebMvcConfigurer {
 
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        /** 本地文件上传路径 */
-        registry.addResourceHandler(Constants.RESOURCE_PREFIX + "/**")
-                .addResourceLocations("file:" + PmhubConfig.getProfile() + "/");
-    }
-
     /**
      * 开启跨域
      */
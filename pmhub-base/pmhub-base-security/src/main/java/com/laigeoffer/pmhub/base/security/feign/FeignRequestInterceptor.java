@@ -20,6 +20,10 @@ import java.util.Map;
 public class FeignRequestInterceptor implements RequestInterceptor {
     @Override
     public void apply(RequestTemplate requestTemplate) {
+        if (ServletUtils.getRequestAttributes() == null) {
+            // 后台线程发起的内部调用没有请求上下文，无需透传请求头
+            return;
+        }
         HttpServletRequest httpServletRequest = ServletUtils.getRequest();
         Map<String, String> headers = ServletUtils.getHeaders(httpServletRequest);
         // 传递用户信息请求头，防止丢失
@@ -0,0 +1,42 @@
+package com.laigeoffer.pmhub.base.security.handle;
+
+import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
+import com.laigeoffer.pmhub.base.core.constant.Constants;
+import com.laigeoffer.pmhub.base.core.utils.StringUtils;
+import com.laigeoffer.pmhub.base.core.utils.file.FileDownloadUtils;
+import com.laigeoffer.pmhub.base.core.utils.file.FileUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 本地上传文件访问，头像、封面等通过 /profile 地址直接访问的文件都由此输出，支持 Range 和条件请求
+ *
+ * @author zw
+ */
+@RestController
+public class ProfileResourceHandler {
+
+    @GetMapping(Constants.RESOURCE_PREFIX + "/**")
+    public void resource(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String resource = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        if (!FileUtils.checkAllowDownload(resource)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String filePath = PmhubConfig.getProfile() + StringUtils.substringAfter(resource, Constants.RESOURCE_PREFIX);
+        if (!new File(filePath).isFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(filePath).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        FileDownloadUtils.writeFile(filePath, request, response);
+    }
+}
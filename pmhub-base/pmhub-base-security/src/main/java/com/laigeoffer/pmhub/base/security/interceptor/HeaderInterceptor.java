@@ -5,6 +5,7 @@ import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
 import com.laigeoffer.pmhub.base.core.context.SecurityContextHolder;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
 import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
+import com.laigeoffer.pmhub.base.core.utils.PathPatternIndex;
 import com.laigeoffer.pmhub.base.core.utils.ServletUtils;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
 import com.laigeoffer.pmhub.base.security.auth.AuthUtil;
@@ -14,8 +15,6 @@ import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * 自定义请求头拦截器，将Header数据封装到线程变量中方便获取
@@ -25,18 +24,14 @@ import java.util.Set;
  */
 public class HeaderInterceptor implements AsyncHandlerInterceptor {
 
-    // 需要免登录的路径集合
-    private static final Set<String> EXEMPTED_PATHS = new HashSet<>();
-
-    static {
-        // 在这里添加所有需要免登录默认展示首页的的路径
-        EXEMPTED_PATHS.add("/system/user/getInfo");
-        EXEMPTED_PATHS.add("/project/statistics");
-        EXEMPTED_PATHS.add("/project/doing");
-        EXEMPTED_PATHS.add("/project/queryMyTaskList");
-        EXEMPTED_PATHS.add("/project/select");
-        EXEMPTED_PATHS.add("/system/menu/getRouters");
-    }
+    // 需要免登录的路径集合（按前缀匹配），在这里添加所有需要免登录默认展示首页的的路径
+    private static final PathPatternIndex EXEMPTED_PATHS = PathPatternIndex.prefixes(
+            "/system/user/getInfo",
+            "/project/statistics",
+            "/project/doing",
+            "/project/queryMyTaskList",
+            "/project/select",
+            "/system/menu/getRouters");
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -71,7 +66,7 @@ public class HeaderInterceptor implements AsyncHandlerInterceptor {
     // 判断请求路径是否匹配特定路径
     private boolean isExemptedPath(String requestURI) {
         // 你可以根据需要调整特定路径的匹配逻辑
-        return EXEMPTED_PATHS.stream().anyMatch(requestURI::startsWith);
+        return EXEMPTED_PATHS.matches(requestURI);
     }
 
     // 创建一个默认的 LoginUser 对象
@@ -0,0 +1,50 @@
+package com.laigeoffer.pmhub.base.security.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 登录用户本地缓存配置（启动时生效）
+ *
+ * @author zw
+ */
+@ConfigurationProperties(prefix = "security.login-user-cache")
+public class LoginUserCacheProperties {
+    /**
+     * 本地缓存开关，关闭后每次请求都从redis读取登录用户
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 最大缓存用户数
+     */
+    private long maximumSize = 10000;
+
+    /**
+     * 本地缓存有效期（秒），兜底redis失效通知丢失的情况
+     */
+    private long expireSeconds = 60;
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public long getExpireSeconds() {
+        return expireSeconds;
+    }
+
+    public void setExpireSeconds(long expireSeconds) {
+        this.expireSeconds = expireSeconds;
+    }
+}
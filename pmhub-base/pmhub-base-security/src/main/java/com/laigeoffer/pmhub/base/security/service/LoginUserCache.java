@@ -0,0 +1,130 @@
+package com.laigeoffer.pmhub.base.security.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
+import com.laigeoffer.pmhub.base.core.utils.StringUtils;
+import com.laigeoffer.pmhub.base.security.properties.LoginUserCacheProperties;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 登录用户本地缓存
+ * 按用户唯一标识缓存反序列化后的登录用户，命中时不访问redis也不解析json；
+ * 退出、刷新令牌、权限变更时由 {@link TokenService} 通过redis频道广播用户标识，各节点收到后清理本地缓存。
+ * 缓存中的对象不直接交给调用方，每次返回浅拷贝，权限和角色集合单独复制，其中的 {@link LoginUser#getUser()} 只读。
+ * 续期只对redis执行EXPIRE，redis中的过期时间字段不再更新，因此命中时不按该字段判断，
+ * 会话失效依靠失效通知、本地缓存有效期和redis的过期时间，续期后的过期时间通过 {@link #extend} 记录到本地
+ *
+ * @author zw
+ */
+public class LoginUserCache implements MessageListener {
+    private final Cache<String, LoginUser> cache;
+
+    /**
+     * 正在加载的用户及本次加载的凭据；
+     * 失效时移除凭据，加载结束时凭据已不存在说明加载期间该用户发生过失效，本次结果不放入缓存，其他用户的失效不受影响
+     */
+    private final ConcurrentHashMap<String, Object> loading = new ConcurrentHashMap<>();
+
+    public LoginUserCache(LoginUserCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 获取登录用户，本地未命中时通过loader从redis加载
+     *
+     * @param userkey 用户唯一标识
+     * @param loader  加载方法
+     * @return 登录用户的副本
+     */
+    public LoginUser get(String userkey, Function<String, LoginUser> loader) {
+        LoginUser loginUser = cache.getIfPresent(userkey);
+        if (loginUser != null) {
+            return copy(loginUser);
+        }
+        Object ticket = new Object();
+        loading.put(userkey, ticket);
+        LoginUser loaded;
+        try {
+            loaded = loader.apply(userkey);
+        } catch (RuntimeException e) {
+            loading.remove(userkey, ticket);
+            throw e;
+        }
+        // 与失效在同一个key上串行执行，凭据仍是本次的才写入缓存
+        loading.computeIfPresent(userkey, (key, current) -> {
+            if (current != ticket) {
+                return current;
+            }
+            if (loaded == null) {
+                cache.invalidate(key);
+            } else {
+                cache.put(key, loaded);
+            }
+            return null;
+        });
+        return loaded == null ? null : copy(loaded);
+    }
+
+    /**
+     * 记录续期后的过期时间，替换为新对象，已交给调用方的副本不受影响
+     *
+     * @param userkey    用户唯一标识
+     * @param expireTime 续期后的过期时间
+     */
+    public void extend(String userkey, long expireTime) {
+        cache.asMap().computeIfPresent(userkey, (key, current) -> {
+            LoginUser extended = copy(current);
+            extended.setExpireTime(expireTime);
+            return extended;
+        });
+    }
+
+    /**
+     * 清理指定用户的本地缓存
+     *
+     * @param userkey 用户唯一标识
+     */
+    public void invalidate(String userkey) {
+        loading.compute(userkey, (key, current) -> {
+            cache.invalidate(key);
+            return null;
+        });
+    }
+
+    public void invalidateAll() {
+        loading.clear();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String userkey = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (StringUtils.isNotEmpty(userkey)) {
+            invalidate(userkey);
+        }
+    }
+
+    private static LoginUser copy(LoginUser loginUser) {
+        LoginUser copy = new LoginUser();
+        BeanUtils.copyProperties(loginUser, copy);
+        if (loginUser.getPermissions() != null) {
+            copy.setPermissions(new HashSet<>(loginUser.getPermissions()));
+        }
+        if (loginUser.getRoles() != null) {
+            copy.setRoles(new HashSet<>(loginUser.getRoles()));
+        }
+        return copy;
+    }
+}
@@ -1,6 +1,8 @@
 package com.laigeoffer.pmhub.base.security.service;
 
 import com.alibaba.fastjson2.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.laigeoffer.pmhub.base.core.config.redis.RedisService;
 import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
 import com.laigeoffer.pmhub.base.core.constant.Constants;
@@ -23,6 +25,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.http.HttpServletRequest;
@@ -30,6 +33,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,6 +51,8 @@ public class TokenService {
 
     private final static String ACCESS_TOKEN = CacheConstants.LOGIN_TOKEN_KEY;
 
+    private static final String REFRESH_MODE_REWRITE = "rewrite";
+
     // 令牌自定义标识
     @Value("${token.header}")
     private String header;
@@ -55,8 +62,36 @@ public class TokenService {
     // 令牌有效期（默认30分钟）
     @Value("${token.expireTime}")
     private int expireTime;
+    // 有效期续期方式（expire 仅延长redis过期时间，rewrite 重写整个登录用户）
+    @Value("${token.refreshMode:expire}")
+    private String refreshMode;
+    // 本节点记录续期结果的最大用户数
+    @Value("${token.extendCacheSize:100000}")
+    private long extendCacheSize;
     @Autowired
     private RedisService redisService;
+    @Autowired(required = false)
+    private LoginUserCache loginUserCache;
+
+    /**
+     * 本节点已续期的用户标识及续期后的过期时间，同一用户在续期窗口内不再重复访问redis；
+     * 记录在续期后再次进入刷新窗口时失效
+     */
+    private Cache<String, Long> extendedTokens;
+
+    /**
+     * 正在续期的用户标识，并发请求只由一个线程执行续期
+     */
+    private final Set<String> extendingTokens = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void initExtendedTokens() {
+        long effectiveMillis = Math.max(MILLIS_MINUTE, expireTime * MILLIS_MINUTE - MILLIS_MINUTE_TEN);
+        extendedTokens = Caffeine.newBuilder()
+                .maximumSize(extendCacheSize)
+                .expireAfterWrite(effectiveMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
 
     /**
      * 生成SecretKey
@@ -105,8 +140,8 @@ public class TokenService {
             if (StringUtils.isNotEmpty(token))
             {
                 String userkey = JwtUtils.getUserKey(token);
-                JSONObject jsonObject = redisService.getCacheObject(getTokenKey(userkey));
-                user = jsonObject.toJavaObject(LoginUser.class);
+                // 优先读取本地缓存，未命中时才访问redis并解析
+                user = loginUserCache != null ? loginUserCache.get(userkey, this::loadLoginUser) : loadLoginUser(userkey);
                 return user;
             }
         }
@@ -118,6 +153,17 @@ public class TokenService {
     }
 
 
+    /**
+     * 从redis读取并解析登录用户
+     *
+     * @param userkey 用户唯一标识
+     * @return 用户信息
+     */
+    private LoginUser loadLoginUser(String userkey) {
+        JSONObject jsonObject = redisService.getCacheObject(getTokenKey(userkey));
+        return jsonObject == null ? null : jsonObject.toJavaObject(LoginUser.class);
+    }
+
     /**
      * 设置用户身份信息
      */
@@ -132,8 +178,21 @@ public class TokenService {
      */
     public void delLoginUser(String token) {
         if (StringUtils.isNotEmpty(token)) {
-            String userKey = getTokenKey(token);
-            redisService.deleteObject(userKey);
+            String userkey = JwtUtils.getUserKey(token);
+            delLoginUserByKey(userkey);
+        }
+    }
+
+    /**
+     * 根据用户唯一标识删除用户身份信息，并通知网关等节点清理本地会话缓存
+     *
+     * @param userkey 用户唯一标识
+     */
+    public void delLoginUserByKey(String userkey) {
+        if (StringUtils.isNotEmpty(userkey)) {
+            redisService.deleteObject(getTokenKey(userkey));
+            extendedTokens.invalidate(userkey);
+            redisService.publish(CacheConstants.LOGIN_TOKEN_EVICT_CHANNEL, userkey);
         }
     }
 
@@ -190,7 +249,48 @@ public class TokenService {
         long expireTime = loginUser.getExpireTime();
         long currentTime = System.currentTimeMillis();
         if (expireTime - currentTime <= MILLIS_MINUTE_TEN) {
-            refreshToken(loginUser);
+            if (REFRESH_MODE_REWRITE.equals(refreshMode)) {
+                refreshToken(loginUser);
+            } else {
+                extendToken(loginUser);
+            }
+        }
+    }
+
+    /**
+     * 延长令牌有效期，只对redis执行EXPIRE，不重写登录用户内容；
+     * 同一用户的并发续期在本节点合并为一次
+     *
+     * @param loginUser 登录信息
+     */
+    public void extendToken(LoginUser loginUser) {
+        String token = loginUser.getToken();
+        long currentTime = System.currentTimeMillis();
+        Long extendedExpireTime = extendedTokens.getIfPresent(token);
+        if (extendedExpireTime != null && extendedExpireTime - currentTime > MILLIS_MINUTE_TEN) {
+            loginUser.setExpireTime(extendedExpireTime);
+            if (loginUserCache != null) {
+                // 本地缓存期间从redis重新加载的对象仍带着旧的过期时间
+                loginUserCache.extend(token, extendedExpireTime);
+            }
+            return;
+        }
+        if (!extendingTokens.add(token)) {
+            // 其他线程正在续期，本次请求无需等待
+            return;
+        }
+        try {
+            long newExpireTime = currentTime + expireTime * MILLIS_MINUTE;
+            if (redisService.expire(getTokenKey(token), expireTime, TimeUnit.MINUTES)) {
+                loginUser.setExpireTime(newExpireTime);
+                extendedTokens.put(token, newExpireTime);
+                if (loginUserCache != null) {
+                    // 调用方拿到的是副本，续期结果需写回本地缓存
+                    loginUserCache.extend(token, newExpireTime);
+                }
+            }
+        } finally {
+            extendingTokens.remove(token);
         }
     }
 
@@ -200,11 +300,14 @@ public class TokenService {
      * @param loginUser 登录信息
      */
     public void refreshToken(LoginUser loginUser) {
+        extendedTokens.invalidate(loginUser.getToken());
         loginUser.setLoginTime(System.currentTimeMillis());
         loginUser.setExpireTime(loginUser.getLoginTime() + expireTime * MILLIS_MINUTE);
         // 根据uuid将loginUser缓存
         String userKey = getTokenKey(loginUser.getToken());
         redisService.setCacheObject(userKey, loginUser, expireTime, TimeUnit.MINUTES);
+        // 通知各节点丢弃本地缓存的旧数据
+        redisService.publish(CacheConstants.LOGIN_TOKEN_EVICT_CHANNEL, loginUser.getToken());
     }
 
     /**
@@ -218,6 +321,7 @@ public class TokenService {
         // 根据uuid将loginUser缓存
         String userKey = getTokenKey(loginUser.getToken());
         redisService.setCacheObject(userKey, loginUser, 7 * 1440, TimeUnit.MINUTES);
+        redisService.publish(CacheConstants.LOGIN_TOKEN_EVICT_CHANNEL, loginUser.getToken());
     }
 
 
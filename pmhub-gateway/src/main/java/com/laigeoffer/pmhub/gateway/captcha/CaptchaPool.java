@@ -0,0 +1,231 @@
+package com.laigeoffer.pmhub.gateway.captcha;
+
+import com.google.code.kaptcha.Producer;
+import com.laigeoffer.pmhub.base.core.utils.BoundedRingBuffer;
+import com.laigeoffer.pmhub.base.core.utils.sign.Base64;
+import com.laigeoffer.pmhub.gateway.config.properties.CaptchaProperties;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FastByteArrayOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 验证码预渲染池
+ * 图片绘制、JPEG编码和Base64编码都在后台单线程完成，请求线程只从池中取出现成结果；
+ * 池中数量低于补充阈值时触发补充，超过有效期的验证码取出时丢弃，池为空时由调用方当场渲染
+ *
+ * @author zw
+ */
+@Component
+public class CaptchaPool
+{
+    private static final Logger log = LoggerFactory.getLogger(CaptchaPool.class);
+
+    public static final String TYPE_MATH = "math";
+
+    public static final String TYPE_CHAR = "char";
+
+    private static final long CHECK_INTERVAL_SECONDS = 5;
+
+    @Resource(name = "captchaProducer")
+    private Producer captchaProducer;
+
+    @Resource(name = "captchaProducerMath")
+    private Producer captchaProducerMath;
+
+    @Autowired
+    private CaptchaProperties captchaProperties;
+
+    private final Map<String, BoundedRingBuffer<PreparedCaptcha>> pools = new HashMap<>();
+
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder expired = new LongAdder();
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init()
+    {
+        if (captchaProperties.getPoolSize() <= 0)
+        {
+            return;
+        }
+        pools.put(TYPE_MATH, new BoundedRingBuffer<>(captchaProperties.getPoolSize()));
+        pools.put(TYPE_CHAR, new BoundedRingBuffer<>(captchaProperties.getPoolSize()));
+        executor = new ScheduledThreadPoolExecutor(1,
+                new BasicThreadFactory.Builder().namingPattern("captcha-pool-%d").daemon(true).build());
+        // 定时清理过期验证码并补满，同时负责启动后的首次预热
+        executor.scheduleWithFixedDelay(this::refillSafely, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 从池中取出一个验证码
+     *
+     * @param type 验证码类型
+     * @return 池为空或未启用时返回null
+     */
+    public PreparedCaptcha take(String type)
+    {
+        BoundedRingBuffer<PreparedCaptcha> pool = pools.get(type);
+        if (pool == null)
+        {
+            return null;
+        }
+        long expireBefore = expireBefore();
+        PreparedCaptcha captcha;
+        while ((captcha = pool.poll()) != null && captcha.getCreateTime() < expireBefore)
+        {
+            expired.increment();
+        }
+        if (pool.size() < captchaProperties.getPoolRefillThreshold())
+        {
+            triggerRefill();
+        }
+        if (captcha == null)
+        {
+            misses.increment();
+        }
+        else
+        {
+            hits.increment();
+        }
+        return captcha;
+    }
+
+    /**
+     * 当场渲染一个验证码
+     *
+     * @param type 验证码类型
+     * @return 渲染结果
+     */
+    public PreparedCaptcha render(String type) throws IOException
+    {
+        String code = null;
+        BufferedImage image = null;
+        if (TYPE_MATH.equals(type))
+        {
+            String capText = captchaProducerMath.createText();
+            String capStr = capText.substring(0, capText.lastIndexOf("@"));
+            code = capText.substring(capText.lastIndexOf("@") + 1);
+            image = captchaProducerMath.createImage(capStr);
+        }
+        else if (TYPE_CHAR.equals(type))
+        {
+            code = captchaProducer.createText();
+            image = captchaProducer.createImage(code);
+        }
+        // 转换流信息写出
+        FastByteArrayOutputStream os = new FastByteArrayOutputStream();
+        ImageIO.write(image, "jpg", os);
+        return new PreparedCaptcha(code, Base64.encode(os.toByteArray()), System.currentTimeMillis());
+    }
+
+    /**
+     * 统计信息，便于观察命中率
+     */
+    public Map<String, Object> getStats()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("expired", expired.sum());
+        pools.forEach((type, pool) -> stats.put(type + "Size", pool.size()));
+        return stats;
+    }
+
+    private void triggerRefill()
+    {
+        if (executor != null && !refilling.get())
+        {
+            executor.execute(this::refillSafely);
+        }
+    }
+
+    private void refillSafely()
+    {
+        if (!refilling.compareAndSet(false, true))
+        {
+            return;
+        }
+        try
+        {
+            // 只补充当前启用的类型，另一类型的存量自然过期
+            String type = captchaProperties.getType();
+            BoundedRingBuffer<PreparedCaptcha> pool = pools.get(type);
+            if (pool == null || !Boolean.TRUE.equals(captchaProperties.getEnabled()))
+            {
+                return;
+            }
+            evictExpired(pool);
+            int target = Math.min(captchaProperties.getPoolSize(), pool.capacity());
+            while (pool.size() < target)
+            {
+                if (!pool.offer(render(type)))
+                {
+                    break;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            log.error("验证码预渲染异常", e);
+        }
+        finally
+        {
+            refilling.set(false);
+        }
+    }
+
+    /**
+     * 池按先进先出排列，从队头清理过期验证码，遇到未过期的放回后结束
+     */
+    private void evictExpired(BoundedRingBuffer<PreparedCaptcha> pool)
+    {
+        long expireBefore = expireBefore();
+        PreparedCaptcha captcha;
+        while ((captcha = pool.poll()) != null)
+        {
+            if (captcha.getCreateTime() >= expireBefore)
+            {
+                pool.offer(captcha);
+                return;
+            }
+            expired.increment();
+        }
+    }
+
+    private long expireBefore()
+    {
+        return System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(captchaProperties.getPoolExpireSeconds());
+    }
+}
@@ -0,0 +1,46 @@
+package com.laigeoffer.pmhub.gateway.captcha;
+
+/**
+ * 预先渲染好的验证码
+ *
+ * @author zw
+ */
+public final class PreparedCaptcha
+{
+    /**
+     * 验证码答案
+     */
+    private final String code;
+
+    /**
+     * Base64编码后的图片
+     */
+    private final String img;
+
+    /**
+     * 渲染时间
+     */
+    private final long createTime;
+
+    public PreparedCaptcha(String code, String img, long createTime)
+    {
+        this.code = code;
+        this.img = img;
+        this.createTime = createTime;
+    }
+
+    public String getCode()
+    {
+        return code;
+    }
+
+    public String getImg()
+    {
+        return img;
+    }
+
+    public long getCreateTime()
+    {
+        return createTime;
+    }
+}
@@ -0,0 +1,41 @@
+package com.laigeoffer.pmhub.gateway.config;
+
+import com.laigeoffer.pmhub.gateway.config.properties.TelemetryProperties;
+import com.laigeoffer.pmhub.gateway.telemetry.InMemoryLatencySink;
+import com.laigeoffer.pmhub.gateway.telemetry.InfluxLatencySink;
+import com.laigeoffer.pmhub.gateway.telemetry.LatencySink;
+import com.laigeoffer.pmhub.gateway.telemetry.LatencyTelemetry;
+import org.influxdb.InfluxDB;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 接口耗时统计配置
+ *
+ * @author zw
+ */
+@Configuration
+@ConditionalOnProperty(value = "gateway.telemetry.enabled", havingValue = "true", matchIfMissing = true)
+public class TelemetryConfig
+{
+    @Bean
+    @ConditionalOnProperty(value = "gateway.telemetry.sink", havingValue = "influx", matchIfMissing = true)
+    public LatencySink influxLatencySink(InfluxDB influxDB)
+    {
+        return new InfluxLatencySink(influxDB);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "gateway.telemetry.sink", havingValue = "memory")
+    public LatencySink inMemoryLatencySink()
+    {
+        return new InMemoryLatencySink(60);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public LatencyTelemetry latencyTelemetry(TelemetryProperties telemetryProperties, LatencySink latencySink)
+    {
+        return new LatencyTelemetry(telemetryProperties, latencySink);
+    }
+}
@@ -24,6 +24,21 @@ public class CaptchaProperties
      */
     private String type;
 
+    /**
+     * 预渲染池容量（启动时生效），小于等于0表示不启用，每次请求当场渲染
+     */
+    private int poolSize = 200;
+
+    /**
+     * 池中数量低于该值时触发后台补充
+     */
+    private int poolRefillThreshold = 50;
+
+    /**
+     * 预渲染验证码的有效期（秒），超时未被取走的直接丢弃
+     */
+    private int poolExpireSeconds = 300;
+
     public Boolean getEnabled()
     {
         return enabled;
@@ -43,4 +58,34 @@ public class CaptchaProperties
     {
         this.type = type;
     }
+
+    public int getPoolSize()
+    {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize)
+    {
+        this.poolSize = poolSize;
+    }
+
+    public int getPoolRefillThreshold()
+    {
+        return poolRefillThreshold;
+    }
+
+    public void setPoolRefillThreshold(int poolRefillThreshold)
+    {
+        this.poolRefillThreshold = poolRefillThreshold;
+    }
+
+    public int getPoolExpireSeconds()
+    {
+        return poolExpireSeconds;
+    }
+
+    public void setPoolExpireSeconds(int poolExpireSeconds)
+    {
+        this.poolExpireSeconds = poolExpireSeconds;
+    }
 }
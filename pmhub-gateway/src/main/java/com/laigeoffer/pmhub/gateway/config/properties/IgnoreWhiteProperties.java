@@ -1,5 +1,6 @@
 package com.laigeoffer.pmhub.gateway.config.properties;
 
+import com.laigeoffer.pmhub.base.core.utils.PathPatternIndex;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.annotation.Configuration;
@@ -22,6 +23,11 @@ public class IgnoreWhiteProperties
      */
     private List<String> whites = new ArrayList<>();
 
+    /**
+     * 白名单预编译索引，随配置刷新整体替换
+     */
+    private volatile PathPatternIndex whitesIndex = PathPatternIndex.EMPTY;
+
     public List<String> getWhites()
     {
         return whites;
@@ -30,5 +36,14 @@ public class IgnoreWhiteProperties
     public void setWhites(List<String> whites)
     {
         this.whites = whites;
+        this.whitesIndex = PathPatternIndex.compile(whites);
+    }
+
+    /**
+     * 判断url是否在白名单中
+     */
+    public boolean matches(String url)
+    {
+        return whitesIndex.matches(url);
     }
 }
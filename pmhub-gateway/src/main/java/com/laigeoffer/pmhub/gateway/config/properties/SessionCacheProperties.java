@@ -0,0 +1,59 @@
+package com.laigeoffer.pmhub.gateway.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 网关会话本地缓存配置（缓存在启动时创建，修改后需重启网关生效）
+ *
+ * @author zw
+ */
+@Configuration
+@ConfigurationProperties(prefix = "security.session-cache")
+public class SessionCacheProperties
+{
+    /**
+     * 本地缓存开关，关闭后每次请求都查询redis
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 最大缓存会话数
+     */
+    private long maximumSize = 50000;
+
+    /**
+     * 会话校验结果有效期（秒），兜底redis失效通知丢失的情况
+     */
+    private long expireSeconds = 60;
+
+    public Boolean getEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize)
+    {
+        this.maximumSize = maximumSize;
+    }
+
+    public long getExpireSeconds()
+    {
+        return expireSeconds;
+    }
+
+    public void setExpireSeconds(long expireSeconds)
+    {
+        this.expireSeconds = expireSeconds;
+    }
+}
@@ -0,0 +1,89 @@
+package com.laigeoffer.pmhub.gateway.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 接口耗时统计配置（启动时生效）
+ *
+ * @author zw
+ */
+@Configuration
+@ConfigurationProperties(prefix = "gateway.telemetry")
+public class TelemetryProperties
+{
+    /**
+     * 统计开关
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 输出端（influx 写入InfluxDB，memory 仅保存在内存中，用于测试）
+     */
+    private String sink = "influx";
+
+    /**
+     * 待处理队列容量，队列满时直接丢弃并计数
+     */
+    private int bufferSize = 16384;
+
+    /**
+     * 聚合窗口（秒），每个窗口批量写出一次
+     */
+    private int flushIntervalSeconds = 10;
+
+    /**
+     * 单个窗口内最多统计的 路径+状态码 组合数，超出部分归入 OTHER
+     */
+    private int maxSeries = 2000;
+
+    public Boolean getEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public String getSink()
+    {
+        return sink;
+    }
+
+    public void setSink(String sink)
+    {
+        this.sink = sink;
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize)
+    {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getFlushIntervalSeconds()
+    {
+        return flushIntervalSeconds;
+    }
+
+    public void setFlushIntervalSeconds(int flushIntervalSeconds)
+    {
+        this.flushIntervalSeconds = flushIntervalSeconds;
+    }
+
+    public int getMaxSeries()
+    {
+        return maxSeries;
+    }
+
+    public void setMaxSeries(int maxSeries)
+    {
+        this.maxSeries = maxSeries;
+    }
+}
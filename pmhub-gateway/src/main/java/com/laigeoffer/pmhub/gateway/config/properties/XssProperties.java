@@ -1,5 +1,6 @@
 package com.laigeoffer.pmhub.gateway.config.properties;
 
+import com.laigeoffer.pmhub.base.core.utils.PathPatternIndex;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.annotation.Configuration;
@@ -27,6 +28,16 @@ public class XssProperties
      */
     private List<String> excludeUrls = new ArrayList<>();
 
+    /**
+     * 过滤的请求体大小上限（字节），超出时拒绝请求，小于等于0表示不限制
+     */
+    private long maxBodySize = 10 * 1024 * 1024;
+
+    /**
+     * 排除路径预编译索引，随配置刷新整体替换
+     */
+    private volatile PathPatternIndex excludeUrlsIndex = PathPatternIndex.EMPTY;
+
     public Boolean getEnabled()
     {
         return enabled;
@@ -37,6 +48,16 @@ public class XssProperties
         this.enabled = enabled;
     }
 
+    public long getMaxBodySize()
+    {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(long maxBodySize)
+    {
+        this.maxBodySize = maxBodySize;
+    }
+
     public List<String> getExcludeUrls()
     {
         return excludeUrls;
@@ -45,5 +66,14 @@ public class XssProperties
     public void setExcludeUrls(List<String> excludeUrls)
     {
         this.excludeUrls = excludeUrls;
+        this.excludeUrlsIndex = PathPatternIndex.compile(excludeUrls);
+    }
+
+    /**
+     * 判断url是否为排除路径
+     */
+    public boolean isExcluded(String url)
+    {
+        return excludeUrlsIndex.matches(url);
     }
 }
@@ -1,7 +1,5 @@
 package com.laigeoffer.pmhub.gateway.filter;
 
-import com.laigeoffer.pmhub.base.core.config.redis.RedisService;
-import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
 import com.laigeoffer.pmhub.base.core.constant.HttpStatus;
 import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
 import com.laigeoffer.pmhub.base.core.constant.TokenConstants;
@@ -9,9 +7,9 @@ import com.laigeoffer.pmhub.base.core.utils.JwtUtils;
 import com.laigeoffer.pmhub.base.core.utils.ServletUtils;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
 import com.laigeoffer.pmhub.gateway.config.properties.IgnoreWhiteProperties;
+import com.laigeoffer.pmhub.gateway.service.SessionCheckService;
+import com.laigeoffer.pmhub.gateway.telemetry.LatencyTelemetry;
 import io.jsonwebtoken.Claims;
-import org.influxdb.InfluxDB;
-import org.influxdb.dto.Point;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,9 +21,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.time.Instant;
-import java.util.concurrent.TimeUnit;
-
 /**
  * 网关鉴权
  *
@@ -42,13 +37,11 @@ public class AuthFilter implements GlobalFilter, Ordered {
     private IgnoreWhiteProperties ignoreWhite;
 
     @Autowired
-    private RedisService redisService;
-
-    private final InfluxDB influxDB;
+    private SessionCheckService sessionCheckService;
 
-    public AuthFilter(InfluxDB influxDB) {
-        this.influxDB = influxDB;
-    }
+    // 接口耗时统计，关闭统计时为空
+    @Autowired(required = false)
+    private LatencyTelemetry latencyTelemetry;
 
 
     @Override
@@ -58,7 +51,7 @@ public class AuthFilter implements GlobalFilter, Ordered {
 
         String url = request.getURI().getPath();
         // 跳过不需要验证的路径，即白名单中的路径
-        if (StringUtils.matches(url, ignoreWhite.getWhites())) {
+        if (ignoreWhite.matches(url)) {
             return chain.filter(exchange);
         }
 
@@ -71,59 +64,37 @@ public class AuthFilter implements GlobalFilter, Ordered {
             return unauthorizedResponse(exchange, "令牌已过期或验证不正确！");
         }
         String userkey = JwtUtils.getUserKey(claims);
-        boolean islogin = redisService.hasKey(getTokenKey(userkey));
-        if (!islogin) {
-            return unauthorizedResponse(exchange, "登录状态已过期");
-        }
-        String userid = JwtUtils.getUserId(claims);
-        String username = JwtUtils.getUserName(claims);
-        if (StringUtils.isEmpty(userid) || StringUtils.isEmpty(username)) {
-            return unauthorizedResponse(exchange, "令牌验证失败");
-        }
-
-        // 把用户信息添加到请求
-        addHeader(mutate, SecurityConstants.USER_KEY, userkey);
-        addHeader(mutate, SecurityConstants.DETAILS_USER_ID, userid);
-        addHeader(mutate, SecurityConstants.DETAILS_USERNAME, username);
-        // 内部请求来源参数清除（防止网关携带内部请求标识，造成系统安全风险）
-        removeHeader(mutate, SecurityConstants.FROM_SOURCE);
-
-        //先记录下访问接口的开始时间
-        long beginVisitTime = System.currentTimeMillis();
-//        exchange.getAttributes().put(BEGIN_VISIT_TIME, System.currentTimeMillis());
-
-        return chain.filter(exchange.mutate().request(mutate.build()).build()).then(Mono.fromRunnable(() -> {
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - beginVisitTime;
-            String host = exchange.getRequest().getURI().getHost();
-            int port = exchange.getRequest().getURI().getPort();
-            String path = exchange.getRequest().getURI().getPath();
-            int statusCode = exchange.getResponse().getStatusCode().value();
-
-//            log.info("访问接口主机：" + exchange.getRequest().getURI().getHost());
-//            log.info("访问接口端口：" + exchange.getRequest().getURI().getPort());
-//            log.info("访问接口URL：" + exchange.getRequest().getURI().getPath());
-//            log.info("访问接口URL参数：" + exchange.getRequest().getURI().getRawQuery());
-//            log.info("访问接口时长：" + duration+ "ms");
-//            log.info("######################################################################");
-//            System.out.println();
-
-            // 将统计数据写入InfluxDB
-            Point point = Point.measurement("time_consuming_statistics")
-                    .tag("host", host)
-                    .tag("hostLocal", exchange.getRequest().getLocalAddress().getAddress().getHostAddress())
-                    .tag("hostRemote", exchange.getRequest().getRemoteAddress().getAddress().getHostAddress())
-                    .tag("port", String.valueOf(port))
-                    .tag("path", path)
-                    .tag("statusCode", String.valueOf(statusCode))
-                    .addField("duration", duration)
-                    .time(endTime, TimeUnit.MILLISECONDS).build();
-            try {
-                influxDB.write(point);
-            } catch (Exception e) {
-                e.printStackTrace();
+        return sessionCheckService.isLogin(userkey).flatMap(islogin -> {
+            if (!islogin) {
+                return unauthorizedResponse(exchange, "登录状态已过期");
             }
-        }));
+            String userid = JwtUtils.getUserId(claims);
+            String username = JwtUtils.getUserName(claims);
+            if (StringUtils.isEmpty(userid) || StringUtils.isEmpty(username)) {
+                return unauthorizedResponse(exchange, "令牌验证失败");
+            }
+
+            // 把用户信息添加到请求
+            addHeader(mutate, SecurityConstants.USER_KEY, userkey);
+            addHeader(mutate, SecurityConstants.DETAILS_USER_ID, userid);
+            addHeader(mutate, SecurityConstants.DETAILS_USERNAME, username);
+            // 内部请求来源参数清除（防止网关携带内部请求标识，造成系统安全风险）
+            removeHeader(mutate, SecurityConstants.FROM_SOURCE);
+
+            //先记录下访问接口的开始时间
+            long beginVisitTime = System.currentTimeMillis();
+//            exchange.getAttributes().put(BEGIN_VISIT_TIME, System.currentTimeMillis());
+
+            return chain.filter(exchange.mutate().request(mutate.build()).build()).then(Mono.fromRunnable(() -> {
+                if (latencyTelemetry == null) {
+                    return;
+                }
+                long duration = System.currentTimeMillis() - beginVisitTime;
+                org.springframework.http.HttpStatus statusCode = exchange.getResponse().getStatusCode();
+                // 只入队，由后台线程聚合后批量写入InfluxDB
+                latencyTelemetry.record(exchange.getRequest().getURI().getPath(), statusCode == null ? 0 : statusCode.value(), duration);
+            }));
+        });
     }
 
     private void addHeader(ServerHttpRequest.Builder mutate, String name, Object value) {
@@ -144,13 +115,6 @@ public class AuthFilter implements GlobalFilter, Ordered {
         return ServletUtils.webFluxResponseWriter(exchange.getResponse(), msg, HttpStatus.UNAUTHORIZED);
     }
 
-    /**
-     * 获取缓存key
-     */
-    private String getTokenKey(String token) {
-        return CacheConstants.LOGIN_TOKEN_KEY + token;
-    }
-
     /**
      * 获取请求token
      */
@@ -5,9 +5,10 @@ import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * 黑名单过滤器
@@ -41,11 +42,15 @@ public class BlackListUrlFilter extends AbstractGatewayFilterFactory<BlackListUr
     {
         private List<String> blacklistUrl;
 
-        private List<Pattern> blacklistUrlPattern = new ArrayList<>();
+        /**
+         * 所有黑名单规则合并为单个正则，一次扫描完成匹配；每个线程复用一个匹配器，避免每次请求创建对象
+         */
+        private volatile ThreadLocal<Matcher> blacklistUrlMatcher;
 
         public boolean matchBlacklist(String url)
         {
-            return !blacklistUrlPattern.isEmpty() && blacklistUrlPattern.stream().anyMatch(p -> p.matcher(url).find());
+            ThreadLocal<Matcher> matcher = blacklistUrlMatcher;
+            return matcher != null && matcher.get().reset(url).find();
         }
 
         public List<String> getBlacklistUrl()
@@ -56,10 +61,16 @@ public class BlackListUrlFilter extends AbstractGatewayFilterFactory<BlackListUr
         public void setBlacklistUrl(List<String> blacklistUrl)
         {
             this.blacklistUrl = blacklistUrl;
-            this.blacklistUrlPattern.clear();
-            this.blacklistUrl.forEach(url -> {
-                this.blacklistUrlPattern.add(Pattern.compile(url.replaceAll("\\*\\*", "(.*?)"), Pattern.CASE_INSENSITIVE));
-            });
+            if (blacklistUrl == null || blacklistUrl.isEmpty())
+            {
+                this.blacklistUrlMatcher = null;
+                return;
+            }
+            String regex = blacklistUrl.stream()
+                    .map(url -> "(?:" + url.replaceAll("\\*\\*", "(?:.*?)") + ")")
+                    .collect(Collectors.joining("|"));
+            Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            this.blacklistUrlMatcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
         }
     }
 
@@ -0,0 +1,252 @@
+package com.laigeoffer.pmhub.gateway.filter;
+
+import com.laigeoffer.pmhub.base.core.utils.html.EscapeUtil;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 流式json请求体xss过滤，每个请求一个实例
+ * <p>
+ * 按数据块逐字节扫描，只处理json字符串token：不含 &lt; &gt; &amp; 的字符串以及字符串以外的内容原样透传，
+ * 整块无需改动时直接把原缓冲区交给下游；含这些字符的字符串攒齐后按 {@link EscapeUtil#clean(String)} 过滤再写出，
+ * 实体的处理与原先整体过滤时保持一致。
+ * 只有跨数据块的字符串才会临时复制到堆上，请求体累计超过上限时直接拒绝。
+ *
+ * @author zw
+ */
+final class JsonXssBodySanitizer
+{
+    private static final byte QUOTE = '"';
+
+    private static final byte BACKSLASH = '\\';
+
+    private final DataBufferFactory bufferFactory;
+
+    private final long maxBodySize;
+
+    private long received;
+
+    private boolean inString;
+
+    private boolean escaped;
+
+    /**
+     * 当前字符串是否含需要过滤的字符
+     */
+    private boolean dirty;
+
+    /**
+     * 跨数据块的未结束字符串（含起始引号）
+     */
+    private byte[] pending = new byte[0];
+
+    private int pendingLength;
+
+    /**
+     * 当前未结束字符串是否已转入pending
+     */
+    private boolean carried;
+
+    JsonXssBodySanitizer(DataBufferFactory bufferFactory, long maxBodySize)
+    {
+        this.bufferFactory = bufferFactory;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * 处理一个数据块，传入的缓冲区由本方法负责释放或转交下游
+     *
+     * @param chunk 数据块
+     * @return 过滤后的数据，整块都被暂存时返回null
+     */
+    DataBuffer sanitize(DataBuffer chunk)
+    {
+        int base = chunk.readPosition();
+        int length = chunk.readableByteCount();
+        received += length;
+        if (maxBodySize > 0 && received > maxBodySize)
+        {
+            DataBufferUtils.release(chunk);
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "请求体超过大小限制");
+        }
+
+        DataBuffer out = null;
+        int passStart = 0;
+        int stringStart = -1;
+        try
+        {
+            for (int i = 0; i < length; i++)
+            {
+                byte b = chunk.getByte(base + i);
+                if (!inString)
+                {
+                    if (b == QUOTE)
+                    {
+                        inString = true;
+                        dirty = false;
+                        stringStart = i;
+                    }
+                    continue;
+                }
+                if (escaped)
+                {
+                    escaped = false;
+                }
+                else if (b == BACKSLASH)
+                {
+                    escaped = true;
+                }
+                else if (b == '<' || b == '>' || b == '&')
+                {
+                    dirty = true;
+                }
+                else if (b == QUOTE)
+                {
+                    inString = false;
+                    if (carried)
+                    {
+                        appendPending(chunk, base, i + 1);
+                        out = ensureOut(out, length);
+                        writeString(out, pending, pendingLength, dirty, true);
+                        pendingLength = 0;
+                        carried = false;
+                        passStart = i + 1;
+                    }
+                    else if (dirty)
+                    {
+                        out = ensureOut(out, length);
+                        writeSlice(out, chunk, base + passStart, stringStart - passStart);
+                        byte[] token = new byte[i + 1 - stringStart];
+                        chunk.asByteBuffer(base + stringStart, token.length).get(token);
+                        writeString(out, token, token.length, true, true);
+                        passStart = i + 1;
+                    }
+                }
+            }
+
+            if (inString)
+            {
+                if (carried)
+                {
+                    appendPending(chunk, base, length);
+                }
+                else
+                {
+                    // 字符串在本块开始但未结束，先写出之前的部分，剩余转入pending
+                    out = ensureOut(out, length);
+                    writeSlice(out, chunk, base + passStart, stringStart - passStart);
+                    pendingLength = 0;
+                    appendPending(chunk, base + stringStart, length - stringStart);
+                    carried = true;
+                }
+                passStart = length;
+            }
+
+            if (out == null && passStart == 0 && !carried)
+            {
+                // 整块无需改动，直接透传
+                return chunk;
+            }
+            if (passStart < length)
+            {
+                out = ensureOut(out, length);
+                writeSlice(out, chunk, base + passStart, length - passStart);
+            }
+            DataBufferUtils.release(chunk);
+            if (out != null && out.readableByteCount() == 0)
+            {
+                DataBufferUtils.release(out);
+                return null;
+            }
+            return out;
+        }
+        catch (RuntimeException e)
+        {
+            DataBufferUtils.release(chunk);
+            if (out != null)
+            {
+                DataBufferUtils.release(out);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 请求体结束时写出未闭合的字符串（非法json，仍按原逻辑过滤）
+     *
+     * @return 剩余数据，没有时返回null
+     */
+    DataBuffer finish()
+    {
+        if (!carried || pendingLength == 0)
+        {
+            return null;
+        }
+        DataBuffer out = bufferFactory.allocateBuffer(pendingLength);
+        writeString(out, pending, pendingLength, dirty, false);
+        pendingLength = 0;
+        carried = false;
+        return out;
+    }
+
+    /**
+     * 释放暂存数据，请求取消或出错时调用
+     */
+    void discard()
+    {
+        pending = new byte[0];
+        pendingLength = 0;
+        carried = false;
+    }
+
+    private DataBuffer ensureOut(DataBuffer out, int capacity)
+    {
+        return out != null ? out : bufferFactory.allocateBuffer(capacity);
+    }
+
+    private void appendPending(DataBuffer chunk, int from, int count)
+    {
+        if (pendingLength + count > pending.length)
+        {
+            pending = Arrays.copyOf(pending, Math.max(pending.length << 1, pendingLength + count));
+        }
+        for (int i = 0; i < count; i++)
+        {
+            pending[pendingLength++] = chunk.getByte(from + i);
+        }
+    }
+
+    private static void writeSlice(DataBuffer out, DataBuffer chunk, int index, int count)
+    {
+        if (count > 0)
+        {
+            out.write(chunk.asByteBuffer(index, count));
+        }
+    }
+
+    /**
+     * 写出一个完整或未闭合的字符串token，需要时按html规则过滤引号内的内容
+     */
+    private static void writeString(DataBuffer out, byte[] token, int count, boolean clean, boolean closed)
+    {
+        if (!clean)
+        {
+            out.write(token, 0, count);
+            return;
+        }
+        int contentLength = count - 1 - (closed ? 1 : 0);
+        String content = new String(token, 1, contentLength, StandardCharsets.UTF_8);
+        out.write(QUOTE);
+        out.write(EscapeUtil.clean(content).getBytes(StandardCharsets.UTF_8));
+        if (closed)
+        {
+            out.write(QUOTE);
+        }
+    }
+}
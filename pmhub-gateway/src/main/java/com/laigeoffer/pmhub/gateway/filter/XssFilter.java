@@ -1,27 +1,27 @@
 package com.laigeoffer.pmhub.gateway.filter;
 
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
-import com.laigeoffer.pmhub.base.core.utils.html.EscapeUtil;
 import com.laigeoffer.pmhub.gateway.config.properties.XssProperties;
-import io.netty.buffer.ByteBufAllocator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
-import org.springframework.core.io.buffer.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-
 /**
  * 跨站脚本过滤器
  *
@@ -57,10 +57,16 @@ public class XssFilter implements GlobalFilter, Ordered
         }
         // excludeUrls 不过滤
         String url = request.getURI().getPath();
-        if (StringUtils.matches(url, xss.getExcludeUrls()))
+        if (xss.isExcluded(url))
         {
             return chain.filter(exchange);
         }
+        // 声明了长度且超过上限的请求直接拒绝，未声明长度的在读取过程中累计判断
+        long maxBodySize = xss.getMaxBodySize();
+        if (maxBodySize > 0 && request.getHeaders().getContentLength() > maxBodySize)
+        {
+            return Mono.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "请求体超过大小限制"));
+        }
         ServerHttpRequestDecorator httpRequestDecorator = requestDecorator(exchange);
         return chain.filter(exchange.mutate().request(httpRequestDecorator).build());
 
@@ -73,23 +79,18 @@ public class XssFilter implements GlobalFilter, Ordered
             @Override
             public Flux<DataBuffer> getBody()
             {
+                // 边接收边过滤，只处理json字符串，不再整体拼接请求体
+                JsonXssBodySanitizer sanitizer = new JsonXssBodySanitizer(exchange.getResponse().bufferFactory(), xss.getMaxBodySize());
                 Flux<DataBuffer> body = super.getBody();
-                return body.buffer().map(dataBuffers -> {
-                    DataBufferFactory dataBufferFactory = new DefaultDataBufferFactory();
-                    DataBuffer join = dataBufferFactory.join(dataBuffers);
-                    byte[] content = new byte[join.readableByteCount()];
-                    join.read(content);
-                    DataBufferUtils.release(join);
-                    String bodyStr = new String(content, StandardCharsets.UTF_8);
-                    // 防xss攻击过滤
-                    bodyStr = EscapeUtil.clean(bodyStr);
-                    // 转成字节
-                    byte[] bytes = bodyStr.getBytes(StandardCharsets.UTF_8);
-                    NettyDataBufferFactory nettyDataBufferFactory = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
-                    DataBuffer buffer = nettyDataBufferFactory.allocateBuffer(bytes.length);
-                    buffer.write(bytes);
-                    return buffer;
-                });
+                return body.<DataBuffer>handle((dataBuffer, sink) -> {
+                    DataBuffer buffer = sanitizer.sanitize(dataBuffer);
+                    if (buffer != null)
+                    {
+                        sink.next(buffer);
+                    }
+                }).concatWith(Mono.fromSupplier(sanitizer::finish))
+                        .doFinally(signalType -> sanitizer.discard())
+                        .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
             }
 
             @Override
@@ -0,0 +1,26 @@
+package com.laigeoffer.pmhub.gateway.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 登录会话校验
+ *
+ * @author zw
+ */
+public interface SessionCheckService
+{
+    /**
+     * 校验用户会话是否有效（非阻塞）
+     *
+     * @param userkey 用户唯一标识
+     * @return 会话是否存在
+     */
+    public Mono<Boolean> isLogin(String userkey);
+
+    /**
+     * 清除本地缓存的会话校验结果
+     *
+     * @param userkey 用户唯一标识
+     */
+    public void evict(String userkey);
+}
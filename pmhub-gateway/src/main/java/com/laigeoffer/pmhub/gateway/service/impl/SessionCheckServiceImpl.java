@@ -0,0 +1,96 @@
+package com.laigeoffer.pmhub.gateway.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import com.laigeoffer.pmhub.gateway.config.properties.SessionCacheProperties;
+import com.laigeoffer.pmhub.gateway.service.SessionCheckService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录会话校验实现
+ * 使用响应式redis客户端查询，避免阻塞网关事件循环；校验通过的会话短时间缓存在本地，
+ * 用户退出、强退时通过redis消息清除对应缓存
+ *
+ * @author zw
+ */
+@Service
+public class SessionCheckServiceImpl implements SessionCheckService, InitializingBean, DisposableBean
+{
+    private static final Logger log = LoggerFactory.getLogger(SessionCheckServiceImpl.class);
+
+    @Autowired
+    private ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    @Autowired
+    private SessionCacheProperties sessionCacheProperties;
+
+    /**
+     * 已校验通过的会话，仅缓存存在的会话
+     */
+    private Cache<String, Boolean> validated;
+
+    private Disposable evictSubscription;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        validated = Caffeine.newBuilder()
+                .maximumSize(sessionCacheProperties.getMaximumSize())
+                .expireAfterWrite(sessionCacheProperties.getExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+        evictSubscription = reactiveStringRedisTemplate.listenToChannel(CacheConstants.LOGIN_TOKEN_EVICT_CHANNEL)
+                .map(ReactiveSubscription.Message::getMessage)
+                // 订阅中断期间可能漏掉失效通知，清空本地缓存后重新订阅
+                .doOnError(e -> {
+                    log.error("会话失效通知订阅异常，清空本地会话缓存", e);
+                    validated.invalidateAll();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(this::evict);
+    }
+
+    @Override
+    public Mono<Boolean> isLogin(String userkey)
+    {
+        if (sessionCacheProperties.getEnabled() && validated.getIfPresent(userkey) != null)
+        {
+            return Mono.just(Boolean.TRUE);
+        }
+        return reactiveStringRedisTemplate.hasKey(CacheConstants.LOGIN_TOKEN_KEY + userkey)
+                .doOnNext(islogin -> {
+                    if (islogin && sessionCacheProperties.getEnabled())
+                    {
+                        validated.put(userkey, Boolean.TRUE);
+                    }
+                });
+    }
+
+    @Override
+    public void evict(String userkey)
+    {
+        validated.invalidate(userkey);
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (evictSubscription != null)
+        {
+            evictSubscription.dispose();
+        }
+    }
+}
@@ -1,23 +1,19 @@
 package com.laigeoffer.pmhub.gateway.service.impl;
 
-import com.google.code.kaptcha.Producer;
 import com.laigeoffer.pmhub.base.core.config.redis.RedisService;
 import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
 import com.laigeoffer.pmhub.base.core.constant.Constants;
 import com.laigeoffer.pmhub.base.core.core.domain.AjaxResult;
 import com.laigeoffer.pmhub.base.core.exception.user.CaptchaException;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
-import com.laigeoffer.pmhub.base.core.utils.sign.Base64;
 import com.laigeoffer.pmhub.base.core.utils.uuid.IdUtils;
+import com.laigeoffer.pmhub.gateway.captcha.CaptchaPool;
+import com.laigeoffer.pmhub.gateway.captcha.PreparedCaptcha;
 import com.laigeoffer.pmhub.gateway.config.properties.CaptchaProperties;
 import com.laigeoffer.pmhub.gateway.service.ValidateCodeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.util.FastByteArrayOutputStream;
 
-import javax.annotation.Resource;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
@@ -29,11 +25,8 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class ValidateCodeServiceImpl implements ValidateCodeService
 {
-    @Resource(name = "captchaProducer")
-    private Producer captchaProducer;
-
-    @Resource(name = "captchaProducerMath")
-    private Producer captchaProducerMath;
+    @Autowired
+    private CaptchaPool captchaPool;
 
     @Autowired
     private RedisService redisService;
@@ -59,38 +52,24 @@ public class ValidateCodeServiceImpl implements ValidateCodeService
         String uuid = IdUtils.simpleUUID();
         String verifyKey = CacheConstants.CAPTCHA_CODE_KEY + uuid;
 
-        String capStr = null, code = null;
-        BufferedImage image = null;
-
         String captchaType = captchaProperties.getType();
-        // 生成验证码
-        if ("math".equals(captchaType))
-        {
-            String capText = captchaProducerMath.createText();
-            capStr = capText.substring(0, capText.lastIndexOf("@"));
-            code = capText.substring(capText.lastIndexOf("@") + 1);
-            image = captchaProducerMath.createImage(capStr);
-        }
-        else if ("char".equals(captchaType))
-        {
-            capStr = code = captchaProducer.createText();
-            image = captchaProducer.createImage(capStr);
-        }
-
-        redisService.setCacheObject(verifyKey, code, Constants.CAPTCHA_EXPIRATION, TimeUnit.MINUTES);
-        // 转换流信息写出
-        FastByteArrayOutputStream os = new FastByteArrayOutputStream();
-        try
-        {
-            ImageIO.write(image, "jpg", os);
-        }
-        catch (IOException e)
+        // 优先使用预渲染的验证码，池为空时当场生成
+        PreparedCaptcha captcha = captchaPool.take(captchaType);
+        if (captcha == null)
         {
-            return AjaxResult.error(e.getMessage());
+            try
+            {
+                captcha = captchaPool.render(captchaType);
+            }
+            catch (IOException e)
+            {
+                return AjaxResult.error(e.getMessage());
+            }
         }
 
+        redisService.setCacheObject(verifyKey, captcha.getCode(), Constants.CAPTCHA_EXPIRATION, TimeUnit.MINUTES);
         ajax.put("uuid", uuid);
-        ajax.put("img", Base64.encode(os.toByteArray()));
+        ajax.put("img", captcha.getImg());
         return ajax;
     }
 
@@ -0,0 +1,47 @@
+package com.laigeoffer.pmhub.gateway.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * 内存输出端，保留最近若干个窗口的统计结果，用于脱离InfluxDB测试统计链路
+ *
+ * @author zw
+ */
+public class InMemoryLatencySink implements LatencySink
+{
+    private final int maxWindows;
+
+    private final ConcurrentLinkedDeque<List<LatencyHistogram>> windows = new ConcurrentLinkedDeque<>();
+
+    public InMemoryLatencySink(int maxWindows)
+    {
+        this.maxWindows = maxWindows;
+    }
+
+    @Override
+    public void write(long windowEnd, Collection<LatencyHistogram> histograms)
+    {
+        windows.addLast(Collections.unmodifiableList(new ArrayList<>(histograms)));
+        while (windows.size() > maxWindows)
+        {
+            windows.pollFirst();
+        }
+    }
+
+    /**
+     * 获取保留的窗口，按时间先后排列
+     */
+    public List<List<LatencyHistogram>> getWindows()
+    {
+        return new ArrayList<>(windows);
+    }
+
+    public void clear()
+    {
+        windows.clear();
+    }
+}
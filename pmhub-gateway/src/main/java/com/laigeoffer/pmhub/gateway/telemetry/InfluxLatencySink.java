@@ -0,0 +1,66 @@
+package com.laigeoffer.pmhub.gateway.telemetry;
+
+import org.influxdb.InfluxDB;
+import org.influxdb.dto.Point;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写入InfluxDB，一个窗口的所有统计结果合并为一次请求
+ *
+ * @author zw
+ */
+public class InfluxLatencySink implements LatencySink
+{
+    private static final String MEASUREMENT = "time_consuming_statistics";
+
+    private final InfluxDB influxDB;
+
+    private final String hostLocal;
+
+    public InfluxLatencySink(InfluxDB influxDB)
+    {
+        this.influxDB = influxDB;
+        this.hostLocal = localHostAddress();
+    }
+
+    @Override
+    public void write(long windowEnd, Collection<LatencyHistogram> histograms)
+    {
+        List<String> records = new ArrayList<>(histograms.size());
+        for (LatencyHistogram histogram : histograms)
+        {
+            Point point = Point.measurement(MEASUREMENT)
+                    .tag("hostLocal", hostLocal)
+                    .tag("path", histogram.getPath())
+                    .tag("statusCode", String.valueOf(histogram.getStatusCode()))
+                    .addField("duration", histogram.getMean())
+                    .addField("count", histogram.getCount())
+                    .addField("sum", histogram.getSum())
+                    .addField("max", histogram.getMax())
+                    .addField("p50", histogram.percentile(0.5))
+                    .addField("p90", histogram.percentile(0.9))
+                    .addField("p99", histogram.percentile(0.99))
+                    .time(windowEnd, TimeUnit.MILLISECONDS).build();
+            records.add(point.lineProtocol());
+        }
+        influxDB.write(records);
+    }
+
+    private static String localHostAddress()
+    {
+        try
+        {
+            return InetAddress.getLocalHost().getHostAddress();
+        }
+        catch (UnknownHostException e)
+        {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.laigeoffer.pmhub.gateway.telemetry;
+
+/**
+ * 单个 路径+状态码 在一个聚合窗口内的耗时分布（毫秒），仅由写出线程访问
+ *
+ * @author zw
+ */
+public final class LatencyHistogram
+{
+    /**
+     * 分桶上界（毫秒），最后一个桶收纳超出部分
+     */
+    static final long[] BUCKET_BOUNDS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private final String path;
+
+    private final int statusCode;
+
+    private final long[] buckets = new long[BUCKET_BOUNDS.length + 1];
+
+    private long count;
+
+    private long sum;
+
+    private long max;
+
+    public LatencyHistogram(String path, int statusCode)
+    {
+        this.path = path;
+        this.statusCode = statusCode;
+    }
+
+    public void record(long duration)
+    {
+        int i = 0;
+        while (i < BUCKET_BOUNDS.length && duration > BUCKET_BOUNDS[i])
+        {
+            i++;
+        }
+        buckets[i]++;
+        count++;
+        sum += duration;
+        if (duration > max)
+        {
+            max = duration;
+        }
+    }
+
+    /**
+     * 按分桶估算分位值，返回所在桶的上界（超出最大桶时返回最大值）
+     *
+     * @param quantile 分位 0~1
+     */
+    public long percentile(double quantile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++)
+        {
+            seen += buckets[i];
+            if (seen >= rank)
+            {
+                return Math.min(BUCKET_BOUNDS[i], max);
+            }
+        }
+        return max;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getSum()
+    {
+        return sum;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public long getMean()
+    {
+        return count == 0 ? 0 : sum / count;
+    }
+}
@@ -0,0 +1,37 @@
+package com.laigeoffer.pmhub.gateway.telemetry;
+
+/**
+ * 单次请求耗时记录
+ *
+ * @author zw
+ */
+public final class LatencyRecord
+{
+    private final String path;
+
+    private final int statusCode;
+
+    private final long duration;
+
+    public LatencyRecord(String path, int statusCode, long duration)
+    {
+        this.path = path;
+        this.statusCode = statusCode;
+        this.duration = duration;
+    }
+
+    public String getPath()
+    {
+        return path;
+    }
+
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+
+    public long getDuration()
+    {
+        return duration;
+    }
+}
@@ -0,0 +1,19 @@
+package com.laigeoffer.pmhub.gateway.telemetry;
+
+import java.util.Collection;
+
+/**
+ * 耗时统计输出端
+ *
+ * @author zw
+ */
+public interface LatencySink
+{
+    /**
+     * 批量写出一个聚合窗口的统计结果
+     *
+     * @param windowEnd  窗口结束时间（毫秒）
+     * @param histograms 窗口内各 路径+状态码 的耗时分布
+     */
+    public void write(long windowEnd, Collection<LatencyHistogram> histograms);
+}
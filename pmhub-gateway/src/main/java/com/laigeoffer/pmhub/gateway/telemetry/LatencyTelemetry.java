@@ -0,0 +1,193 @@
+package com.laigeoffer.pmhub.gateway.telemetry;
+
+import com.laigeoffer.pmhub.base.core.utils.BoundedRingBuffer;
+import com.laigeoffer.pmhub.gateway.config.properties.TelemetryProperties;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 接口耗时统计
+ * 请求线程只把耗时记录放入无锁环形队列，后台单线程取出后按 路径+状态码 聚合为耗时分布，
+ * 每个窗口批量写出一次；队列满时直接丢弃并计数，不阻塞请求
+ *
+ * @author zw
+ */
+public class LatencyTelemetry
+{
+    private static final Logger log = LoggerFactory.getLogger(LatencyTelemetry.class);
+
+    /**
+     * 超出统计组合数上限时归入的路径
+     */
+    static final String OTHER_PATH = "OTHER";
+
+    private static final long DRAIN_INTERVAL_MILLIS = 200;
+
+    private static final int DRAIN_BATCH = 4096;
+
+    private final TelemetryProperties properties;
+
+    private final LatencySink sink;
+
+    private final BoundedRingBuffer<LatencyRecord> buffer;
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * 当前窗口的聚合结果，仅由后台线程访问
+     */
+    private Map<String, LatencyHistogram> window = new HashMap<>();
+
+    private long windowStart = System.currentTimeMillis();
+
+    private final LongAdder recorded = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder overflowSeries = new LongAdder();
+
+    private final LongAdder flushedBatches = new LongAdder();
+
+    private final LongAdder sinkErrors = new LongAdder();
+
+    private long lastReportedDropped;
+
+    public LatencyTelemetry(TelemetryProperties properties, LatencySink sink)
+    {
+        this.properties = properties;
+        this.sink = sink;
+        this.buffer = new BoundedRingBuffer<>(properties.getBufferSize());
+        this.executor = new ScheduledThreadPoolExecutor(1,
+                new BasicThreadFactory.Builder().namingPattern("latency-telemetry-%d").daemon(true).build());
+        this.executor.scheduleWithFixedDelay(this::drainSafely, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次请求耗时，不阻塞调用线程
+     *
+     * @param path       请求路径
+     * @param statusCode 响应状态码
+     * @param duration   耗时（毫秒）
+     */
+    public void record(String path, int statusCode, long duration)
+    {
+        if (buffer.offer(new LatencyRecord(path, statusCode, duration)))
+        {
+            recorded.increment();
+        }
+        else
+        {
+            dropped.increment();
+        }
+    }
+
+    private void drainSafely()
+    {
+        try
+        {
+            while (buffer.drain(this::aggregate, DRAIN_BATCH) == DRAIN_BATCH)
+            {
+                // 积压较多时连续取出，直到队列清空
+            }
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= TimeUnit.SECONDS.toMillis(properties.getFlushIntervalSeconds()))
+            {
+                flush(now);
+            }
+        }
+        catch (Exception e)
+        {
+            log.error("接口耗时统计处理异常", e);
+        }
+    }
+
+    private void aggregate(LatencyRecord record)
+    {
+        String key = record.getPath() + '#' + record.getStatusCode();
+        LatencyHistogram histogram = window.get(key);
+        if (histogram == null)
+        {
+            if (window.size() >= properties.getMaxSeries())
+            {
+                overflowSeries.increment();
+                key = OTHER_PATH + '#' + record.getStatusCode();
+                histogram = window.computeIfAbsent(key, k -> new LatencyHistogram(OTHER_PATH, record.getStatusCode()));
+            }
+            else
+            {
+                histogram = new LatencyHistogram(record.getPath(), record.getStatusCode());
+                window.put(key, histogram);
+            }
+        }
+        histogram.record(record.getDuration());
+    }
+
+    private void flush(long now)
+    {
+        Map<String, LatencyHistogram> current = window;
+        window = new HashMap<>();
+        windowStart = now;
+        long droppedTotal = dropped.sum();
+        if (droppedTotal > lastReportedDropped)
+        {
+            log.warn("接口耗时统计队列已满，本窗口丢弃 {} 条记录，累计丢弃 {} 条", droppedTotal - lastReportedDropped, droppedTotal);
+            lastReportedDropped = droppedTotal;
+        }
+        if (current.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            sink.write(now, current.values());
+            flushedBatches.increment();
+        }
+        catch (Exception e)
+        {
+            sinkErrors.increment();
+            log.error("接口耗时统计写出失败，丢弃 {} 组统计", current.size(), e);
+        }
+    }
+
+    /**
+     * 统计链路自身的计数
+     */
+    public Map<String, Long> getStats()
+    {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("recorded", recorded.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("pending", (long) buffer.size());
+        stats.put("overflowSeries", overflowSeries.sum());
+        stats.put("flushedBatches", flushedBatches.sum());
+        stats.put("sinkErrors", sinkErrors.sum());
+        return stats;
+    }
+
+    /**
+     * 停止后台线程，并写出剩余数据
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+        try
+        {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        buffer.drain(this::aggregate, Integer.MAX_VALUE);
+        flush(System.currentTimeMillis());
+    }
+}
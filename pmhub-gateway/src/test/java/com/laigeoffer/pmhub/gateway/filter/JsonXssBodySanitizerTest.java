@@ -0,0 +1,100 @@
+package com.laigeoffer.pmhub.gateway.filter;
+
+import com.laigeoffer.pmhub.base.core.utils.html.EscapeUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 流式过滤与逐个字符串过滤的结果一致，且与数据块的切分位置无关
+ *
+ * @author zw
+ */
+class JsonXssBodySanitizerTest {
+
+    private static final DataBufferFactory FACTORY = new DefaultDataBufferFactory();
+
+    private static final List<String> BODIES = Arrays.asList(
+            "{\"a\":\"plain\",\"b\":1}",
+            "{\"a\":\"<script>alert(1)</script>\",\"b\":\"ok\"}",
+            "{\"url\":\"https://x.com/?a=1&b=2\",\"t\":\"Tom & Jerry\"}",
+            "{\"a\":\"&lt;b&gt; &amp; &#60;\",\"b\":\"&foo;\"}",
+            "{\"a\":\"x & <b>y</b>\",\"c\":\"中文<i>斜体</i>\"}",
+            "{\"a\":\"esc \\\" <b> \\\\\",\"b\":[\"<\",\">\",\"&\"]}",
+            "[\"<!-- a & b -->\",\"<a href='x?a=1&b=2'>l</a>\"]");
+
+    @Test
+    void matchesPerStringClean() {
+        Random random = new Random(20240503L);
+        for (String body : BODIES) {
+            String expected = reference(body);
+            for (int round = 0; round < 50; round++) {
+                assertEquals(expected, sanitize(body, 1 + random.nextInt(8)), body);
+            }
+            assertEquals(expected, sanitize(body, body.length()), body);
+        }
+    }
+
+    @Test
+    void ampersandGoesThroughClean() {
+        String body = "{\"t\":\"Tom & Jerry\"}";
+        assertEquals("{\"t\":\"" + EscapeUtil.clean("Tom & Jerry") + "\"}", sanitize(body, 4));
+    }
+
+    /**
+     * 对含 &lt; &gt; &amp; 的每个json字符串单独过滤
+     */
+    private static String reference(String body) {
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        while (i < body.length()) {
+            char c = body.charAt(i);
+            if (c != '"') {
+                out.append(c);
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (body.charAt(end) != '"') {
+                end += body.charAt(end) == '\\' ? 2 : 1;
+            }
+            String content = body.substring(i + 1, end);
+            boolean dirty = content.indexOf('<') >= 0 || content.indexOf('>') >= 0 || content.indexOf('&') >= 0;
+            out.append('"').append(dirty ? EscapeUtil.clean(content) : content).append('"');
+            i = end + 1;
+        }
+        return out.toString();
+    }
+
+    private static String sanitize(String body, int chunkSize) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        JsonXssBodySanitizer sanitizer = new JsonXssBodySanitizer(FACTORY, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            DataBuffer chunk = FACTORY.wrap(Arrays.copyOfRange(bytes, i, Math.min(i + chunkSize, bytes.length)));
+            drain(sanitizer.sanitize(chunk), out);
+        }
+        drain(sanitizer.finish(), out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void drain(DataBuffer buffer, ByteArrayOutputStream out) {
+        if (buffer == null) {
+            return;
+        }
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        out.write(bytes, 0, bytes.length);
+        DataBufferUtils.release(buffer);
+    }
+}
@@ -203,6 +203,9 @@ public class ProjectController {
     @PostMapping("/detail/taskList")
     public AjaxResult taskList(@RequestBody TaskReqVO taskReqVO) {
 
+        if (taskReqVO.getCursor() != null) {
+            return AjaxResult.success(projectTaskService.taskListByCursor(taskReqVO));
+        }
         return AjaxResult.success(projectTaskService.taskList(taskReqVO));
     }
     /**
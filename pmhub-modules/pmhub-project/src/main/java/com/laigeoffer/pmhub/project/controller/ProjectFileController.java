@@ -1,32 +1,30 @@
 package com.laigeoffer.pmhub.project.controller;
 
 import com.laigeoffer.pmhub.base.core.annotation.Anonymous;
-import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
 import com.laigeoffer.pmhub.base.core.core.domain.AjaxResult;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
-import com.laigeoffer.pmhub.base.core.utils.uuid.Seq;
 import com.laigeoffer.pmhub.base.security.annotation.RequiresPermissions;
+import com.laigeoffer.pmhub.base.core.utils.file.FileDownloadUtils;
 import com.laigeoffer.pmhub.base.core.utils.file.FileUtils;
 import com.laigeoffer.pmhub.project.domain.ProjectFile;
+import com.laigeoffer.pmhub.project.domain.vo.project.file.ChunkUploadInitVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileIdsVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileReqVO;
 import com.laigeoffer.pmhub.project.service.ProjectFileService;
+import com.laigeoffer.pmhub.project.service.file.ChunkUploadManager;
 import com.laigeoffer.pmhub.project.service.file.UploadFileFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.compress.utils.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.FileInputStream;
-import java.net.URLEncoder;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static com.laigeoffer.pmhub.base.core.core.domain.AjaxResult.error;
 import static com.laigeoffer.pmhub.base.security.utils.SecurityUtils.getLoginUser;
@@ -47,6 +45,9 @@ public class ProjectFileController {
     @Autowired
     private UploadFileFactory uploadFileFactory;
 
+    @Autowired
+    private ChunkUploadManager chunkUploadManager;
+
     /**
      * 文件列表
      *
@@ -76,6 +77,58 @@ public class ProjectFileController {
         return error("上传文件异常，请联系管理员");
     }
 
+    /**
+     * 分片上传初始化，返回分片上传id和分片大小
+     *
+     * @param initVO
+     * @return
+     * @throws IOException
+     */
+    @PostMapping("/chunk/init")
+    public AjaxResult initChunkUpload(@RequestBody ChunkUploadInitVO initVO) throws IOException {
+        return AjaxResult.success(chunkUploadManager.init(getLoginUser(), initVO));
+    }
+
+    /**
+     * 查询已接收的分片，断点续传时只需上传缺少的分片
+     *
+     * @param uploadId
+     * @return
+     */
+    @GetMapping("/chunk/{uploadId}")
+    public AjaxResult queryChunkUpload(@PathVariable("uploadId") String uploadId) {
+        return AjaxResult.success(chunkUploadManager.query(getLoginUser(), uploadId));
+    }
+
+    /**
+     * 上传分片，请求体为分片内容，X-Chunk-Checksum 为分片内容的SHA-256
+     *
+     * @param uploadId
+     * @param index
+     * @param checksum
+     * @param request
+     * @return
+     * @throws IOException
+     */
+    @PutMapping("/chunk/{uploadId}/{index}")
+    public AjaxResult uploadChunk(@PathVariable("uploadId") String uploadId, @PathVariable("index") Integer index,
+                                  @RequestHeader("X-Chunk-Checksum") String checksum, HttpServletRequest request) throws IOException {
+        chunkUploadManager.writeChunk(getLoginUser(), uploadId, index, checksum, request.getInputStream());
+        return AjaxResult.success();
+    }
+
+    /**
+     * 完成分片上传
+     *
+     * @param uploadId
+     * @return
+     * @throws Exception
+     */
+    @PostMapping("/chunk/{uploadId}/complete")
+    public AjaxResult completeChunkUpload(@PathVariable("uploadId") String uploadId) throws Exception {
+        return AjaxResult.success(chunkUploadManager.complete(getLoginUser(), uploadId));
+    }
+
     @PostMapping("/rename")
     @RequiresPermissions("project:file:rename")
     public AjaxResult rename(@RequestBody ProjectFileReqVO projectFileReqVO) {
@@ -103,19 +156,22 @@ public class ProjectFileController {
      * @param projectFileId
      * @param response
      */
-    @PostMapping("/download")
+    @RequestMapping(value = "/download", method = {RequestMethod.GET, RequestMethod.POST})
     @Anonymous
-    public void downloadFile(@RequestParam("fileUrl") String fileUrl, @RequestParam("projectFileId") String projectFileId, HttpServletResponse response) {
+    public void downloadFile(@RequestParam("fileUrl") String fileUrl, @RequestParam("projectFileId") String projectFileId,
+                             HttpServletRequest request, HttpServletResponse response) {
         try {
             if (!FileUtils.checkAllowDownload(fileUrl)) {
                 throw new Exception(StringUtils.format("文件名称({})非法，不允许下载", fileUrl));
             }
-            String realFileName = fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
             ProjectFile projectFile = projectFileService.getById(projectFileId);
+            // 内容寻址存储的文件名是哈希，下载时使用附件名称
+            String realFileName = StringUtils.isNotEmpty(projectFile.getBlobHash())
+                    ? projectFile.getFileName() : fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
 
             response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
             FileUtils.setAttachmentResponseHeader(response, realFileName);
-            FileUtils.writeBytes(projectFile.getPathName(), response);
+            FileDownloadUtils.writeFile(projectFile.getPathName(), request, response);
         } catch (Exception e) {
             log.error("下载文件失败", e);
         }
@@ -131,34 +187,22 @@ public class ProjectFileController {
     @Anonymous
     public AjaxResult downloadFileList(@RequestParam("projectFileIds") String projectFileIds, HttpServletResponse response) {
 
-        // Linux版创建临时zip,总存放压缩文件  AcasConfig.getProfile()= D:/data/uploadPath/tmp.zip
-        String totalZip = PmhubConfig.getProfile() + "/tmp.zip";
         if (CollectionUtils.isEmpty(Arrays.asList(projectFileIds.split(",")))) {
             return error("未选择需要批量下载的文件");
         }
         List<ProjectFile> projectFiles = projectFileService.listByIds(Arrays.asList(projectFileIds.split(",")));
-        List<String> pathNames = projectFiles.stream().map(ProjectFile::getPathName).collect(Collectors.toList());
         try {
-            // 调用 Service 层方法
-            projectFileService.batchDownload(totalZip, pathNames);
-
-            // 设置Content-Disposition响应头，控制浏览器弹出保存框，若没有此句浏览器会直接打开并显示文件
-            // 中文名要进行URLEncoder.encode编码，否则客户端能下载但名字会乱码
-            String orderDocuments = Seq.getId() + ".zip";
-            String filenames = URLEncoder.encode(orderDocuments, "UTF-8");
-            response.setHeader("Content-disposition", "attachment;filename=" + filenames + ";" + "filename*=utf-8''" + filenames);
-            //该流不可以手动关闭,手动关闭下载会出问题,下载完成后会自动关闭
-            ServletOutputStream outputStream = response.getOutputStream();
-            FileInputStream inputStream = new FileInputStream(totalZip);
-            // 如果是SpringBoot框架,在这个路径 需要org.apache.tomcat.util.http.fileupload.IOUtils产品否则，需要自主引入apache的 commons-io依赖
-            // copy方法为文件复制,在这里直接实现了下载效果
-            IOUtils.copy(inputStream, outputStream);
-            inputStream.close();
+            // 压缩包直接写入响应流，写完后不再返回结果
+            projectFileService.batchDownload(projectFiles, response);
         } catch (Exception e) {
+            log.error("批量下载文件失败", e);
+            if (response.isCommitted()) {
+                return null;
+            }
+            response.reset();
             return error("下载异常");
         }
-
-        return AjaxResult.success("下载完成");
+        return null;
     }
 
 }
@@ -30,6 +30,9 @@ public class ProjectLogController {
     @PostMapping("/list")
     @RequiresPermissions("project:log:list")
     public AjaxResult list(@RequestBody ProjectVO projectVO) {
+        if (projectVO.getCursor() != null) {
+            return AjaxResult.success(projectLogService.listByCursor(projectVO));
+        }
         return AjaxResult.success(projectLogService.list(projectVO));
     }
 
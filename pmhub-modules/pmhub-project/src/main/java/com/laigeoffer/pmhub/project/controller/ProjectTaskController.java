@@ -76,7 +76,9 @@ public class ProjectTaskController {
     @DeleteMapping("/task/delete")
     @RequiresPermissions("project:task:delete")
     public AjaxResult deleteTask(@RequestBody TaskIdsVO taskIdsVO) {
-        List<ProjectTask> projectTasks = projectTaskService.listByIds(taskIdsVO.getTaskIdList());
+        // 子任务会一起删除，一并检查
+        List<ProjectTask> projectTasks = projectTaskService.querySubtreeTasks(taskIdsVO.getTaskIdList());
+        List<String> taskIds = projectTasks.stream().map(ProjectTask::getId).collect(Collectors.toList());
         List<String> projectIds = projectTasks.stream().map(ProjectTask::getProjectId).distinct().collect(Collectors.toList());
         List<Project> projects = projectTaskService.queryProjectsStatus(projectIds);
         Map<String, List<Project>> map = projects.stream().collect(Collectors.groupingBy(Project::getId));
@@ -92,7 +94,7 @@ public class ProjectTaskController {
         }
         Map<String, List<ProjectTask>> collect = projectTasks.stream().collect(Collectors.groupingBy(ProjectTask::getId));
         // 审批相关流程远程调用
-        R<?> result = wfDeployService.selectList(taskIdsVO.getTaskIdList(),SecurityConstants.INNER);
+        R<?> result = wfDeployService.selectList(taskIds, SecurityConstants.INNER);
         // 判断
         if (StringUtils.isNull(result) || StringUtils.isNull(result.getData())) {
             return AjaxResult.error("审批流程不存在");
@@ -181,6 +183,9 @@ public class ProjectTaskController {
     @RequiresPermissions("project:task:list")
     @PostMapping("/task/list")
     public AjaxResult list(@RequestBody TaskReqVO taskReqVO) {
+        if (taskReqVO.getCursor() != null) {
+            return AjaxResult.success(projectTaskService.listByCursor(taskReqVO));
+        }
         return AjaxResult.success(projectTaskService.list(taskReqVO));
     }
     /**
@@ -194,6 +199,29 @@ public class ProjectTaskController {
         return AjaxResult.success(projectTaskService.queryChildTask(taskReqVO));
     }
 
+    /**
+     * 查询任务的完整子树
+     * @param taskReqVO
+     * @return
+     */
+    @RequiresPermissions("project:task:queryChildTask")
+    @PostMapping("/task/subtree")
+    public AjaxResult querySubtree(@RequestBody TaskReqVO taskReqVO) {
+        return AjaxResult.success(projectTaskService.querySubtree(taskReqVO));
+    }
+
+    /**
+     * 移动任务到新的父任务下
+     * @param taskMoveVO
+     * @return
+     */
+    @RequiresPermissions("project:task:edit")
+    @PostMapping("/task/move")
+    public AjaxResult moveTask(@RequestBody TaskMoveVO taskMoveVO) {
+        projectTaskService.moveTask(taskMoveVO);
+        return AjaxResult.success();
+    }
+
     /**
      * 任务交付物模板下载
      * @throws IOException
@@ -259,9 +287,7 @@ public class ProjectTaskController {
      */
     @PostMapping("/task/exportAll")
     public void exportAll(HttpServletResponse response) {
-        List<TaskExportVO> list = projectTaskService.exportAll();
-        ExcelUtil<TaskExportVO> util = new ExcelUtil<>(TaskExportVO.class);
-        util.exportExcel(response, list, "全部任务数据");
+        projectTaskService.exportAll(response);
     }
     /**
      * 导出任务
@@ -270,9 +296,7 @@ public class ProjectTaskController {
      */
     @PostMapping("/task/export")
     public void export(@RequestParam("taskIds") String taskIds, HttpServletResponse response) {
-        List<TaskExportVO> list = projectTaskService.export(taskIds);
-        ExcelUtil<TaskExportVO> util = new ExcelUtil<>(TaskExportVO.class);
-        util.exportExcel(response, list, "任务数据");
+        projectTaskService.export(taskIds, response);
     }
 
     /**
@@ -0,0 +1,56 @@
+package com.laigeoffer.pmhub.project.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 附件内容寻址存储，同样内容的文件只存一份，按引用的附件数回收
+ *
+ * @author zw
+ */
+@Data
+@TableName("pmhub_file_blob")
+public class FileBlob {
+
+    /**
+     * 文件内容SHA-256
+     */
+    @TableId(type = IdType.INPUT)
+    private String hash;
+
+    /**
+     * 首次上传时的扩展名
+     */
+    private String extension;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+
+    /**
+     * 文件完整路径
+     */
+    private String pathName;
+
+    /**
+     * 文件访问地址
+     */
+    private String fileUrl;
+
+    /**
+     * 引用的附件数
+     */
+    private Integer refCount;
+
+    private Date createdTime;
+
+    /**
+     * 最近一次引用变化时间
+     */
+    private Date updatedTime;
+}
@@ -0,0 +1,71 @@
+package com.laigeoffer.pmhub.project.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 分片上传，上传完成后删除
+ *
+ * @author zw
+ */
+@Data
+@TableName("pmhub_file_upload")
+public class FileUpload {
+
+    /**
+     * 主键id
+     */
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /**
+     * 上传人id
+     */
+    private Long userId;
+
+    /**
+     * 文件归属类型 task 或者 project
+     */
+    private String type;
+
+    /**
+     * type是task 对应就是task的id type是project 对应就是project的id
+     */
+    private String ptId;
+
+    /**
+     * 文件名称
+     */
+    private String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+
+    /**
+     * 文件内容SHA-256
+     */
+    private String fileHash;
+
+    /**
+     * 分片大小（字节）
+     */
+    private Integer chunkSize;
+
+    /**
+     * 分片数
+     */
+    private Integer chunkCount;
+
+    /**
+     * 过期时间，每收到一个分片顺延
+     */
+    private Date expireTime;
+
+    private Date createdTime;
+}
@@ -91,5 +91,10 @@ public class ProjectFile implements Serializable {
     private String projectId;
     private String pathName;
 
+    /**
+     * 文件内容SHA-256，为空表示文件未存入内容寻址存储
+     */
+    private String blobHash;
+
 }
 
@@ -0,0 +1,60 @@
+package com.laigeoffer.pmhub.project.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 项目-任务日志待写入事件
+ *
+ * @author zw
+ */
+@Data
+@TableName("pmhub_project_log_outbox")
+public class ProjectLogOutbox implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 日志事件（LogVO 的 json）
+     */
+    private String payload;
+
+    /**
+     * 创建时间
+     */
+    private Date createdTime;
+
+    /**
+     * 领取该事件的分发批次
+     */
+    private String claimedBy;
+
+    /**
+     * 领取到期时间，处理失败时为下次重试时间
+     */
+    private Date claimExpireTime;
+
+    /**
+     * 已领取次数
+     */
+    private Integer attempts;
+
+    /**
+     * 是否已转入死信，不再分发
+     */
+    private Integer dead;
+
+    /**
+     * 最近一次处理失败的原因
+     */
+    private String lastError;
+
+}
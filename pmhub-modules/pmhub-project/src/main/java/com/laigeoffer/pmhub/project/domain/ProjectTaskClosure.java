@@ -0,0 +1,29 @@
+package com.laigeoffer.pmhub.project.domain;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 任务层级闭包，每个任务与自身及所有祖先各有一条记录
+ *
+ * @author zw
+ */
+@Data
+@TableName("pmhub_project_task_closure")
+public class ProjectTaskClosure {
+
+    /**
+     * 祖先任务id
+     */
+    private String ancestor;
+
+    /**
+     * 后代任务id
+     */
+    private String descendant;
+
+    /**
+     * 层级差，任务自身为0
+     */
+    private Integer depth;
+}
@@ -0,0 +1,69 @@
+package com.laigeoffer.pmhub.project.domain.vo.project.file;
+
+/**
+ * 分片上传初始化请求
+ *
+ * @author zw
+ */
+public class ChunkUploadInitVO {
+    /**
+     * 文件归属类型 task 或者 project
+     */
+    private String type;
+    /**
+     * 任务或项目id
+     */
+    private String id;
+    /**
+     * 传文件名+后缀
+     */
+    private String fileName;
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+    /**
+     * 文件内容SHA-256
+     */
+    private String fileHash;
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getFileHash() {
+        return fileHash;
+    }
+
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+}
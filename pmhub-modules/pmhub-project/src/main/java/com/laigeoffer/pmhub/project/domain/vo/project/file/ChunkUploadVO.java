@@ -0,0 +1,59 @@
+package com.laigeoffer.pmhub.project.domain.vo.project.file;
+
+import java.util.List;
+
+/**
+ * 分片上传进度
+ *
+ * @author zw
+ */
+public class ChunkUploadVO {
+    /**
+     * 分片上传id
+     */
+    private String uploadId;
+    /**
+     * 分片大小（字节），最后一个分片为剩余大小
+     */
+    private Integer chunkSize;
+    /**
+     * 分片数
+     */
+    private Integer chunkCount;
+    /**
+     * 已接收的分片序号
+     */
+    private List<Integer> receivedChunks;
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public List<Integer> getReceivedChunks() {
+        return receivedChunks;
+    }
+
+    public void setReceivedChunks(List<Integer> receivedChunks) {
+        this.receivedChunks = receivedChunks;
+    }
+}
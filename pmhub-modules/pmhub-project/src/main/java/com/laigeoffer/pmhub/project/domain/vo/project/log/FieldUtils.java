@@ -1,80 +1,109 @@
 package com.laigeoffer.pmhub.project.domain.vo.project.log;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 /**
+ * 变更字段比对
+ * 每个类首次比对时收集带 {@link ForUpdate} 的字段，生成读取字段的 MethodHandle 并按类缓存，之后的比对一次遍历完成，不再反射
+ *
  * @author zw
  * @date 2022-12-22 14:58
  */
 public class FieldUtils {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<FieldAccessor[]> ACCESSORS = new ClassValue<FieldAccessor[]>() {
+        @Override
+        protected FieldAccessor[] computeValue(Class<?> type) {
+            return buildAccessors(type);
+        }
+    };
+
     /**
-     * 获取变更内容
+     * 获取变更内容，每个变更字段对应一条日志
+     * 变更前后任一值为空时不记录，与按非空字段更新的口径一致
+     *
      * @param <T>
-     * @param newBean 更改前的Bean
-     * @param oldBean 更改后的Bean
+     * @param newBean 更改后的Bean
+     * @param oldBean 更改前的Bean
      * @return
      */
-    public static <T> List<LogDataVO> getChangedFields(T newBean, T oldBean){
-        List<LogDataVO> data = new ArrayList<>(10);
-        Field[] fields = newBean.getClass().getDeclaredFields();
-        List<LogContentVO> list = new ArrayList<>();
-        for(Field field : fields) {
+    public static <T> List<LogDataVO> getChangedFields(T newBean, T oldBean) {
+        FieldAccessor[] accessors = ACCESSORS.get(newBean.getClass());
+        List<LogDataVO> data = new ArrayList<>(accessors.length);
+        for (FieldAccessor accessor : accessors) {
+            Object newValue = accessor.get(newBean);
+            Object oldValue = accessor.get(oldBean);
+            if (newValue == null || oldValue == null || Objects.equals(newValue, oldValue)) {
+                continue;
+            }
+            LogContentVO logContentVO = new LogContentVO();
+            logContentVO.setField(accessor.name);
+            logContentVO.setFieldName(accessor.fieldName);
+            logContentVO.setOldValue(oldValue.toString());
+            logContentVO.setNewValue(newValue.toString());
             LogDataVO logDataVO = new LogDataVO();
-            field.setAccessible(true);
-            if (field.isAnnotationPresent(ForUpdate.class)) {
-                switch (field.getName()) {
-                    case "userId":
-                        logDataVO.setRemark("更新了执行人");
-                        break;
-                    case "taskName":
-                        logDataVO.setRemark("更新了任务名称");
-                        break;
-                    case "executeStatus":
-                        logDataVO.setRemark("更新了执行状态");
-                        break;
-                    case "status":
-                        logDataVO.setRemark("更新了任务状态");
-                        break;
-                    case "taskPriority":
-                        logDataVO.setRemark("更新了任务优先级");
-                        break;
-                    case "beginTime":
-                        logDataVO.setRemark("更新了开始时间");
-                        break;
-                    case "endTime":
-                        logDataVO.setRemark("更新了结束时间");
-                        break;
-                    case "closeTime":
-                        logDataVO.setRemark("更新了截止时间");
-                        break;
-                    case "description":
-                        logDataVO.setRemark("更新了描述");
-                        break;
-                    case "taskProcess":
-                        logDataVO.setRemark("更新了任务进度");
-                        break;
-                }
-                try {
-                    Object newValue = field.get(newBean);
-                    Object oldValue = field.get(oldBean);
-                    if(!Objects.equals(newValue, oldValue)) {
-                        LogContentVO logContentVO = new LogContentVO();
-                        logContentVO.setField(field.getName());
-                        logContentVO.setFieldName(field.getAnnotation(ForUpdate.class).fieldName());
-                        logContentVO.setOldValue(oldValue.toString());
-                        logContentVO.setNewValue(newValue.toString());
-                        list.add(logContentVO);
-                        logDataVO.setLogContentVOList(list);
-                        data.add(logDataVO);
-                    }
-                } catch (Exception e) {
+            logDataVO.setRemark(accessor.remark);
+            logDataVO.setLogContentVOList(Collections.singletonList(logContentVO));
+            data.add(logDataVO);
+        }
+        return data;
+    }
 
-                }
+    private static FieldAccessor[] buildAccessors(Class<?> type) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<FieldAccessor> accessors = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            ForUpdate forUpdate = field.getAnnotation(ForUpdate.class);
+            if (forUpdate == null) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                accessors.add(new FieldAccessor(field.getName(), forUpdate.fieldName(), getter));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("无法读取字段 " + type.getName() + "." + field.getName(), e);
+            }
+        }
+        return accessors.toArray(new FieldAccessor[0]);
+    }
+
+    /**
+     * 字段读取器
+     */
+    private static final class FieldAccessor {
+        private final String name;
+
+        private final String fieldName;
+
+        private final String remark;
+
+        private final MethodHandle getter;
+
+        private FieldAccessor(String name, String fieldName, MethodHandle getter) {
+            this.name = name;
+            this.fieldName = fieldName;
+            this.remark = "更新了" + fieldName;
+            this.getter = getter;
+        }
+
+        private Object get(Object bean) {
+            try {
+                return (Object) getter.invokeExact(bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
             }
         }
-        return data;
     }
 }
@@ -41,6 +41,11 @@ public class LogVO {
      */
     private String updatedBy;
     private Date updatedTime;
+    /**
+     * 记录日志时的项目名称和备注，分发时按此写入，不受之后的修改影响
+     */
+    private String projectName;
+    private String projectDescription;
 
     public Integer getLogType() {
         return logType;
@@ -145,4 +150,20 @@ public class LogVO {
     public void setUpdatedTime(Date updatedTime) {
         this.updatedTime = updatedTime;
     }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public String getProjectDescription() {
+        return projectDescription;
+    }
+
+    public void setProjectDescription(String projectDescription) {
+        this.projectDescription = projectDescription;
+    }
 }
@@ -0,0 +1,33 @@
+package com.laigeoffer.pmhub.project.domain.vo.project.task;
+
+/**
+ * 移动任务
+ *
+ * @author zw
+ */
+public class TaskMoveVO {
+    /**
+     * 任务id
+     */
+    private String taskId;
+    /**
+     * 新的父任务id，为空时移到顶层
+     */
+    private String taskPid;
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public String getTaskPid() {
+        return taskPid;
+    }
+
+    public void setTaskPid(String taskPid) {
+        this.taskPid = taskPid;
+    }
+}
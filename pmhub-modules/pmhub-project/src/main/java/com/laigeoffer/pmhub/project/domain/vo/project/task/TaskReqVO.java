@@ -23,6 +23,10 @@ public class TaskReqVO {
      * 页数
      */
     private Integer pageSize;
+    /**
+     * 游标分页的游标，传入时按游标分页，第一页传空字符串，之后传上一页返回的 nextCursor
+     */
+    private String cursor;
     /**
      * 项目id
      */
@@ -121,6 +125,14 @@ public class TaskReqVO {
         this.pageSize = pageSize;
     }
 
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
     public String getProjectId() {
         return projectId;
     }
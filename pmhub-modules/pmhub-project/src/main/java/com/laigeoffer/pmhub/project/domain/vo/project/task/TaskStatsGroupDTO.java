@@ -0,0 +1,69 @@
+package com.laigeoffer.pmhub.project.domain.vo.project.task;
+
+/**
+ * 按项目、任务状态分组的任务数
+ *
+ * @author zw
+ */
+public class TaskStatsGroupDTO {
+    /**
+     * 项目id
+     */
+    private String projectId;
+    /**
+     * 任务状态
+     */
+    private Integer status;
+    /**
+     * 任务数
+     */
+    private Long taskNum;
+    /**
+     * 待认领任务数
+     */
+    private Long unassignedNum;
+    /**
+     * 时间待定任务数
+     */
+    private Long timeUndeterminedNum;
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Long getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(Long taskNum) {
+        this.taskNum = taskNum;
+    }
+
+    public Long getUnassignedNum() {
+        return unassignedNum;
+    }
+
+    public void setUnassignedNum(Long unassignedNum) {
+        this.unassignedNum = unassignedNum;
+    }
+
+    public Long getTimeUndeterminedNum() {
+        return timeUndeterminedNum;
+    }
+
+    public void setTimeUndeterminedNum(Long timeUndeterminedNum) {
+        this.timeUndeterminedNum = timeUndeterminedNum;
+    }
+}
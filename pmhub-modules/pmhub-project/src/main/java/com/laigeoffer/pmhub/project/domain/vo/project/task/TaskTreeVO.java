@@ -0,0 +1,259 @@
+package com.laigeoffer.pmhub.project.domain.vo.project.task;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 任务树节点，汇总字段包含节点自身及其所有后代
+ *
+ * @author zw
+ */
+public class TaskTreeVO {
+    /**
+     * 任务id
+     */
+    private String taskId;
+    /**
+     * 父任务id
+     */
+    private String taskPid;
+    /**
+     * 相对查询任务的层级，查询任务自身为0
+     */
+    private Integer depth;
+    /**
+     * 任务名
+     */
+    private String taskName;
+    /**
+     * 状态
+     */
+    private Integer status;
+    private String statusName;
+    /**
+     * 执行状态
+     */
+    private Integer executeStatus;
+    private String executeStatusName;
+    /**
+     * 优先级
+     */
+    private Integer taskPriority;
+    private String taskPriorityName;
+    /**
+     * 任务进度
+     */
+    private BigDecimal taskProcess;
+    /**
+     * 执行人id
+     */
+    private Long userId;
+    /**
+     * 执行人
+     */
+    private String executor;
+    /**
+     * 预计开始时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date beginTime;
+    /**
+     * 预计结束时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date endTime;
+    /**
+     * 截止时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date closeTime;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private Date createdTime;
+    /**
+     * 汇总进度，节点自身及所有后代进度的平均值
+     */
+    private BigDecimal subtreeProcess;
+    /**
+     * 汇总任务数
+     */
+    private Integer subtreeTaskNum;
+    /**
+     * 汇总已完成任务数
+     */
+    private Integer finishedTaskNum;
+    /**
+     * 子任务
+     */
+    private List<TaskTreeVO> children;
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public String getTaskPid() {
+        return taskPid;
+    }
+
+    public void setTaskPid(String taskPid) {
+        this.taskPid = taskPid;
+    }
+
+    public Integer getDepth() {
+        return depth;
+    }
+
+    public void setDepth(Integer depth) {
+        this.depth = depth;
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    public void setTaskName(String taskName) {
+        this.taskName = taskName;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getStatusName() {
+        return statusName;
+    }
+
+    public void setStatusName(String statusName) {
+        this.statusName = statusName;
+    }
+
+    public Integer getExecuteStatus() {
+        return executeStatus;
+    }
+
+    public void setExecuteStatus(Integer executeStatus) {
+        this.executeStatus = executeStatus;
+    }
+
+    public String getExecuteStatusName() {
+        return executeStatusName;
+    }
+
+    public void setExecuteStatusName(String executeStatusName) {
+        this.executeStatusName = executeStatusName;
+    }
+
+    public Integer getTaskPriority() {
+        return taskPriority;
+    }
+
+    public void setTaskPriority(Integer taskPriority) {
+        this.taskPriority = taskPriority;
+    }
+
+    public String getTaskPriorityName() {
+        return taskPriorityName;
+    }
+
+    public void setTaskPriorityName(String taskPriorityName) {
+        this.taskPriorityName = taskPriorityName;
+    }
+
+    public BigDecimal getTaskProcess() {
+        return taskProcess;
+    }
+
+    public void setTaskProcess(BigDecimal taskProcess) {
+        this.taskProcess = taskProcess;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(String executor) {
+        this.executor = executor;
+    }
+
+    public Date getBeginTime() {
+        return beginTime;
+    }
+
+    public void setBeginTime(Date beginTime) {
+        this.beginTime = beginTime;
+    }
+
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Date endTime) {
+        this.endTime = endTime;
+    }
+
+    public Date getCloseTime() {
+        return closeTime;
+    }
+
+    public void setCloseTime(Date closeTime) {
+        this.closeTime = closeTime;
+    }
+
+    public Date getCreatedTime() {
+        return createdTime;
+    }
+
+    public void setCreatedTime(Date createdTime) {
+        this.createdTime = createdTime;
+    }
+
+    public BigDecimal getSubtreeProcess() {
+        return subtreeProcess;
+    }
+
+    public void setSubtreeProcess(BigDecimal subtreeProcess) {
+        this.subtreeProcess = subtreeProcess;
+    }
+
+    public Integer getSubtreeTaskNum() {
+        return subtreeTaskNum;
+    }
+
+    public void setSubtreeTaskNum(Integer subtreeTaskNum) {
+        this.subtreeTaskNum = subtreeTaskNum;
+    }
+
+    public Integer getFinishedTaskNum() {
+        return finishedTaskNum;
+    }
+
+    public void setFinishedTaskNum(Integer finishedTaskNum) {
+        this.finishedTaskNum = finishedTaskNum;
+    }
+
+    public List<TaskTreeVO> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<TaskTreeVO> children) {
+        this.children = children;
+    }
+}
@@ -0,0 +1,128 @@
+package com.laigeoffer.pmhub.project.job;
+
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import com.laigeoffer.pmhub.base.security.pojo.ILock;
+import com.laigeoffer.pmhub.base.security.service.redisson.IDistributedLock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 集群定时任务执行器
+ * 各实例同时触发时只有拿到分布式锁的实例执行，执行成功后记录当天日期，同一天内其他实例或迟到的触发不再重复执行；
+ * 执行失败不记录日期，下次触发时重新执行。记录每次处理的行数和耗时，并输出每秒处理行数。
+ * 项目服务未开启spring定时任务，需要按cron触发的任务通过 {@link #scheduleDaily} 在独立的调度线程上登记
+ *
+ * @author zw
+ */
+@Component
+@Slf4j
+public class ClusterJobRunner {
+
+    /**
+     * 执行日期记录的保留天数
+     */
+    private static final long RUN_MARK_DAYS = 2;
+
+    @Autowired
+    private IDistributedLock distributedLock;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("cluster-job-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * 按cron触发，每次触发时调用 {@link #runDaily}
+     *
+     * @param jobName 任务名称
+     * @param cron    cron表达式
+     * @param job     任务，返回处理的行数
+     */
+    public void scheduleDaily(String jobName, String cron, LongSupplier job) {
+        scheduler.schedule(() -> {
+            try {
+                runDaily(jobName, job);
+            } catch (Exception e) {
+                log.error("定时任务{}执行失败", jobName, e);
+            }
+        }, new CronTrigger(cron));
+        log.info("定时任务{}已登记, cron: {}", jobName, cron);
+    }
+
+    /**
+     * 每天在集群内执行一次
+     *
+     * @param jobName 任务名称
+     * @param job     任务，返回处理的行数
+     */
+    public void runDaily(String jobName, LongSupplier job) {
+        ILock lock;
+        try {
+            lock = distributedLock.tryLock("job:" + jobName, 0L);
+        } catch (Exception e) {
+            log.warn("定时任务{}获取分布式锁失败:{}", jobName, e.getMessage());
+            return;
+        }
+        if (lock == null) {
+            log.info("定时任务{}正在其他实例执行，跳过", jobName);
+            return;
+        }
+        try {
+            String runKey = CacheConstants.CLUSTER_JOB_RUN_KEY + jobName;
+            String today = LocalDate.now().toString();
+            if (today.equals(stringRedisTemplate.opsForValue().get(runKey))) {
+                log.info("定时任务{}今天已执行，跳过", jobName);
+                return;
+            }
+            long start = System.nanoTime();
+            long rows = job.getAsLong();
+            long elapsed = System.nanoTime() - start;
+            stringRedisTemplate.opsForValue().set(runKey, today, RUN_MARK_DAYS, TimeUnit.DAYS);
+            record(jobName, rows, elapsed);
+        } finally {
+            distributedLock.unLock(lock);
+        }
+    }
+
+    private void record(String jobName, long rows, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1L) / 1_000_000_000.0;
+        log.info("定时任务{}执行结束, 处理{}行, 耗时{}ms, {}行/秒", jobName, rows,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.1f", rows / seconds));
+        if (meterRegistry == null) {
+            return;
+        }
+        Counter.builder("pmhub.project.job.rows").tag("job", jobName).register(meterRegistry).increment(rows);
+        Timer.builder("pmhub.project.job.duration").tag("job", jobName).register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,48 @@
+package com.laigeoffer.pmhub.project.job;
+
+import com.laigeoffer.pmhub.project.service.file.FileBlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 附件内容回收
+ * 回收超过保留时间仍没有附件引用的内容，以及没有内容记录的文件和上传中断留下的临时文件；集群内每天只由一个实例执行
+ *
+ * @author zw
+ */
+@Component
+@Slf4j
+public class FileBlobCompactJob {
+
+    /**
+     * 没有引用的内容保留的小时数，期间重新上传同样内容时直接复用
+     */
+    @Value("${project.file-blob.retain-hours:24}")
+    private long retainHours;
+
+    @Value("${project.file-blob.compact-cron:0 30 3 * * ?}")
+    private String cron;
+
+    @Autowired
+    private FileBlobStore fileBlobStore;
+
+    @Autowired
+    private ClusterJobRunner clusterJobRunner;
+
+    @PostConstruct
+    public void init() {
+        clusterJobRunner.scheduleDaily("fileBlobCompact", cron, this::run);
+    }
+
+    public long run() {
+        Date before = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retainHours));
+        return fileBlobStore.compact(before);
+    }
+}
@@ -0,0 +1,40 @@
+package com.laigeoffer.pmhub.project.job;
+
+import com.laigeoffer.pmhub.project.service.file.ChunkUploadManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+
+
+/**
+ * 过期分片上传清理
+ * 删除过期未完成的分片上传记录和预分配的文件，以及没有上传记录的分片文件；集群内每天只由一个实例执行
+ *
+ * @author zw
+ */
+@Component
+@Slf4j
+public class FileUploadCleanJob {
+
+    @Value("${project.file-upload.clean-cron:0 0 3 * * ?}")
+    private String cron;
+
+    @Autowired
+    private ChunkUploadManager chunkUploadManager;
+
+    @Autowired
+    private ClusterJobRunner clusterJobRunner;
+
+    @PostConstruct
+    public void init() {
+        clusterJobRunner.scheduleDaily("fileUploadClean", cron, this::run);
+    }
+
+    public long run() {
+        return chunkUploadManager.cleanExpired(new Date());
+    }
+}
@@ -1,27 +1,25 @@
 package com.laigeoffer.pmhub.project.job;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.laigeoffer.pmhub.base.core.enums.ProjectStatusEnum;
-import com.laigeoffer.pmhub.base.core.utils.StringUtils;
-import com.laigeoffer.pmhub.project.domain.ProjectTaskNotify;
 import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskNotifyDTO;
-import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
 import com.laigeoffer.pmhub.project.mapper.ProjectTaskNotifyMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 
 /**
  * 任务已逾期提醒
+ * 按任务id分批取截止日已过且还没有提醒记录的任务，每批用一条insert ... select写入提醒记录并单独提交，
+ * 写入时再次排除已有记录的任务；集群内每天只由一个实例执行
  *
  * @author zw
  * @date 2023-03-16 09:04
@@ -30,57 +28,57 @@ import java.util.List;
 @Slf4j
 public class TaskOverdueNotifyJob {
 
-    @Autowired
-    private ProjectTaskMapper projectTaskMapper;
+    @Value("${project.overdue-job.batch-size:500}")
+    private int batchSize;
+
     @Autowired
     private ProjectTaskNotifyMapper projectTaskNotifyMapper;
 
+    @Autowired
+    private ClusterJobRunner clusterJobRunner;
+
     @Scheduled(cron = "0 0 9 * * ?")
-    @Transactional(rollbackFor = Exception.class)
     public void taskNotify() {
-        List<TaskNotifyDTO> tasks = projectTaskMapper.queryTaskNotifyJob();
-        LocalDate localDate = LocalDate.now();
-        tasks.stream().filter(taskNotifyDTO -> StringUtils.isNotBlank(taskNotifyDTO.getUserWxName()) && taskNotifyDTO.getCloseTime() != null)
-                .forEach(taskNotifyDTO -> {
-                    if (ProjectStatusEnum.PAUSE.getStatus().equals(taskNotifyDTO.getStatus())) {
-                        return;
-                    }
-                    LocalDate closeDate = taskNotifyDTO.getCloseTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-                    if (ChronoUnit.DAYS.between(localDate, closeDate) < 0L) {
-                        log.info("已逾期任务提醒开始, 用户id:{}, 企微id:{}, 任务id:{}", taskNotifyDTO.getUserId(), taskNotifyDTO.getUserWxName(), taskNotifyDTO.getTaskId());
-                        LambdaQueryWrapper<ProjectTaskNotify> qw = Wrappers.lambdaQuery(ProjectTaskNotify.class).eq(ProjectTaskNotify::getTaskId, taskNotifyDTO.getTaskId()).eq(ProjectTaskNotify::getOverdue, 1);
-                        ProjectTaskNotify projectTaskNotify = projectTaskNotifyMapper.selectOne(qw);
-                        // 如果数据库不存在记录则就进行消息通知及插入数据库
-                        if (projectTaskNotify == null) {
-                            // 进行逾期任务消息提醒（需要使用MQ请开启这段注释）
-//                            TaskOvertimeRemindDTO taskOvertimeRemindDTO = new TaskOvertimeRemindDTO();
-//                            // 设置发送用户
-//                            taskOvertimeRemindDTO.setUserIds(Collections.singletonList(taskNotifyDTO.getUserWxName()));
-//                            // 设置任务详情页
-//                            String url = SsoUrlUtils.ssoCreate(appid, agentid, host + path + ssoPath + URLEncoder.encode(host + "/pmhub-project/my-task/info?taskId=" + taskNotifyDTO.getTaskId()));
-//                            taskOvertimeRemindDTO.setDetailUrl(url);
-//                            // 设置任务名称
-//                            taskOvertimeRemindDTO.setTaskName(taskNotifyDTO.getTaskName());
-//                            taskOvertimeRemindDTO.setOaTitle("任务已逾期提醒");
-//                            taskOvertimeRemindDTO.setOaContext("您的任务【" + taskNotifyDTO.getTaskName() + "】已经逾期，请及时处理！");
-//                            taskOvertimeRemindDTO.setUserName(taskNotifyDTO.getUserName());
-//                            taskOvertimeRemindDTO.setLinkUrl(OAUtils.ssoCreate(host + "/pmhub-project/my-task/info?taskId=" + taskNotifyDTO.getTaskId()));
-//                            RocketMqUtils.push2Wx(taskOvertimeRemindDTO);
+        clusterJobRunner.runDaily("taskOverdueNotify", this::notifyOverdue);
+    }
 
-                            // 插入记录
-                            ProjectTaskNotify ptn = new ProjectTaskNotify();
-                            ptn.setProjectId(taskNotifyDTO.getProjectId());
-                            ptn.setTaskId(taskNotifyDTO.getTaskId());
-                            ptn.setOverdue(1);
-                            ptn.setUserId(taskNotifyDTO.getUserId());
-                            ptn.setUserWxName(taskNotifyDTO.getUserWxName());
-                            ptn.setCloseTime(taskNotifyDTO.getCloseTime());
-                            ptn.setTaskName(taskNotifyDTO.getTaskName());
-                            projectTaskNotifyMapper.insert(ptn);
-                        }
-                        log.info("已逾期任务提醒结束");
+    private long notifyOverdue() {
+        Date closeBefore = Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Integer pauseStatus = ProjectStatusEnum.PAUSE.getStatus();
+        long rows = 0;
+        String lastId = "";
+        while (true) {
+            List<TaskNotifyDTO> tasks = projectTaskNotifyMapper.queryOverdueNotifyTasks(lastId, closeBefore, pauseStatus, batchSize);
+            if (tasks.isEmpty()) {
+                break;
+            }
+            // 进行逾期任务消息提醒（需要使用MQ请开启这段注释）
+//            tasks.forEach(taskNotifyDTO -> {
+//                TaskOvertimeRemindDTO taskOvertimeRemindDTO = new TaskOvertimeRemindDTO();
+//                // 设置发送用户
+//                taskOvertimeRemindDTO.setUserIds(Collections.singletonList(taskNotifyDTO.getUserWxName()));
+//                // 设置任务详情页
+//                String url = SsoUrlUtils.ssoCreate(appid, agentid, host + path + ssoPath + URLEncoder.encode(host + "/pmhub-project/my-task/info?taskId=" + taskNotifyDTO.getTaskId()));
+//                taskOvertimeRemindDTO.setDetailUrl(url);
+//                // 设置任务名称
+//                taskOvertimeRemindDTO.setTaskName(taskNotifyDTO.getTaskName());
+//                taskOvertimeRemindDTO.setOaTitle("任务已逾期提醒");
+//                taskOvertimeRemindDTO.setOaContext("您的任务【" + taskNotifyDTO.getTaskName() + "】已经逾期，请及时处理！");
+//                taskOvertimeRemindDTO.setUserName(taskNotifyDTO.getUserName());
+//                taskOvertimeRemindDTO.setLinkUrl(OAUtils.ssoCreate(host + "/pmhub-project/my-task/info?taskId=" + taskNotifyDTO.getTaskId()));
+//                RocketMqUtils.push2Wx(taskOvertimeRemindDTO);
+//            });
 
-                    }
-                });
+            // 插入记录
+            List<String> taskIds = tasks.stream().map(TaskNotifyDTO::getTaskId).collect(Collectors.toList());
+            int inserted = projectTaskNotifyMapper.insertOverdueNotify(taskIds);
+            rows += inserted;
+            lastId = taskIds.get(taskIds.size() - 1);
+            log.info("已逾期任务提醒, 本批{}个, 至任务id:{}", inserted, lastId);
+            if (tasks.size() < batchSize) {
+                break;
+            }
+        }
+        return rows;
     }
 }
@@ -2,24 +2,28 @@ package com.laigeoffer.pmhub.project.job;
 
 import com.laigeoffer.pmhub.base.core.enums.ProjectStatusEnum;
 import com.laigeoffer.pmhub.base.core.enums.ProjectTaskStatusEnum;
-import com.laigeoffer.pmhub.project.domain.ProjectTask;
 import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskNotifyDTO;
 import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
+import com.laigeoffer.pmhub.project.service.stats.TaskStatsCounter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 /**
  * 任务已逾期提醒
+ * 按任务id分批取截止日已过的未开始任务，每批用一条update改为已逾期并单独提交，改动的项目登记到统计校准；
+ * 集群内每天只由一个实例执行
  *
  * @author zw
  * @date 2023-03-16 09:04
@@ -28,31 +32,48 @@ import java.util.Objects;
 @Slf4j
 public class TaskOverdueStatusJob {
 
+    @Value("${project.overdue-job.batch-size:500}")
+    private int batchSize;
+
     @Autowired
     private ProjectTaskMapper projectTaskMapper;
 
+    @Autowired
+    private TaskStatsCounter taskStatsCounter;
+
+    @Autowired
+    private ClusterJobRunner clusterJobRunner;
+
     @Scheduled(cron = "0 0 1 * * ?")
-    @Transactional(rollbackFor = Exception.class)
     public void taskNotify() {
-        List<TaskNotifyDTO> tasks = projectTaskMapper.queryTaskNotifyJob2();
-        LocalDate localDate = LocalDate.now();
-        tasks.stream().filter(taskNotifyDTO -> taskNotifyDTO.getCloseTime() != null)
-                .forEach(taskNotifyDTO -> {
-                    if (ProjectStatusEnum.PAUSE.getStatus().equals(taskNotifyDTO.getStatus())) {
-                        return;
-                    }
-                    LocalDate closeDate = taskNotifyDTO.getCloseTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-                    if (ChronoUnit.DAYS.between(localDate, closeDate) < 0L) {
-                        log.info("已逾期任务修改任务状态开始, 任务id:{}", taskNotifyDTO.getTaskId());
-                        ProjectTask projectTask = projectTaskMapper.selectById(taskNotifyDTO.getTaskId());
-                        if (Objects.equals(ProjectTaskStatusEnum.NO_STARTED.getStatus(), projectTask.getStatus())) {
-                            projectTask.setStatus(ProjectTaskStatusEnum.OVERDUE.getStatus());
-                            projectTaskMapper.updateById(projectTask);
-                        }
-                        log.info("已逾期任务修改任务状态结束");
-
-                    }
-                });
+        clusterJobRunner.runDaily("taskOverdueStatus", this::markOverdue);
+    }
 
+    private long markOverdue() {
+        Date closeBefore = Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Integer fromStatus = ProjectTaskStatusEnum.NO_STARTED.getStatus();
+        Integer toStatus = ProjectTaskStatusEnum.OVERDUE.getStatus();
+        Integer pauseStatus = ProjectStatusEnum.PAUSE.getStatus();
+        long rows = 0;
+        String lastId = "";
+        while (true) {
+            List<TaskNotifyDTO> tasks = projectTaskMapper.queryOverdueTasks(lastId, closeBefore, fromStatus, pauseStatus, batchSize);
+            if (tasks.isEmpty()) {
+                break;
+            }
+            List<String> taskIds = tasks.stream().map(TaskNotifyDTO::getTaskId).collect(Collectors.toList());
+            int updated = projectTaskMapper.updateOverdueStatus(taskIds, closeBefore, fromStatus, toStatus);
+            if (updated > 0) {
+                Set<String> projectIds = tasks.stream().map(TaskNotifyDTO::getProjectId).collect(Collectors.toCollection(LinkedHashSet::new));
+                taskStatsCounter.markDirty(projectIds);
+            }
+            rows += updated;
+            lastId = taskIds.get(taskIds.size() - 1);
+            log.info("已逾期任务修改任务状态, 本批{}个, 至任务id:{}", updated, lastId);
+            if (tasks.size() < batchSize) {
+                break;
+            }
+        }
+        return rows;
     }
 }
@@ -0,0 +1,34 @@
+package com.laigeoffer.pmhub.project.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.laigeoffer.pmhub.project.domain.FileBlob;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author zw
+ */
+public interface FileBlobMapper extends BaseMapper<FileBlob> {
+
+    /**
+     * 登记一次引用，内容不存在时新增，已存在时引用数加一
+     */
+    int acquire(FileBlob fileBlob);
+
+    /**
+     * 释放引用
+     */
+    int release(@Param("hash") String hash, @Param("count") int count);
+
+    /**
+     * 锁定内容记录，内容正在被其他事务登记时等待其提交
+     */
+    FileBlob lockByHash(@Param("hash") String hash);
+
+    /**
+     * 取一批在指定时间之前就已没有引用的内容
+     */
+    List<FileBlob> queryUnreferenced(@Param("before") Date before, @Param("limit") int limit);
+}
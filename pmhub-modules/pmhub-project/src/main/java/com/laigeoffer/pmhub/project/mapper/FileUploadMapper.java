@@ -0,0 +1,71 @@
+package com.laigeoffer.pmhub.project.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.laigeoffer.pmhub.project.domain.FileUpload;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author zw
+ */
+public interface FileUploadMapper extends BaseMapper<FileUpload> {
+
+    /**
+     * 锁定分片上传，防止重复完成，完成期间不能登记新的分片
+     */
+    FileUpload lockById(@Param("id") String id);
+
+    /**
+     * 登记分片时加共享锁，多个分片可以同时登记，完成上传时不能登记
+     */
+    FileUpload lockShared(@Param("id") String id);
+
+    /**
+     * 顺延过期时间
+     */
+    int extend(@Param("id") String id, @Param("expireTime") Date expireTime);
+
+    /**
+     * 取一批已过期的分片上传
+     */
+    List<String> queryExpired(@Param("now") Date now, @Param("limit") int limit);
+
+    /**
+     * 登记写入中的分片，重复上传时覆盖已接收的登记；其他请求正在写入且未超过staleBefore时保持不变
+     */
+    int beginChunk(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex,
+                   @Param("checksum") String checksum, @Param("writer") String writer,
+                   @Param("createdTime") Date createdTime, @Param("staleBefore") Date staleBefore);
+
+    /**
+     * 分片的写入方，已接收时为null
+     */
+    String queryChunkWriter(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex);
+
+    /**
+     * 写入方写完后标记为已接收，已被其他写入方接管时不更新
+     */
+    int finishChunk(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex, @Param("writer") String writer);
+
+    /**
+     * 写入失败时删除本次登记
+     */
+    int abortChunk(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex, @Param("writer") String writer);
+
+    /**
+     * 已接收的分片序号
+     */
+    List<Integer> queryChunkIndexes(@Param("uploadId") String uploadId);
+
+    /**
+     * 已接收的分片数
+     */
+    int countChunks(@Param("uploadId") String uploadId);
+
+    /**
+     * 删除分片记录
+     */
+    int deleteChunks(@Param("uploadId") String uploadId);
+}
@@ -1,6 +1,7 @@
 package com.laigeoffer.pmhub.project.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.laigeoffer.pmhub.base.core.core.page.PageCursor;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.ProjectLogVO;
 import com.laigeoffer.pmhub.project.domain.ProjectLog;
 import org.apache.ibatis.annotations.Param;
@@ -14,8 +15,15 @@ import java.util.List;
 public interface ProjectLogMapper extends BaseMapper<ProjectLog> {
 
     List<ProjectLogVO> queryLogList(@Param("projectId") String projectId);
+    List<ProjectLogVO> queryLogListByCursor(@Param("projectId") String projectId, @Param("cursor") PageCursor cursor, @Param("limit") int limit);
+    long countLogList(@Param("projectId") String projectId);
     List<ProjectLogVO> queryAllLog(@Param("taskId") String taskId);
     List<ProjectLogVO> queryCommentLog(@Param("taskId") String taskId);
     List<ProjectLogVO> queryDeliverableLog(@Param("taskId") String taskId);
     List<ProjectLogVO> queryTrendsLog(@Param("taskId") String taskId);
+
+    /**
+     * 批量写入日志，调用方需设置主键
+     */
+    int insertBatch(@Param("list") List<ProjectLog> list);
 }
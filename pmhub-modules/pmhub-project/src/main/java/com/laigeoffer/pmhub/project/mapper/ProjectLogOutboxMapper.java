@@ -0,0 +1,53 @@
+package com.laigeoffer.pmhub.project.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.laigeoffer.pmhub.project.domain.ProjectLogOutbox;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author zw
+ */
+public interface ProjectLogOutboxMapper extends BaseMapper<ProjectLogOutbox> {
+
+    /**
+     * 按写入顺序查询一批未被领取或领取已到期、且未转入死信的事件，普通读，不加锁
+     */
+    List<ProjectLogOutbox> queryPending(@Param("now") Date now, @Param("limit") int limit);
+
+    /**
+     * 按主键领取事件并累加领取次数，已被其他批次领取且未到期的不会更新
+     */
+    int claim(@Param("ids") List<Long> ids, @Param("claimedBy") String claimedBy,
+              @Param("now") Date now, @Param("expireTime") Date expireTime);
+
+    /**
+     * 查询本批次领取到的事件
+     */
+    List<ProjectLogOutbox> queryClaimed(@Param("ids") List<Long> ids, @Param("claimedBy") String claimedBy);
+
+    /**
+     * 删除本批次领取的事件，返回删除行数，少于领取数说明领取已到期并被其他批次重新领取
+     */
+    int deleteClaimed(@Param("ids") List<Long> ids, @Param("claimedBy") String claimedBy);
+
+    /**
+     * 处理失败时放弃领取，下次轮询立即重试
+     */
+    int release(@Param("ids") List<Long> ids, @Param("claimedBy") String claimedBy);
+
+    /**
+     * 单个事件处理失败，放弃领取并推迟到retryTime之后重试
+     */
+    int retryLater(@Param("id") Long id, @Param("claimedBy") String claimedBy,
+                   @Param("retryTime") Date retryTime, @Param("lastError") String lastError);
+
+    /**
+     * 单个事件多次处理失败，转入死信不再分发
+     */
+    int markDead(@Param("id") Long id, @Param("claimedBy") String claimedBy, @Param("lastError") String lastError);
+
+    int insertBatch(@Param("list") List<ProjectLogOutbox> list);
+}
@@ -0,0 +1,43 @@
+package com.laigeoffer.pmhub.project.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.laigeoffer.pmhub.project.domain.ProjectTaskClosure;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * @author zw
+ */
+public interface ProjectTaskClosureMapper extends BaseMapper<ProjectTaskClosure> {
+
+    /**
+     * 任务的所有祖先（含自身）
+     */
+    List<ProjectTaskClosure> queryAncestors(@Param("taskId") String taskId);
+
+    /**
+     * 批量写入层级记录
+     */
+    int insertBatch(@Param("list") List<ProjectTaskClosure> list);
+
+    /**
+     * 批量写入任务自身的记录，用于没有父任务的新任务
+     */
+    int insertSelf(@Param("taskIds") List<String> taskIds);
+
+    /**
+     * ancestor 是否是 descendant 的祖先或自身
+     */
+    boolean isAncestor(@Param("ancestor") String ancestor, @Param("descendant") String descendant);
+
+    /**
+     * 断开子树与子树外祖先的层级记录
+     */
+    int detachSubtree(@Param("taskId") String taskId);
+
+    /**
+     * 把子树挂到新的父任务下
+     */
+    int attachSubtree(@Param("taskId") String taskId, @Param("taskPid") String taskPid);
+}
@@ -1,14 +1,20 @@
 package com.laigeoffer.pmhub.project.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.laigeoffer.pmhub.base.core.core.page.PageCursor;
 import com.laigeoffer.pmhub.project.domain.Project;
 import com.laigeoffer.pmhub.project.domain.ProjectTask;
 import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskExportVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskNotifyDTO;
 import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskReqVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskResVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskStatsGroupDTO;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskTreeVO;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -22,10 +28,31 @@ public interface ProjectTaskMapper extends BaseMapper<ProjectTask> {
     List<TaskResVO> queryMyPartookTaskList(@Param("projectId") String projectId, @Param("userId") Long userId);
     TaskResVO detail(@Param("taskId") String taskId);
     List<TaskResVO> queryChildTask(@Param("taskId") String taskId);
+    /**
+     * 任务及其所有未删除的后代，按层级排序
+     */
+    List<TaskTreeVO> querySubtree(@Param("taskId") String taskId);
+
+    /**
+     * 指定任务及其所有未删除的后代
+     */
+    List<ProjectTask> querySubtreeTasks(@Param("taskIdList") List<String> taskIdList);
     List<TaskResVO> list(@Param("data") TaskReqVO taskReqVO, @Param("userId") Long userId);
     List<TaskResVO> taskList(@Param("data") TaskReqVO taskReqVO);
-    List<TaskExportVO> exportAll(@Param("userId") Long userId);
-    List<TaskExportVO> export(@Param("taskIdList") List<String> taskIdList);
+    List<TaskResVO> listByCursor(@Param("data") TaskReqVO taskReqVO, @Param("userId") Long userId,
+                                 @Param("cursor") PageCursor cursor, @Param("limit") int limit);
+    long countList(@Param("data") TaskReqVO taskReqVO, @Param("userId") Long userId);
+    List<TaskResVO> taskListByCursor(@Param("data") TaskReqVO taskReqVO, @Param("cursor") PageCursor cursor, @Param("limit") int limit);
+    long countTaskList(@Param("data") TaskReqVO taskReqVO);
+    /**
+     * 流式读取用户参与的全部任务，用于导出
+     */
+    void exportAll(@Param("userId") Long userId, ResultHandler<TaskExportVO> handler);
+
+    /**
+     * 流式读取指定任务，用于导出
+     */
+    void export(@Param("taskIdList") List<String> taskIdList, ResultHandler<TaskExportVO> handler);
     List<TaskNotifyDTO> queryTaskNotifyJob();
     List<TaskNotifyDTO> queryTaskNotifyJob2();
     String queryVxUserName(@Param("userId") Long userId);
@@ -34,4 +61,37 @@ public interface ProjectTaskMapper extends BaseMapper<ProjectTask> {
     Integer queryProjectStatus(@Param("projectId") String projectId);
     List<Project> queryProjectsStatus(@Param("projectIds") List<String> projectIds);
 
+    /**
+     * 按id顺序锁定任务
+     */
+    List<ProjectTask> lockTasks(@Param("ids") Collection<String> ids);
+
+    /**
+     * 锁定项目，串行化同一项目内调整任务层级的操作
+     */
+    String lockProject(@Param("projectId") String projectId);
+
+    /**
+     * 按项目、状态分组统计未删除的任务
+     */
+    List<TaskStatsGroupDTO> queryTaskStatsGroup(@Param("projectId") String projectId);
+
+    /**
+     * 流式读取有开始或截止时间的未删除任务，用于校准时间维度的统计
+     */
+    void queryTaskStatsTimes(@Param("projectId") String projectId, ResultHandler<ProjectTask> handler);
+
+    /**
+     * 按任务id顺序取下一批截止日已过但仍为指定状态的任务，不含已暂停的项目
+     */
+    List<TaskNotifyDTO> queryOverdueTasks(@Param("lastId") String lastId, @Param("closeBefore") Date closeBefore,
+                                          @Param("status") Integer status, @Param("pauseStatus") Integer pauseStatus,
+                                          @Param("limit") int limit);
+
+    /**
+     * 把指定任务中截止日已过且仍为原状态的任务改为新状态
+     */
+    int updateOverdueStatus(@Param("taskIds") List<String> taskIds, @Param("closeBefore") Date closeBefore,
+                            @Param("fromStatus") Integer fromStatus, @Param("toStatus") Integer toStatus);
+
 }
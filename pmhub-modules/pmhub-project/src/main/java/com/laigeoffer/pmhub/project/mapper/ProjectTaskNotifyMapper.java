@@ -2,10 +2,26 @@ package com.laigeoffer.pmhub.project.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.laigeoffer.pmhub.project.domain.ProjectTaskNotify;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskNotifyDTO;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
 
 /**
  * @author zw
  * @date 2023-03-16 11:23
  */
 public interface ProjectTaskNotifyMapper extends BaseMapper<ProjectTaskNotify> {
+
+    /**
+     * 按任务id顺序取下一批需要逾期提醒且还没有提醒记录的任务
+     */
+    List<TaskNotifyDTO> queryOverdueNotifyTasks(@Param("lastId") String lastId, @Param("closeBefore") Date closeBefore,
+                                                @Param("pauseStatus") Integer pauseStatus, @Param("limit") int limit);
+
+    /**
+     * 为指定任务写入逾期提醒记录，已有记录的任务跳过
+     */
+    int insertOverdueNotify(@Param("taskIds") List<String> taskIds);
 }
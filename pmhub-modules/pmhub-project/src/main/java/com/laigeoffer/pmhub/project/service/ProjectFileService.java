@@ -7,6 +7,7 @@ import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileIdsVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileReqVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileResVO;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.List;
 
@@ -22,5 +23,5 @@ public interface ProjectFileService extends IService<ProjectFile> {
 
     void rename(ProjectFileReqVO projectFileReqVO);
 
-    void batchDownload(String totalZip, List<String> paths) throws IOException;
+    void batchDownload(List<ProjectFile> projectFiles, HttpServletResponse response) throws IOException;
 }
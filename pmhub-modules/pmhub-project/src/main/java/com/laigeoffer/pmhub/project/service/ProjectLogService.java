@@ -2,11 +2,14 @@ package com.laigeoffer.pmhub.project.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.github.pagehelper.PageInfo;
+import com.laigeoffer.pmhub.base.core.core.page.CursorPage;
 import com.laigeoffer.pmhub.project.domain.vo.project.ProjectVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.LogVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.ProjectLogVO;
 import com.laigeoffer.pmhub.project.domain.ProjectLog;
 
+import java.util.List;
+
 /**
  * @author zw
  * @date 2022-12-21 11:40
@@ -14,5 +17,12 @@ import com.laigeoffer.pmhub.project.domain.ProjectLog;
 public interface ProjectLogService extends IService<ProjectLog> {
     void run(LogVO logVO);
 
+    void runBatch(List<LogVO> logVOList);
+
     PageInfo<ProjectLogVO> list(ProjectVO projectVO);
+
+    /**
+     * 按游标分页查询项目动态
+     */
+    CursorPage<ProjectLogVO> listByCursor(ProjectVO projectVO);
 }
@@ -2,6 +2,7 @@ package com.laigeoffer.pmhub.project.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.github.pagehelper.PageInfo;
+import com.laigeoffer.pmhub.base.core.core.page.CursorPage;
 import com.laigeoffer.pmhub.project.domain.vo.project.ProjectVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.LogReqVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.ProjectLogVO;
@@ -49,12 +50,32 @@ public interface ProjectTaskService extends IService<ProjectTask> {
 
     PageInfo<TaskResVO> list(TaskReqVO taskReqVO);
 
+    /**
+     * 按游标分页查询我的任务
+     */
+    CursorPage<TaskResVO> listByCursor(TaskReqVO taskReqVO);
+
     String add(TaskReqVO taskReqVO);
 
     void edit(TaskReqVO taskReqVO);
 
     List<TaskResVO> queryChildTask(TaskReqVO taskReqVO);
 
+    /**
+     * 指定任务及其所有未删除的后代
+     */
+    List<ProjectTask> querySubtreeTasks(List<String> taskIdList);
+
+    /**
+     * 查询任务的完整子树，一次查询取出所有后代并汇总进度
+     */
+    TaskTreeVO querySubtree(TaskReqVO taskReqVO);
+
+    /**
+     * 把任务连同子任务移动到新的父任务下
+     */
+    void moveTask(TaskMoveVO taskMoveVO);
+
     List<BurnDownChartVO> burnDownChart(ProjectVO projectVO);
 
     List<ProjectMemberResVO> queryUserList(ProjectTaskReqVO projectTaskReqVO);
@@ -66,8 +87,8 @@ public interface ProjectTaskService extends IService<ProjectTask> {
 
     void downloadTemplate(String taskId, HttpServletResponse response) throws IOException;
 
-    List<TaskExportVO> exportAll();
-    List<TaskExportVO> export(String taskIds);
+    void exportAll(HttpServletResponse response);
+    void export(String taskIds, HttpServletResponse response);
 
     void importTask(List<TaskExcelVO> taskList);
 
@@ -75,6 +96,11 @@ public interface ProjectTaskService extends IService<ProjectTask> {
 
     PageInfo<TaskResVO> taskList(TaskReqVO taskReqVO);
 
+    /**
+     * 按游标分页查询项目下的任务
+     */
+    CursorPage<TaskResVO> taskListByCursor(TaskReqVO taskReqVO);
+
     Long countTaskNum();
 
     List<Project> queryProjectsStatus(List<String> projectIds);
@@ -0,0 +1,205 @@
+package com.laigeoffer.pmhub.project.service.chart;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.laigeoffer.pmhub.base.core.config.redis.RedisService;
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import com.laigeoffer.pmhub.base.core.enums.ProjectTaskStatusEnum;
+import com.laigeoffer.pmhub.base.core.utils.DateUtils;
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.BurnDownChartVO;
+import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 项目燃尽图
+ * 一次查询项目的全部任务，把每个任务折算为创建日、截止日等事件写入按天的差分数组，一次前缀和得到每天的任务数、未完成数和基础线；
+ * 结果按项目缓存到当天结束，任务新增、修改、删除、完成时清理对应项目的缓存
+ *
+ * @author zw
+ */
+@Component
+public class BurnDownChartEngine {
+    private static final Logger log = LoggerFactory.getLogger(BurnDownChartEngine.class);
+
+    /**
+     * 缓存最长有效期（秒），兜底未经过本服务修改任务状态的情况
+     */
+    private static final long MAX_CACHE_SECONDS = 600;
+
+    /**
+     * 没有截止时间的任务，自创建日起计入基础线的天数
+     */
+    private static final int NO_END_TIME_BASELINE_DAYS = 4;
+
+    @Autowired
+    private ProjectTaskMapper projectTaskMapper;
+
+    @Autowired
+    private RedisService redisService;
+
+    /**
+     * 查询项目燃尽图
+     *
+     * @param projectId 项目id
+     * @return 自第一个任务创建日至今每天的统计
+     */
+    public List<BurnDownChartVO> getChart(String projectId) {
+        String key = getKey(projectId);
+        String cached = getCached(key);
+        if (cached != null) {
+            return JSON.parseArray(cached, BurnDownChartVO.class);
+        }
+        LambdaQueryWrapper<ProjectTask> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(ProjectTask::getCreatedTime, ProjectTask::getEndTime, ProjectTask::getStatus)
+                .eq(ProjectTask::getProjectId, projectId);
+        List<ProjectTask> projectTasks = projectTaskMapper.selectList(queryWrapper);
+        LocalDate today = LocalDate.now();
+        List<BurnDownChartVO> list = compute(projectTasks, today);
+        try {
+            long secondsToTomorrow = ChronoUnit.SECONDS.between(LocalDateTime.now(), today.plusDays(1).atStartOfDay());
+            long timeout = Math.max(1, Math.min(secondsToTomorrow, MAX_CACHE_SECONDS));
+            redisService.setCacheObject(key, JSON.toJSONString(list), (int) timeout, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("缓存燃尽图失败'{}':{}", projectId, e.getMessage());
+        }
+        return list;
+    }
+
+    /**
+     * 清理项目燃尽图缓存，处于事务中时在提交后清理，避免提交前重新计算出旧数据
+     *
+     * @param projectIds 项目id
+     */
+    public void evict(String... projectIds) {
+        List<String> keys = new ArrayList<>(projectIds.length);
+        for (String projectId : projectIds) {
+            if (StringUtils.isNotBlank(projectId)) {
+                keys.add(getKey(projectId));
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteKeys(keys);
+                }
+            });
+        } else {
+            deleteKeys(keys);
+        }
+    }
+
+    /**
+     * 按天统计，与逐天查询的口径一致：
+     * 任务数为当天及以前创建的任务，未完成数为其中当前状态不是已完成的任务；
+     * 基础线为未完成任务中截止日不晚于次日的任务，没有截止时间的任务在创建后的4天内计入
+     */
+    static List<BurnDownChartVO> compute(List<ProjectTask> projectTasks, LocalDate today) {
+        ZoneId zoneId = ZoneId.systemDefault();
+        LocalDate begin = null;
+        for (ProjectTask task : projectTasks) {
+            if (task.getCreatedTime() != null) {
+                LocalDate created = toLocalDate(task.getCreatedTime(), zoneId);
+                if (begin == null || created.isBefore(begin)) {
+                    begin = created;
+                }
+            }
+        }
+        if (begin == null || begin.isAfter(today)) {
+            return Collections.emptyList();
+        }
+        int days = (int) ChronoUnit.DAYS.between(begin, today) + 1;
+        int[] total = new int[days + 1];
+        int[] unDone = new int[days + 1];
+        int[] baseLine = new int[days + 1];
+        for (ProjectTask task : projectTasks) {
+            if (task.getCreatedTime() == null) {
+                continue;
+            }
+            int created = (int) ChronoUnit.DAYS.between(begin, toLocalDate(task.getCreatedTime(), zoneId));
+            if (created >= days) {
+                continue;
+            }
+            total[created]++;
+            if (Objects.equals(task.getStatus(), ProjectTaskStatusEnum.FINISHED.getStatus())) {
+                continue;
+            }
+            unDone[created]++;
+            if (task.getEndTime() == null) {
+                baseLine[created]++;
+                baseLine[Math.min(days, created + NO_END_TIME_BASELINE_DAYS)]--;
+            } else {
+                int end = (int) ChronoUnit.DAYS.between(begin, toLocalDate(task.getEndTime(), zoneId));
+                int from = Math.max(created, end - 1);
+                if (from < days) {
+                    baseLine[from]++;
+                }
+            }
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DateUtils.YYYY_MM_DD);
+        List<BurnDownChartVO> list = new ArrayList<>(days);
+        int taskNum = 0;
+        int unDoneTaskNum = 0;
+        int baseLineNum = 0;
+        for (int i = 0; i < days; i++) {
+            taskNum += total[i];
+            unDoneTaskNum += unDone[i];
+            baseLineNum += baseLine[i];
+            BurnDownChartVO burnDownChartVO = new BurnDownChartVO();
+            burnDownChartVO.setDate(begin.plusDays(i).format(formatter));
+            burnDownChartVO.setTaskNum(taskNum);
+            burnDownChartVO.setUnDoneTaskNum(unDoneTaskNum);
+            burnDownChartVO.setBaseLineNum(baseLineNum);
+            list.add(burnDownChartVO);
+        }
+        return list;
+    }
+
+    private String getCached(String key) {
+        try {
+            return redisService.getCacheObject(key);
+        } catch (Exception e) {
+            log.warn("读取燃尽图缓存失败'{}':{}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteKeys(Collection<String> keys) {
+        try {
+            redisService.deleteObject(keys);
+        } catch (Exception e) {
+            log.warn("清理燃尽图缓存失败{}:{}", keys, e.getMessage());
+        }
+    }
+
+    private static LocalDate toLocalDate(Date date, ZoneId zoneId) {
+        return date.toInstant().atZone(zoneId).toLocalDate();
+    }
+
+    private static String getKey(String projectId) {
+        return CacheConstants.BURN_DOWN_CHART_KEY + projectId;
+    }
+}
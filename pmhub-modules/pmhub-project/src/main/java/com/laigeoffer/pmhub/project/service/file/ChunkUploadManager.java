@@ -0,0 +1,411 @@
+package com.laigeoffer.pmhub.project.service.file;
+
+import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
+import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
+import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.base.core.utils.file.FileUploadUtils;
+import com.laigeoffer.pmhub.base.core.utils.file.MimeTypeUtils;
+import com.laigeoffer.pmhub.base.core.utils.uuid.IdUtils;
+import com.laigeoffer.pmhub.project.domain.FileBlob;
+import com.laigeoffer.pmhub.project.domain.FileUpload;
+import com.laigeoffer.pmhub.project.domain.vo.project.file.ChunkUploadInitVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.file.ChunkUploadVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.file.FileVO;
+import com.laigeoffer.pmhub.project.mapper.FileUploadMapper;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 分片上传
+ * 初始化时按文件大小预分配 chunk/上传id 文件，每个分片边读请求体边算SHA-256，直接按偏移量写入文件对应位置。
+ * 开始写入前在上传记录的共享锁下把分片登记为写入中，写完校验通过后才标记为已接收，校验失败或中断时删除登记；
+ * 完成上传时持有排他锁，只有全部分片都已接收、没有写入中的分片时才校验文件，之后新的分片在共享锁上等待，
+ * 完成后上传记录已删除，不会再写入。分片可以乱序、并发、重复上传，断开后查询已接收的分片继续上传即可。
+ * 全部分片到齐后校验整个文件的SHA-256，再把该文件原样移入内容寻址存储，不再拼接复制。
+ * 每收到一个分片顺延过期时间，过期未完成的由定时任务清理
+ *
+ * @author zw
+ */
+@Component
+public class ChunkUploadManager {
+    private static final Logger log = LoggerFactory.getLogger(ChunkUploadManager.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int CLEAN_BATCH_SIZE = 200;
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-fA-F]{64}");
+
+    /**
+     * 分片大小
+     */
+    @Value("${project.chunk-upload.chunk-size:5242880}")
+    private int chunkSize;
+
+    /**
+     * 允许上传的最大文件
+     */
+    @Value("${project.chunk-upload.max-size:4294967296}")
+    private long maxSize;
+
+    /**
+     * 最后一次收到分片后保留的小时数
+     */
+    @Value("${project.chunk-upload.expire-hours:24}")
+    private long expireHours;
+
+    /**
+     * 单个分片的最长写入时间，超时后停止写入；写入中的登记超过两倍时间时允许重新上传该分片
+     */
+    @Value("${project.chunk-upload.write-timeout-minutes:10}")
+    private long writeTimeoutMinutes;
+
+    @Autowired
+    private FileUploadMapper fileUploadMapper;
+
+    @Autowired
+    private FileBlobStore fileBlobStore;
+
+    @Autowired
+    private UploadFileFactory uploadFileFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void initTransactionTemplate() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 初始化分片上传
+     *
+     * @param user   上传人
+     * @param initVO 文件信息
+     * @return 分片上传id和分片大小
+     */
+    public ChunkUploadVO init(LoginUser user, ChunkUploadInitVO initVO) throws IOException {
+        if (!UploadTypeEnum.PROJECT.getType().equals(initVO.getType()) && !UploadTypeEnum.TASK.getType().equals(initVO.getType())) {
+            throw new ServiceException("该类型文件不支持分片上传");
+        }
+        String fileName = initVO.getFileName();
+        if (StringUtils.isBlank(fileName) || fileName.length() > FileUploadUtils.DEFAULT_FILE_NAME_LENGTH) {
+            throw new ServiceException("文件名称为空或超过" + FileUploadUtils.DEFAULT_FILE_NAME_LENGTH + "个字符");
+        }
+        if (!FileUploadUtils.isAllowedExtension(FilenameUtils.getExtension(fileName), MimeTypeUtils.DEFAULT_ALLOWED_EXTENSION)) {
+            throw new ServiceException("文件格式不正确，不允许上传：" + fileName);
+        }
+        if (initVO.getFileSize() == null || initVO.getFileSize() <= 0 || initVO.getFileSize() > maxSize) {
+            throw new ServiceException("文件大小不正确，最大允许" + maxSize / 1024 / 1024 + "MB");
+        }
+        if (initVO.getFileHash() == null || !SHA256.matcher(initVO.getFileHash()).matches()) {
+            throw new ServiceException("文件SHA-256不正确");
+        }
+
+        Date now = new Date();
+        FileUpload upload = new FileUpload();
+        upload.setUserId(user.getUserId());
+        upload.setType(initVO.getType());
+        upload.setPtId(initVO.getId());
+        upload.setFileName(fileName);
+        upload.setFileSize(initVO.getFileSize());
+        upload.setFileHash(initVO.getFileHash().toLowerCase());
+        upload.setChunkSize(chunkSize);
+        upload.setChunkCount((int) ((initVO.getFileSize() + chunkSize - 1) / chunkSize));
+        upload.setExpireTime(expireTime(now));
+        upload.setCreatedTime(now);
+        fileUploadMapper.insert(upload);
+
+        Path part = partPath(upload.getId());
+        Files.createDirectories(part.getParent());
+        try (RandomAccessFile file = new RandomAccessFile(part.toFile(), "rw")) {
+            file.setLength(upload.getFileSize());
+        }
+        return toVO(upload, Collections.emptyList());
+    }
+
+    /**
+     * 查询已接收的分片
+     *
+     * @param user     上传人
+     * @param uploadId 分片上传id
+     * @return 上传进度
+     */
+    public ChunkUploadVO query(LoginUser user, String uploadId) {
+        FileUpload upload = getUpload(user, uploadId);
+        return toVO(upload, fileUploadMapper.queryChunkIndexes(uploadId));
+    }
+
+    /**
+     * 写入一个分片
+     *
+     * @param user     上传人
+     * @param uploadId 分片上传id
+     * @param index    分片序号，从0开始
+     * @param checksum 分片内容SHA-256
+     * @param in       分片内容
+     */
+    public void writeChunk(LoginUser user, String uploadId, int index, String checksum, InputStream in) throws IOException {
+        FileUpload upload = getUpload(user, uploadId);
+        if (index < 0 || index >= upload.getChunkCount()) {
+            throw new ServiceException("分片序号超出范围：" + index);
+        }
+        if (checksum == null || !SHA256.matcher(checksum).matches()) {
+            throw new ServiceException("分片SHA-256不正确");
+        }
+        long offset = (long) index * upload.getChunkSize();
+        long length = Math.min(upload.getChunkSize(), upload.getFileSize() - offset);
+        String writer = IdUtils.fastSimpleUUID();
+        Date now = new Date();
+        long timeoutMillis = TimeUnit.MINUTES.toMillis(writeTimeoutMinutes);
+        transactionTemplate.execute(status -> {
+            FileUpload locked = fileUploadMapper.lockShared(uploadId);
+            if (locked == null || locked.getExpireTime().before(now)) {
+                throw new ServiceException("上传已失效，请重新上传");
+            }
+            fileUploadMapper.beginChunk(uploadId, index, checksum.toLowerCase(), writer, now,
+                    new Date(now.getTime() - 2 * timeoutMillis));
+            if (!writer.equals(fileUploadMapper.queryChunkWriter(uploadId, index))) {
+                throw new ServiceException("分片正在上传，请稍后重试：" + index);
+            }
+            return null;
+        });
+        boolean received = false;
+        try {
+            String actual = write(in, partPath(uploadId), offset, length, now.getTime() + timeoutMillis);
+            if (!actual.equalsIgnoreCase(checksum)) {
+                throw new ServiceException("分片校验失败，请重新上传分片：" + index);
+            }
+            received = fileUploadMapper.finishChunk(uploadId, index, writer) > 0;
+        } finally {
+            if (!received) {
+                abortQuietly(uploadId, index, writer);
+            }
+        }
+        // 顺延过期时间需要排他锁，放到共享锁释放之后，避免同时持有共享锁的分片互相等待造成死锁
+        fileUploadMapper.extend(uploadId, expireTime(now));
+    }
+
+    /**
+     * 边读边算SHA-256，按偏移量写入文件
+     *
+     * @param deadline 停止写入的时间
+     * @return 分片内容SHA-256
+     */
+    private static String write(InputStream in, Path part, long offset, long length, long deadline) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] bytes = new byte[BUFFER_SIZE];
+        long written = 0;
+        try (FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(bytes)) != -1) {
+                if (written + read > length) {
+                    throw new ServiceException("分片大小不正确，应为" + length + "字节");
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new ServiceException("分片上传超时，请重新上传");
+                }
+                digest.update(bytes, 0, read);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, read);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer, offset + written + buffer.position());
+                }
+                written += read;
+            }
+        }
+        if (written != length) {
+            throw new ServiceException("分片大小不正确，应为" + length + "字节");
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private void abortQuietly(String uploadId, int index, String writer) {
+        try {
+            fileUploadMapper.abortChunk(uploadId, index, writer);
+        } catch (Exception e) {
+            log.warn("撤销分片登记失败'{}-{}':{}", uploadId, index, e.getMessage());
+        }
+    }
+
+    /**
+     * 完成分片上传，校验文件后存入内容寻址存储并添加附件
+     *
+     * @param user     上传人
+     * @param uploadId 分片上传id
+     * @return 附件
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public FileVO complete(LoginUser user, String uploadId) throws Exception {
+        FileUpload upload = fileUploadMapper.lockById(uploadId);
+        checkOwner(user, upload);
+        if (upload.getExpireTime().before(new Date())) {
+            throw new ServiceException("上传已失效，请重新上传");
+        }
+        // 写入中的分片不计入已接收，仍在写入时不能完成
+        int missing = upload.getChunkCount() - fileUploadMapper.countChunks(uploadId);
+        if (missing > 0) {
+            throw new ServiceException("还有" + missing + "个分片未上传");
+        }
+        Path part = partPath(uploadId);
+        if (!Files.isRegularFile(part)) {
+            throw new ServiceException("上传已失效，请重新上传");
+        }
+        String hash = checksum(part);
+        if (!hash.equals(upload.getFileHash())) {
+            throw new ServiceException("文件校验失败，请重新上传");
+        }
+        FileBlob fileBlob = fileBlobStore.store(part, hash, FilenameUtils.getExtension(upload.getFileName()));
+        FileVO fileVO = uploadFileFactory.attach(upload.getType(), user, fileBlob, upload.getFileName(), upload.getPtId());
+        fileUploadMapper.deleteChunks(uploadId);
+        fileUploadMapper.deleteById(uploadId);
+        return fileVO;
+    }
+
+    /**
+     * 清理过期的分片上传，以及没有上传记录的分片文件
+     *
+     * @param now 当前时间
+     * @return 清理的分片上传数
+     */
+    public long cleanExpired(Date now) {
+        long cleaned = 0;
+        while (true) {
+            List<String> uploadIds = fileUploadMapper.queryExpired(now, CLEAN_BATCH_SIZE);
+            for (String uploadId : uploadIds) {
+                try {
+                    Files.deleteIfExists(partPath(uploadId));
+                    fileUploadMapper.deleteChunks(uploadId);
+                    fileUploadMapper.deleteById(uploadId);
+                    cleaned++;
+                } catch (Exception e) {
+                    log.warn("清理分片上传失败'{}':{}", uploadId, e.getMessage());
+                }
+            }
+            if (uploadIds.size() < CLEAN_BATCH_SIZE) {
+                break;
+            }
+        }
+        return cleaned + sweep(now.getTime() - TimeUnit.HOURS.toMillis(expireHours));
+    }
+
+    private long sweep(long beforeMillis) {
+        Path root = Paths.get(PmhubConfig.getChunkPath());
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        List<Path> paths;
+        try (Stream<Path> stream = Files.list(root)) {
+            paths = stream.filter(Files::isRegularFile)
+                    .filter(path -> lastModified(path) < beforeMillis)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("扫描分片上传目录失败:{}", e.getMessage());
+            return 0;
+        }
+        long swept = 0;
+        for (Path path : paths) {
+            try {
+                if (fileUploadMapper.selectById(path.getFileName().toString()) == null) {
+                    Files.deleteIfExists(path);
+                    swept++;
+                }
+            } catch (Exception e) {
+                log.warn("清理分片文件失败'{}':{}", path, e.getMessage());
+            }
+        }
+        return swept;
+    }
+
+    private FileUpload getUpload(LoginUser user, String uploadId) {
+        FileUpload upload = fileUploadMapper.selectById(uploadId);
+        checkOwner(user, upload);
+        if (upload.getExpireTime().before(new Date())) {
+            throw new ServiceException("上传已失效，请重新上传");
+        }
+        return upload;
+    }
+
+    private static void checkOwner(LoginUser user, FileUpload upload) {
+        if (upload == null || !Objects.equals(upload.getUserId(), user.getUserId())) {
+            throw new ServiceException("上传不存在或已失效，请重新上传");
+        }
+    }
+
+    private Date expireTime(Date now) {
+        return new Date(now.getTime() + TimeUnit.HOURS.toMillis(expireHours));
+    }
+
+    private static Path partPath(String uploadId) {
+        return Paths.get(PmhubConfig.getChunkPath(), uploadId);
+    }
+
+    private static ChunkUploadVO toVO(FileUpload upload, List<Integer> receivedChunks) {
+        ChunkUploadVO vo = new ChunkUploadVO();
+        vo.setUploadId(upload.getId());
+        vo.setChunkSize(upload.getChunkSize());
+        vo.setChunkCount(upload.getChunkCount());
+        vo.setReceivedChunks(receivedChunks);
+        return vo;
+    }
+
+    private static String checksum(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.laigeoffer.pmhub.project.service.file;
+
+import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
+import com.laigeoffer.pmhub.base.core.exception.file.FileNameLengthLimitExceededException;
+import com.laigeoffer.pmhub.base.core.exception.file.FileSizeLimitExceededException;
+import com.laigeoffer.pmhub.base.core.exception.file.InvalidExtensionException;
+import com.laigeoffer.pmhub.base.core.utils.file.FileUploadUtils;
+import com.laigeoffer.pmhub.base.core.utils.file.FileUtils;
+import com.laigeoffer.pmhub.project.domain.FileBlob;
+import com.laigeoffer.pmhub.project.domain.ProjectFile;
+import com.laigeoffer.pmhub.project.mapper.FileBlobMapper;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 附件内容寻址存储
+ * 上传内容边读边算SHA-256写入临时文件，再按哈希分目录原子移动到 blob/ab/cd/哈希.扩展名；
+ * 同样内容的文件只存一份，由 pmhub_file_blob 记录引用的附件数。登记引用时锁定内容记录，回收时同样先锁定记录再删除文件，
+ * 保证回收与新的引用不会交错
+ *
+ * @author zw
+ */
+@Component
+public class FileBlobStore {
+    private static final Logger log = LoggerFactory.getLogger(FileBlobStore.class);
+
+    private static final String TMP_DIR = "tmp";
+
+    private static final int COMPACT_BATCH_SIZE = 200;
+
+    @Autowired
+    private FileBlobMapper fileBlobMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 保存上传的文件并登记一次引用，内容已存在时不再写入；需要与附件记录在同一事务中调用
+     *
+     * @param file             上传的文件
+     * @param allowedExtension 允许的扩展名
+     * @return 内容记录
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public FileBlob store(MultipartFile file, String[] allowedExtension)
+            throws IOException, FileSizeLimitExceededException, FileNameLengthLimitExceededException, InvalidExtensionException {
+        if (Objects.requireNonNull(file.getOriginalFilename()).length() > FileUploadUtils.DEFAULT_FILE_NAME_LENGTH) {
+            throw new FileNameLengthLimitExceededException(FileUploadUtils.DEFAULT_FILE_NAME_LENGTH);
+        }
+        FileUploadUtils.assertAllowed(file, allowedExtension);
+
+        Path tmpDir = Paths.get(PmhubConfig.getBlobPath(), TMP_DIR);
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = Hex.encodeHexString(digest.digest());
+            return put(tmp, hash, StringUtils.lowerCase(FileUploadUtils.getExtension(file)), size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 把已经完整写好的文件移入存储并登记一次引用，内容已存在时在事务提交后删除该文件；需要与附件记录在同一事务中调用。
+     * 事务回滚时原位置的文件仍然存在，可以重试
+     *
+     * @param file      文件，需要与存储目录在同一文件系统
+     * @param hash      已校验的文件内容SHA-256
+     * @param extension 扩展名
+     * @return 内容记录
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public FileBlob store(Path file, String hash, String extension) throws IOException {
+        FileBlob stored = put(file, hash, StringUtils.lowerCase(extension), Files.size(file));
+        boolean moved = !Files.exists(file);
+        Path target = Paths.get(stored.getPathName());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Files.deleteIfExists(file);
+            return stored;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        Files.deleteIfExists(file);
+                    } else if (moved) {
+                        // 存储中的文件可能已被并发的同内容上传引用，复制回原位置而不是移走，未被引用的由回收任务清理
+                        Files.copy(target, file, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } catch (IOException e) {
+                    log.warn("处理上传文件失败'{}':{}", file, e.getMessage());
+                }
+            }
+        });
+        return stored;
+    }
+
+    private FileBlob put(Path file, String hash, String extension, long size) throws IOException {
+        String fileName = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash
+                + (StringUtils.isEmpty(extension) ? "" : "." + extension);
+        Date now = new Date();
+        FileBlob fileBlob = new FileBlob();
+        fileBlob.setHash(hash);
+        fileBlob.setExtension(extension);
+        fileBlob.setFileSize(size);
+        fileBlob.setPathName(PmhubConfig.getBlobPath() + "/" + fileName);
+        fileBlob.setFileUrl(FileUploadUtils.getPathFileName(PmhubConfig.getBlobPath(), fileName));
+        fileBlob.setCreatedTime(now);
+        fileBlob.setUpdatedTime(now);
+        fileBlobMapper.acquire(fileBlob);
+        // 以最先上传时的路径为准
+        FileBlob stored = fileBlobMapper.lockByHash(hash);
+        Path target = Paths.get(stored.getPathName());
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return stored;
+    }
+
+    /**
+     * 释放附件引用的内容，未存入内容寻址存储的附件直接删除文件
+     *
+     * @param projectFiles 附件
+     */
+    public void release(Collection<ProjectFile> projectFiles) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (ProjectFile projectFile : projectFiles) {
+            if (StringUtils.isNotBlank(projectFile.getBlobHash())) {
+                counts.merge(projectFile.getBlobHash(), 1, Integer::sum);
+            } else if (StringUtils.isNotBlank(projectFile.getPathName())) {
+                FileUtils.deleteFile(projectFile.getPathName());
+            }
+        }
+        counts.forEach((hash, count) -> fileBlobMapper.release(hash, count));
+    }
+
+    /**
+     * 回收在指定时间之前就已没有引用的内容，以及没有内容记录的文件和上传中断留下的临时文件
+     *
+     * @param before 截止时间
+     * @return 回收的文件数
+     */
+    public long compact(Date before) {
+        long reclaimed = 0;
+        while (true) {
+            List<FileBlob> fileBlobs = fileBlobMapper.queryUnreferenced(before, COMPACT_BATCH_SIZE);
+            int batch = 0;
+            for (FileBlob fileBlob : fileBlobs) {
+                try {
+                    if (reclaim(fileBlob.getHash(), Paths.get(fileBlob.getPathName()), false)) {
+                        batch++;
+                    }
+                } catch (Exception e) {
+                    log.warn("回收附件内容失败'{}':{}", fileBlob.getHash(), e.getMessage());
+                }
+            }
+            reclaimed += batch;
+            if (fileBlobs.size() < COMPACT_BATCH_SIZE || batch == 0) {
+                break;
+            }
+        }
+        return reclaimed + sweep(before.getTime());
+    }
+
+    /**
+     * 锁定内容记录后删除文件和记录，期间有新引用时跳过
+     *
+     * @param orphanOnly 只回收没有内容记录的文件
+     */
+    private boolean reclaim(String hash, Path path, boolean orphanOnly) {
+        Boolean reclaimed = transactionTemplate.execute(status -> {
+            FileBlob locked = fileBlobMapper.lockByHash(hash);
+            if (locked != null && (orphanOnly || locked.getRefCount() > 0)) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (locked != null) {
+                fileBlobMapper.deleteById(hash);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(reclaimed);
+    }
+
+    private long sweep(long beforeMillis) {
+        Path root = Paths.get(PmhubConfig.getBlobPath());
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        Path tmpDir = root.resolve(TMP_DIR);
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(root)) {
+            paths = stream.filter(Files::isRegularFile)
+                    .filter(path -> lastModified(path) < beforeMillis)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("扫描附件存储目录失败:{}", e.getMessage());
+            return 0;
+        }
+        long swept = 0;
+        for (Path path : paths) {
+            try {
+                if (path.startsWith(tmpDir)) {
+                    Files.deleteIfExists(path);
+                    swept++;
+                } else if (reclaim(StringUtils.substringBefore(path.getFileName().toString(), "."), path, true)) {
+                    swept++;
+                }
+            } catch (Exception e) {
+                log.warn("回收附件文件失败'{}':{}", path, e.getMessage());
+            }
+        }
+        return swept;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.laigeoffer.pmhub.project.service.file;
 
 import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
+import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.project.domain.FileBlob;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.FileVO;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -10,4 +12,16 @@ import org.springframework.web.multipart.MultipartFile;
  */
 public abstract class UploadAbstractExecutor {
     public abstract FileVO upload(LoginUser user, MultipartFile file, String id) throws Exception;
+
+    /**
+     * 为已存入内容寻址存储的文件添加附件，分片上传完成时调用
+     *
+     * @param user     上传人
+     * @param fileBlob 内容记录
+     * @param fileName 文件名称
+     * @param id       任务或项目id
+     */
+    public FileVO attach(LoginUser user, FileBlob fileBlob, String fileName, String id) throws Exception {
+        throw new ServiceException("该类型文件不支持分片上传");
+    }
 }
@@ -1,6 +1,7 @@
 package com.laigeoffer.pmhub.project.service.file;
 
 import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
+import com.laigeoffer.pmhub.project.domain.FileBlob;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.FileVO;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,4 +42,17 @@ public class UploadFileFactory {
         }
         return executor.upload(user, file, id);
     }
+
+    // 分片上传完成后添加附件
+    public FileVO attach(String type, LoginUser user, FileBlob fileBlob, String fileName, String id) throws Exception {
+        String beanName = beanNames.get(type);
+        if (StringUtils.isEmpty(beanName)) {
+            return null;
+        }
+        UploadAbstractExecutor executor = executorMap.get(beanName);
+        if (executor == null) {
+            return null;
+        }
+        return executor.attach(user, fileBlob, fileName, id);
+    }
 }
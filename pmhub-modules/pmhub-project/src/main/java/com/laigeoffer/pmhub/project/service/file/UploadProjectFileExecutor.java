@@ -1,19 +1,19 @@
 package com.laigeoffer.pmhub.project.service.file;
 
-import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
 import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
 import com.laigeoffer.pmhub.base.core.enums.LogTypeEnum;
 import com.laigeoffer.pmhub.base.core.enums.ProjectStatusEnum;
 import com.laigeoffer.pmhub.base.core.utils.file.MimeTypeUtils;
 import com.laigeoffer.pmhub.base.security.utils.SecurityUtils;
-import com.laigeoffer.pmhub.base.core.utils.file.FileUploadUtils;
+import com.laigeoffer.pmhub.project.domain.FileBlob;
 import com.laigeoffer.pmhub.project.domain.ProjectFile;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.FileVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.LogVO;
 import com.laigeoffer.pmhub.project.mapper.ProjectFileMapper;
 import com.laigeoffer.pmhub.project.service.ProjectLogService;
-import com.laigeoffer.pmhub.project.utils.ProjectFileUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,16 +34,25 @@ public class UploadProjectFileExecutor extends UploadAbstractExecutor {
     private ProjectLogService projectLogService;
     @Autowired
     private ProjectFileMapper projectFileMapper;
+    @Autowired
+    private FileBlobStore fileBlobStore;
     @Override
     @Transactional(rollbackFor = Exception.class)
     public FileVO upload(LoginUser user, MultipartFile file, String id) throws Exception {
         log.info("项目文件上传的项目id:{}", id);
-        String filePath = ProjectFileUtil.uploadProjectFile(PmhubConfig.getProjectPath(), file, MimeTypeUtils.DEFAULT_ALLOWED_EXTENSION);
-        String pathName = ProjectFileUtil.getPathName(PmhubConfig.getProjectPath(), file);
+        FileBlob fileBlob = fileBlobStore.store(file, MimeTypeUtils.DEFAULT_ALLOWED_EXTENSION);
+        return attach(user, fileBlob, file.getOriginalFilename(), id);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public FileVO attach(LoginUser user, FileBlob fileBlob, String fileName, String id) throws Exception {
+        String filePath = fileBlob.getFileUrl();
+        String pathName = fileBlob.getPathName();
         ProjectFile projectFile = new ProjectFile();
         projectFile.setProjectId(id);
-        projectFile.setFileSize(new BigDecimal(String.valueOf(file.getSize())).divide(new BigDecimal("1024"), 2, RoundingMode.HALF_UP));
-        projectFile.setFileName(file.getOriginalFilename());
+        projectFile.setFileSize(new BigDecimal(String.valueOf(fileBlob.getFileSize())).divide(new BigDecimal("1024"), 2, RoundingMode.HALF_UP));
+        projectFile.setFileName(fileName);
         projectFile.setFileUrl(filePath);
         projectFile.setUserId(user.getUserId());
         projectFile.setCreatedBy(user.getUsername());
@@ -52,8 +61,9 @@ public class UploadProjectFileExecutor extends UploadAbstractExecutor {
         projectFile.setUpdatedTime(new Date());
         projectFile.setType(ProjectStatusEnum.PROJECT.getStatusName());
         projectFile.setPtId(id);
-        projectFile.setExtension(FileUploadUtils.getExtension(file));
+        projectFile.setExtension(StringUtils.defaultIfEmpty(FilenameUtils.getExtension(fileName), fileBlob.getExtension()));
         projectFile.setPathName(pathName);
+        projectFile.setBlobHash(fileBlob.getHash());
         projectFileMapper.insert(projectFile);
         // 添加日志
         LogVO logVO = new LogVO();
@@ -71,7 +81,7 @@ public class UploadProjectFileExecutor extends UploadAbstractExecutor {
         projectLogService.run(logVO);
         FileVO fileVO = new FileVO();
         fileVO.setProjectFileId(projectFile.getId());
-        fileVO.setFileName(file.getOriginalFilename());
+        fileVO.setFileName(fileName);
         fileVO.setFileUrl(filePath);
         return fileVO;
     }
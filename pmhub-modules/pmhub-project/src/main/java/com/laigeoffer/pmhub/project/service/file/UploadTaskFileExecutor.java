@@ -1,20 +1,20 @@
 package com.laigeoffer.pmhub.project.service.file;
 
-import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
 import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
 import com.laigeoffer.pmhub.base.core.enums.LogTypeEnum;
 import com.laigeoffer.pmhub.base.core.enums.ProjectStatusEnum;
-import com.laigeoffer.pmhub.base.core.utils.file.FileUploadUtils;
 import com.laigeoffer.pmhub.base.core.utils.file.MimeTypeUtils;
 import com.laigeoffer.pmhub.base.security.utils.SecurityUtils;
+import com.laigeoffer.pmhub.project.domain.FileBlob;
 import com.laigeoffer.pmhub.project.domain.ProjectFile;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.FileVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.LogVO;
 import com.laigeoffer.pmhub.project.mapper.ProjectFileMapper;
 import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
 import com.laigeoffer.pmhub.project.service.ProjectLogService;
-import com.laigeoffer.pmhub.project.utils.ProjectFileUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,18 +37,27 @@ public class UploadTaskFileExecutor extends UploadAbstractExecutor {
     @Autowired
     private ProjectFileMapper projectFileMapper;
     @Autowired
+    private FileBlobStore fileBlobStore;
+    @Autowired
     private ProjectLogService projectLogService;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public FileVO upload(LoginUser user, MultipartFile file, String id) throws Exception {
         log.info("任务文件上传的任务id:{}", id);
-        String taskPath = ProjectFileUtil.uploadTaskFile(PmhubConfig.getTaskPath(), file, MimeTypeUtils.DEFAULT_ALLOWED_EXTENSION);
-        String pn = ProjectFileUtil.getPathName(PmhubConfig.getTaskPath(), file);
+        FileBlob fileBlob = fileBlobStore.store(file, MimeTypeUtils.DEFAULT_ALLOWED_EXTENSION);
+        return attach(user, fileBlob, file.getOriginalFilename(), id);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public FileVO attach(LoginUser user, FileBlob fileBlob, String fileName, String id) throws Exception {
+        String taskPath = fileBlob.getFileUrl();
+        String pn = fileBlob.getPathName();
         String projectId = projectTaskMapper.selectById(id).getProjectId();
         ProjectFile projectFile = new ProjectFile();
-        projectFile.setFileSize(new BigDecimal(String.valueOf(file.getSize())).divide(new BigDecimal("1024"), 2, RoundingMode.HALF_UP));
-        projectFile.setFileName(file.getOriginalFilename());
+        projectFile.setFileSize(new BigDecimal(String.valueOf(fileBlob.getFileSize())).divide(new BigDecimal("1024"), 2, RoundingMode.HALF_UP));
+        projectFile.setFileName(fileName);
         projectFile.setFileUrl(taskPath);
         projectFile.setUserId(user.getUserId());
         projectFile.setCreatedBy(user.getUsername());
@@ -57,9 +66,10 @@ public class UploadTaskFileExecutor extends UploadAbstractExecutor {
         projectFile.setUpdatedTime(new Date());
         projectFile.setType(ProjectStatusEnum.TASK.getStatusName());
         projectFile.setPtId(id);
-        projectFile.setExtension(FileUploadUtils.getExtension(file));
+        projectFile.setExtension(StringUtils.defaultIfEmpty(FilenameUtils.getExtension(fileName), fileBlob.getExtension()));
         projectFile.setProjectId(projectId);
         projectFile.setPathName(pn);
+        projectFile.setBlobHash(fileBlob.getHash());
         projectFileMapper.insert(projectFile);
         // 添加日志
         LogVO logVO = new LogVO();
@@ -77,7 +87,7 @@ public class UploadTaskFileExecutor extends UploadAbstractExecutor {
         projectLogService.run(logVO);
         FileVO fileVO = new FileVO();
         fileVO.setProjectFileId(projectFile.getId());
-        fileVO.setFileName(file.getOriginalFilename());
+        fileVO.setFileName(fileName);
         fileVO.setFileUrl(taskPath);
         return fileVO;
     }
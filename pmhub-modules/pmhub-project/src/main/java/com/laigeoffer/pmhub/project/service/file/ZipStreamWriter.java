@@ -0,0 +1,230 @@
+package com.laigeoffer.pmhub.project.service.file;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 流式打包下载
+ * 按顺序把文件写成zip直接输出到响应流，不落临时文件；已压缩格式的文件按存储方式写入，不再重复压缩。
+ * 后台线程提前读取后面的几个文件：小文件整体读入内存，需要存储方式写入的大文件先算出CRC，写入时只顺序读一遍
+ *
+ * @author zw
+ */
+@Component
+public class ZipStreamWriter {
+
+    /**
+     * 读写缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * 预读时整体读入内存的文件大小上限
+     */
+    private static final long PRELOAD_MAX_SIZE = 1024 * 1024;
+
+    /**
+     * 每次下载最多提前准备的文件数
+     */
+    private static final int READ_AHEAD = 4;
+
+    /**
+     * 已压缩的文件格式，按存储方式写入
+     */
+    private static final Set<String> STORED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp", "pdf",
+            "zip", "rar", "7z", "gz", "tgz", "bz2", "xz",
+            "docx", "xlsx", "pptx", "mp3", "mp4", "avi", "mov", "mkv", "webm"));
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(READ_AHEAD, READ_AHEAD, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new BasicThreadFactory.Builder().namingPattern("file-zip-%d").daemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 把文件打包写入输出流，写完后不关闭输出流
+     *
+     * @param files 文件，同名文件在包内自动加序号
+     * @param out   输出流
+     */
+    public void write(List<File> files, OutputStream out) throws IOException {
+        write(files, files.stream().map(File::getName).collect(Collectors.toList()), out);
+    }
+
+    /**
+     * 把文件按指定名称打包写入输出流，写完后不关闭输出流
+     *
+     * @param files 文件
+     * @param names 文件在包内的名称，与文件一一对应，同名文件自动加序号
+     * @param out   输出流
+     */
+    public void write(List<File> files, List<String> names, OutputStream out) throws IOException {
+        BufferedOutputStream bufferedOut = new BufferedOutputStream(out, BUFFER_SIZE);
+        ZipOutputStream zipOut = new ZipOutputStream(bufferedOut);
+        Deque<Future<ZipSource>> pending = new ArrayDeque<>(READ_AHEAD);
+        Set<String> entryNames = new HashSet<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int next = 0;
+        try {
+            while (next < files.size() && pending.size() < READ_AHEAD) {
+                pending.add(prepare(files.get(next++)));
+            }
+            int written = 0;
+            while (!pending.isEmpty()) {
+                ZipSource source = await(pending.poll());
+                if (next < files.size()) {
+                    pending.add(prepare(files.get(next++)));
+                }
+                writeEntry(zipOut, source, uniqueName(entryNames, names.get(written++)), buffer);
+            }
+            zipOut.finish();
+            bufferedOut.flush();
+        } finally {
+            for (Future<ZipSource> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Future<ZipSource> prepare(File file) {
+        return executor.submit(() -> {
+            ZipSource source = new ZipSource(file);
+            source.stored = STORED_EXTENSIONS.contains(FilenameUtils.getExtension(file.getName()).toLowerCase());
+            source.size = file.length();
+            if (source.size <= PRELOAD_MAX_SIZE) {
+                source.data = Files.readAllBytes(file.toPath());
+                source.size = source.data.length;
+                if (source.stored) {
+                    CRC32 crc = new CRC32();
+                    crc.update(source.data);
+                    source.crc = crc.getValue();
+                }
+            } else if (source.stored) {
+                source.crc = checksum(file);
+            }
+            return source;
+        });
+    }
+
+    private static void writeEntry(ZipOutputStream zipOut, ZipSource source, String name, byte[] buffer) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(source.file.lastModified());
+        if (source.stored) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(source.size);
+            entry.setCompressedSize(source.size);
+            entry.setCrc(source.crc);
+        }
+        zipOut.putNextEntry(entry);
+        if (source.data != null) {
+            zipOut.write(source.data);
+        } else {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            try (FileChannel channel = FileChannel.open(source.file.toPath(), StandardOpenOption.READ)) {
+                int length;
+                while ((length = channel.read(byteBuffer)) != -1) {
+                    zipOut.write(buffer, 0, length);
+                    byteBuffer.clear();
+                }
+            }
+        }
+        zipOut.closeEntry();
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer byteBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(byteBuffer) != -1) {
+                byteBuffer.flip();
+                crc.update(byteBuffer);
+                byteBuffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static ZipSource await(Future<ZipSource> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("打包下载被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static String uniqueName(Set<String> names, String name) {
+        if (names.add(name)) {
+            return name;
+        }
+        String baseName = FilenameUtils.getBaseName(name);
+        String extension = FilenameUtils.getExtension(name);
+        for (int i = 1; ; i++) {
+            String candidate = baseName + "(" + i + ")" + (extension.isEmpty() ? "" : "." + extension);
+            if (names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * 预读后的文件
+     */
+    private static final class ZipSource {
+        private final File file;
+
+        private boolean stored;
+
+        private long size;
+
+        private long crc;
+
+        private byte[] data;
+
+        private ZipSource(File file) {
+            this.file = file;
+        }
+    }
+}
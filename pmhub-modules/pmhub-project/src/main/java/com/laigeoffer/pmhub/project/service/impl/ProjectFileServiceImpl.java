@@ -1,19 +1,17 @@
 package com.laigeoffer.pmhub.project.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
-import com.laigeoffer.pmhub.api.system.UserFeignService;
-import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
-import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
-import com.laigeoffer.pmhub.base.core.core.domain.R;
-import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
 import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
 import com.laigeoffer.pmhub.base.core.enums.FileTypeEnum;
 import com.laigeoffer.pmhub.base.core.exception.ServiceException;
 import com.laigeoffer.pmhub.base.security.utils.SecurityUtils;
-import com.laigeoffer.pmhub.base.core.utils.file.FileUtils;
+import com.laigeoffer.pmhub.base.core.utils.uuid.Seq;
 import com.laigeoffer.pmhub.project.domain.ProjectFile;
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.FileVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileIdsVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileReqVO;
@@ -22,6 +20,8 @@ import com.laigeoffer.pmhub.project.mapper.ProjectFileMapper;
 import com.laigeoffer.pmhub.project.mapper.ProjectMemberMapper;
 import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
 import com.laigeoffer.pmhub.project.service.ProjectFileService;
+import com.laigeoffer.pmhub.project.service.file.FileBlobStore;
+import com.laigeoffer.pmhub.project.service.file.ZipStreamWriter;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,11 +29,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.net.URLEncoder;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * @author zw
@@ -49,7 +49,11 @@ public class ProjectFileServiceImpl extends ServiceImpl<ProjectFileMapper, Proje
     @Autowired
     private ProjectTaskMapper projectTaskMapper;
     @Resource
-    private UserFeignService userFeignService;
+    private UserDirectory userDirectory;
+    @Autowired
+    private ZipStreamWriter zipStreamWriter;
+    @Autowired
+    private FileBlobStore fileBlobStore;
 
 
     @Override
@@ -77,25 +81,26 @@ public class ProjectFileServiceImpl extends ServiceImpl<ProjectFileMapper, Proje
         if (CollectionUtils.isNotEmpty(files)) {
             List<Long> userIds = files.stream().map(ProjectFileResVO::getUserId).distinct().collect(Collectors.toList());
             // 根据 userIds 查询用户列表
-            SysUserDTO sysUserDTO = new SysUserDTO();
-            sysUserDTO.setUserIds(userIds);
-            R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-            if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+            Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+            if (userMap.isEmpty()) {
                 throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
             }
-            List<SysUserVO> userVOList = userResult.getData();
-            List<SysUser> sysUsers = userVOList.stream()
-                    .map(userVO -> (SysUser) userVO)
-                    .collect(Collectors.toList());
-            Map<Long, List<SysUser>> map = sysUsers.stream().collect(Collectors.groupingBy(SysUser::getUserId));
+            // 任务文件的任务名称，一次查询
+            List<String> taskIds = files.stream().filter(a -> FileTypeEnum.T.getStatus().equals(a.getType()))
+                    .map(ProjectFileResVO::getPtId).distinct().collect(Collectors.toList());
+            Map<String, String> taskNameMap = new HashMap<>(taskIds.size());
+            if (CollectionUtils.isNotEmpty(taskIds)) {
+                LambdaQueryWrapper<ProjectTask> queryWrapper = new LambdaQueryWrapper<>();
+                queryWrapper.select(ProjectTask::getId, ProjectTask::getTaskName).in(ProjectTask::getId, taskIds);
+                projectTaskMapper.selectList(queryWrapper).forEach(task -> taskNameMap.put(task.getId(), task.getTaskName()));
+            }
             files.forEach(a -> {
                 if (FileTypeEnum.P.getStatus().equals(a.getType())) {
                     a.setName(a.getProjectName());
                 } else if (FileTypeEnum.T.getStatus().equals(a.getType())) {
-                    a.setName(projectTaskMapper.selectById(a.getPtId()).getTaskName());
+                    a.setName(taskNameMap.get(a.getPtId()));
                 }
-                a.setNickName(map.get(a.getUserId()).get(0).getNickName());
+                a.setNickName(userMap.get(a.getUserId()).getNickName());
                 a.setTypeName(FileTypeEnum.getStatusNameByStatus(a.getType()));
             });
         }
@@ -109,9 +114,8 @@ public class ProjectFileServiceImpl extends ServiceImpl<ProjectFileMapper, Proje
         if (CollectionUtils.isNotEmpty(projectFileIdsVO.getFileVOList())) {
             List<String> ids = projectFileIdsVO.getFileVOList().stream().map(FileVO::getProjectFileId).collect(Collectors.toList());
             List<ProjectFile> projectFiles = projectFileMapper.selectBatchIds(ids);
-            List<String> urls = projectFiles.stream().map(ProjectFile::getPathName).collect(Collectors.toList());
             projectFileMapper.deleteBatchIds(ids);
-            urls.forEach(FileUtils::deleteFile);
+            fileBlobStore.release(projectFiles);
         }
     }
 
@@ -119,6 +123,14 @@ public class ProjectFileServiceImpl extends ServiceImpl<ProjectFileMapper, Proje
     @Transactional(rollbackFor = Exception.class)
     public void rename(ProjectFileReqVO projectFileReqVO) {
         ProjectFile projectFile = projectFileMapper.selectById(projectFileReqVO.getProjectFileId());
+        if (StringUtils.isNotBlank(projectFile.getBlobHash())) {
+            // 内容寻址存储的文件可能被多个附件引用，只修改附件名称
+            projectFile.setFileName(projectFileReqVO.getFileName());
+            projectFile.setUpdatedBy(SecurityUtils.getUsername());
+            projectFile.setUpdatedTime(new Date());
+            projectFileMapper.updateById(projectFile);
+            return;
+        }
         // D:/pmhub-manage/uploadPath/project/admin/20221229/s1iqii2engq.jpg
         String fileUrl = projectFile.getPathName();
         // 旧的文件或目录
@@ -141,49 +153,25 @@ public class ProjectFileServiceImpl extends ServiceImpl<ProjectFileMapper, Proje
     }
 
     @Override
-    public void batchDownload(String totalZip, List<String> paths) throws IOException {
-        //Linux不会自动创建，手动创建临时的.zip文件
-        File totalFile = new File(totalZip);
-        if (!totalFile.exists()) {
-            totalFile.createNewFile();
-        }
-
-        if (paths.size() != 0) {
-            // 压缩输出流,包装流,将临时文件输出流包装成压缩流,将所有文件输出到这里,打成zip包
-            ZipOutputStream totalZipOut = new ZipOutputStream(new FileOutputStream(totalZip));
-            // 循环调用压缩文件方法,将一个一个需要下载的文件打入压缩文件包
-            for (String path : paths) {
-                // 文件完整路径
-                String pathFile = path.replaceAll("/profile", "");
-                // 调用压缩方法在下面定义
-                fileToZip(pathFile, totalZipOut);
+    public void batchDownload(List<ProjectFile> projectFiles, HttpServletResponse response) throws IOException {
+        List<File> files = new ArrayList<>(projectFiles.size());
+        List<String> names = new ArrayList<>(projectFiles.size());
+        for (ProjectFile projectFile : projectFiles) {
+            // 文件完整路径
+            File file = new File(projectFile.getPathName().replaceAll("/profile", ""));
+            if (!file.isFile()) {
+                throw new ServiceException("文件不存在：" + projectFile.getFileName());
             }
-            totalZipOut.close();
-        }
-
-    }
-
-    private static void fileToZip(String filePath, ZipOutputStream zipOut) throws IOException {
-        // 需要压缩的文件
-        File file = new File(filePath);
-        // 获取文件名称,如果有特殊命名需求,可以将参数列表拓展,传fileName
-        String documents = file.getName();
-        FileInputStream fileInput = new FileInputStream(filePath);
-        // 缓冲
-        byte[] bufferArea = new byte[1024 * 10];
-        BufferedInputStream bufferStream = new BufferedInputStream(fileInput, 1024 * 10);
-        // 将当前文件作为一个zip实体写入压缩流,fileName代表压缩文件中的文件名称
-        zipOut.putNextEntry(new ZipEntry(documents));
-        int length;
-        // 最常规IO操作,不必紧张
-        while ((length = bufferStream.read(bufferArea, 0, 1024 * 10)) != -1) {
-            zipOut.write(bufferArea, 0, length);
+            files.add(file);
+            // 内容寻址存储的文件名是哈希，包内使用附件名称
+            names.add(StringUtils.isNotBlank(projectFile.getBlobHash()) ? projectFile.getFileName() : file.getName());
         }
-        // 关闭流
-        fileInput.close();
-        // 需要注意的是缓冲流必须要关闭流,否则输出无效
-        bufferStream.close();
-        // 压缩流不必关闭,使用完后再关
+        // 设置Content-Disposition响应头，控制浏览器弹出保存框，中文名要进行URLEncoder.encode编码，否则客户端能下载但名字会乱码
+        String filenames = URLEncoder.encode(Seq.getId() + ".zip", "UTF-8");
+        response.setContentType("application/zip");
+        response.setHeader("Content-disposition", "attachment;filename=" + filenames + ";" + "filename*=utf-8''" + filenames);
+        // 直接写入响应流，该流不可以手动关闭
+        zipStreamWriter.write(files, names, response.getOutputStream());
     }
 
 }
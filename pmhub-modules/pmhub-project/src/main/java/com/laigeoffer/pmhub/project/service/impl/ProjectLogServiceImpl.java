@@ -3,32 +3,26 @@ package com.laigeoffer.pmhub.project.service.impl;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
-import com.laigeoffer.pmhub.api.system.UserFeignService;
-import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
-import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
-import com.laigeoffer.pmhub.base.core.core.domain.R;
-import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
+import com.laigeoffer.pmhub.base.core.core.page.CursorPage;
+import com.laigeoffer.pmhub.base.core.core.page.PageCursor;
 import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
-import com.laigeoffer.pmhub.base.core.enums.ProjectTaskPriorityEnum;
-import com.laigeoffer.pmhub.base.core.enums.ProjectTaskStatusEnum;
 import com.laigeoffer.pmhub.base.core.exception.ServiceException;
-import com.laigeoffer.pmhub.project.domain.Project;
 import com.laigeoffer.pmhub.project.domain.ProjectLog;
 import com.laigeoffer.pmhub.project.domain.vo.project.ProjectVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.LogVO;
 import com.laigeoffer.pmhub.project.domain.vo.project.log.ProjectLogVO;
-import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskExportVO;
 import com.laigeoffer.pmhub.project.mapper.ProjectLogMapper;
-import com.laigeoffer.pmhub.project.mapper.ProjectMapper;
 import com.laigeoffer.pmhub.project.mapper.ProjectMemberMapper;
 import com.laigeoffer.pmhub.project.service.ProjectLogService;
+import com.laigeoffer.pmhub.project.service.log.ProjectLogDispatcher;
+import com.laigeoffer.pmhub.project.service.stats.ListTotalCache;
 import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -41,89 +35,32 @@ import java.util.stream.Collectors;
 @Service
 public class ProjectLogServiceImpl extends ServiceImpl<ProjectLogMapper, ProjectLog> implements ProjectLogService {
 
-    @Autowired
-    private ProjectMapper projectMapper;
     @Autowired
     private ProjectMemberMapper projectMemberMapper;
     @Autowired
     private ProjectLogMapper projectLogMapper;
+    @Autowired
+    private ProjectLogDispatcher projectLogDispatcher;
     @Resource
-    private UserFeignService userFeignService;
+    private UserDirectory userDirectory;
+    @Autowired
+    private ListTotalCache listTotalCache;
 
+    /**
+     * 记录日志事件，随调用方事务提交，项目名称、用户昵称由后台批量补全后写入日志表
+     */
     @Transactional(rollbackFor = Exception.class)
     public void run(LogVO logVO) {
-        ProjectLog projectLog = new ProjectLog();
-        // project task
-        projectLog.setType(logVO.getType());
-        projectLog.setPtId(logVO.getPtId());
-        projectLog.setOperateType(logVO.getOperateType());
-        projectLog.setUserId(logVO.getUserId());
-        projectLog.setLogType(logVO.getLogType());
-        projectLog.setToUserId(logVO.getToUserId());
-        projectLog.setProjectId(logVO.getProjectId());
-        projectLog.setCreatedBy(logVO.getCreatedBy());
-        projectLog.setCreatedTime(logVO.getCreatedTime());
-        projectLog.setUpdatedBy(logVO.getUpdatedBy());
-        projectLog.setUpdatedTime(logVO.getUpdatedTime());
-        projectLog.setContent(logVO.getContent());
-        projectLog.setRemark(logVO.getRemark());
-
-        Project project = projectMapper.selectById(projectLog.getPtId());
-        SysUser sysUser = new SysUser();
-        if (projectLog.getToUserId() != null) {
-            // 根据 userIds 查询用户列表
-            SysUserDTO sysUserDTO = new SysUserDTO();
-            sysUserDTO.setUserIds(Collections.singletonList(projectLog.getToUserId()));
-            R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-            if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
-                throw new ServiceException("远程调用查询用户列表：" + projectLog.getToUserId() + " 失败");
-            }
-            List<SysUserVO> userVOList = userResult.getData();
-            if (CollectionUtils.isNotEmpty(userVOList)) {
-                sysUser = userVOList.get(0);
-            }
-        }
+        projectLogDispatcher.publish(logVO);
+    }
 
-        String type = projectLog.getOperateType();
-        if ("create".equals(type)) {
-            projectLog.setRemark("创建了项目");
-            projectLog.setContent(project.getProjectName());
-        } else if ("edit".equals(type)) {
-            projectLog.setRemark("编辑了项目");
-            projectLog.setContent(project.getProjectName());
-        } else if ("delete".equals(type)) {
-            projectLog.setRemark("删除了项目");
-            projectLog.setContent(project.getProjectName());
-        } else if ("content".equals(type)) {
-            projectLog.setRemark("更新了备注");
-            projectLog.setContent(project.getDescription());
-        } else if ("clearContent".equals(type)) {
-            projectLog.setRemark("清空了备注");
-        } else if ("inviteMember".equals(type)) {
-            projectLog.setRemark("加入了项目");
-            projectLog.setContent(sysUser.getNickName());
-        } else if ("removeMember".equals(type)) {
-            projectLog.setRemark("移除了成员" + sysUser.getNickName());
-            projectLog.setContent(sysUser.getNickName());
-        } else if ("recycle".equals(type)) {
-            projectLog.setRemark("把项目移到了回收站");
-        } else if ("recovery".equals(type)) {
-            projectLog.setRemark("恢复了项目");
-        } else if ("archive".equals(type)) {
-            projectLog.setContent(project.getProjectName());
-            projectLog.setRemark("归档了项目");
-        } else if ("uploadProjectFile".equals(type)) {
-            projectLog.setRemark("上传了项目文件");
-            projectLog.setContent(logVO.getContent());
-        } else if ("uploadTaskFile".equals(type)) {
-            projectLog.setRemark("上传了任务交付物");
-            projectLog.setContent(logVO.getContent());
-        } else if ("invitePartakeTask".equals(type)) {
-            projectLog.setRemark(logVO.getRemark());
-            projectLog.setContent(logVO.getContent());
-        }
-        baseMapper.insert(projectLog);
+    /**
+     * 批量记录日志事件，一次写入
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void runBatch(List<LogVO> logVOList) {
+        projectLogDispatcher.publish(logVOList);
     }
 
     @Override
@@ -133,21 +70,35 @@ public class ProjectLogServiceImpl extends ServiceImpl<ProjectLogMapper, Project
         if (CollectionUtils.isEmpty(projectLogVOS)) {
             return new PageInfo<>();
         }
+        fillUser(projectLogVOS);
+        return new PageInfo<>(projectLogVOS);
+    }
+
+    @Override
+    public CursorPage<ProjectLogVO> listByCursor(ProjectVO projectVO) {
+        int pageSize = PageCursor.pageSize(projectVO.getPageSize());
+        List<ProjectLogVO> rows = projectLogMapper.queryLogListByCursor(projectVO.getProjectId(),
+                PageCursor.decode(projectVO.getCursor()), pageSize + 1);
+        long total = listTotalCache.get("project_log", () -> projectLogMapper.countLogList(projectVO.getProjectId()),
+                projectVO.getProjectId());
+        CursorPage<ProjectLogVO> page = CursorPage.of(rows, pageSize, ProjectLogVO::getCreatedTime, ProjectLogVO::getProjectLogId, total);
+        if (CollectionUtils.isNotEmpty(page.getList())) {
+            fillUser(page.getList());
+        }
+        return page;
+    }
+
+    private void fillUser(List<ProjectLogVO> projectLogVOS) {
         // 拿到userids
         List<Long> userIds = projectLogVOS.stream().map(ProjectLogVO::getUserId)
                 .distinct()
                 .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
 
         // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
         projectLogVOS.forEach(a -> {
 
             // 设置用户信息
@@ -158,6 +109,5 @@ public class ProjectLogServiceImpl extends ServiceImpl<ProjectLogMapper, Project
                 a.setAvatar(sysUserVO.getAvatar());
             }
         });
-        return new PageInfo<>(projectLogVOS);
     }
 }
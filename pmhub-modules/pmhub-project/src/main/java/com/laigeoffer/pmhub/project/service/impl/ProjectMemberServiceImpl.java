@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
 import com.laigeoffer.pmhub.api.system.UserFeignService;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
 import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
 import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
 import com.laigeoffer.pmhub.base.core.core.domain.R;
@@ -39,6 +40,9 @@ public class ProjectMemberServiceImpl extends ServiceImpl<ProjectMemberMapper, P
     @Resource
     private UserFeignService userFeignService;
 
+    @Resource
+    private UserDirectory userDirectory;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void inviteMemberList(ProjectVO projectVO) {
@@ -75,17 +79,12 @@ public class ProjectMemberServiceImpl extends ServiceImpl<ProjectMemberMapper, P
         List<ProjectMemberResVO> projectMemberResVOList = projectMemberMapper.searchMember(projectMemberReqVO);
         // 查询用户信息
         List<Long> userIds = projectMemberResVOList.stream().map(ProjectMemberResVO::getUserId).distinct().collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
 
         // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
         projectMemberResVOList.forEach(projectMemberVO -> {
             SysUserVO userVO = userMap.get(projectMemberVO.getUserId());
             if (Objects.nonNull(userVO)) {
@@ -146,17 +145,12 @@ public class ProjectMemberServiceImpl extends ServiceImpl<ProjectMemberMapper, P
         List<Long> userIds = list.stream().map(ProjectMemberResVO::getUserId)
                 .distinct()
                 .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
 
         // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
         list.forEach(projectMemberResVO -> {
             SysUserVO sysUserVO = userMap.get(projectMemberResVO.getUserId());
             if (Objects.nonNull(sysUserVO)) {
@@ -6,10 +6,9 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
 import com.laigeoffer.pmhub.api.system.UserFeignService;
-import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
 import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
 import com.laigeoffer.pmhub.base.core.core.domain.R;
-import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
 import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
 import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
 import com.laigeoffer.pmhub.base.core.enums.LogTypeEnum;
@@ -61,6 +60,9 @@ public class ProjectServiceImpl extends ServiceImpl<ProjectMapper, Project> impl
     @Resource
     private UserFeignService userFeignService;
 
+    @Resource
+    private UserDirectory userDirectory;
+
     private final String NO_PUBLISHED_NAME = "未发布";
     private final String PUBLISHED_NAME = "已发布";
     private final String PUBLIC = "公开项目";
@@ -178,18 +180,10 @@ public class ProjectServiceImpl extends ServiceImpl<ProjectMapper, Project> impl
         if (CollectionUtils.isNotEmpty(projects)) {
             // 根据 userIds 查询用户列表
             List<Long> userIds = projects.stream().map(Project::getUserId).distinct().collect(Collectors.toList());
-            SysUserDTO sysUserDTO = new SysUserDTO();
-            sysUserDTO.setUserIds(userIds);
-            R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-            if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+            Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+            if (userMap.isEmpty()) {
                 throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
             }
-            List<SysUserVO> userVOList = userResult.getData();
-            List<SysUser> sysUsers = userVOList.stream()
-                    .map(userVO -> (SysUser) userVO)
-                    .collect(Collectors.toList());
-            Map<Long, List<SysUser>> map = sysUsers.stream().collect(Collectors.groupingBy(SysUser::getUserId));
             projects.forEach(a -> {
                 DoingProjectVO doingProjectVO = new DoingProjectVO();
                 doingProjectVO.setProjectId(a.getId());
@@ -197,7 +191,7 @@ public class ProjectServiceImpl extends ServiceImpl<ProjectMapper, Project> impl
                 doingProjectVO.setCover(a.getCover());
                 doingProjectVO.setProcess(a.getProjectProcess());
                 doingProjectVO.setUserId(a.getUserId());
-                doingProjectVO.setNickName(map.get(a.getUserId()).get(0).getNickName());
+                doingProjectVO.setNickName(userMap.get(a.getUserId()).getNickName());
                 list.add(doingProjectVO);
             });
 
@@ -292,18 +286,18 @@ public class ProjectServiceImpl extends ServiceImpl<ProjectMapper, Project> impl
         if (CollectionUtils.isNotEmpty(list)) {
             // 查询用户信息
             List<Long> userIds =  list.stream().map(ProjectResVO::getUserId).distinct().collect(Collectors.toList());
-            SysUserDTO sysUserDTO = new SysUserDTO();
-            sysUserDTO.setUserIds(userIds);
-            R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-            if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+            Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+            if (userMap.isEmpty()) {
                 throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
             }
-            List<SysUserVO> userVOList = userResult.getData();
-            List<SysUser> sysUsers = userVOList.stream()
-                    .map(userVO -> (SysUser) userVO)
-                    .collect(Collectors.toList());
-            Map<Long, List<SysUser>> map = sysUsers.stream().collect(Collectors.groupingBy(SysUser::getUserId));
+            // 当前用户收藏了本页哪些项目，一次查询
+            List<String> projectIds = list.stream().map(ProjectResVO::getProjectId).collect(Collectors.toList());
+            LambdaQueryWrapper<ProjectCollection> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.select(ProjectCollection::getProjectId)
+                    .eq(ProjectCollection::getUserId, SecurityUtils.getUserId())
+                    .in(ProjectCollection::getProjectId, projectIds);
+            Set<String> collectedIds = projectCollectionMapper.selectList(queryWrapper).stream()
+                    .map(ProjectCollection::getProjectId).collect(Collectors.toSet());
 
             list.forEach(a -> {
                 if (StringUtils.isNotBlank(a.getPrefix())) {
@@ -312,11 +306,8 @@ public class ProjectServiceImpl extends ServiceImpl<ProjectMapper, Project> impl
                 a.setStatusName(ProjectStatusEnum.getStatusNameByStatus(a.getStatus()));
                 a.setPublishedName(a.getPublished() == 0 ? NO_PUBLISHED_NAME : PUBLISHED_NAME);
                 a.setProjectTypeName(a.getProjectType() == 0 ? PUBLIC : PRIVATE);
-                a.setNickName(map.get(a.getUserId()).get(0).getNickName());
-                LambdaQueryWrapper<ProjectCollection> queryWrapper = new LambdaQueryWrapper<>();
-                queryWrapper.eq(ProjectCollection::getUserId, SecurityUtils.getUserId()).eq(ProjectCollection::getProjectId, a.getProjectId());
-                ProjectCollection projectCollection = projectCollectionMapper.selectOne(queryWrapper);
-                a.setCollected(projectCollection != null);
+                a.setNickName(userMap.get(a.getUserId()).getNickName());
+                a.setCollected(collectedIds.contains(a.getProjectId()));
 
             });
         }
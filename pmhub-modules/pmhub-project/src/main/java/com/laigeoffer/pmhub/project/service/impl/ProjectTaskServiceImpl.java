@@ -7,7 +7,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
 import com.laigeoffer.pmhub.api.system.UserFeignService;
-import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
 import com.laigeoffer.pmhub.api.workflow.DeployFeignService;
 import com.laigeoffer.pmhub.base.core.config.PmhubConfig;
 import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
@@ -16,12 +16,16 @@ import com.laigeoffer.pmhub.base.core.core.domain.dto.ApprovalSetDTO;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
 import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
 import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
+import com.laigeoffer.pmhub.base.core.core.page.CursorPage;
+import com.laigeoffer.pmhub.base.core.core.page.PageCursor;
 import com.laigeoffer.pmhub.base.core.enums.LogTypeEnum;
 import com.laigeoffer.pmhub.base.core.enums.ProjectStatusEnum;
 import com.laigeoffer.pmhub.base.core.enums.ProjectTaskPriorityEnum;
 import com.laigeoffer.pmhub.base.core.enums.ProjectTaskStatusEnum;
 import com.laigeoffer.pmhub.base.core.exception.ServiceException;
 import com.laigeoffer.pmhub.base.core.utils.DateUtils;
+import com.laigeoffer.pmhub.base.core.utils.ServletUtils;
+import com.laigeoffer.pmhub.base.core.utils.file.FileDownloadUtils;
 import com.laigeoffer.pmhub.base.core.utils.file.FileUtils;
 import com.laigeoffer.pmhub.base.security.utils.SecurityUtils;
 import com.laigeoffer.pmhub.project.domain.*;
@@ -32,6 +36,11 @@ import com.laigeoffer.pmhub.project.domain.vo.project.task.*;
 import com.laigeoffer.pmhub.project.mapper.*;
 import com.laigeoffer.pmhub.project.service.ProjectLogService;
 import com.laigeoffer.pmhub.project.service.ProjectTaskService;
+import com.laigeoffer.pmhub.project.service.chart.BurnDownChartEngine;
+import com.laigeoffer.pmhub.project.service.stats.ListTotalCache;
+import com.laigeoffer.pmhub.project.service.stats.TaskStatsCounter;
+import com.laigeoffer.pmhub.project.service.task.TaskExporter;
+import com.laigeoffer.pmhub.project.service.task.TaskImporter;
 import com.laigeoffer.pmhub.project.service.task.QueryTaskLogFactory;
 import io.seata.core.context.RootContext;
 import io.seata.spring.annotation.GlobalTransactional;
@@ -48,6 +57,7 @@ import javax.annotation.Resource;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.rmi.ServerException;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
@@ -74,7 +84,19 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
     @Autowired
     private QueryTaskLogFactory queryTaskLogFactory;
     @Autowired
+    private BurnDownChartEngine burnDownChartEngine;
+    @Autowired
+    private TaskStatsCounter taskStatsCounter;
+    @Autowired
+    private TaskImporter taskImporter;
+    @Autowired
+    private TaskExporter taskExporter;
+    @Autowired
     private ProjectFileMapper projectFileMapper;
+    @Autowired
+    private ProjectTaskClosureMapper projectTaskClosureMapper;
+    @Autowired
+    private ListTotalCache listTotalCache;
 
     // 远程调用流程服务
     @Resource
@@ -84,36 +106,24 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
     @Resource
     private UserFeignService userFeignService;
 
+    @Resource
+    private UserDirectory userDirectory;
+
     @Override
     public Long queryTodayTaskNum() {
-        LambdaQueryWrapper<ProjectTask> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.between(ProjectTask::getBeginTime, DateTimeFormatter.ofPattern(DateUtils.YYYY_MM_DD_HH_MM_SS).format(LocalDateTime.now().with(LocalTime.MIN))
-                , DateTimeFormatter.ofPattern(DateUtils.YYYY_MM_DD_HH_MM_SS).format(LocalDateTime.now().with(LocalTime.MAX))).eq(ProjectTask::getDeleted, 0);
-        if (projectTaskMapper.selectCount(queryWrapper) == null) {
-            return 0L;
-        }
-        return projectTaskMapper.selectCount(queryWrapper);
-
+        return taskStatsCounter.getStats(null).getBeginToday();
     }
 
     @Override
     public Long queryOverdueTaskNum() {
-        LambdaQueryWrapper<ProjectTask> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.lt(ProjectTask::getCloseTime, DateTimeFormatter.ofPattern(DateUtils.YYYY_MM_DD_HH_MM_SS).format(LocalDateTime.now())).eq(ProjectTask::getDeleted, 0)
-                .ne(ProjectTask::getExecuteStatus, ProjectTaskStatusEnum.FINISHED.getStatus());
-        if (projectTaskMapper.selectCount(queryWrapper) == null) {
-            return 0L;
-        }
-        return projectTaskMapper.selectCount(queryWrapper);
+        return taskStatsCounter.getStats(null).getOverdueUnexecuted();
     }
 
     @Override
     public List<TaskStatisticsVO> queryTaskStatisticsList() {
-        LambdaQueryWrapper<ProjectTask> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(ProjectTask::getDeleted, 0);
+        TaskStatsCounter.TaskStats stats = taskStatsCounter.getStats(null);
         List<TaskStatisticsVO> taskStatisticsVOList = new ArrayList<>(10);
-        List<ProjectTask> list = projectTaskMapper.selectList(queryWrapper);
-        if (CollectionUtils.isEmpty(list)) {
+        if (stats.getTotal() == 0) {
             for (ProjectTaskStatusEnum value : ProjectTaskStatusEnum.values()) {
                 TaskStatisticsVO taskStatisticsVO = new TaskStatisticsVO();
                 taskStatisticsVO.setStatus(value.getStatus());
@@ -127,28 +137,25 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
             TaskStatisticsVO noClaim = new TaskStatisticsVO();
             noClaim.setStatus(ProjectTaskStatusEnum.NO_CLAIMED.getStatus());
             noClaim.setStatusName(ProjectTaskStatusEnum.NO_CLAIMED.getStatusName());
-            noClaim.setTaskNum((int) list.stream().filter(a -> a.getUserId() == null).count());
+            noClaim.setTaskNum((int) stats.getUnassigned());
             taskStatisticsVOList.add(noClaim);
             // 进行中
-            List<ProjectTask> doingList = list.stream().filter(a -> ProjectTaskStatusEnum.DOING.getStatus().equals(a.getStatus())).collect(Collectors.toList());
             TaskStatisticsVO doing = new TaskStatisticsVO();
             doing.setStatus(ProjectTaskStatusEnum.DOING.getStatus());
             doing.setStatusName(ProjectTaskStatusEnum.DOING.getStatusName());
-            doing.setTaskNum(doingList.size());
+            doing.setTaskNum((int) stats.getStatusNum(ProjectTaskStatusEnum.DOING.getStatus()));
             taskStatisticsVOList.add(doing);
             // 已完成
-            List<ProjectTask> finishList = list.stream().filter(a -> ProjectTaskStatusEnum.FINISHED.getStatus().equals(a.getStatus())).collect(Collectors.toList());
             TaskStatisticsVO finish = new TaskStatisticsVO();
             finish.setStatus(ProjectTaskStatusEnum.FINISHED.getStatus());
             finish.setStatusName(ProjectTaskStatusEnum.FINISHED.getStatusName());
-            finish.setTaskNum(finishList.size());
+            finish.setTaskNum((int) stats.getStatusNum(ProjectTaskStatusEnum.FINISHED.getStatus()));
             taskStatisticsVOList.add(finish);
             // 已逾期
-            List<ProjectTask> overdueList = list.stream().filter(a -> a.getCloseTime() != null && a.getCloseTime().getTime() < new Date().getTime()).collect(Collectors.toList());
             TaskStatisticsVO overdue = new TaskStatisticsVO();
             overdue.setStatus(ProjectTaskStatusEnum.OVERDUE.getStatus());
             overdue.setStatusName(ProjectTaskStatusEnum.OVERDUE.getStatusName());
-            overdue.setTaskNum(overdueList.size());
+            overdue.setTaskNum((int) stats.getOverdue());
             taskStatisticsVOList.add(overdue);
         }
 
@@ -188,19 +195,17 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
     @Override
     public TaskStatusStatsVO queryTaskStatusStats(ProjectVO projectVO) {
         TaskStatusStatsVO taskStatusStatsVO = new TaskStatusStatsVO();
-        LambdaQueryWrapper<ProjectTask> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(ProjectTask::getProjectId, projectVO.getProjectId());
-        queryWrapper.eq(ProjectTask::getDeleted, 0);
-        List<ProjectTask> projectTasks = projectTaskMapper.selectList(queryWrapper);
-        if (CollectionUtils.isNotEmpty(projectTasks)) {
-            taskStatusStatsVO.setTotal(projectTasks.size());
-            taskStatusStatsVO.setToBeAssign((int) projectTasks.stream().filter(a -> a.getUserId() == null).count());
-            taskStatusStatsVO.setUnDone((int) projectTasks.stream().filter(a -> !Objects.equals(a.getStatus(), ProjectTaskStatusEnum.FINISHED.getStatus())).count());
-            taskStatusStatsVO.setDone((int) projectTasks.stream().filter(a -> Objects.equals(a.getStatus(), ProjectTaskStatusEnum.FINISHED.getStatus())).count());
-            taskStatusStatsVO.setDoneOverdue((int) projectTasks.stream().filter(a -> a.getCloseTime() != null && a.getCloseTime().getTime() < new Date().getTime() && Objects.equals(a.getStatus(), ProjectTaskStatusEnum.FINISHED.getStatus())).count());
-            taskStatusStatsVO.setExpireToday((int) projectTasks.stream().filter(a -> a.getCloseTime() != null && DateUtils.dateTime(new Date()).compareTo(DateUtils.dateTime(a.getCloseTime())) == 0).count());
-            taskStatusStatsVO.setTimeUndetermined((int) projectTasks.stream().filter(a -> a.getEndTime() == null).count());
-            taskStatusStatsVO.setOverdue((int) projectTasks.stream().filter(a -> a.getCloseTime() != null && a.getCloseTime().getTime() < new Date().getTime()).count());
+        TaskStatsCounter.TaskStats stats = StringUtils.isBlank(projectVO.getProjectId()) ? null : taskStatsCounter.getStats(projectVO.getProjectId());
+        if (stats != null && stats.getTotal() > 0) {
+            int done = (int) stats.getStatusNum(ProjectTaskStatusEnum.FINISHED.getStatus());
+            taskStatusStatsVO.setTotal((int) stats.getTotal());
+            taskStatusStatsVO.setToBeAssign((int) stats.getUnassigned());
+            taskStatusStatsVO.setUnDone((int) stats.getTotal() - done);
+            taskStatusStatsVO.setDone(done);
+            taskStatusStatsVO.setDoneOverdue((int) stats.getDoneOverdue());
+            taskStatusStatsVO.setExpireToday((int) stats.getExpireToday());
+            taskStatusStatsVO.setTimeUndetermined((int) stats.getTimeUndetermined());
+            taskStatusStatsVO.setOverdue((int) stats.getOverdue());
 
         } else {
             taskStatusStatsVO.setTotal(0);
@@ -218,9 +223,18 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void  deleteTask(TaskIdsVO taskIdsVO) {
-        LambdaUpdateChainWrapper<ProjectTask> wrapper = lambdaUpdate().in(ProjectTask::getId, taskIdsVO.getTaskIdList());
+        // 子任务随父任务一起删除
+        List<ProjectTask> projectTasks = querySubtreeTasks(taskIdsVO.getTaskIdList());
+        if (projectTasks.isEmpty()) {
+            return;
+        }
+        List<String> taskIds = projectTasks.stream().map(ProjectTask::getId).collect(Collectors.toList());
+        LambdaUpdateChainWrapper<ProjectTask> wrapper = lambdaUpdate().in(ProjectTask::getId, taskIds);
         wrapper.set(ProjectTask::getDeleted, 1).set(ProjectTask::getDeletedTime, new Date());
         wrapper.update();
+        projectTasks.forEach(projectTask -> taskStatsCounter.onChanged(projectTask, null));
+        burnDownChartEngine.evict(projectTasks.stream()
+                .map(ProjectTask::getProjectId).distinct().toArray(String[]::new));
     }
 
     @Override
@@ -242,19 +256,28 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
 
     private List<SysUser> getSysUserList(List<Long> userIds) {
         // 查询用户信息
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
-        return userVOList.stream()
-                .map(userVO -> (SysUser) userVO)
+        return userIds.stream()
+                .map(userMap::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 从用户目录查询用户信息，按执行人或创建人筛选时只保留昵称包含关键字的用户（与系统服务的模糊查询一致）
+     */
+    private Map<Long, SysUserVO> getUserMap(List<Long> userIds, TaskReqVO taskReqVO) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        String nickName = StringUtils.isNotEmpty(taskReqVO.getCreatedBy()) ? taskReqVO.getCreatedBy() : taskReqVO.getExecutor();
+        if (StringUtils.isNotEmpty(nickName)) {
+            userMap.values().removeIf(userVO -> !StringUtils.containsIgnoreCase(userVO.getNickName(), nickName));
+        }
+        return userMap;
+    }
+
     @Override
     public List<ProjectMemberResVO> queryExecutorList(TaskReqVO taskReqVO) {
         List<ProjectMemberResVO> list = projectMemberMapper.queryExecutorList(taskReqVO.getProjectId());
@@ -265,17 +288,12 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
         List<Long> userIds = list.stream().map(ProjectMemberResVO::getUserId)
                 .distinct()
                 .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
 
         // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
         list.forEach(projectMemberResVO -> {
             SysUserVO sysUserVO = userMap.get(projectMemberResVO.getUserId());
             if (Objects.nonNull(sysUserVO)) {
@@ -295,27 +313,39 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
         if (CollectionUtils.isEmpty(list)) {
             return new PageInfo<>(list);
         }
+        fillTaskList(list, taskReqVO);
+        return new PageInfo<>(list);
+    }
+
+    @Override
+    public CursorPage<TaskResVO> listByCursor(TaskReqVO taskReqVO) {
+        Long userId = SecurityUtils.getUserId();
+        int pageSize = PageCursor.pageSize(taskReqVO.getPageSize());
+        List<TaskResVO> rows = projectTaskMapper.listByCursor(taskReqVO, userId, PageCursor.decode(taskReqVO.getCursor()), pageSize + 1);
+        long total = listTotalCache.get("my_task", () -> projectTaskMapper.countList(taskReqVO, userId),
+                userId, taskReqVO.getProjectId(), taskReqVO.getTaskName(), taskReqVO.getStageCode(),
+                taskReqVO.getExecuteStatus(), taskReqVO.getStatus(), taskReqVO.getTaskPriority());
+        CursorPage<TaskResVO> page = CursorPage.of(rows, pageSize, TaskResVO::getCreatedTime, TaskResVO::getTaskId, total);
+        if (CollectionUtils.isNotEmpty(page.getList())) {
+            fillTaskList(page.getList(), taskReqVO);
+        }
+        return page;
+    }
+
+    /**
+     * 补全任务列表的执行人、审批流程和状态名称
+     */
+    private void fillTaskList(List<TaskResVO> list, TaskReqVO taskReqVO) {
         // 拿到userids
         List<Long> userIds = list.stream().map(TaskResVO::getUserId)
                 .distinct()
                 .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        if (StringUtils.isNotEmpty(taskReqVO.getExecutor())) {
-            sysUserDTO.setNickName(taskReqVO.getExecutor());
-        }
-        if (StringUtils.isNotEmpty(taskReqVO.getCreatedBy())) {
-            sysUserDTO.setNickName(taskReqVO.getCreatedBy());
-        }
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = getUserMap(userIds, taskReqVO);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
 
         // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
         list.forEach(a -> {
             WorkFlowable workFlowable = new WorkFlowable();
             workFlowable.setTaskId(a.getTaskProcessId());
@@ -337,7 +367,6 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
                 a.setCreatedBy(sysUserVO.getNickName());
             }
         });
-        return new PageInfo<>(list);
     }
 
     @Override
@@ -362,6 +391,9 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
         projectTask.setUpdatedBy(SecurityUtils.getUsername());
         projectTask.setUpdatedTime(new Date());
         projectTaskMapper.insert(projectTask);
+        insertClosure(projectTask.getId(), projectTask.getTaskPid());
+        burnDownChartEngine.evict(projectTask.getProjectId());
+        taskStatsCounter.onChanged(null, projectTask);
 
         // 2、添加任务成员
         insertMember(projectTask.getId(), 1, SecurityUtils.getUserId());
@@ -438,7 +470,11 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
         projectTask.setId(taskReqVO.getTaskId());
         projectTask.setProjectId(taskReqVO.getProjectId());
         projectTask.setUpdatedTime(new Date());
+        if (ProjectTaskStatusEnum.FINISHED.getStatus().equals(taskReqVO.getStatus())) {
+            projectTask.setTaskProcess(new BigDecimal("100"));
+        }
         projectTaskMapper.updateById(projectTask);
+        burnDownChartEngine.evict(oldObj.getProjectId(), taskReqVO.getProjectId());
 
         LambdaQueryWrapper<ProjectMember> qw = new LambdaQueryWrapper<>();
         qw.eq(ProjectMember::getPtId, taskReqVO.getTaskId()).eq(ProjectMember::getType, ProjectStatusEnum.TASK.getStatusName());
@@ -483,7 +519,19 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
             extracted(taskReqVO.getTaskName(), taskReqVO.getUserId(), SecurityUtils.getUsername(), taskReqVO.getTaskId());
         }
         ProjectTask newObj = projectTaskMapper.selectById(taskReqVO.getTaskId());
+        taskStatsCounter.onChanged(oldObj, newObj);
         List<LogDataVO> data = FieldUtils.getChangedFields(newObj, oldObj);
+        if (data.isEmpty()) {
+            return;
+        }
+        // 执行人变更时一次查询新旧执行人
+        List<Long> changedUserIds = new ArrayList<>();
+        data.forEach(a -> a.getLogContentVOList().stream().filter(c -> "userId".equals(c.getField())).forEach(c -> {
+            changedUserIds.add(Long.valueOf(c.getOldValue()));
+            changedUserIds.add(Long.valueOf(c.getNewValue()));
+        }));
+        Map<Long, SysUserVO> userMap = changedUserIds.isEmpty() ? Collections.emptyMap() : userDirectory.getUsers(changedUserIds);
+        List<LogVO> logVOList = new ArrayList<>(data.size());
         data.forEach(a -> {
             // 添加日志
             LogVO lv = new LogVO();
@@ -499,8 +547,8 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
             logContentVOList.forEach(logContentVO -> {
                 switch (logContentVO.getField()) {
                     case "userId":
-                        logContentVO.setOldValue(getSysUserList(Collections.singletonList(Long.valueOf(logContentVO.getOldValue()))).get(0).getNickName());
-                        logContentVO.setNewValue(getSysUserList(Collections.singletonList(Long.valueOf(logContentVO.getNewValue()))).get(0).getNickName());
+                        logContentVO.setOldValue(getNickName(userMap, Long.valueOf(logContentVO.getOldValue())));
+                        logContentVO.setNewValue(getNickName(userMap, Long.valueOf(logContentVO.getNewValue())));
                         break;
                     case "status":
                     case "executeStatus":
@@ -518,23 +566,38 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
             lv.setCreatedTime(new Date());
             lv.setUpdatedBy(SecurityUtils.getUsername());
             lv.setUpdatedTime(new Date());
-            projectLogService.run(lv);
-            if (ProjectTaskStatusEnum.FINISHED.getStatus().equals(taskReqVO.getStatus())) {
-                projectTask.setTaskProcess(new BigDecimal("100"));
-            }
-            projectTaskMapper.updateById(projectTask);
+            logVOList.add(lv);
         });
+        projectLogService.runBatch(logVOList);
+    }
+
+    private String getNickName(Map<Long, SysUserVO> userMap, Long userId) {
+        SysUserVO sysUserVO = userMap.get(userId);
+        if (sysUserVO == null) {
+            throw new ServiceException("远程调用查询用户列表：" + userId + " 失败");
+        }
+        return sysUserVO.getNickName();
     }
 
     @Override
     public List<TaskResVO> queryChildTask(TaskReqVO taskReqVO) {
         List<TaskResVO> taskResVOList = projectTaskMapper.queryChildTask(taskReqVO.getTaskId());
+        // 所有子任务的用户一次查询
+        List<Long> userIds = taskResVOList.stream().map(TaskResVO::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (!userIds.isEmpty() && userMap.isEmpty()) {
+            throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
+        }
         taskResVOList.forEach(detail -> {
             detail.setStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(detail.getStatus()));
             detail.setExecuteStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(detail.getExecuteStatus()));
             String createdBy = "";
-            if (detail.getUserId() != null) {
-                createdBy = getSysUserList(Collections.singletonList(detail.getUserId())).get(0).getNickName();
+            SysUserVO sysUserVO = detail.getUserId() == null ? null : userMap.get(detail.getUserId());
+            if (Objects.nonNull(sysUserVO)) {
+                createdBy = sysUserVO.getNickName();
                 detail.setExecutor(createdBy);
             }
             detail.setCreatedBy(createdBy);
@@ -544,46 +607,142 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
     }
 
     @Override
-    public List<BurnDownChartVO> burnDownChart(ProjectVO projectVO) {
-        List<BurnDownChartVO> list = new ArrayList<>(10);
-        LambdaQueryWrapper<ProjectTask> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(ProjectTask::getProjectId, projectVO.getProjectId()).orderByAsc(ProjectTask::getCreatedTime);
-        List<ProjectTask> projectTasks = projectTaskMapper.selectList(queryWrapper);
-
-        if (CollectionUtils.isNotEmpty(projectTasks)) {
-            Date createdTime = projectTasks.get(0).getCreatedTime();
-            String beginDate = DateUtils.dateTime(createdTime);
-            String endDate = DateUtils.dateTime(new Date());
-            List<String> betweenDate = DateUtils.getBetweenDate(beginDate, endDate);
-            betweenDate.forEach(date -> {
-                LocalDate now = LocalDate.parse(date, DateTimeFormatter.ofPattern(DateUtils.YYYY_MM_DD)).plusDays(1);
-                BurnDownChartVO burnDownChartVO = new BurnDownChartVO();
-                burnDownChartVO.setDate(date);
-                LambdaQueryWrapper<ProjectTask> qw = new LambdaQueryWrapper<>();
-                qw.eq(ProjectTask::getProjectId, projectVO.getProjectId()).lt(ProjectTask::getCreatedTime, now);
-                List<ProjectTask> projectTasks2 = projectTaskMapper.selectList(qw);
-                burnDownChartVO.setTaskNum(projectTasks2.size());
-                burnDownChartVO.setUnDoneTaskNum((int) projectTasks2.stream().filter(a -> !Objects.equals(a.getStatus(), ProjectTaskStatusEnum.FINISHED.getStatus())).count());
-                burnDownChartVO.setBaseLineNum((int) projectTasks2.stream().filter(a -> !Objects.equals(a.getStatus(), ProjectTaskStatusEnum.FINISHED.getStatus())).filter(o -> {
-                    if (o.getEndTime() == null) {
-                        if (o.getCreatedTime() != null) {
-                            Instant instant = o.getCreatedTime().toInstant();
-                            ZoneId zoneId = ZoneId.systemDefault();
-                            LocalDate create = instant.atZone(zoneId).toLocalDate();
-                            return create.plusDays(5).isAfter(now);
-                        }
-                        return true;
-                    } else {
-                        Instant instant = o.getEndTime().toInstant();
-                        ZoneId zoneId = ZoneId.systemDefault();
-                        LocalDate end = instant.atZone(zoneId).toLocalDate();
-                        return end.plusDays(-1).isBefore(now);
-                    }
-                }).count());
-                list.add(burnDownChartVO);
-            });
+    public List<ProjectTask> querySubtreeTasks(List<String> taskIdList) {
+        if (CollectionUtils.isEmpty(taskIdList)) {
+            return Collections.emptyList();
         }
-        return list;
+        return projectTaskMapper.querySubtreeTasks(taskIdList);
+    }
+
+    @Override
+    public TaskTreeVO querySubtree(TaskReqVO taskReqVO) {
+        List<TaskTreeVO> nodes = projectTaskMapper.querySubtree(taskReqVO.getTaskId());
+        if (nodes.isEmpty()) {
+            throw new ServiceException("任务不存在");
+        }
+        List<Long> userIds = nodes.stream().map(TaskTreeVO::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (!userIds.isEmpty() && userMap.isEmpty()) {
+            throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
+        }
+        // 按层级顺序挂到父节点下，父任务已删除的历史子任务不再展示
+        Map<String, TaskTreeVO> nodeMap = new LinkedHashMap<>();
+        for (TaskTreeVO node : nodes) {
+            node.setChildren(new ArrayList<>());
+            if (node.getDepth() > 0) {
+                TaskTreeVO parent = nodeMap.get(node.getTaskPid());
+                if (parent == null) {
+                    continue;
+                }
+                parent.getChildren().add(node);
+            }
+            nodeMap.put(node.getTaskId(), node);
+            node.setStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(node.getStatus()));
+            node.setExecuteStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(node.getExecuteStatus()));
+            node.setTaskPriorityName(ProjectTaskPriorityEnum.getStatusNameByStatus(node.getTaskPriority()));
+            SysUserVO sysUserVO = node.getUserId() == null ? null : userMap.get(node.getUserId());
+            if (Objects.nonNull(sysUserVO)) {
+                node.setExecutor(sysUserVO.getNickName());
+            }
+        }
+        // 从最深层开始向上汇总进度
+        List<TaskTreeVO> attached = new ArrayList<>(nodeMap.values());
+        Map<String, BigDecimal> processSum = new HashMap<>(attached.size());
+        for (int i = attached.size() - 1; i >= 0; i--) {
+            TaskTreeVO node = attached.get(i);
+            BigDecimal sum = node.getTaskProcess() == null ? BigDecimal.ZERO : node.getTaskProcess();
+            int taskNum = 1;
+            int finishedNum = ProjectTaskStatusEnum.FINISHED.getStatus().equals(node.getStatus()) ? 1 : 0;
+            for (TaskTreeVO child : node.getChildren()) {
+                sum = sum.add(processSum.get(child.getTaskId()));
+                taskNum += child.getSubtreeTaskNum();
+                finishedNum += child.getFinishedTaskNum();
+            }
+            processSum.put(node.getTaskId(), sum);
+            node.setSubtreeTaskNum(taskNum);
+            node.setFinishedTaskNum(finishedNum);
+            node.setSubtreeProcess(sum.divide(BigDecimal.valueOf(taskNum), 2, RoundingMode.HALF_UP));
+        }
+        return attached.get(0);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void moveTask(TaskMoveVO taskMoveVO) {
+        String taskPid = StringUtils.isBlank(taskMoveVO.getTaskPid()) ? null : taskMoveVO.getTaskPid();
+        // 先按id顺序锁定任务和新父任务，再锁定项目串行化同一项目内的移动，之后的普通读才能看到先提交的移动，
+        // 并发的交叉移动（如A移到B下、B移到A下，或经过多层子任务）不会同时通过环检查
+        Set<String> lockIds = new TreeSet<>();
+        lockIds.add(taskMoveVO.getTaskId());
+        if (taskPid != null) {
+            lockIds.add(taskPid);
+        }
+        List<ProjectTask> locked = projectTaskMapper.lockTasks(lockIds);
+        locked.stream().map(ProjectTask::getProjectId).filter(StringUtils::isNotBlank).distinct().sorted()
+                .forEach(projectTaskMapper::lockProject);
+        ProjectTask projectTask = projectTaskMapper.selectById(taskMoveVO.getTaskId());
+        if (projectTask == null || Objects.equals(projectTask.getDeleted(), 1)) {
+            throw new ServiceException("任务不存在");
+        }
+        if (ProjectStatusEnum.PAUSE.getStatus().equals(projectTaskMapper.queryProjectStatus(projectTask.getProjectId()))) {
+            throw new ServiceException("归属项目已暂停，无法操作任务");
+        }
+        if (Objects.equals(StringUtils.defaultIfBlank(projectTask.getTaskPid(), null), taskPid)) {
+            return;
+        }
+        if (taskPid != null) {
+            ProjectTask parent = projectTaskMapper.selectById(taskPid);
+            if (parent == null || Objects.equals(parent.getDeleted(), 1)) {
+                throw new ServiceException("父任务不存在");
+            }
+            if (!Objects.equals(parent.getProjectId(), projectTask.getProjectId())) {
+                throw new ServiceException("只能移动到同一项目的任务下");
+            }
+            if (projectTaskClosureMapper.isAncestor(projectTask.getId(), taskPid)) {
+                throw new ServiceException("不能移动到自身或子任务下");
+            }
+        }
+        // 整个子树一起移动：先断开与原祖先的关系，再挂到新父任务的所有祖先下
+        projectTaskClosureMapper.detachSubtree(projectTask.getId());
+        if (taskPid != null) {
+            projectTaskClosureMapper.attachSubtree(projectTask.getId(), taskPid);
+        }
+        lambdaUpdate().eq(ProjectTask::getId, projectTask.getId())
+                .set(ProjectTask::getTaskPid, taskPid)
+                .set(ProjectTask::getUpdatedBy, SecurityUtils.getUsername())
+                .set(ProjectTask::getUpdatedTime, new Date())
+                .update();
+        saveLog("moveTask", projectTask.getId(), projectTask.getProjectId(), projectTask.getTaskName(), "移动了任务", null);
+    }
+
+    /**
+     * 写入新任务与自身及父任务所有祖先的层级记录
+     */
+    private void insertClosure(String taskId, String taskPid) {
+        List<ProjectTaskClosure> closures = new ArrayList<>();
+        closures.add(newClosure(taskId, taskId, 0));
+        if (StringUtils.isNotBlank(taskPid)) {
+            for (ProjectTaskClosure ancestor : projectTaskClosureMapper.queryAncestors(taskPid)) {
+                closures.add(newClosure(ancestor.getAncestor(), taskId, ancestor.getDepth() + 1));
+            }
+        }
+        projectTaskClosureMapper.insertBatch(closures);
+    }
+
+    private static ProjectTaskClosure newClosure(String ancestor, String descendant, int depth) {
+        ProjectTaskClosure closure = new ProjectTaskClosure();
+        closure.setAncestor(ancestor);
+        closure.setDescendant(descendant);
+        closure.setDepth(depth);
+        return closure;
+    }
+
+    @Override
+    public List<BurnDownChartVO> burnDownChart(ProjectVO projectVO) {
+        return burnDownChartEngine.getChart(projectVO.getProjectId());
     }
 
     @Override
@@ -596,17 +755,12 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
         List<Long> userIds = list.stream().map(ProjectMemberResVO::getUserId)
                 .distinct()
                 .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
 
         // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
         list.forEach(projectMemberResVO -> {
             SysUserVO sysUserVO = userMap.get(projectMemberResVO.getUserId());
             if (Objects.nonNull(sysUserVO)) {
@@ -662,150 +816,28 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
             String fileUrl = projectFiles.get(0).getFileUrl();
             response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
             FileUtils.setAttachmentResponseHeader(response, fileUrl.substring(fileUrl.lastIndexOf("/") + 1));
-            FileUtils.writeBytes(filePath, response);
+            FileDownloadUtils.writeFile(filePath, ServletUtils.getRequest(), response);
         }
 
     }
 
     @Override
-    public List<TaskExportVO> exportAll() {
-        List<TaskExportVO> list = projectTaskMapper.exportAll(SecurityUtils.getUserId());
-        if (CollectionUtils.isEmpty(list)) {
-            return Collections.emptyList();
-        }
-        // 拿到userids
-        List<Long> userIds = list.stream().map(TaskExportVO::getUserId)
-                .distinct()
-                .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
-            throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
-        }
-        List<SysUserVO> userVOList = userResult.getData();
-
-        // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
-        list.forEach(a -> {
-            a.setExecuteStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(a.getExecuteStatus()));
-            a.setStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(a.getStatus()));
-            a.setTaskPriorityName(ProjectTaskPriorityEnum.getStatusNameByStatus(a.getTaskPriority()));
-
-            // 设置用户信息
-            SysUserVO sysUserVO = userMap.get(a.getUserId());
-            if (Objects.nonNull(sysUserVO)) {
-                a.setExecutor(sysUserVO.getNickName());
-                a.setCreatedBy(sysUserVO.getNickName());
-            }
-        });
-        return list;
+    public void exportAll(HttpServletResponse response) {
+        taskExporter.exportAll(SecurityUtils.getUserId(), response, "全部任务数据");
     }
 
     @Override
-    public List<TaskExportVO> export(String taskIds) {
+    public void export(String taskIds, HttpServletResponse response) {
         List<String> taskIdList = Arrays.asList(taskIds.split(","));
-        List<TaskExportVO> list = projectTaskMapper.export(taskIdList);
-
-        if (CollectionUtils.isEmpty(list)) {
-            return Collections.emptyList();
-        }
-        // 拿到userids
-        List<Long> userIds = list.stream().map(TaskExportVO::getUserId)
-                .distinct()
-                .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
-            throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
-        }
-        List<SysUserVO> userVOList = userResult.getData();
-
-        // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
-        list.forEach(a -> {
-            a.setExecuteStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(a.getExecuteStatus()));
-            a.setStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(a.getStatus()));
-            a.setTaskPriorityName(ProjectTaskPriorityEnum.getStatusNameByStatus(a.getTaskPriority()));
-
-            // 设置用户信息
-            SysUserVO sysUserVO = userMap.get(a.getUserId());
-            if (Objects.nonNull(sysUserVO)) {
-                a.setExecutor(sysUserVO.getNickName());
-                a.setCreatedBy(sysUserVO.getNickName());
-            }
-        });
-
-        return list;
+        taskExporter.export(taskIdList, response, "任务数据");
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void importTask(List<TaskExcelVO> taskList) {
         if (CollectionUtils.isEmpty(taskList)) {
             throw new ServiceException("导入任务数据不能为空");
         }
-        // todo 后期优化成批量查询，性能优化
-        taskList.forEach(task -> {
-            // 查询用户信息
-            R<LoginUser> userResult = userFeignService.info(task.getUsername(), SecurityConstants.INNER);
-
-            if (Objects.isNull(userResult) || Objects.isNull(userResult.getData())) {
-                throw new ServiceException("登录用户：" + task.getUsername() + " 不存在");
-            }
-
-            LoginUser loginUser = userResult.getData();
-            if (Objects.isNull(loginUser)) {
-                return;
-            }
-            SysUser sysUser =  loginUser.getUser();
-
-            ProjectTask projectTask = new ProjectTask();
-            projectTask.setTaskName(task.getTaskName());
-            projectTask.setBeginTime(DateUtils.parseDate(task.getBeginTime()));
-            projectTask.setEndTime(DateUtils.parseDate(task.getEndTime()));
-            projectTask.setCloseTime(DateUtils.parseDate(task.getCloseTime()));
-            projectTask.setTaskPriority(Integer.valueOf(task.getTaskPriority()));
-            LambdaQueryWrapper<Project> qw = new LambdaQueryWrapper<>();
-            qw.eq(Project::getProjectCode, task.getProjectCode());
-            String projectId = projectMapper.selectOne(qw).getId();
-            if (StringUtils.isBlank(projectId)) {
-                return;
-            }
-            // 根据项目id查询成员
-            LambdaQueryWrapper<ProjectMember> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(ProjectMember::getPtId, projectId).eq(ProjectMember::getType, ProjectStatusEnum.PROJECT.getStatusName());
-            List<ProjectMember> projectMembers = projectMemberMapper.selectList(queryWrapper);
-            List<Long> userIds = projectMembers.stream().map(ProjectMember::getUserId).collect(Collectors.toList());
-            if (!userIds.contains(sysUser.getUserId())) {
-                return;
-            }
-            projectTask.setProjectId(projectId);
-            LambdaQueryWrapper<ProjectStage> qw2 = new LambdaQueryWrapper<>();
-            qw2.eq(ProjectStage::getProjectId, projectId).orderByAsc(ProjectStage::getStageCode);
-            projectTask.setProjectStageId(projectStageMapper.selectList(qw2).get(0).getId());
-            projectTask.setUserId(sysUser.getUserId());
-            projectTask.setCreatedBy(SecurityUtils.getUsername());
-            projectTask.setCreatedTime(new Date());
-            projectTask.setUpdatedBy(SecurityUtils.getUsername());
-            projectTask.setUpdatedTime(new Date());
-            projectTaskMapper.insert(projectTask);
-            insertMember(projectTask.getId(), 1, SecurityUtils.getUserId());
-            // 添加日志
-            saveLog("importTask", projectTask.getId(), projectTask.getProjectId(), projectTask.getTaskName()
-                    , "导入了任务", null);
-            // 将执行人加入
-            if (projectTask.getUserId() != null && !Objects.equals(projectTask.getUserId(), SecurityUtils.getUserId())) {
-                insertMember(projectTask.getId(), 0, projectTask.getUserId());
-                // 添加日志
-                saveLog("invitePartakeTask", projectTask.getId(), projectTask.getProjectId(), projectTask.getTaskName()
-                        ,"邀请 " + getSysUserList(Collections.singletonList(projectTask.getUserId())).get(0).getNickName() + " 参与任务"
-                        , projectTask.getUserId());
-            }
-        });
+        taskImporter.importTasks(taskList);
     }
 
     void insertMember(String taskId, Integer creator, Long userId) {
@@ -848,7 +880,7 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
         String filePath = PmhubConfig.getProfile() + "/template/taskTemplate.xlsx";
         response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
         FileUtils.setAttachmentResponseHeader(response, "任务模板.xlsx");
-        FileUtils.writeBytes(filePath, response);
+        FileDownloadUtils.writeFile(filePath, ServletUtils.getRequest(), response);
     }
 
     @Override
@@ -858,59 +890,27 @@ public class ProjectTaskServiceImpl extends ServiceImpl<ProjectTaskMapper, Proje
         if (CollectionUtils.isEmpty(list)) {
             return new PageInfo<>(list);
         }
-        // 拿到userids
-        List<Long> userIds = list.stream().map(TaskResVO::getUserId)
-                .distinct()
-                .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        if (StringUtils.isNotEmpty(taskReqVO.getExecutor())) {
-            sysUserDTO.setNickName(taskReqVO.getExecutor());
-        }
-        if (StringUtils.isNotEmpty(taskReqVO.getCreatedBy())) {
-            sysUserDTO.setNickName(taskReqVO.getCreatedBy());
-        }
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
-            throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
-        }
-        List<SysUserVO> userVOList = userResult.getData();
-
-        // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
-        list.forEach(a -> {
-            a.setTaskPriorityName(ProjectTaskPriorityEnum.getStatusNameByStatus(a.getTaskPriority()));
-            a.setStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(a.getStatus()));
-            a.setExecuteStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(a.getExecuteStatus()));
-            if (a.getEndTime() != null && a.getBeginTime() != null) {
-                a.setPeriod(DateUtils.differentDaysByMillisecond(a.getEndTime(), a.getBeginTime()));
-            }
-            WorkFlowable workFlowable = new WorkFlowable();
-            workFlowable.setTaskId(a.getTaskProcessId());
-            workFlowable.setApproved(a.getApproved());
-            workFlowable.setDeploymentId(a.getDeployId());
-            workFlowable.setProcInsId(a.getProcInsId());
-            workFlowable.setDefinitionId(a.getDefinitionId());
-            a.setWorkFlowable(workFlowable);
-            // 设置用户信息
-            SysUserVO sysUserVO = userMap.get(a.getUserId());
-            if (Objects.nonNull(sysUserVO)) {
-                a.setExecutor(sysUserVO.getNickName());
-                a.setCreatedBy(sysUserVO.getNickName());
-            }
-        });
+        fillTaskList(list, taskReqVO);
         return new PageInfo<>(list);
     }
 
+    @Override
+    public CursorPage<TaskResVO> taskListByCursor(TaskReqVO taskReqVO) {
+        int pageSize = PageCursor.pageSize(taskReqVO.getPageSize());
+        List<TaskResVO> rows = projectTaskMapper.taskListByCursor(taskReqVO, PageCursor.decode(taskReqVO.getCursor()), pageSize + 1);
+        long total = listTotalCache.get("project_task", () -> projectTaskMapper.countTaskList(taskReqVO),
+                taskReqVO.getProjectId(), taskReqVO.getTaskName(), taskReqVO.getStageCode(),
+                taskReqVO.getExecuteStatus(), taskReqVO.getStatus(), taskReqVO.getTaskPriority());
+        CursorPage<TaskResVO> page = CursorPage.of(rows, pageSize, TaskResVO::getCreatedTime, TaskResVO::getTaskId, total);
+        if (CollectionUtils.isNotEmpty(page.getList())) {
+            fillTaskList(page.getList(), taskReqVO);
+        }
+        return page;
+    }
+
     @Override
     public Long countTaskNum() {
-        LambdaQueryWrapper<ProjectTask> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(ProjectTask::getDeleted, 0);
-        if (projectTaskMapper.selectCount(queryWrapper) == null) {
-            return 0L;
-        }
-        return projectTaskMapper.selectCount(queryWrapper);
+        return taskStatsCounter.getStats(null).getTotal();
     }
 
     @Override
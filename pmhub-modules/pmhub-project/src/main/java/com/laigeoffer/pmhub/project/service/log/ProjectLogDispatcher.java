@@ -0,0 +1,448 @@
+package com.laigeoffer.pmhub.project.service.log;
+
+import com.alibaba.fastjson2.JSON;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
+import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
+import com.laigeoffer.pmhub.base.core.enums.LogTypeEnum;
+import com.laigeoffer.pmhub.base.core.utils.uuid.IdUtils;
+import com.laigeoffer.pmhub.project.domain.Project;
+import com.laigeoffer.pmhub.project.domain.ProjectLog;
+import com.laigeoffer.pmhub.project.domain.ProjectLogOutbox;
+import com.laigeoffer.pmhub.project.domain.vo.project.log.LogVO;
+import com.laigeoffer.pmhub.project.mapper.ProjectLogMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectLogOutboxMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 项目-任务日志分发
+ * 业务事务内只把日志事件写入待写入表（pmhub_project_log_outbox），与业务数据一起提交；
+ * 后台线程按写入顺序普通读取一批事件，按主键更新领取标记后在事务外批量查询项目名称和用户昵称，
+ * 最后在一个只包含多行写入日志表和按主键删除事件的短事务中完成，不对待写入表做范围加锁，业务事务写入事件时不会被分发阻塞。
+ * 领取到期未完成的事件可被其他实例重新领取，删除行数与领取数不一致时整批回滚，避免重复写入；
+ * 事务提交后唤醒分发线程，另有定时轮询兜底其他实例写入的事件。整批处理失败时逐条重试，
+ * 单条失败的事件按领取次数退避后再试，超过次数转入死信，不会阻塞后面的事件。
+ * 项目名称和备注在记录事件时随业务事务读取并写入事件，分发时不再受之后修改的影响
+ *
+ * @author zw
+ */
+@Component
+public class ProjectLogDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(ProjectLogDispatcher.class);
+
+    private static final int BATCH_SIZE = 200;
+
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 领取有效期，超过后其他实例可以重新领取
+     */
+    private static final long CLAIM_MILLIS = 60 * 1000;
+
+    /**
+     * 单条事件最多领取次数，超过后转入死信
+     */
+    static final int MAX_ATTEMPTS = 16;
+
+    /**
+     * 单条事件失败后的最长退避时间
+     */
+    private static final long MAX_BACKOFF_MILLIS = 10 * 60 * 1000;
+
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    /**
+     * 需要项目信息的操作类型
+     */
+    private static final Set<String> PROJECT_OPERATE_TYPES = new HashSet<>(
+            Arrays.asList("create", "edit", "delete", "content", "archive"));
+
+    @Autowired
+    private ProjectLogOutboxMapper projectLogOutboxMapper;
+
+    @Autowired
+    private ProjectLogMapper projectLogMapper;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ScheduledExecutorService executor;
+
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder dispatched = new LongAdder();
+
+    private final LongAdder discarded = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder deadLettered = new LongAdder();
+
+    /**
+     * 最近一次分发时最早一条事件的等待时间（毫秒），没有积压时为0
+     */
+    private volatile long lagMillis;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        executor = new ScheduledThreadPoolExecutor(1,
+                new BasicThreadFactory.Builder().namingPattern("project-log-%d").daemon(true).build());
+        executor.scheduleWithFixedDelay(this::drain, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (meterRegistry != null) {
+            FunctionCounter.builder("pmhub.project.log.published", published, LongAdder::sum).register(meterRegistry);
+            FunctionCounter.builder("pmhub.project.log.dispatched", dispatched, LongAdder::sum).register(meterRegistry);
+            FunctionCounter.builder("pmhub.project.log.discarded", discarded, LongAdder::sum).register(meterRegistry);
+            FunctionCounter.builder("pmhub.project.log.batches", batches, LongAdder::sum).register(meterRegistry);
+            FunctionCounter.builder("pmhub.project.log.failures", failures, LongAdder::sum).register(meterRegistry);
+            FunctionCounter.builder("pmhub.project.log.dead", deadLettered, LongAdder::sum).register(meterRegistry);
+            Gauge.builder("pmhub.project.log.lag", this, d -> d.lagMillis / 1000.0).baseUnit("seconds").register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 写入日志事件，处于事务中时随事务提交，提交后唤醒分发线程
+     *
+     * @param logVO 日志事件
+     */
+    public void publish(LogVO logVO) {
+        publish(Collections.singletonList(logVO));
+    }
+
+    /**
+     * 批量写入日志事件，一次多行插入
+     *
+     * @param logVOList 日志事件
+     */
+    public void publish(List<LogVO> logVOList) {
+        if (logVOList.isEmpty()) {
+            return;
+        }
+        snapshotProjects(logVOList);
+        Date now = new Date();
+        List<ProjectLogOutbox> outboxes = new ArrayList<>(logVOList.size());
+        for (LogVO logVO : logVOList) {
+            ProjectLogOutbox outbox = new ProjectLogOutbox();
+            outbox.setPayload(JSON.toJSONString(logVO));
+            outbox.setCreatedTime(now);
+            outboxes.add(outbox);
+        }
+        projectLogOutboxMapper.insertBatch(outboxes);
+        published.add(outboxes.size());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    /**
+     * 运行统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("published", published.sum());
+        stats.put("dispatched", dispatched.sum());
+        stats.put("discarded", discarded.sum());
+        stats.put("batches", batches.sum());
+        stats.put("failures", failures.sum());
+        stats.put("dead", deadLettered.sum());
+        stats.put("lagMillis", lagMillis);
+        return stats;
+    }
+
+    private void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeUpPending.set(false);
+                drain();
+            });
+        }
+    }
+
+    /**
+     * 分发全部积压事件，整批不足时说明已处理完
+     */
+    private void drain() {
+        try {
+            int size;
+            do {
+                size = dispatchBatch();
+            } while (size >= BATCH_SIZE);
+        } catch (Exception e) {
+            failures.increment();
+            log.error("项目日志分发失败，下次轮询重试", e);
+        }
+    }
+
+    private int dispatchBatch() {
+        Date now = new Date();
+        List<ProjectLogOutbox> pending = projectLogOutboxMapper.queryPending(now, BATCH_SIZE);
+        if (pending.isEmpty()) {
+            lagMillis = 0;
+            return 0;
+        }
+        lagMillis = Math.max(0, now.getTime() - pending.get(0).getCreatedTime().getTime());
+        List<Long> ids = pending.stream().map(ProjectLogOutbox::getId).collect(Collectors.toList());
+        String claimedBy = IdUtils.fastSimpleUUID();
+        if (projectLogOutboxMapper.claim(ids, claimedBy, now, new Date(now.getTime() + CLAIM_MILLIS)) == 0) {
+            // 已被其他实例领取
+            return pending.size();
+        }
+        List<ProjectLogOutbox> outboxes;
+        try {
+            outboxes = projectLogOutboxMapper.queryClaimed(ids, claimedBy);
+        } catch (RuntimeException e) {
+            releaseQuietly(ids, claimedBy);
+            throw e;
+        }
+        try {
+            dispatch(outboxes, claimedBy);
+            batches.increment();
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("项目日志整批分发失败，逐条重试:{}", e.getMessage());
+            for (ProjectLogOutbox outbox : outboxes) {
+                try {
+                    dispatch(Collections.singletonList(outbox), claimedBy);
+                } catch (RuntimeException ex) {
+                    retryOrDead(outbox, claimedBy, ex, now);
+                }
+            }
+        }
+        return pending.size();
+    }
+
+    /**
+     * 补全后在一个短事务中写入日志表并删除事件，删除行数与领取数不一致时回滚
+     */
+    private void dispatch(List<ProjectLogOutbox> outboxes, String claimedBy) {
+        List<Long> claimedIds = outboxes.stream().map(ProjectLogOutbox::getId).collect(Collectors.toList());
+        List<ProjectLog> projectLogs = resolve(outboxes);
+        transactionTemplate.execute(status -> {
+            if (!projectLogs.isEmpty()) {
+                projectLogMapper.insertBatch(projectLogs);
+            }
+            if (projectLogOutboxMapper.deleteClaimed(claimedIds, claimedBy) != claimedIds.size()) {
+                throw new IllegalStateException("项目日志事件领取已到期并被重新领取");
+            }
+            return null;
+        });
+        dispatched.add(projectLogs.size());
+    }
+
+    /**
+     * 单条事件失败后按领取次数指数退避，超过最多次数转入死信
+     */
+    private void retryOrDead(ProjectLogOutbox outbox, String claimedBy, RuntimeException e, Date now) {
+        String error = StringUtils.abbreviate(e.toString(), MAX_ERROR_LENGTH);
+        int attempts = outbox.getAttempts() == null ? 1 : outbox.getAttempts();
+        try {
+            if (attempts >= MAX_ATTEMPTS) {
+                projectLogOutboxMapper.markDead(outbox.getId(), claimedBy, error);
+                deadLettered.increment();
+                log.error("项目日志事件'{}'已失败{}次，转入死信:{}", outbox.getId(), attempts, error);
+            } else {
+                projectLogOutboxMapper.retryLater(outbox.getId(), claimedBy, new Date(now.getTime() + backoffMillis(attempts)), error);
+                log.warn("项目日志事件'{}'第{}次分发失败，稍后重试:{}", outbox.getId(), attempts, error);
+            }
+        } catch (Exception ex) {
+            log.warn("记录项目日志事件失败状态失败'{}'，到期后重新领取:{}", outbox.getId(), ex.getMessage());
+        }
+    }
+
+    static long backoffMillis(int attempts) {
+        return Math.min(MAX_BACKOFF_MILLIS, POLL_INTERVAL_MILLIS << Math.min(attempts, 20));
+    }
+
+    /**
+     * 解析事件并补全项目名称和用户昵称，不在事务中执行
+     */
+    private List<ProjectLog> resolve(List<ProjectLogOutbox> outboxes) {
+        List<LogVO> events = new ArrayList<>(outboxes.size());
+        for (ProjectLogOutbox outbox : outboxes) {
+            try {
+                events.add(JSON.parseObject(outbox.getPayload(), LogVO.class));
+            } catch (Exception e) {
+                discarded.increment();
+                log.warn("无法解析的项目日志事件'{}':{}", outbox.getId(), e.getMessage());
+            }
+        }
+        Map<String, Project> projectMap = queryProjects(events);
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(events.stream().map(LogVO::getToUserId)
+                .filter(Objects::nonNull).collect(Collectors.toSet()));
+        List<ProjectLog> projectLogs = new ArrayList<>(events.size());
+        for (LogVO logVO : events) {
+            ProjectLog projectLog = toProjectLog(logVO, projectMap.get(logVO.getPtId()), userMap.get(logVO.getToUserId()));
+            if (isValid(projectLog)) {
+                projectLogs.add(projectLog);
+            } else {
+                discarded.increment();
+                log.warn("项目日志缺少必填字段，已丢弃:{}", JSON.toJSONString(logVO));
+            }
+        }
+        return projectLogs;
+    }
+
+    private void releaseQuietly(List<Long> ids, String claimedBy) {
+        try {
+            projectLogOutboxMapper.release(ids, claimedBy);
+        } catch (Exception e) {
+            log.warn("放弃项目日志事件领取失败，到期后重新领取:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在业务事务中读取项目名称和备注写入事件，与原同步写入时读到的内容一致
+     */
+    private void snapshotProjects(List<LogVO> logVOList) {
+        Map<String, Project> projectMap = queryProjects(logVOList);
+        for (LogVO logVO : logVOList) {
+            Project project = projectMap.get(logVO.getPtId());
+            if (project != null && PROJECT_OPERATE_TYPES.contains(logVO.getOperateType())) {
+                logVO.setProjectName(project.getProjectName());
+                logVO.setProjectDescription(project.getDescription());
+            }
+        }
+    }
+
+    /**
+     * 查询需要项目信息且没有记录项目名称的事件对应的项目
+     */
+    private Map<String, Project> queryProjects(List<LogVO> events) {
+        Set<String> projectIds = events.stream().filter(a -> PROJECT_OPERATE_TYPES.contains(a.getOperateType()))
+                .filter(a -> a.getProjectName() == null)
+                .map(LogVO::getPtId).filter(StringUtils::isNotBlank).collect(Collectors.toSet());
+        if (projectIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return projectMapper.selectBatchIds(projectIds).stream()
+                .collect(Collectors.toMap(Project::getId, Function.identity(), (a, b) -> a));
+    }
+
+    /**
+     * 按操作类型补全备注和内容，规则与原同步写入一致；优先使用记录事件时的项目名称和备注，
+     * 没有时（升级前写入的事件）使用当前项目信息，已删除的项目或用户取不到名称时内容留空
+     */
+    static ProjectLog toProjectLog(LogVO logVO, Project project, SysUserVO toUser) {
+        ProjectLog projectLog = new ProjectLog();
+        projectLog.setId(IdUtils.fastSimpleUUID());
+        // project task
+        projectLog.setType(logVO.getType());
+        projectLog.setPtId(logVO.getPtId());
+        projectLog.setOperateType(logVO.getOperateType());
+        projectLog.setUserId(logVO.getUserId());
+        projectLog.setLogType(logVO.getLogType() == null ? LogTypeEnum.TRENDS.getStatus() : logVO.getLogType());
+        projectLog.setToUserId(logVO.getToUserId());
+        projectLog.setProjectId(logVO.getProjectId());
+        projectLog.setCreatedBy(logVO.getCreatedBy());
+        projectLog.setCreatedTime(logVO.getCreatedTime());
+        projectLog.setUpdatedBy(logVO.getUpdatedBy());
+        projectLog.setUpdatedTime(logVO.getUpdatedTime());
+        projectLog.setContent(logVO.getContent());
+        projectLog.setRemark(logVO.getRemark());
+
+        if (logVO.getProjectName() != null) {
+            project = new Project();
+            project.setProjectName(logVO.getProjectName());
+            project.setDescription(logVO.getProjectDescription());
+        }
+        String projectName = project == null ? null : project.getProjectName();
+        String nickName = toUser == null ? "" : toUser.getNickName();
+        String type = projectLog.getOperateType();
+        if ("create".equals(type)) {
+            projectLog.setRemark("创建了项目");
+            projectLog.setContent(projectName);
+        } else if ("edit".equals(type)) {
+            projectLog.setRemark("编辑了项目");
+            projectLog.setContent(projectName);
+        } else if ("delete".equals(type)) {
+            projectLog.setRemark("删除了项目");
+            projectLog.setContent(projectName);
+        } else if ("content".equals(type)) {
+            projectLog.setRemark("更新了备注");
+            projectLog.setContent(project == null ? null : project.getDescription());
+        } else if ("clearContent".equals(type)) {
+            projectLog.setRemark("清空了备注");
+        } else if ("inviteMember".equals(type)) {
+            projectLog.setRemark("加入了项目");
+            projectLog.setContent(nickName);
+        } else if ("removeMember".equals(type)) {
+            projectLog.setRemark("移除了成员" + nickName);
+            projectLog.setContent(nickName);
+        } else if ("recycle".equals(type)) {
+            projectLog.setRemark("把项目移到了回收站");
+        } else if ("recovery".equals(type)) {
+            projectLog.setRemark("恢复了项目");
+        } else if ("archive".equals(type)) {
+            projectLog.setContent(projectName);
+            projectLog.setRemark("归档了项目");
+        }
+        return projectLog;
+    }
+
+    private static boolean isValid(ProjectLog projectLog) {
+        return projectLog.getUserId() != null && StringUtils.isNotBlank(projectLog.getType())
+                && StringUtils.isNotBlank(projectLog.getOperateType()) && StringUtils.isNotBlank(projectLog.getPtId())
+                && StringUtils.isNotBlank(projectLog.getProjectId());
+    }
+}
@@ -0,0 +1,63 @@
+package com.laigeoffer.pmhub.project.service.stats;
+
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 游标分页列表总数缓存
+ * 同一列表、同样的查询条件在有效期内只统计一次，翻页时直接使用缓存的总数；
+ * 期间新增或删除的数据不会立即反映到总数中，前端只用于展示，翻页是否结束以 hasMore 为准
+ *
+ * @author zw
+ */
+@Component
+public class ListTotalCache {
+    private static final Logger log = LoggerFactory.getLogger(ListTotalCache.class);
+
+    /**
+     * 总数缓存有效期
+     */
+    @Value("${project.list-total.expire-seconds:60}")
+    private long expireSeconds;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 取列表总数，没有缓存时统计并缓存
+     *
+     * @param listName 列表名称
+     * @param filters  查询条件，与列表名称一起区分缓存
+     * @param counter  统计总数
+     * @return 总数
+     */
+    public long get(String listName, LongSupplier counter, Object... filters) {
+        String key = CacheConstants.LIST_TOTAL_KEY + listName + ":" + DigestUtils.md5Hex(StringUtils.join(filters, '|'));
+        try {
+            String cached = stringRedisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+        } catch (Exception e) {
+            log.warn("读取列表总数缓存失败'{}':{}", key, e.getMessage());
+            return counter.getAsLong();
+        }
+        long total = counter.getAsLong();
+        try {
+            stringRedisTemplate.opsForValue().set(key, String.valueOf(total), expireSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入列表总数缓存失败'{}':{}", key, e.getMessage());
+        }
+        return total;
+    }
+}
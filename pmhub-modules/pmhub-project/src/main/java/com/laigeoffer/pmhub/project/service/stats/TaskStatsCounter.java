@@ -0,0 +1,648 @@
+package com.laigeoffer.pmhub.project.service.stats;
+
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import com.laigeoffer.pmhub.base.core.enums.ProjectTaskStatusEnum;
+import com.laigeoffer.pmhub.base.core.utils.uuid.IdUtils;
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskStatsGroupDTO;
+import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务统计计数
+ * 按项目和全局维护未删除任务的计数（redis哈希：总数、待认领、时间待定、各状态任务数），
+ * 与时间相关的统计用有序集合保存任务的截止时间、开始时间，查询时按当前时间计数，统计接口的开销与任务量无关。
+ * 任务新增、修改、删除在事务提交后按变更前后的差异更新计数；其他服务直接修改任务状态时登记项目，由后台线程按项目校准；
+ * 后台线程定期按 GROUP BY 结果全量校准，修正并发修改或更新失败造成的偏差
+ *
+ * @author zw
+ */
+@Component
+public class TaskStatsCounter {
+    private static final Logger log = LoggerFactory.getLogger(TaskStatsCounter.class);
+
+    private static final String SCOPE_ALL = "all";
+
+    /**
+     * 已有计数的项目集合，全量校准时据此清理已没有任务的项目
+     */
+    private static final String SCOPES_KEY = "task_stats_scopes";
+
+    private static final String FIELD_TOTAL = "total";
+
+    private static final String FIELD_UNASSIGNED = "unassigned";
+
+    private static final String FIELD_TIME_UNDETERMINED = "timeUndetermined";
+
+    private static final String FIELD_STATUS = "status:";
+
+    /**
+     * 有截止时间的任务，分值为截止时间
+     */
+    private static final String ZSET_CLOSE = ":close";
+
+    /**
+     * 已完成且有截止时间的任务，分值为截止时间
+     */
+    private static final String ZSET_CLOSE_DONE = ":close_done";
+
+    /**
+     * 有开始时间的任务，分值为开始时间（仅全局）
+     */
+    private static final String ZSET_BEGIN = ":begin";
+
+    /**
+     * 执行状态未完成且有截止时间的任务，分值为截止时间（仅全局）
+     */
+    private static final String ZSET_CLOSE_UNEXECUTED = ":close_unexecuted";
+
+    private static final String[] PROJECT_ZSETS = {ZSET_CLOSE, ZSET_CLOSE_DONE};
+
+    private static final String[] GLOBAL_ZSETS = {ZSET_CLOSE, ZSET_CLOSE_DONE, ZSET_BEGIN, ZSET_CLOSE_UNEXECUTED};
+
+    private static final long DIRTY_INTERVAL_SECONDS = 30;
+
+    private static final long RECONCILE_INTERVAL_MINUTES = 60;
+
+    private static final int DIRTY_BATCH = 100;
+
+    private static final int PIPELINE_BATCH = 1000;
+
+    /**
+     * 校准用临时key的有效期，校准中断时自动清理
+     */
+    private static final long REBUILD_KEY_EXPIRE_SECONDS = 3600;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ProjectTaskMapper projectTaskMapper;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * 全局计数是否已存在，不存在时先全量校准，避免在空计数上累加出错误结果
+     */
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void init() {
+        executor = new ScheduledThreadPoolExecutor(1,
+                new BasicThreadFactory.Builder().namingPattern("task-stats-%d").daemon(true).build());
+        executor.execute(this::ensureReadySafely);
+        executor.scheduleWithFixedDelay(this::rebuildDirtySafely, DIRTY_INTERVAL_SECONDS, DIRTY_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(this::rebuildAllSafely, RECONCILE_INTERVAL_MINUTES, RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 任务变更后更新计数，处于事务中时在提交后更新
+     *
+     * @param before 变更前的任务，新增时为null
+     * @param after  变更后的任务，删除时为null
+     */
+    public void onChanged(ProjectTask before, ProjectTask after) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applySafely(before, after);
+                }
+            });
+        } else {
+            applySafely(before, after);
+        }
+    }
+
+    /**
+     * 查询统计
+     *
+     * @param projectId 项目id，为空时查询全局统计
+     * @return 统计结果
+     */
+    public TaskStats getStats(String projectId) {
+        ensureReady();
+        String scope = StringUtils.isBlank(projectId) ? SCOPE_ALL : projectId;
+        boolean global = SCOPE_ALL.equals(scope);
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        ZoneId zoneId = ZoneId.systemDefault();
+        long todayStart = today.atStartOfDay(zoneId).toInstant().toEpochMilli();
+        long todayEnd = today.plusDays(1).atStartOfDay(zoneId).toInstant().toEpochMilli() - 1;
+        String hashKey = hashKey(scope);
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.hGetAll(bytes(hashKey));
+            connection.zCount(bytes(hashKey + ZSET_CLOSE), Double.NEGATIVE_INFINITY, now - 1);
+            connection.zCount(bytes(hashKey + ZSET_CLOSE_DONE), Double.NEGATIVE_INFINITY, now - 1);
+            connection.zCount(bytes(hashKey + ZSET_CLOSE), todayStart, todayEnd);
+            if (global) {
+                connection.zCount(bytes(hashKey + ZSET_BEGIN), todayStart, todayEnd);
+                connection.zCount(bytes(hashKey + ZSET_CLOSE_UNEXECUTED), Double.NEGATIVE_INFINITY, now - 1);
+            }
+            return null;
+        });
+        @SuppressWarnings("unchecked")
+        Map<String, String> counters = results.get(0) == null ? Collections.emptyMap() : (Map<String, String>) results.get(0);
+        TaskStats stats = new TaskStats(counters);
+        stats.overdue = toLong(results.get(1));
+        stats.doneOverdue = toLong(results.get(2));
+        stats.expireToday = toLong(results.get(3));
+        if (global) {
+            stats.beginToday = toLong(results.get(4));
+            stats.overdueUnexecuted = toLong(results.get(5));
+        }
+        return stats;
+    }
+
+    /**
+     * 全量校准：按 GROUP BY 结果重建所有项目和全局的计数，临时key写完后整体替换
+     */
+    public synchronized void rebuildAll() {
+        String tmpSuffix = ":rebuild:" + IdUtils.fastSimpleUUID();
+        Map<String, Map<String, Long>> hashes = new HashMap<>();
+        hashes.put(SCOPE_ALL, newCounters());
+        for (TaskStatsGroupDTO group : projectTaskMapper.queryTaskStatsGroup(null)) {
+            if (StringUtils.isNotBlank(group.getProjectId())) {
+                addGroup(hashes.computeIfAbsent(group.getProjectId(), k -> newCounters()), group);
+                addGroup(hashes.get(SCOPE_ALL), group);
+            }
+        }
+        Set<String> touched = writeZsets(null, tmpSuffix, true);
+        Set<String> scopes = hashes.keySet();
+        Set<String> oldScopes = stringRedisTemplate.opsForSet().members(SCOPES_KEY);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<String, Map<String, Long>> entry : hashes.entrySet()) {
+                String hashKey = hashKey(entry.getKey());
+                writeHash(connection, hashKey + tmpSuffix, entry.getValue());
+                replace(connection, hashKey + tmpSuffix, hashKey);
+                for (String zset : SCOPE_ALL.equals(entry.getKey()) ? GLOBAL_ZSETS : PROJECT_ZSETS) {
+                    String key = hashKey + zset;
+                    if (touched.contains(key + tmpSuffix)) {
+                        replace(connection, key + tmpSuffix, key);
+                    } else {
+                        connection.del(bytes(key));
+                    }
+                }
+            }
+            if (oldScopes != null) {
+                for (String scope : oldScopes) {
+                    if (!scopes.contains(scope)) {
+                        deleteScope(connection, scope);
+                    }
+                }
+            }
+            connection.del(bytes(SCOPES_KEY));
+            for (String scope : scopes) {
+                if (!SCOPE_ALL.equals(scope)) {
+                    connection.sAdd(bytes(SCOPES_KEY), bytes(scope));
+                }
+            }
+            return null;
+        });
+        ready = true;
+        log.info("任务统计全量校准完成，项目数:{}", scopes.size() - 1);
+    }
+
+    /**
+     * 按项目校准，全局计数按项目校准前后的差异修正
+     *
+     * @param projectId 项目id
+     */
+    public synchronized void rebuildProject(String projectId) {
+        if (!ready) {
+            rebuildAll();
+            return;
+        }
+        String hashKey = hashKey(projectId);
+        String globalKey = hashKey(SCOPE_ALL);
+        String tmpSuffix = ":rebuild:" + IdUtils.fastSimpleUUID();
+        Map<Object, Object> oldCounters = stringRedisTemplate.opsForHash().entries(hashKey);
+        Set<String> oldDone = stringRedisTemplate.opsForZSet().range(hashKey + ZSET_CLOSE_DONE, 0, -1);
+        Map<String, Long> counters = newCounters();
+        for (TaskStatsGroupDTO group : projectTaskMapper.queryTaskStatsGroup(projectId)) {
+            addGroup(counters, group);
+        }
+        Set<String> touched = writeZsets(projectId, tmpSuffix, false);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writeHash(connection, hashKey + tmpSuffix, counters);
+            replace(connection, hashKey + tmpSuffix, hashKey);
+            for (String zset : PROJECT_ZSETS) {
+                String key = hashKey + zset;
+                if (touched.contains(key + tmpSuffix)) {
+                    replace(connection, key + tmpSuffix, key);
+                } else {
+                    connection.del(bytes(key));
+                }
+            }
+            Set<String> fields = new HashSet<>(counters.keySet());
+            oldCounters.keySet().forEach(field -> fields.add(field.toString()));
+            for (String field : fields) {
+                long delta = counters.getOrDefault(field, 0L) - toLong(oldCounters.get(field));
+                if (delta != 0) {
+                    connection.hIncrBy(bytes(globalKey), bytes(field), delta);
+                }
+            }
+            if (oldDone != null) {
+                for (String taskId : oldDone) {
+                    connection.zRem(bytes(globalKey + ZSET_CLOSE_DONE), bytes(taskId));
+                }
+            }
+            connection.sAdd(bytes(SCOPES_KEY), bytes(projectId));
+            return null;
+        });
+        // 已完成的截止时间只随任务状态变化，按项目重新写入全局集合
+        Set<ZSetOperations.TypedTuple<String>> done = stringRedisTemplate.opsForZSet().rangeWithScores(hashKey + ZSET_CLOSE_DONE, 0, -1);
+        if (done != null && !done.isEmpty()) {
+            stringRedisTemplate.opsForZSet().add(globalKey + ZSET_CLOSE_DONE, done);
+        }
+    }
+
+    /**
+     * 登记需要校准的项目
+     */
+    public void markDirty(Collection<String> projectIds) {
+        List<String> ids = new ArrayList<>();
+        for (String projectId : projectIds) {
+            if (StringUtils.isNotBlank(projectId)) {
+                ids.add(projectId);
+            }
+        }
+        if (!ids.isEmpty()) {
+            stringRedisTemplate.opsForSet().add(CacheConstants.TASK_STATS_DIRTY_KEY, ids.toArray(new String[0]));
+        }
+    }
+
+    private void ensureReady() {
+        if (ready) {
+            return;
+        }
+        synchronized (this) {
+            if (ready) {
+                return;
+            }
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(hashKey(SCOPE_ALL)))) {
+                ready = true;
+            } else {
+                rebuildAll();
+            }
+        }
+    }
+
+    private void ensureReadySafely() {
+        try {
+            ensureReady();
+        } catch (Exception e) {
+            log.error("任务统计初始化失败", e);
+        }
+    }
+
+    private void applySafely(ProjectTask before, ProjectTask after) {
+        try {
+            if (!ready) {
+                // 计数尚未初始化，初始化时会按数据库结果包含本次变更
+                executor.execute(this::ensureReadySafely);
+                return;
+            }
+            apply(before, after);
+        } catch (Exception e) {
+            log.warn("更新任务统计失败，登记项目待校准:{}", e.getMessage());
+            try {
+                List<String> projectIds = new ArrayList<>(2);
+                if (before != null) {
+                    projectIds.add(before.getProjectId());
+                }
+                if (after != null) {
+                    projectIds.add(after.getProjectId());
+                }
+                markDirty(projectIds);
+            } catch (Exception ex) {
+                log.warn("登记任务统计校准失败:{}", ex.getMessage());
+            }
+        }
+    }
+
+    private void apply(ProjectTask before, ProjectTask after) {
+        Map<String, Map<String, Long>> hashDeltas = new LinkedHashMap<>();
+        Set<String> removes = new HashSet<>();
+        Map<String, Double> adds = new LinkedHashMap<>();
+        contribute(before, -1, false, hashDeltas, removes, adds);
+        // 变更前为空是新增，未赋值的字段在数据库中取默认值
+        contribute(after, 1, before == null, hashDeltas, removes, adds);
+        removes.removeAll(adds.keySet());
+        String taskId = after != null ? after.getId() : before != null ? before.getId() : null;
+        if (taskId == null) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<String, Map<String, Long>> entry : hashDeltas.entrySet()) {
+                for (Map.Entry<String, Long> field : entry.getValue().entrySet()) {
+                    if (field.getValue() != 0) {
+                        connection.hIncrBy(bytes(entry.getKey()), bytes(field.getKey()), field.getValue());
+                    }
+                }
+            }
+            for (String key : removes) {
+                connection.zRem(bytes(key), bytes(taskId));
+            }
+            for (Map.Entry<String, Double> entry : adds.entrySet()) {
+                connection.zAdd(bytes(entry.getKey()), entry.getValue(), bytes(taskId));
+            }
+            if (after != null && StringUtils.isNotBlank(after.getProjectId())) {
+                connection.sAdd(bytes(SCOPES_KEY), bytes(after.getProjectId()));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 计算一个任务对项目和全局计数的贡献
+     *
+     * @param inserted 任务是否为新增的实体，新增时未赋值的执行状态按数据库默认值0计
+     */
+    private void contribute(ProjectTask task, int sign, boolean inserted, Map<String, Map<String, Long>> hashDeltas,
+                            Set<String> removes, Map<String, Double> adds) {
+        if (task == null || StringUtils.isBlank(task.getProjectId()) || Objects.equals(task.getDeleted(), 1)) {
+            return;
+        }
+        for (String scope : new String[]{task.getProjectId(), SCOPE_ALL}) {
+            String hashKey = hashKey(scope);
+            Map<String, Long> fields = hashDeltas.computeIfAbsent(hashKey, k -> new HashMap<>());
+            fields.merge(FIELD_TOTAL, (long) sign, Long::sum);
+            if (task.getUserId() == null) {
+                fields.merge(FIELD_UNASSIGNED, (long) sign, Long::sum);
+            }
+            if (task.getEndTime() == null) {
+                fields.merge(FIELD_TIME_UNDETERMINED, (long) sign, Long::sum);
+            }
+            fields.merge(FIELD_STATUS + statusOf(task.getStatus()), (long) sign, Long::sum);
+            Map<String, Double> zsets = zsetsOf(task, hashKey, SCOPE_ALL.equals(scope), inserted);
+            if (sign > 0) {
+                adds.putAll(zsets);
+            } else {
+                removes.addAll(zsets.keySet());
+            }
+        }
+    }
+
+    private static Map<String, Double> zsetsOf(ProjectTask task, String hashKey, boolean global, boolean inserted) {
+        Map<String, Double> zsets = new HashMap<>(4);
+        Date closeTime = task.getCloseTime();
+        if (closeTime != null) {
+            zsets.put(hashKey + ZSET_CLOSE, (double) closeTime.getTime());
+            if (ProjectTaskStatusEnum.FINISHED.getStatus() == statusOf(task.getStatus())) {
+                zsets.put(hashKey + ZSET_CLOSE_DONE, (double) closeTime.getTime());
+            }
+            if (global && isUnexecuted(task.getExecuteStatus(), inserted)) {
+                zsets.put(hashKey + ZSET_CLOSE_UNEXECUTED, (double) closeTime.getTime());
+            }
+        }
+        if (global && task.getBeginTime() != null) {
+            zsets.put(hashKey + ZSET_BEGIN, (double) task.getBeginTime().getTime());
+        }
+        return zsets;
+    }
+
+    /**
+     * 流式读取任务的时间维度写入临时有序集合
+     *
+     * @return 写入过的临时key
+     */
+    private Set<String> writeZsets(String projectId, String tmpSuffix, boolean withGlobal) {
+        Set<String> touched = new HashSet<>();
+        List<ProjectTask> batch = new ArrayList<>(PIPELINE_BATCH);
+        projectTaskMapper.queryTaskStatsTimes(projectId, context -> {
+            batch.add(context.getResultObject());
+            if (batch.size() >= PIPELINE_BATCH) {
+                flushZsets(batch, tmpSuffix, withGlobal, touched);
+                batch.clear();
+            }
+        });
+        flushZsets(batch, tmpSuffix, withGlobal, touched);
+        return touched;
+    }
+
+    private void flushZsets(List<ProjectTask> batch, String tmpSuffix, boolean withGlobal, Set<String> touched) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ProjectTask task : batch) {
+                if (StringUtils.isBlank(task.getProjectId())) {
+                    continue;
+                }
+                Map<String, Double> zsets = new HashMap<>(zsetsOf(task, hashKey(task.getProjectId()), false, false));
+                if (withGlobal) {
+                    zsets.putAll(zsetsOf(task, hashKey(SCOPE_ALL), true, false));
+                }
+                for (Map.Entry<String, Double> entry : zsets.entrySet()) {
+                    String key = entry.getKey() + tmpSuffix;
+                    connection.zAdd(bytes(key), entry.getValue(), bytes(task.getId()));
+                    if (touched.add(key)) {
+                        connection.expire(bytes(key), REBUILD_KEY_EXPIRE_SECONDS);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void rebuildDirtySafely() {
+        try {
+            ensureReady();
+            List<String> projectIds = stringRedisTemplate.opsForSet().pop(CacheConstants.TASK_STATS_DIRTY_KEY, DIRTY_BATCH);
+            if (projectIds != null) {
+                for (String projectId : projectIds) {
+                    rebuildProject(projectId);
+                }
+            }
+        } catch (Exception e) {
+            log.error("任务统计按项目校准异常", e);
+        }
+    }
+
+    private void rebuildAllSafely() {
+        try {
+            rebuildAll();
+        } catch (Exception e) {
+            log.error("任务统计全量校准异常", e);
+        }
+    }
+
+    private static void addGroup(Map<String, Long> counters, TaskStatsGroupDTO group) {
+        counters.merge(FIELD_TOTAL, toLong(group.getTaskNum()), Long::sum);
+        counters.merge(FIELD_UNASSIGNED, toLong(group.getUnassignedNum()), Long::sum);
+        counters.merge(FIELD_TIME_UNDETERMINED, toLong(group.getTimeUndeterminedNum()), Long::sum);
+        counters.merge(FIELD_STATUS + statusOf(group.getStatus()), toLong(group.getTaskNum()), Long::sum);
+    }
+
+    private static Map<String, Long> newCounters() {
+        Map<String, Long> counters = new HashMap<>();
+        counters.put(FIELD_TOTAL, 0L);
+        return counters;
+    }
+
+    private static void writeHash(RedisConnection connection, String key, Map<String, Long> counters) {
+        Map<byte[], byte[]> values = new HashMap<>(counters.size());
+        counters.forEach((field, value) -> values.put(bytes(field), bytes(String.valueOf(value))));
+        connection.hMSet(bytes(key), values);
+    }
+
+    /**
+     * 用临时key替换正式key，RENAME会保留临时key的过期时间，替换后去掉
+     */
+    private static void replace(RedisConnection connection, String tmpKey, String key) {
+        connection.rename(bytes(tmpKey), bytes(key));
+        connection.persist(bytes(key));
+    }
+
+    private static void deleteScope(RedisConnection connection, String scope) {
+        String hashKey = hashKey(scope);
+        connection.del(bytes(hashKey));
+        for (String zset : PROJECT_ZSETS) {
+            connection.del(bytes(hashKey + zset));
+        }
+    }
+
+    /**
+     * 任务状态和执行状态在数据库中默认为0，新增时未赋值按0计
+     */
+    private static int statusOf(Integer status) {
+        return status == null ? 0 : status;
+    }
+
+    /**
+     * 执行状态未完成，与原先 execute_status != 2 的条件一致，数据库中为NULL的任务不计入
+     */
+    private static boolean isUnexecuted(Integer executeStatus, boolean inserted) {
+        if (executeStatus == null) {
+            return inserted;
+        }
+        return !ProjectTaskStatusEnum.FINISHED.getStatus().equals(executeStatus);
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(value.toString());
+    }
+
+    private static String hashKey(String scope) {
+        return CacheConstants.TASK_STATS_KEY + scope;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 统计结果
+     */
+    public static class TaskStats {
+        private final Map<String, String> counters;
+
+        private long overdue;
+
+        private long doneOverdue;
+
+        private long expireToday;
+
+        private long beginToday;
+
+        private long overdueUnexecuted;
+
+        private TaskStats(Map<String, String> counters) {
+            this.counters = counters;
+        }
+
+        public long getTotal() {
+            return toLong(counters.get(FIELD_TOTAL));
+        }
+
+        public long getUnassigned() {
+            return toLong(counters.get(FIELD_UNASSIGNED));
+        }
+
+        public long getTimeUndetermined() {
+            return toLong(counters.get(FIELD_TIME_UNDETERMINED));
+        }
+
+        public long getStatusNum(Integer status) {
+            return toLong(counters.get(FIELD_STATUS + statusOf(status)));
+        }
+
+        /**
+         * 截止时间早于当前时间的任务数
+         */
+        public long getOverdue() {
+            return overdue;
+        }
+
+        /**
+         * 已完成且截止时间早于当前时间的任务数
+         */
+        public long getDoneOverdue() {
+            return doneOverdue;
+        }
+
+        /**
+         * 今天到期的任务数
+         */
+        public long getExpireToday() {
+            return expireToday;
+        }
+
+        /**
+         * 今天开始的任务数（仅全局）
+         */
+        public long getBeginToday() {
+            return beginToday;
+        }
+
+        /**
+         * 执行状态未完成且截止时间早于当前时间的任务数（仅全局）
+         */
+        public long getOverdueUnexecuted() {
+            return overdueUnexecuted;
+        }
+    }
+}
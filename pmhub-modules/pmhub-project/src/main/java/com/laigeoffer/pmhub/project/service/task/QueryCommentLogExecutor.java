@@ -1,9 +1,6 @@
 package com.laigeoffer.pmhub.project.service.task;
 
-import com.laigeoffer.pmhub.api.system.UserFeignService;
-import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
-import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
-import com.laigeoffer.pmhub.base.core.core.domain.R;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
 import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
 import com.laigeoffer.pmhub.base.core.enums.LogTypeEnum;
 import com.laigeoffer.pmhub.base.core.exception.ServiceException;
@@ -29,7 +26,7 @@ public class QueryCommentLogExecutor extends QueryLogAbstractExecutor {
     @Autowired
     private ProjectLogMapper projectLogMapper;
     @Resource
-    private UserFeignService userFeignService;
+    private UserDirectory userDirectory;
 
 
     @Override
@@ -42,17 +39,12 @@ public class QueryCommentLogExecutor extends QueryLogAbstractExecutor {
         List<Long> userIds = list.stream().map(ProjectLogVO::getUserId)
                 .distinct()
                 .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
 
         // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
         list.forEach(projectLogVO -> {
             projectLogVO.setLogTypeName(LogTypeEnum.getStatusNameByStatus(projectLogVO.getLogType()));
 
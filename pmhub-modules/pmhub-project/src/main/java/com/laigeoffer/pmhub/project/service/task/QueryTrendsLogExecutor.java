@@ -1,10 +1,7 @@
 package com.laigeoffer.pmhub.project.service.task;
 
 import com.alibaba.fastjson2.JSON;
-import com.laigeoffer.pmhub.api.system.UserFeignService;
-import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
-import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
-import com.laigeoffer.pmhub.base.core.core.domain.R;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
 import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
 import com.laigeoffer.pmhub.base.core.enums.LogTypeEnum;
 import com.laigeoffer.pmhub.base.core.exception.ServiceException;
@@ -31,7 +28,7 @@ public class QueryTrendsLogExecutor extends QueryLogAbstractExecutor {
     @Autowired
     private ProjectLogMapper projectLogMapper;
     @Resource
-    private UserFeignService userFeignService;
+    private UserDirectory userDirectory;
 
     @Override
     public List<ProjectLogVO> query(String taskId) {
@@ -43,17 +40,12 @@ public class QueryTrendsLogExecutor extends QueryLogAbstractExecutor {
         List<Long> userIds = list.stream().map(ProjectLogVO::getUserId)
                 .distinct()
                 .collect(Collectors.toList());
-        SysUserDTO sysUserDTO = new SysUserDTO();
-        sysUserDTO.setUserIds(userIds);
-        R<List<SysUserVO>> userResult = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
-
-        if (Objects.isNull(userResult) || CollectionUtils.isEmpty(userResult.getData())) {
+        Map<Long, SysUserVO> userMap = userDirectory.getUsers(userIds);
+        if (userMap.isEmpty()) {
             throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
         }
-        List<SysUserVO> userVOList = userResult.getData();
 
         // 匹配设置值
-        Map<Long, SysUserVO> userMap = userVOList.stream().collect(Collectors.toMap(SysUserVO::getUserId, a -> a));
         list.forEach(projectLogVO -> {
             List<LogContentVO> contentVOList = JSON.parseArray(projectLogVO.getContent().toString(), LogContentVO.class);
             projectLogVO.setContent(contentVOList);
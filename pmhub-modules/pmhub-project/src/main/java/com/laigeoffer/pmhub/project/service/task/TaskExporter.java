@@ -0,0 +1,167 @@
+package com.laigeoffer.pmhub.project.service.task;
+
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
+import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
+import com.laigeoffer.pmhub.base.core.enums.ProjectTaskPriorityEnum;
+import com.laigeoffer.pmhub.base.core.enums.ProjectTaskStatusEnum;
+import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.base.core.utils.poi.ExcelUtil;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskExportVO;
+import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 任务导出
+ * 查询以流式结果集逐行读取，按固定行数分批补充状态名称和执行人，每批只远程查询一次用户，补充后直接写入SXSSF工作表；
+ * 内存中只保留一批数据，与导出的总行数无关
+ *
+ * @author zw
+ */
+@Component
+public class TaskExporter {
+
+    /**
+     * 每批补充并写入的行数
+     */
+    @Value("${project.task-export.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    private ProjectTaskMapper projectTaskMapper;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    /**
+     * 导出用户参与的全部任务
+     *
+     * @param userId    用户id
+     * @param response  返回数据
+     * @param sheetName 工作表的名称
+     */
+    public void exportAll(Long userId, HttpServletResponse response, String sheetName) {
+        ExcelUtil<TaskExportVO> util = new ExcelUtil<>(TaskExportVO.class);
+        util.startStream(sheetName, "");
+        ChunkWriter writer = new ChunkWriter(util);
+        try {
+            projectTaskMapper.exportAll(userId, writer);
+            writer.finish();
+        } catch (RuntimeException e) {
+            util.closeStream();
+            throw e;
+        }
+        util.finishStream(response);
+    }
+
+    /**
+     * 导出指定任务
+     *
+     * @param taskIdList 任务id
+     * @param response   返回数据
+     * @param sheetName  工作表的名称
+     */
+    public void export(List<String> taskIdList, HttpServletResponse response, String sheetName) {
+        ExcelUtil<TaskExportVO> util = new ExcelUtil<>(TaskExportVO.class);
+        util.startStream(sheetName, "");
+        ChunkWriter writer = new ChunkWriter(util);
+        try {
+            projectTaskMapper.export(taskIdList, writer);
+            writer.finish();
+        } catch (RuntimeException e) {
+            util.closeStream();
+            throw e;
+        }
+        util.finishStream(response);
+    }
+
+    /**
+     * 补充一批数据的状态名称和执行人
+     */
+    private void enrich(List<TaskExportVO> chunk) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (TaskExportVO vo : chunk) {
+            if (vo.getUserId() != null) {
+                userIds.add(vo.getUserId());
+            }
+        }
+        // 本批都是待认领的任务时没有执行人，无需查询用户
+        Map<Long, SysUserVO> userMap = Collections.emptyMap();
+        if (!userIds.isEmpty()) {
+            userMap = userDirectory.getUsers(userIds);
+            if (userMap.isEmpty()) {
+                throw new ServiceException("远程调用查询用户列表：" + userIds + " 失败");
+            }
+        }
+        for (TaskExportVO vo : chunk) {
+            vo.setExecuteStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(vo.getExecuteStatus()));
+            vo.setStatusName(ProjectTaskStatusEnum.getStatusNameByStatus(vo.getStatus()));
+            vo.setTaskPriorityName(ProjectTaskPriorityEnum.getStatusNameByStatus(vo.getTaskPriority()));
+
+            // 设置用户信息
+            SysUserVO sysUserVO = userMap.get(vo.getUserId());
+            if (Objects.nonNull(sysUserVO)) {
+                vo.setExecutor(sysUserVO.getNickName());
+                vo.setCreatedBy(sysUserVO.getNickName());
+            }
+        }
+    }
+
+    /**
+     * 按批收集结果集的行，攒满一批后补充并写入工作表；
+     * 处理失败时停止读取结果集，在查询返回后抛出原异常，避免被包装成持久层异常
+     */
+    private class ChunkWriter implements ResultHandler<TaskExportVO> {
+        private final ExcelUtil<TaskExportVO> util;
+
+        private List<TaskExportVO> chunk = new ArrayList<>(chunkSize);
+
+        private RuntimeException failure;
+
+        private ChunkWriter(ExcelUtil<TaskExportVO> util) {
+            this.util = util;
+        }
+
+        @Override
+        public void handleResult(ResultContext<? extends TaskExportVO> resultContext) {
+            chunk.add(resultContext.getResultObject());
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                failure = e;
+                resultContext.stop();
+            }
+        }
+
+        private void finish() {
+            if (failure != null) {
+                throw failure;
+            }
+            flush();
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            enrich(chunk);
+            util.appendRows(chunk);
+            chunk = new ArrayList<>(chunkSize);
+        }
+    }
+}
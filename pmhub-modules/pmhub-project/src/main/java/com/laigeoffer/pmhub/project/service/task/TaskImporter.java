@@ -0,0 +1,299 @@
+package com.laigeoffer.pmhub.project.service.task;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.enums.SqlMethod;
+import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
+import com.laigeoffer.pmhub.api.system.UserFeignService;
+import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
+import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
+import com.laigeoffer.pmhub.base.core.core.domain.R;
+import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
+import com.laigeoffer.pmhub.base.core.enums.LogTypeEnum;
+import com.laigeoffer.pmhub.base.core.enums.ProjectStatusEnum;
+import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.base.core.utils.DateUtils;
+import com.laigeoffer.pmhub.base.security.utils.SecurityUtils;
+import com.laigeoffer.pmhub.project.domain.Project;
+import com.laigeoffer.pmhub.project.domain.ProjectMember;
+import com.laigeoffer.pmhub.project.domain.ProjectStage;
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
+import com.laigeoffer.pmhub.project.domain.vo.project.log.LogVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskExcelVO;
+import com.laigeoffer.pmhub.project.mapper.ProjectMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectMemberMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectStageMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectTaskClosureMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
+import com.laigeoffer.pmhub.project.service.ProjectLogService;
+import com.laigeoffer.pmhub.project.service.chart.BurnDownChartEngine;
+import com.laigeoffer.pmhub.project.service.stats.TaskStatsCounter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 任务导入
+ * 先收集全部执行人账号和项目编码，批量查询用户、项目、项目成员和项目阶段，在内存中逐行校验并组装任务、任务成员和日志；
+ * 校验全部通过后在一个事务内按批写入，远程调用和查询不占用写事务。逐行的校验口径与原逐条导入一致：
+ * 执行人不存在时整体失败，执行人不是项目成员的行跳过
+ *
+ * @author zw
+ */
+@Component
+public class TaskImporter {
+    private static final Log log = LogFactory.getLog(TaskImporter.class);
+
+    /**
+     * 每批写入的行数
+     */
+    @Value("${project.task-import.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private UserFeignService userFeignService;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private ProjectMemberMapper projectMemberMapper;
+
+    @Autowired
+    private ProjectStageMapper projectStageMapper;
+
+    @Autowired
+    private ProjectTaskClosureMapper projectTaskClosureMapper;
+
+    @Autowired
+    private ProjectLogService projectLogService;
+
+    @Autowired
+    private BurnDownChartEngine burnDownChartEngine;
+
+    @Autowired
+    private TaskStatsCounter taskStatsCounter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 导入任务
+     *
+     * @param taskList excel中的任务
+     * @return 导入的任务数
+     */
+    public int importTasks(List<TaskExcelVO> taskList) {
+        Long operatorId = SecurityUtils.getUserId();
+        String operator = SecurityUtils.getUsername();
+        List<SysUserVO> executors = new ArrayList<>(taskList.size());
+        List<ProjectTask> tasks = toTasks(taskList, executors, operator);
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> write(tasks, executors, operatorId, operator));
+        return tasks.size();
+    }
+
+    /**
+     * 批量查询后逐行校验并组装任务
+     *
+     * @param taskList  excel中的任务
+     * @param executors 按任务顺序填入每个任务的执行人
+     * @param operator  操作人账号
+     * @return 待写入的任务，执行人不是项目成员的行不包含在内
+     */
+    List<ProjectTask> toTasks(List<TaskExcelVO> taskList, List<SysUserVO> executors, String operator) {
+        Map<String, SysUserVO> userMap = queryUsers(taskList);
+        Map<String, Project> projectMap = queryProjects(taskList);
+        Set<String> projectIds = projectMap.values().stream().map(Project::getId).collect(Collectors.toSet());
+        Map<String, Set<Long>> memberMap = queryMembers(projectIds);
+        Map<String, String> stageMap = queryFirstStages(projectIds);
+
+        List<ProjectTask> tasks = new ArrayList<>(taskList.size());
+        for (TaskExcelVO task : taskList) {
+            SysUserVO sysUser = StringUtils.isBlank(task.getUsername()) ? null : userMap.get(task.getUsername());
+            if (Objects.isNull(sysUser)) {
+                throw new ServiceException("登录用户：" + task.getUsername() + " 不存在");
+            }
+            Project project = StringUtils.isBlank(task.getProjectCode()) ? null : projectMap.get(task.getProjectCode());
+            if (project == null || StringUtils.isBlank(project.getId())) {
+                throw new ServiceException("项目编码：" + task.getProjectCode() + " 不存在");
+            }
+            if (!memberMap.getOrDefault(project.getId(), new HashSet<>()).contains(sysUser.getUserId())) {
+                continue;
+            }
+            String stageId = stageMap.get(project.getId());
+            if (stageId == null) {
+                throw new ServiceException("项目编码：" + task.getProjectCode() + " 没有项目阶段");
+            }
+            ProjectTask projectTask = new ProjectTask();
+            projectTask.setTaskName(task.getTaskName());
+            projectTask.setBeginTime(DateUtils.parseDate(task.getBeginTime()));
+            projectTask.setEndTime(DateUtils.parseDate(task.getEndTime()));
+            projectTask.setCloseTime(DateUtils.parseDate(task.getCloseTime()));
+            projectTask.setTaskPriority(Integer.valueOf(task.getTaskPriority()));
+            projectTask.setProjectId(project.getId());
+            projectTask.setProjectStageId(stageId);
+            projectTask.setUserId(sysUser.getUserId());
+            projectTask.setCreatedBy(operator);
+            projectTask.setCreatedTime(new Date());
+            projectTask.setUpdatedBy(operator);
+            projectTask.setUpdatedTime(new Date());
+            tasks.add(projectTask);
+            executors.add(sysUser);
+        }
+        return tasks;
+    }
+
+    private void write(List<ProjectTask> tasks, List<SysUserVO> executors, Long operatorId, String operator) {
+        int size = Math.max(1, batchSize);
+        // 主键在插入时生成，任务写入后再组装成员和日志
+        SqlHelper.executeBatch(ProjectTask.class, log, tasks, size, (sqlSession, entity) ->
+                sqlSession.insert(SqlHelper.getSqlStatement(ProjectTaskMapper.class, SqlMethod.INSERT_ONE), entity));
+        // 导入的都是顶层任务，只需要写入自身的层级记录
+        List<String> taskIds = tasks.stream().map(ProjectTask::getId).collect(Collectors.toList());
+        for (int i = 0; i < taskIds.size(); i += size) {
+            projectTaskClosureMapper.insertSelf(taskIds.subList(i, Math.min(i + size, taskIds.size())));
+        }
+        List<ProjectMember> members = new ArrayList<>(tasks.size() * 2);
+        List<LogVO> logs = new ArrayList<>(tasks.size() * 2);
+        for (int i = 0; i < tasks.size(); i++) {
+            ProjectTask projectTask = tasks.get(i);
+            members.add(newMember(projectTask.getId(), 1, operatorId, operator));
+            logs.add(newLog("importTask", projectTask, "导入了任务", null, operatorId, operator));
+            // 将执行人加入
+            if (projectTask.getUserId() != null && !Objects.equals(projectTask.getUserId(), operatorId)) {
+                members.add(newMember(projectTask.getId(), 0, projectTask.getUserId(), operator));
+                logs.add(newLog("invitePartakeTask", projectTask, "邀请 " + executors.get(i).getNickName() + " 参与任务",
+                        projectTask.getUserId(), operatorId, operator));
+            }
+            taskStatsCounter.onChanged(null, projectTask);
+        }
+        SqlHelper.executeBatch(ProjectMember.class, log, members, size, (sqlSession, entity) ->
+                sqlSession.insert(SqlHelper.getSqlStatement(ProjectMemberMapper.class, SqlMethod.INSERT_ONE), entity));
+        for (int i = 0; i < logs.size(); i += size) {
+            projectLogService.runBatch(logs.subList(i, Math.min(i + size, logs.size())));
+        }
+        burnDownChartEngine.evict(tasks.stream().map(ProjectTask::getProjectId).distinct().toArray(String[]::new));
+    }
+
+    /**
+     * 按账号批量查询执行人
+     */
+    private Map<String, SysUserVO> queryUsers(List<TaskExcelVO> taskList) {
+        Set<String> userNames = taskList.stream().map(TaskExcelVO::getUsername).filter(StringUtils::isNotBlank)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        // 账号、项目编码按数据库的比较规则不区分大小写
+        Map<String, SysUserVO> userMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        List<String> names = new ArrayList<>(userNames);
+        for (int i = 0; i < names.size(); i += Math.max(1, batchSize)) {
+            SysUserDTO sysUserDTO = new SysUserDTO();
+            sysUserDTO.setUserNames(names.subList(i, Math.min(i + Math.max(1, batchSize), names.size())));
+            R<List<SysUserVO>> result = userFeignService.listOfInner(sysUserDTO, SecurityConstants.INNER);
+            if (Objects.isNull(result) || !R.isSuccess(result)) {
+                throw new ServiceException("远程调用查询用户列表失败");
+            }
+            if (result.getData() != null) {
+                result.getData().forEach(user -> userMap.put(user.getUserName(), user));
+            }
+        }
+        return userMap;
+    }
+
+    private Map<String, Project> queryProjects(List<TaskExcelVO> taskList) {
+        Set<String> projectCodes = taskList.stream().map(TaskExcelVO::getProjectCode).filter(StringUtils::isNotBlank)
+                .collect(Collectors.toSet());
+        if (projectCodes.isEmpty()) {
+            return new HashMap<>();
+        }
+        LambdaQueryWrapper<Project> qw = new LambdaQueryWrapper<>();
+        qw.select(Project::getId, Project::getProjectCode).in(Project::getProjectCode, projectCodes);
+        Map<String, Project> projectMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Project project : projectMapper.selectList(qw)) {
+            if (projectMap.putIfAbsent(project.getProjectCode(), project) != null) {
+                throw new ServiceException("项目编码：" + project.getProjectCode() + " 重复");
+            }
+        }
+        return projectMap;
+    }
+
+    /**
+     * 项目成员，按项目id分组
+     */
+    private Map<String, Set<Long>> queryMembers(Collection<String> projectIds) {
+        if (projectIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        LambdaQueryWrapper<ProjectMember> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(ProjectMember::getPtId, ProjectMember::getUserId)
+                .in(ProjectMember::getPtId, projectIds).eq(ProjectMember::getType, ProjectStatusEnum.PROJECT.getStatusName());
+        return projectMemberMapper.selectList(queryWrapper).stream().collect(Collectors.groupingBy(ProjectMember::getPtId,
+                Collectors.mapping(ProjectMember::getUserId, Collectors.toSet())));
+    }
+
+    /**
+     * 每个项目编号最小的阶段
+     */
+    private Map<String, String> queryFirstStages(Collection<String> projectIds) {
+        Map<String, String> stageMap = new HashMap<>(projectIds.size());
+        if (projectIds.isEmpty()) {
+            return stageMap;
+        }
+        LambdaQueryWrapper<ProjectStage> qw = new LambdaQueryWrapper<>();
+        qw.select(ProjectStage::getId, ProjectStage::getProjectId, ProjectStage::getStageCode)
+                .in(ProjectStage::getProjectId, projectIds).orderByAsc(ProjectStage::getStageCode);
+        projectStageMapper.selectList(qw).forEach(stage -> stageMap.putIfAbsent(stage.getProjectId(), stage.getId()));
+        return stageMap;
+    }
+
+    private static ProjectMember newMember(String taskId, Integer creator, Long userId, String operator) {
+        ProjectMember projectMember = new ProjectMember();
+        projectMember.setPtId(taskId);
+        projectMember.setType(ProjectStatusEnum.TASK.getStatusName());
+        projectMember.setJoinedTime(new Date());
+        projectMember.setUserId(userId);
+        projectMember.setCreatedBy(operator);
+        projectMember.setCreatedTime(new Date());
+        projectMember.setUpdatedBy(operator);
+        projectMember.setUpdatedTime(new Date());
+        // 是创建者
+        projectMember.setCreator(creator);
+        return projectMember;
+    }
+
+    private static LogVO newLog(String operateType, ProjectTask projectTask, String remark, Long toUserId, Long operatorId, String operator) {
+        LogVO logVO = new LogVO();
+        logVO.setLogType(LogTypeEnum.TRENDS.getStatus());
+        logVO.setOperateType(operateType);
+        logVO.setType(ProjectStatusEnum.TASK.getStatusName());
+        logVO.setPtId(projectTask.getId());
+        logVO.setProjectId(projectTask.getProjectId());
+        logVO.setUserId(operatorId);
+        logVO.setToUserId(toUserId);
+        logVO.setRemark(remark);
+        logVO.setContent(projectTask.getTaskName());
+        logVO.setCreatedBy(operator);
+        logVO.setCreatedTime(new Date());
+        logVO.setUpdatedBy(operator);
+        logVO.setUpdatedTime(new Date());
+        return logVO;
+    }
+}
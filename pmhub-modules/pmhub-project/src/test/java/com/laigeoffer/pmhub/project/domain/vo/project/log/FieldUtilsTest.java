@@ -0,0 +1,157 @@
+package com.laigeoffer.pmhub.project.domain.vo.project.log;
+
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 预编译的字段比对与逐字段反射比对的结果一致
+ *
+ * @author zw
+ */
+class FieldUtilsTest {
+
+    /**
+     * 原先按字段名写死的日志备注
+     */
+    private static final Map<String, String> REMARKS = new HashMap<>();
+
+    static {
+        REMARKS.put("taskName", "更新了任务名称");
+        REMARKS.put("executeStatus", "更新了执行状态");
+        REMARKS.put("status", "更新了任务状态");
+        REMARKS.put("taskPriority", "更新了任务优先级");
+        REMARKS.put("beginTime", "更新了开始时间");
+        REMARKS.put("endTime", "更新了结束时间");
+        REMARKS.put("closeTime", "更新了截止时间");
+        REMARKS.put("description", "更新了描述");
+        REMARKS.put("taskProcess", "更新了任务进度");
+    }
+
+    @Test
+    void matchesReflection() throws IllegalAccessException {
+        Random random = new Random(20240502L);
+        for (int round = 0; round < 1000; round++) {
+            ProjectTask newTask = randomTask(random);
+            ProjectTask oldTask = random.nextBoolean() ? randomTask(random) : copyWithOneChange(newTask, random);
+            List<LogDataVO> expected = reflect(newTask, oldTask);
+            List<LogDataVO> actual = FieldUtils.getChangedFields(newTask, oldTask);
+            assertEquals(expected.size(), actual.size(), "第" + round + "轮");
+            for (int i = 0; i < expected.size(); i++) {
+                LogDataVO e = expected.get(i);
+                LogDataVO a = actual.get(i);
+                assertEquals(e.getRemark(), a.getRemark());
+                assertEquals(1, a.getLogContentVOList().size());
+                LogContentVO ec = e.getLogContentVOList().get(0);
+                LogContentVO ac = a.getLogContentVOList().get(0);
+                assertEquals(ec.getField(), ac.getField());
+                assertEquals(ec.getFieldName(), ac.getFieldName());
+                assertEquals(ec.getOldValue(), ac.getOldValue());
+                assertEquals(ec.getNewValue(), ac.getNewValue());
+            }
+        }
+    }
+
+    @Test
+    void eachChangeHasItsOwnContent() {
+        ProjectTask oldTask = new ProjectTask();
+        oldTask.setTaskName("旧");
+        oldTask.setStatus(0);
+        oldTask.setTaskPid("a");
+        ProjectTask newTask = new ProjectTask();
+        newTask.setTaskName("新");
+        newTask.setStatus(1);
+        newTask.setTaskPid("b");
+
+        List<LogDataVO> data = FieldUtils.getChangedFields(newTask, oldTask);
+        assertEquals(2, data.size());
+        assertEquals("更新了任务名称", data.get(0).getRemark());
+        assertEquals("更新了任务状态", data.get(1).getRemark());
+        assertNotSame(data.get(0).getLogContentVOList(), data.get(1).getLogContentVOList());
+        assertEquals("0", data.get(1).getLogContentVOList().get(0).getOldValue());
+        assertEquals("1", data.get(1).getLogContentVOList().get(0).getNewValue());
+    }
+
+    @Test
+    void nullOnEitherSideIsSkipped() {
+        ProjectTask oldTask = new ProjectTask();
+        oldTask.setDescription("描述");
+        ProjectTask newTask = new ProjectTask();
+        newTask.setCloseTime(new Date());
+        assertTrue(FieldUtils.getChangedFields(newTask, oldTask).isEmpty());
+    }
+
+    /**
+     * 逐字段反射比对，每个变更一条日志，任一值为空时跳过
+     */
+    private static List<LogDataVO> reflect(Object newBean, Object oldBean) throws IllegalAccessException {
+        List<LogDataVO> data = new ArrayList<>();
+        for (Field field : newBean.getClass().getDeclaredFields()) {
+            ForUpdate forUpdate = field.getAnnotation(ForUpdate.class);
+            if (forUpdate == null) {
+                continue;
+            }
+            field.setAccessible(true);
+            Object newValue = field.get(newBean);
+            Object oldValue = field.get(oldBean);
+            if (newValue == null || oldValue == null || Objects.equals(newValue, oldValue)) {
+                continue;
+            }
+            LogContentVO logContentVO = new LogContentVO();
+            logContentVO.setField(field.getName());
+            logContentVO.setFieldName(forUpdate.fieldName());
+            logContentVO.setOldValue(oldValue.toString());
+            logContentVO.setNewValue(newValue.toString());
+            List<LogContentVO> list = new ArrayList<>();
+            list.add(logContentVO);
+            LogDataVO logDataVO = new LogDataVO();
+            logDataVO.setRemark(REMARKS.get(field.getName()));
+            logDataVO.setLogContentVOList(list);
+            data.add(logDataVO);
+        }
+        return data;
+    }
+
+    private static ProjectTask randomTask(Random random) {
+        ProjectTask task = new ProjectTask();
+        task.setTaskName(random.nextInt(4) == 0 ? null : "任务" + random.nextInt(3));
+        task.setTaskPriority(random.nextInt(4) == 0 ? null : random.nextInt(3));
+        task.setDescription(random.nextInt(4) == 0 ? null : "描述" + random.nextInt(3));
+        task.setBeginTime(random.nextInt(4) == 0 ? null : new Date(1714521600000L + random.nextInt(3) * 86400000L));
+        task.setEndTime(random.nextInt(4) == 0 ? null : new Date(1714521600000L + random.nextInt(3) * 86400000L));
+        task.setCloseTime(random.nextInt(4) == 0 ? null : new Date(1714521600000L + random.nextInt(3) * 86400000L));
+        task.setStatus(random.nextInt(4) == 0 ? null : random.nextInt(3));
+        task.setExecuteStatus(random.nextInt(4) == 0 ? null : random.nextInt(3));
+        task.setTaskProcess(random.nextInt(4) == 0 ? null : new BigDecimal(random.nextInt(3) * 50));
+        task.setTaskPid(random.nextBoolean() ? null : "p" + random.nextInt(3));
+        return task;
+    }
+
+    private static ProjectTask copyWithOneChange(ProjectTask task, Random random) {
+        ProjectTask copy = new ProjectTask();
+        copy.setTaskName(task.getTaskName());
+        copy.setTaskPriority(task.getTaskPriority());
+        copy.setDescription(task.getDescription());
+        copy.setBeginTime(task.getBeginTime());
+        copy.setEndTime(task.getEndTime());
+        copy.setCloseTime(task.getCloseTime());
+        copy.setStatus(task.getStatus());
+        copy.setExecuteStatus(task.getExecuteStatus());
+        copy.setTaskProcess(task.getTaskProcess());
+        copy.setStatus(random.nextInt(5));
+        return copy;
+    }
+}
@@ -0,0 +1,131 @@
+package com.laigeoffer.pmhub.project.service.chart;
+
+import com.laigeoffer.pmhub.base.core.enums.ProjectTaskStatusEnum;
+import com.laigeoffer.pmhub.base.core.utils.DateUtils;
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.BurnDownChartVO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 燃尽图一次扫描的结果与原先逐天查询的结果一致
+ *
+ * @author zw
+ */
+class BurnDownChartEngineTest {
+
+    private static final ZoneId ZONE_ID = ZoneId.systemDefault();
+
+    private static final ProjectTaskStatusEnum[] STATUSES = ProjectTaskStatusEnum.values();
+
+    @Test
+    void matchesPerDayLoop() {
+        Random random = new Random(20240425L);
+        LocalDate today = LocalDate.of(2024, 4, 25);
+        for (int round = 0; round < 500; round++) {
+            List<ProjectTask> tasks = randomTasks(random, today);
+            List<BurnDownChartVO> expected = perDay(tasks, today);
+            List<BurnDownChartVO> actual = BurnDownChartEngine.compute(tasks, today);
+            assertEquals(expected.size(), actual.size(), "第" + round + "轮天数不一致");
+            for (int i = 0; i < expected.size(); i++) {
+                BurnDownChartVO e = expected.get(i);
+                BurnDownChartVO a = actual.get(i);
+                String message = "第" + round + "轮 " + e.getDate();
+                assertEquals(e.getDate(), a.getDate(), message);
+                assertEquals(e.getTaskNum(), a.getTaskNum(), message);
+                assertEquals(e.getUnDoneTaskNum(), a.getUnDoneTaskNum(), message);
+                assertEquals(e.getBaseLineNum(), a.getBaseLineNum(), message);
+            }
+        }
+    }
+
+    @Test
+    void emptyWithoutCreatedTime() {
+        ProjectTask task = new ProjectTask();
+        task.setStatus(ProjectTaskStatusEnum.DOING.getStatus());
+        List<ProjectTask> tasks = new ArrayList<>();
+        tasks.add(task);
+        assertTrue(BurnDownChartEngine.compute(tasks, LocalDate.now()).isEmpty());
+    }
+
+    /**
+     * 随机任务：创建时间在今天及以前，截止时间可能为空、早于创建时间或晚于今天
+     */
+    private static List<ProjectTask> randomTasks(Random random, LocalDate today) {
+        int size = 1 + random.nextInt(30);
+        List<ProjectTask> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ProjectTask task = new ProjectTask();
+            LocalDateTime created = today.minusDays(random.nextInt(40)).atTime(random.nextInt(24), random.nextInt(60));
+            task.setCreatedTime(toDate(created));
+            if (random.nextInt(4) > 0) {
+                task.setEndTime(toDate(created.plusDays(random.nextInt(50) - 10).plusMinutes(random.nextInt(1440))));
+            }
+            task.setStatus(STATUSES[random.nextInt(STATUSES.length)].getStatus());
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * 原先的逐天统计：从最早的创建日到今天，每天取次日零点前创建的任务分别计数
+     */
+    private static List<BurnDownChartVO> perDay(List<ProjectTask> tasks, LocalDate today) {
+        List<BurnDownChartVO> list = new ArrayList<>();
+        LocalDate begin = tasks.stream().map(a -> toLocalDate(a.getCreatedTime())).min(LocalDate::compareTo).orElse(today);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DateUtils.YYYY_MM_DD);
+        for (LocalDate date = begin; !date.isAfter(today); date = date.plusDays(1)) {
+            LocalDate now = date.plusDays(1);
+            Date nowTime = toDate(now.atStartOfDay());
+            int taskNum = 0;
+            int unDoneTaskNum = 0;
+            int baseLineNum = 0;
+            for (ProjectTask task : tasks) {
+                if (!task.getCreatedTime().before(nowTime)) {
+                    continue;
+                }
+                taskNum++;
+                if (Objects.equals(task.getStatus(), ProjectTaskStatusEnum.FINISHED.getStatus())) {
+                    continue;
+                }
+                unDoneTaskNum++;
+                boolean baseLine;
+                if (task.getEndTime() == null) {
+                    baseLine = toLocalDate(task.getCreatedTime()).plusDays(5).isAfter(now);
+                } else {
+                    baseLine = toLocalDate(task.getEndTime()).plusDays(-1).isBefore(now);
+                }
+                if (baseLine) {
+                    baseLineNum++;
+                }
+            }
+            BurnDownChartVO burnDownChartVO = new BurnDownChartVO();
+            burnDownChartVO.setDate(date.format(formatter));
+            burnDownChartVO.setTaskNum(taskNum);
+            burnDownChartVO.setUnDoneTaskNum(unDoneTaskNum);
+            burnDownChartVO.setBaseLineNum(baseLineNum);
+            list.add(burnDownChartVO);
+        }
+        return list;
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZONE_ID).toInstant());
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZONE_ID).toLocalDate();
+    }
+}
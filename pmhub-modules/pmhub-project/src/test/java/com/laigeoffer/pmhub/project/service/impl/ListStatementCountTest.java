@@ -0,0 +1,204 @@
+package com.laigeoffer.pmhub.project.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.github.pagehelper.PageHelper;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
+import com.laigeoffer.pmhub.base.core.constant.SecurityConstants;
+import com.laigeoffer.pmhub.base.core.context.SecurityContextHolder;
+import com.laigeoffer.pmhub.base.core.core.domain.model.LoginUser;
+import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
+import com.laigeoffer.pmhub.base.core.enums.FileTypeEnum;
+import com.laigeoffer.pmhub.project.domain.ProjectCollection;
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
+import com.laigeoffer.pmhub.project.domain.vo.project.ProjectReqVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.ProjectResVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileReqVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.file.ProjectFileResVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskReqVO;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskResVO;
+import com.laigeoffer.pmhub.project.mapper.ProjectCollectionMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectFileMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectTaskMapper;
+import com.laigeoffer.pmhub.project.service.project.QueryProjectFactory;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 列表补全关联数据的查询次数不随行数增长：同一路径查询 1 行和 100 行时，mapper 和用户目录的调用次数相同
+ *
+ * @author zw
+ */
+class ListStatementCountTest {
+
+    private static final int MANY = 100;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda 条件构造需要实体的字段映射
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, ProjectCollection.class);
+        TableInfoHelper.initTableInfo(assistant, ProjectTask.class);
+    }
+
+    @AfterEach
+    void clear() {
+        PageHelper.clearPage();
+        SecurityContextHolder.remove();
+    }
+
+    @Test
+    void projectListIsConstant() {
+        assertConstant(this::projectList);
+    }
+
+    @Test
+    void fileListIsConstant() {
+        assertConstant(this::fileList);
+    }
+
+    @Test
+    void childTaskIsConstant() {
+        assertConstant(this::childTask);
+    }
+
+    private static void assertConstant(IntFunction<Integer> path) {
+        int one = path.apply(1);
+        int many = path.apply(MANY);
+        assertEquals(one, many, "1 行调用 " + one + " 次，" + MANY + " 行调用 " + many + " 次");
+    }
+
+    /**
+     * 项目列表：项目查询、用户目录、收藏标记
+     */
+    private int projectList(int rows) {
+        LoginUser loginUser = new LoginUser();
+        loginUser.setUserId(1L);
+        SecurityContextHolder.set(SecurityConstants.LOGIN_USER, loginUser);
+
+        QueryProjectFactory queryProjectFactory = mock(QueryProjectFactory.class);
+        ProjectCollectionMapper projectCollectionMapper = mock(ProjectCollectionMapper.class);
+        UserDirectory userDirectory = mockUserDirectory();
+        List<ProjectResVO> projects = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ProjectResVO project = new ProjectResVO();
+            project.setProjectId("p" + i);
+            project.setUserId((long) i);
+            project.setStatus(0);
+            project.setPublished(0);
+            project.setProjectType(0);
+            projects.add(project);
+        }
+        when(queryProjectFactory.execute(any())).thenReturn(projects);
+
+        ProjectServiceImpl service = new ProjectServiceImpl();
+        inject(service, "queryProjectFactory", queryProjectFactory);
+        inject(service, "projectCollectionMapper", projectCollectionMapper);
+        inject(service, "userDirectory", userDirectory);
+        ProjectReqVO projectReqVO = new ProjectReqVO();
+        projectReqVO.setPageNum(1);
+        projectReqVO.setPageSize(rows);
+        service.list(projectReqVO);
+        return invocations(queryProjectFactory, projectCollectionMapper, userDirectory);
+    }
+
+    /**
+     * 文件列表：文件查询、用户目录、任务名称
+     */
+    private int fileList(int rows) {
+        ProjectFileMapper projectFileMapper = mock(ProjectFileMapper.class);
+        ProjectTaskMapper projectTaskMapper = mock(ProjectTaskMapper.class);
+        UserDirectory userDirectory = mockUserDirectory();
+        List<ProjectFileResVO> files = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ProjectFileResVO file = new ProjectFileResVO();
+            file.setUserId((long) i);
+            file.setPtId("t" + i);
+            file.setType(FileTypeEnum.T.getStatus());
+            files.add(file);
+        }
+        when(projectFileMapper.queryFileList(any())).thenReturn(files);
+
+        ProjectFileServiceImpl service = new ProjectFileServiceImpl();
+        inject(service, "projectFileMapper", projectFileMapper);
+        inject(service, "projectTaskMapper", projectTaskMapper);
+        inject(service, "userDirectory", userDirectory);
+        ProjectFileReqVO projectFileReqVO = new ProjectFileReqVO();
+        projectFileReqVO.setPageNum(1);
+        projectFileReqVO.setPageSize(rows);
+        service.queryFileList(projectFileReqVO);
+        return invocations(projectFileMapper, projectTaskMapper, userDirectory);
+    }
+
+    /**
+     * 子任务：子任务查询、用户目录
+     */
+    private int childTask(int rows) {
+        ProjectTaskMapper projectTaskMapper = mock(ProjectTaskMapper.class);
+        UserDirectory userDirectory = mockUserDirectory();
+        List<TaskResVO> tasks = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            TaskResVO task = new TaskResVO();
+            task.setTaskId("t" + i);
+            task.setUserId((long) i);
+            tasks.add(task);
+        }
+        when(projectTaskMapper.queryChildTask(any())).thenReturn(tasks);
+
+        ProjectTaskServiceImpl service = new ProjectTaskServiceImpl();
+        inject(service, "projectTaskMapper", projectTaskMapper);
+        inject(service, "userDirectory", userDirectory);
+        TaskReqVO taskReqVO = new TaskReqVO();
+        taskReqVO.setTaskId("parent");
+        service.queryChildTask(taskReqVO);
+        return invocations(projectTaskMapper, userDirectory);
+    }
+
+    /**
+     * 用户目录按传入的用户id返回用户
+     */
+    @SuppressWarnings("unchecked")
+    private static UserDirectory mockUserDirectory() {
+        UserDirectory userDirectory = mock(UserDirectory.class);
+        when(userDirectory.getUsers(anyCollection())).thenAnswer(invocation -> {
+            Map<Long, SysUserVO> users = new HashMap<>();
+            for (Long userId : (Collection<Long>) invocation.getArgument(0)) {
+                SysUserVO user = new SysUserVO();
+                user.setUserId(userId);
+                user.setNickName("user" + userId);
+                users.put(userId, user);
+            }
+            return users;
+        });
+        return userDirectory;
+    }
+
+    private static int invocations(Object... mocks) {
+        int count = 0;
+        for (Object mock : mocks) {
+            count += Mockito.mockingDetails(mock).getInvocations().size();
+        }
+        return count;
+    }
+
+    private static void inject(Object target, String field, Object value) {
+        ReflectionTestUtils.setField(target, field, value);
+    }
+}
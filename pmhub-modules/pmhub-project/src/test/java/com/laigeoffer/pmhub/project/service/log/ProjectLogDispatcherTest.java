@@ -0,0 +1,215 @@
+package com.laigeoffer.pmhub.project.service.log;
+
+import com.alibaba.fastjson2.JSON;
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
+import com.laigeoffer.pmhub.project.domain.Project;
+import com.laigeoffer.pmhub.project.domain.ProjectLog;
+import com.laigeoffer.pmhub.project.domain.ProjectLogOutbox;
+import com.laigeoffer.pmhub.project.domain.vo.project.log.LogVO;
+import com.laigeoffer.pmhub.project.mapper.ProjectLogMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectLogOutboxMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 项目日志分发：领取、逐条重试、退避、死信和项目信息快照
+ *
+ * @author zw
+ */
+class ProjectLogDispatcherTest {
+
+    private ProjectLogOutboxMapper outboxMapper;
+
+    private ProjectLogMapper projectLogMapper;
+
+    private ProjectMapper projectMapper;
+
+    private ProjectLogDispatcher dispatcher;
+
+    private final List<ProjectLog> written = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        outboxMapper = mock(ProjectLogOutboxMapper.class);
+        projectLogMapper = mock(ProjectLogMapper.class);
+        projectMapper = mock(ProjectMapper.class);
+        UserDirectory userDirectory = mock(UserDirectory.class);
+        when(userDirectory.getUsers(anyCollection())).thenReturn(Collections.emptyMap());
+        // 内容为 poison 的日志写入失败，模拟超长字段等无法写入的事件
+        doAnswer(invocation -> {
+            List<ProjectLog> logs = invocation.getArgument(0);
+            for (ProjectLog projectLog : logs) {
+                if ("poison".equals(projectLog.getContent())) {
+                    throw new IllegalArgumentException("Data too long for column 'content'");
+                }
+            }
+            written.addAll(logs);
+            return logs.size();
+        }).when(projectLogMapper).insertBatch(anyList());
+        when(outboxMapper.deleteClaimed(anyList(), anyString())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        dispatcher = new ProjectLogDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "projectLogOutboxMapper", outboxMapper);
+        ReflectionTestUtils.setField(dispatcher, "projectLogMapper", projectLogMapper);
+        ReflectionTestUtils.setField(dispatcher, "projectMapper", projectMapper);
+        ReflectionTestUtils.setField(dispatcher, "userDirectory", userDirectory);
+        ReflectionTestUtils.setField(dispatcher, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(dispatcher, "executor", mock(ScheduledExecutorService.class));
+    }
+
+    @Test
+    void dispatchesClaimedBatch() {
+        List<ProjectLogOutbox> outboxes = Arrays.asList(outbox(1L, "a", 1), outbox(2L, "b", 1));
+        pending(outboxes);
+
+        assertEquals(2, dispatchBatch());
+        assertEquals(2, written.size());
+        verify(outboxMapper).deleteClaimed(eq(Arrays.asList(1L, 2L)), anyString());
+        verify(outboxMapper, never()).release(anyList(), anyString());
+    }
+
+    @Test
+    void skipsBatchClaimedElsewhere() {
+        List<ProjectLogOutbox> outboxes = Collections.singletonList(outbox(1L, "a", 1));
+        when(outboxMapper.queryPending(any(), anyInt())).thenReturn(outboxes);
+        when(outboxMapper.claim(anyList(), anyString(), any(), any())).thenReturn(0);
+
+        dispatchBatch();
+        assertTrue(written.isEmpty());
+        verify(outboxMapper, never()).queryClaimed(anyList(), anyString());
+    }
+
+    @Test
+    void poisonEventBacksOffWithoutBlockingOthers() {
+        List<ProjectLogOutbox> outboxes = Arrays.asList(outbox(1L, "a", 1), outbox(2L, "poison", 3), outbox(3L, "c", 1));
+        pending(outboxes);
+
+        dispatchBatch();
+        assertEquals(2, written.size());
+        ArgumentCaptor<Date> retryTime = ArgumentCaptor.forClass(Date.class);
+        verify(outboxMapper).retryLater(eq(2L), anyString(), retryTime.capture(), anyString());
+        long delay = retryTime.getValue().getTime() - System.currentTimeMillis();
+        assertTrue(delay > ProjectLogDispatcher.backoffMillis(2) && delay <= ProjectLogDispatcher.backoffMillis(3));
+        verify(outboxMapper, never()).markDead(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void poisonEventIsDeadLetteredAfterMaxAttempts() {
+        pending(Collections.singletonList(outbox(1L, "poison", ProjectLogDispatcher.MAX_ATTEMPTS)));
+
+        dispatchBatch();
+        verify(outboxMapper).markDead(eq(1L), anyString(), anyString());
+        verify(outboxMapper, never()).retryLater(anyLong(), anyString(), any(), anyString());
+    }
+
+    @Test
+    void backoffGrowsAndIsCapped() {
+        assertTrue(ProjectLogDispatcher.backoffMillis(2) > ProjectLogDispatcher.backoffMillis(1));
+        assertEquals(ProjectLogDispatcher.backoffMillis(30), ProjectLogDispatcher.backoffMillis(60));
+    }
+
+    @Test
+    void projectNameIsSnapshotAtPublish() {
+        when(projectMapper.selectBatchIds(anyCollection())).thenReturn(Collections.singletonList(project("旧名称")));
+        LogVO logVO = event("edit");
+        dispatcher.publish(logVO);
+        ArgumentCaptor<List<ProjectLogOutbox>> published = captor();
+        verify(outboxMapper).insertBatch(published.capture());
+        ProjectLogOutbox outbox = published.getValue().get(0);
+        outbox.setId(1L);
+        outbox.setAttempts(1);
+
+        // 分发前项目已改名，日志仍记录编辑时的名称，且不再查询项目
+        when(projectMapper.selectBatchIds(anyCollection())).thenReturn(Collections.singletonList(project("新名称")));
+        pending(Collections.singletonList(outbox));
+        dispatchBatch();
+        assertEquals("旧名称", written.get(0).getContent());
+        verify(projectMapper).selectBatchIds(anyCollection());
+    }
+
+    @Test
+    void eventsWithoutSnapshotUseCurrentProject() {
+        when(projectMapper.selectBatchIds(anyCollection())).thenReturn(Collections.singletonList(project("当前名称")));
+        ProjectLogOutbox outbox = new ProjectLogOutbox();
+        outbox.setId(1L);
+        outbox.setAttempts(1);
+        outbox.setCreatedTime(new Date());
+        outbox.setPayload(JSON.toJSONString(event("edit")));
+        pending(Collections.singletonList(outbox));
+
+        dispatchBatch();
+        assertEquals("当前名称", written.get(0).getContent());
+    }
+
+    private int dispatchBatch() {
+        Integer size = ReflectionTestUtils.invokeMethod(dispatcher, "dispatchBatch");
+        return size == null ? 0 : size;
+    }
+
+    private void pending(List<ProjectLogOutbox> outboxes) {
+        when(outboxMapper.queryPending(any(), anyInt())).thenReturn(outboxes);
+        when(outboxMapper.claim(anyList(), anyString(), any(), any())).thenReturn(outboxes.size());
+        when(outboxMapper.queryClaimed(anyList(), anyString())).thenReturn(outboxes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<ProjectLogOutbox>> captor() {
+        return ArgumentCaptor.forClass((Class<List<ProjectLogOutbox>>) (Class<?>) List.class);
+    }
+
+    private static ProjectLogOutbox outbox(Long id, String content, int attempts) {
+        LogVO logVO = event("uploadProjectFile");
+        logVO.setContent(content);
+        ProjectLogOutbox outbox = new ProjectLogOutbox();
+        outbox.setId(id);
+        outbox.setAttempts(attempts);
+        outbox.setCreatedTime(new Date());
+        outbox.setPayload(JSON.toJSONString(logVO));
+        return outbox;
+    }
+
+    private static LogVO event(String operateType) {
+        LogVO logVO = new LogVO();
+        logVO.setOperateType(operateType);
+        logVO.setType("project");
+        logVO.setPtId("p1");
+        logVO.setProjectId("p1");
+        logVO.setUserId(1L);
+        logVO.setCreatedTime(new Date());
+        return logVO;
+    }
+
+    private static Project project(String name) {
+        Project project = new Project();
+        project.setId("p1");
+        project.setProjectName(name);
+        return project;
+    }
+}
@@ -0,0 +1,188 @@
+package com.laigeoffer.pmhub.project.service.stats;
+
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
+import com.laigeoffer.pmhub.base.core.enums.ProjectTaskStatusEnum;
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 任务变更前后的差异对计数的增减
+ *
+ * @author zw
+ */
+class TaskStatsCounterTest {
+
+    private static final String PROJECT = CacheConstants.TASK_STATS_KEY + "p1";
+
+    private static final String ALL = CacheConstants.TASK_STATS_KEY + "all";
+
+    private static final Date CLOSE_TIME = new Date(1714521600000L);
+
+    /**
+     * 累计的哈希字段增量，key为 哈希key|字段
+     */
+    private final Map<String, Long> hashes = new HashMap<>();
+
+    /**
+     * 有序集合中的任务id
+     */
+    private final Map<String, Set<String>> zsets = new HashMap<>();
+
+    private TaskStatsCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        RedisConnection connection = mock(RedisConnection.class);
+        doAnswer(invocation -> {
+            hashes.merge(string(invocation.getArgument(0)) + "|" + string(invocation.getArgument(1)),
+                    invocation.<Long>getArgument(2), Long::sum);
+            return 0L;
+        }).when(connection).hIncrBy(any(byte[].class), any(byte[].class), anyLong());
+        doAnswer(invocation -> {
+            zsets.computeIfAbsent(string(invocation.getArgument(0)), k -> new HashSet<>()).add(string(invocation.getArgument(2)));
+            return true;
+        }).when(connection).zAdd(any(byte[].class), anyDouble(), any(byte[].class));
+        doAnswer(invocation -> {
+            zsets.getOrDefault(string(invocation.getArgument(0)), Collections.emptySet()).remove(string(invocation.getArgument(1)));
+            return 1L;
+        }).when(connection).zRem(any(byte[].class), any(byte[].class));
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return Collections.emptyList();
+        });
+
+        counter = new TaskStatsCounter();
+        ReflectionTestUtils.setField(counter, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(counter, "ready", true);
+    }
+
+    @Test
+    void insertCountsProjectAndGlobal() {
+        ProjectTask task = task(ProjectTaskStatusEnum.NO_STARTED.getStatus(), null);
+        counter.onChanged(null, task);
+
+        for (String key : new String[]{PROJECT, ALL}) {
+            assertEquals(1L, field(key, "total"));
+            assertEquals(1L, field(key, "unassigned"));
+            assertEquals(1L, field(key, "timeUndetermined"));
+            assertEquals(1L, field(key, "status:0"));
+            assertTrue(inZset(key + ":close"));
+            assertFalse(inZset(key + ":close_done"));
+        }
+        // 新增时未赋值的执行状态按数据库默认值0计，属于未完成
+        assertTrue(inZset(ALL + ":close_unexecuted"));
+        assertFalse(zsets.containsKey(PROJECT + ":close_unexecuted"));
+    }
+
+    @Test
+    void statusChangeMovesBetweenFields() {
+        ProjectTask before = task(ProjectTaskStatusEnum.NO_STARTED.getStatus(), 0);
+        counter.onChanged(null, before);
+        ProjectTask after = task(ProjectTaskStatusEnum.FINISHED.getStatus(), 2);
+        after.setUserId(1L);
+        counter.onChanged(before, after);
+
+        for (String key : new String[]{PROJECT, ALL}) {
+            assertEquals(1L, field(key, "total"));
+            assertEquals(0L, field(key, "unassigned"));
+            assertEquals(0L, field(key, "status:0"));
+            assertEquals(1L, field(key, "status:2"));
+            assertTrue(inZset(key + ":close"));
+            assertTrue(inZset(key + ":close_done"));
+        }
+        assertFalse(inZset(ALL + ":close_unexecuted"));
+    }
+
+    @Test
+    void deleteAndSoftDeleteRemoveContribution() {
+        ProjectTask task = task(ProjectTaskStatusEnum.DOING.getStatus(), 1);
+        counter.onChanged(null, task);
+        ProjectTask deleted = task(ProjectTaskStatusEnum.DOING.getStatus(), 1);
+        deleted.setDeleted(1);
+        counter.onChanged(task, deleted);
+
+        for (String key : new String[]{PROJECT, ALL}) {
+            assertEquals(0L, field(key, "total"));
+            assertEquals(0L, field(key, "status:1"));
+            assertFalse(inZset(key + ":close"));
+        }
+        assertFalse(inZset(ALL + ":close_unexecuted"));
+    }
+
+    @Test
+    void nullExecuteStatusFromDatabaseIsNotUnexecuted() {
+        // 与原先 execute_status != 2 一致，库中为NULL的任务不计入执行未完成
+        ProjectTask before = task(ProjectTaskStatusEnum.DOING.getStatus(), null);
+        ProjectTask after = task(ProjectTaskStatusEnum.DOING.getStatus(), null);
+        after.setCloseTime(new Date(CLOSE_TIME.getTime() + 1000));
+        counter.onChanged(before, after);
+
+        assertTrue(inZset(ALL + ":close"));
+        assertFalse(inZset(ALL + ":close_unexecuted"));
+        assertEquals(0L, field(ALL, "total"));
+    }
+
+    @Test
+    void moveBetweenProjects() {
+        ProjectTask before = task(ProjectTaskStatusEnum.DOING.getStatus(), 1);
+        counter.onChanged(null, before);
+        ProjectTask after = task(ProjectTaskStatusEnum.DOING.getStatus(), 1);
+        after.setProjectId("p2");
+        counter.onChanged(before, after);
+
+        String other = CacheConstants.TASK_STATS_KEY + "p2";
+        assertEquals(0L, field(PROJECT, "total"));
+        assertEquals(1L, field(other, "total"));
+        assertEquals(1L, field(ALL, "total"));
+        assertFalse(inZset(PROJECT + ":close"));
+        assertTrue(inZset(other + ":close"));
+        assertTrue(inZset(ALL + ":close"));
+    }
+
+    private long field(String key, String field) {
+        return hashes.getOrDefault(key + "|" + field, 0L);
+    }
+
+    private boolean inZset(String key) {
+        return zsets.getOrDefault(key, Collections.emptySet()).contains("t1");
+    }
+
+    private static ProjectTask task(Integer status, Integer executeStatus) {
+        ProjectTask task = new ProjectTask();
+        task.setId("t1");
+        task.setProjectId("p1");
+        task.setStatus(status);
+        task.setExecuteStatus(executeStatus);
+        task.setCloseTime(CLOSE_TIME);
+        task.setDeleted(0);
+        return task;
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package com.laigeoffer.pmhub.project.service.task;
+
+import com.laigeoffer.pmhub.api.system.directory.UserDirectory;
+import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
+import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskExportVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 导出按批补充执行人
+ *
+ * @author zw
+ */
+class TaskExporterTest {
+
+    private UserDirectory userDirectory;
+
+    private TaskExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        userDirectory = mock(UserDirectory.class);
+        exporter = new TaskExporter();
+        ReflectionTestUtils.setField(exporter, "userDirectory", userDirectory);
+    }
+
+    @Test
+    void chunkWithoutExecutorsSkipsLookup() {
+        List<TaskExportVO> chunk = Arrays.asList(row(null), row(null));
+        enrich(chunk);
+
+        verify(userDirectory, never()).getUsers(anyCollection());
+        assertNull(chunk.get(0).getExecutor());
+        assertEquals("未开始", chunk.get(0).getStatusName());
+    }
+
+    @Test
+    void nullExecutorsAreNotLookedUp() {
+        SysUserVO user = new SysUserVO();
+        user.setUserId(1L);
+        user.setNickName("张三");
+        when(userDirectory.getUsers(eq(Collections.singleton(1L)))).thenReturn(Collections.singletonMap(1L, user));
+        List<TaskExportVO> chunk = Arrays.asList(row(null), row(1L));
+        enrich(chunk);
+
+        assertNull(chunk.get(0).getExecutor());
+        assertEquals("张三", chunk.get(1).getExecutor());
+        assertEquals("张三", chunk.get(1).getCreatedBy());
+    }
+
+    @Test
+    void missingUsersFail() {
+        when(userDirectory.getUsers(anyCollection())).thenReturn(Collections.emptyMap());
+        assertThrows(ServiceException.class, () -> enrich(Collections.singletonList(row(1L))));
+    }
+
+    private void enrich(List<TaskExportVO> chunk) {
+        ReflectionTestUtils.invokeMethod(exporter, "enrich", chunk);
+    }
+
+    private static TaskExportVO row(Long userId) {
+        TaskExportVO vo = new TaskExportVO();
+        vo.setUserId(userId);
+        vo.setStatus(0);
+        vo.setExecuteStatus(0);
+        vo.setTaskPriority(0);
+        return vo;
+    }
+}
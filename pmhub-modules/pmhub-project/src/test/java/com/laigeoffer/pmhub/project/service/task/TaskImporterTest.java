@@ -0,0 +1,183 @@
+package com.laigeoffer.pmhub.project.service.task;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.laigeoffer.pmhub.api.system.UserFeignService;
+import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
+import com.laigeoffer.pmhub.base.core.core.domain.R;
+import com.laigeoffer.pmhub.base.core.core.domain.vo.SysUserVO;
+import com.laigeoffer.pmhub.base.core.exception.ServiceException;
+import com.laigeoffer.pmhub.base.core.utils.DateUtils;
+import com.laigeoffer.pmhub.project.domain.Project;
+import com.laigeoffer.pmhub.project.domain.ProjectMember;
+import com.laigeoffer.pmhub.project.domain.ProjectStage;
+import com.laigeoffer.pmhub.project.domain.ProjectTask;
+import com.laigeoffer.pmhub.project.domain.vo.project.task.TaskExcelVO;
+import com.laigeoffer.pmhub.project.mapper.ProjectMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectMemberMapper;
+import com.laigeoffer.pmhub.project.mapper.ProjectStageMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 任务导入的逐行校验和字段映射
+ *
+ * @author zw
+ */
+class TaskImporterTest {
+
+    private UserFeignService userFeignService;
+
+    private ProjectMapper projectMapper;
+
+    private ProjectMemberMapper projectMemberMapper;
+
+    private ProjectStageMapper projectStageMapper;
+
+    private TaskImporter importer;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda 条件构造需要实体的字段映射
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, Project.class);
+        TableInfoHelper.initTableInfo(assistant, ProjectMember.class);
+        TableInfoHelper.initTableInfo(assistant, ProjectStage.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        userFeignService = mock(UserFeignService.class);
+        projectMapper = mock(ProjectMapper.class);
+        projectMemberMapper = mock(ProjectMemberMapper.class);
+        projectStageMapper = mock(ProjectStageMapper.class);
+        when(userFeignService.listOfInner(any(SysUserDTO.class), anyString()))
+                .thenReturn(R.ok(Arrays.asList(user(1L, "Alice"), user(2L, "bob"))));
+        when(projectMapper.selectList(any())).thenReturn(Collections.singletonList(project("p1", "PM-1")));
+        when(projectMemberMapper.selectList(any())).thenReturn(Collections.singletonList(member("p1", 1L)));
+        // 按阶段编号升序返回，取第一个
+        when(projectStageMapper.selectList(any())).thenReturn(Arrays.asList(stage("s1", "p1"), stage("s2", "p1")));
+
+        importer = new TaskImporter();
+        ReflectionTestUtils.setField(importer, "batchSize", 500);
+        ReflectionTestUtils.setField(importer, "userFeignService", userFeignService);
+        ReflectionTestUtils.setField(importer, "projectMapper", projectMapper);
+        ReflectionTestUtils.setField(importer, "projectMemberMapper", projectMemberMapper);
+        ReflectionTestUtils.setField(importer, "projectStageMapper", projectStageMapper);
+    }
+
+    @Test
+    void mapsRowToTask() {
+        List<SysUserVO> executors = new ArrayList<>();
+        List<ProjectTask> tasks = importer.toTasks(Collections.singletonList(row("pm-1", "alice")), executors, "admin");
+
+        assertEquals(1, tasks.size());
+        ProjectTask task = tasks.get(0);
+        assertEquals("任务", task.getTaskName());
+        assertEquals(DateUtils.parseDate("2024-05-01"), task.getBeginTime());
+        assertEquals(DateUtils.parseDate("2024-05-10"), task.getEndTime());
+        assertEquals(DateUtils.parseDate("2024-05-20"), task.getCloseTime());
+        assertEquals(Integer.valueOf(2), task.getTaskPriority());
+        assertEquals("p1", task.getProjectId());
+        assertEquals("s1", task.getProjectStageId());
+        assertEquals(Long.valueOf(1L), task.getUserId());
+        assertEquals("admin", task.getCreatedBy());
+        assertEquals("admin", task.getUpdatedBy());
+        assertEquals(1, executors.size());
+        assertEquals("Alice", executors.get(0).getUserName());
+    }
+
+    @Test
+    void skipsRowsOfNonMembers() {
+        List<SysUserVO> executors = new ArrayList<>();
+        List<ProjectTask> tasks = importer.toTasks(Arrays.asList(row("PM-1", "bob"), row("PM-1", "Alice")), executors, "admin");
+
+        assertEquals(1, tasks.size());
+        assertEquals(Long.valueOf(1L), tasks.get(0).getUserId());
+        assertEquals(1, executors.size());
+    }
+
+    @Test
+    void unknownUserOrProjectFails() {
+        assertThrows(ServiceException.class,
+                () -> importer.toTasks(Collections.singletonList(row("PM-1", "carol")), new ArrayList<>(), "admin"));
+        assertThrows(ServiceException.class,
+                () -> importer.toTasks(Collections.singletonList(row("PM-2", "Alice")), new ArrayList<>(), "admin"));
+        assertThrows(ServiceException.class,
+                () -> importer.toTasks(Collections.singletonList(row(null, "Alice")), new ArrayList<>(), "admin"));
+    }
+
+    @Test
+    void projectWithoutStageFails() {
+        when(projectStageMapper.selectList(any())).thenReturn(Collections.emptyList());
+        assertThrows(ServiceException.class,
+                () -> importer.toTasks(Collections.singletonList(row("PM-1", "Alice")), new ArrayList<>(), "admin"));
+    }
+
+    @Test
+    void usersAreQueriedInBatches() {
+        ReflectionTestUtils.setField(importer, "batchSize", 2);
+        List<TaskExcelVO> rows = Arrays.asList(row("PM-1", "Alice"), row("PM-1", "alice"), row("PM-1", "x"),
+                row("PM-1", "y"), row("PM-1", "z"));
+        assertThrows(ServiceException.class, () -> importer.toTasks(rows, new ArrayList<>(), "admin"));
+        // 5个不同账号按每批2个查询3次
+        verify(userFeignService, times(3)).listOfInner(any(SysUserDTO.class), anyString());
+    }
+
+    private static TaskExcelVO row(String projectCode, String username) {
+        TaskExcelVO row = new TaskExcelVO();
+        row.setProjectCode(projectCode);
+        row.setUsername(username);
+        row.setTaskName("任务");
+        row.setTaskPriority("2");
+        row.setBeginTime("2024-05-01");
+        row.setEndTime("2024-05-10");
+        row.setCloseTime("2024-05-20");
+        return row;
+    }
+
+    private static SysUserVO user(Long userId, String userName) {
+        SysUserVO user = new SysUserVO();
+        user.setUserId(userId);
+        user.setUserName(userName);
+        return user;
+    }
+
+    private static Project project(String id, String projectCode) {
+        Project project = new Project();
+        project.setId(id);
+        project.setProjectCode(projectCode);
+        return project;
+    }
+
+    private static ProjectMember member(String projectId, Long userId) {
+        ProjectMember member = new ProjectMember();
+        member.setPtId(projectId);
+        member.setUserId(userId);
+        return member;
+    }
+
+    private static ProjectStage stage(String id, String projectId) {
+        ProjectStage stage = new ProjectStage();
+        stage.setId(id);
+        stage.setProjectId(projectId);
+        return stage;
+    }
+}
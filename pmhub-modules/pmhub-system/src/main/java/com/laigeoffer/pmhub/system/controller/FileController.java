@@ -5,6 +5,7 @@ import com.laigeoffer.pmhub.base.core.config.ServerConfig;
 import com.laigeoffer.pmhub.base.core.constant.Constants;
 import com.laigeoffer.pmhub.base.core.core.domain.AjaxResult;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
+import com.laigeoffer.pmhub.base.core.utils.file.FileDownloadUtils;
 import com.laigeoffer.pmhub.base.core.utils.file.FileUploadUtils;
 import com.laigeoffer.pmhub.base.core.utils.file.FileUtils;
 import org.slf4j.Logger;
@@ -54,8 +55,9 @@ public class FileController {
 
             response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
             FileUtils.setAttachmentResponseHeader(response, realFileName);
-            FileUtils.writeBytes(filePath, response);
-            if (delete) {
+            // 下载后删除的文件不能交给容器延后发送
+            FileDownloadUtils.writeFile(filePath, request, response, !Boolean.TRUE.equals(delete));
+            if (Boolean.TRUE.equals(delete)) {
                 FileUtils.deleteFile(filePath);
             }
         } catch (Exception e) {
@@ -135,8 +137,7 @@ public class FileController {
             String downloadName = StringUtils.substringAfterLast(downloadPath, "/");
             response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
             FileUtils.setAttachmentResponseHeader(response, downloadName);
-            //Files.copy(FileSystems.getDefault().getPath(downloadPath),response.getOutputStream());
-            FileUtils.writeBytes(downloadPath, response);
+            FileDownloadUtils.writeFile(downloadPath, request, response);
         } catch (Exception e) {
             log.error("下载文件失败", e);
         }
@@ -69,6 +69,7 @@ public class SysLogininforController extends BaseController {
     @GetMapping("/unlock/{userName}")
     public AjaxResult unlock(@PathVariable("userName") String userName) {
         redisService.deleteObject(CacheConstants.PWD_ERR_CNT_KEY + userName);
+        redisService.deleteObject(CacheConstants.PWD_ERR_WINDOW_KEY + userName);
         return success();
     }
 
@@ -83,4 +84,16 @@ public class SysLogininforController extends BaseController {
     {
         return toAjax(logininforService.insertLogininfor(logininfor));
     }
+
+    /**
+     * 批量插入访问记录-内部微服务调用
+     * @param logininforList
+     * @return
+     */
+    @InnerAuth
+    @PostMapping("/batch")
+    public AjaxResult addBatch(@RequestBody List<SysLogininfor> logininforList)
+    {
+        return toAjax(logininforService.insertLogininforBatch(logininforList));
+    }
 }
@@ -17,6 +17,14 @@ public interface SysLogininforMapper {
      */
     public int insertLogininfor(SysLogininfor logininfor);
 
+    /**
+     * 批量新增系统登录日志
+     *
+     * @param logininforList 访问日志集合
+     * @return 结果
+     */
+    public int insertLogininforBatch(List<SysLogininfor> logininforList);
+
     /**
      * 查询系统登录日志集合
      *
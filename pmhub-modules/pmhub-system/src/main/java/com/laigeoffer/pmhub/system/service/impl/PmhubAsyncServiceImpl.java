@@ -4,6 +4,8 @@ package com.laigeoffer.pmhub.system.service.impl;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.log.LogFactory;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.laigeoffer.pmhub.base.core.utils.ServletUtils;
+import com.laigeoffer.pmhub.base.core.utils.file.FileDownloadUtils;
 import com.laigeoffer.pmhub.base.core.utils.file.FileUtils;
 import com.laigeoffer.pmhub.system.domain.PmhubAsync;
 import com.laigeoffer.pmhub.system.mapper.PmhubAsyncMapper;
@@ -138,7 +140,7 @@ public class PmhubAsyncServiceImpl implements IPmhubAsyncService {
             // 单文件下载
             try {
                 FileUtils.setAttachmentResponseHeader(response, pmhubAsync.getFile());
-                FileUtils.writeBytes(pmhubAsync.getFile(), response);
+                FileDownloadUtils.writeFile(pmhubAsync.getFile(), ServletUtils.getRequest(), response);
             } catch (UnsupportedEncodingException e) {
                 LogFactory.get().error(e);
                 throw new RuntimeException(e);
@@ -5,6 +5,7 @@ import com.laigeoffer.pmhub.system.mapper.SysLogininforMapper;
 import com.laigeoffer.pmhub.system.service.ISysLogininforService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -15,6 +16,10 @@ import java.util.List;
  */
 @Service
 public class SysLogininforServiceImpl implements ISysLogininforService {
+    /**
+     * 单条insert语句最多插入的行数
+     */
+    private static final int BATCH_SIZE = 500;
 
     @Autowired
     private SysLogininforMapper logininforMapper;
@@ -29,6 +34,27 @@ public class SysLogininforServiceImpl implements ISysLogininforService {
         return logininforMapper.insertLogininfor(logininfor);
     }
 
+    /**
+     * 批量新增系统登录日志，按批次拆分为多行插入；
+     * 所有批次在同一事务内提交，部分失败时整体回滚，调用方把整批转存重试时不会重复写入已成功的批次
+     *
+     * @param logininforList 访问日志集合
+     * @return 结果
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int insertLogininforBatch(List<SysLogininfor> logininforList) {
+        if (logininforList == null || logininforList.isEmpty()) {
+            return 0;
+        }
+        int rows = 0;
+        for (int from = 0; from < logininforList.size(); from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, logininforList.size());
+            rows += logininforMapper.insertLogininforBatch(logininforList.subList(from, to));
+        }
+        return rows;
+    }
+
     /**
      * 查询系统登录日志集合
      *
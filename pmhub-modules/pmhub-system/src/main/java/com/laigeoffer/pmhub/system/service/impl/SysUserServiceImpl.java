@@ -2,6 +2,8 @@ package com.laigeoffer.pmhub.system.service.impl;
 
 import com.laigeoffer.pmhub.api.system.domain.dto.SysUserDTO;
 import com.laigeoffer.pmhub.base.core.annotation.DataScope;
+import com.laigeoffer.pmhub.base.core.config.redis.RedisService;
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
 import com.laigeoffer.pmhub.base.core.constant.UserConstants;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysRole;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
@@ -22,11 +24,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
 import javax.validation.Validator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -51,6 +57,8 @@ public class SysUserServiceImpl implements ISysUserService {
     private SysUserPostMapper userPostMapper;
     @Autowired
     private ISysConfigService configService;
+    @Autowired
+    private RedisService redisService;
 
     /**
      * 根据条件分页查询用户列表
@@ -287,7 +295,9 @@ public class SysUserServiceImpl implements ISysUserService {
         userPostMapper.deleteUserPostByUserId(userId);
         // 新增用户与岗位管理
         insertUserPost(user);
-        return userMapper.updateUser(user);
+        int rows = userMapper.updateUser(user);
+        publishUserChanged(userId);
+        return rows;
     }
 
     /**
@@ -311,7 +321,9 @@ public class SysUserServiceImpl implements ISysUserService {
      */
     @Override
     public int updateUserStatus(SysUser user) {
-        return userMapper.updateUserStatus(user);
+        int rows = userMapper.updateUserStatus(user);
+        publishUserChanged(user.getUserId());
+        return rows;
     }
 
     /**
@@ -322,7 +334,9 @@ public class SysUserServiceImpl implements ISysUserService {
      */
     @Override
     public int updateUserProfile(SysUser user) {
-        return userMapper.updateUser(user);
+        int rows = userMapper.updateUser(user);
+        publishUserChanged(user.getUserId());
+        return rows;
     }
 
     /**
@@ -334,7 +348,14 @@ public class SysUserServiceImpl implements ISysUserService {
      */
     @Override
     public boolean updateUserAvatar(String userName, String avatar) {
-        return userMapper.updateUserAvatar(userName, avatar) > 0;
+        boolean updated = userMapper.updateUserAvatar(userName, avatar) > 0;
+        if (updated) {
+            SysUser user = userMapper.selectUserByUserName(userName);
+            if (user != null) {
+                publishUserChanged(user.getUserId());
+            }
+        }
+        return updated;
     }
 
     /**
@@ -422,7 +443,9 @@ public class SysUserServiceImpl implements ISysUserService {
         userRoleMapper.deleteUserRoleByUserId(userId);
         // 删除用户与岗位表
         userPostMapper.deleteUserPostByUserId(userId);
-        return userMapper.deleteUserById(userId);
+        int rows = userMapper.deleteUserById(userId);
+        publishUserChanged(userId);
+        return rows;
     }
 
     /**
@@ -442,7 +465,41 @@ public class SysUserServiceImpl implements ISysUserService {
         userRoleMapper.deleteUserRole(userIds);
         // 删除用户与岗位关联
         userPostMapper.deleteUserPost(userIds);
-        return userMapper.deleteUserByIds(userIds);
+        int rows = userMapper.deleteUserByIds(userIds);
+        publishUserChanged(userIds);
+        return rows;
+    }
+
+    /**
+     * 广播用户变更，各服务的用户目录收到后清理本地缓存；
+     * 处于事务中时在提交后广播，避免其他节点在提交前重新加载到旧数据
+     *
+     * @param userIds 变更的用户ID
+     */
+    private void publishUserChanged(Long... userIds) {
+        String message = Arrays.stream(userIds).filter(Objects::nonNull).map(String::valueOf).collect(Collectors.joining(","));
+        if (StringUtils.isEmpty(message)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendUserChanged(message);
+                }
+            });
+        } else {
+            sendUserChanged(message);
+        }
+    }
+
+    private void sendUserChanged(String message) {
+        try {
+            redisService.publish(CacheConstants.SYS_USER_EVICT_CHANNEL, message);
+        } catch (Exception e) {
+            // 通知失败时依赖用户目录的本地过期时间兜底
+            log.warn("广播用户变更失败:{}", e.getMessage());
+        }
     }
 
     /**
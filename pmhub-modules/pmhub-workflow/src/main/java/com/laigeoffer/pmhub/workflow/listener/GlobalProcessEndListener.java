@@ -3,6 +3,8 @@ package com.laigeoffer.pmhub.workflow.listener;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.log.LogFactory;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.laigeoffer.pmhub.base.core.config.redis.RedisService;
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
 import com.laigeoffer.pmhub.base.core.enums.ProjectStatusEnum;
 import com.laigeoffer.pmhub.base.core.utils.StringUtils;
@@ -19,7 +21,10 @@ import org.flowable.engine.delegate.event.AbstractFlowableEngineEventListener;
 import org.flowable.engine.delegate.event.impl.FlowableEntityEventImpl;
 import org.flowable.engine.impl.persistence.entity.ExecutionEntityImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +46,12 @@ public class GlobalProcessEndListener extends AbstractFlowableEngineEventListene
     @Autowired
     private WfTaskProcessMapper wfTaskProcessMapper;
 
+    @Autowired
+    private RedisService redisService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
     @Autowired
     private WfTaskMessageDealMapper wfTaskMessageDealMapper;
 
@@ -96,6 +107,7 @@ public class GlobalProcessEndListener extends AbstractFlowableEngineEventListene
             if (ObjectUtil.isNotEmpty(wfTaskProcess)) {
                 if (ProjectStatusEnum.TASK.getStatusName().equals(type)) {
                     wfTaskProcessMapper.updateTaskStatus(wfTaskProcess.getExtraId());
+                    onTaskStatusChanged(wfTaskProcess.getExtraId());
                     LogFactory.get().info("更新项目任务id:{}", wfTaskProcess.getExtraId());
                 } else if (ProcessUtils.SUPPLIER_APPROVAL_TYPE.equals(type)) {
                     wfTaskProcessMapper.updateProviderStatus(wfTaskProcess.getExtraId());
@@ -141,6 +153,7 @@ public class GlobalProcessEndListener extends AbstractFlowableEngineEventListene
                 } else {
                     // 将任务状态改为未开始
                     wfTaskProcessMapper.updateTaskStatus2(wfTaskProcess.getExtraId());
+                    onTaskStatusChanged(wfTaskProcess.getExtraId());
                     LogFactory.get().info("更新项目任务状态id:{}", wfTaskProcess.getExtraId());
                 }
             }
@@ -196,4 +209,29 @@ public class GlobalProcessEndListener extends AbstractFlowableEngineEventListene
 
     }
 
+    /**
+     * 任务状态变化后清理所属项目的燃尽图缓存，并登记项目由项目服务校准任务统计；
+     * 处在事务中时推迟到提交之后，避免提交前被并发请求按旧状态重新写回缓存
+     */
+    private void onTaskStatusChanged(String taskId) {
+        String projectId = wfTaskProcessMapper.selectProjectIdByTaskId(taskId);
+        if (StringUtils.isBlank(projectId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictProjectStats(projectId);
+                }
+            });
+        } else {
+            evictProjectStats(projectId);
+        }
+    }
+
+    private void evictProjectStats(String projectId) {
+        redisService.deleteObject(CacheConstants.BURN_DOWN_CHART_KEY + projectId);
+        stringRedisTemplate.opsForSet().add(CacheConstants.TASK_STATS_DIRTY_KEY, projectId);
+    }
 }
@@ -13,6 +13,7 @@ import org.apache.ibatis.annotations.Param;
 public interface WfTaskProcessMapper extends BaseMapper<WfTaskProcess> {
     Integer selectStatusByTaskId(@Param("taskId") String taskId);
     Integer selectStatusByTaskId2(@Param("taskId") String taskId);
+    String selectProjectIdByTaskId(@Param("taskId") String taskId);
     int updateTaskStatus(@Param("taskId") String taskId);
     int updateTaskStatus2(@Param("taskId") String taskId);
     int updateTaskStatus3(@Param("taskId") String taskId);
@@ -10,6 +10,7 @@ import cn.hutool.core.util.ObjectUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.conditions.update.LambdaUpdateChainWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
 import com.laigeoffer.pmhub.base.core.core.domain.PageQuery;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysDept;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysRole;
@@ -64,8 +65,11 @@ import org.flowable.task.api.history.HistoricTaskInstance;
 import org.flowable.task.api.history.HistoricTaskInstanceQuery;
 import org.flowable.variable.api.history.HistoricVariableInstance;
 import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.InputStream;
 import java.util.*;
@@ -85,6 +89,7 @@ public class WfProcessServiceImpl extends FlowServiceFactory implements IWfProce
     private final WfTaskProcessMapper wfTaskProcessMapper;
     private final IWfDeployService deployService;
     private final WfMaterialsScrappedProcessMapper wfMaterialsScrappedProcessMapper;
+    private final StringRedisTemplate stringRedisTemplate;
 //    private final MaterialsChangeRecordsMapper materialsChangeRecordsMapper;
 //    private final MaterialsUselessMapper materialsUselessMapper;
 
@@ -866,6 +871,7 @@ public class WfProcessServiceImpl extends FlowServiceFactory implements IWfProce
                     if ("3".equals(list.get(0).getType())) {
                         // 将任务状态改为进行中
                         wfTaskProcessMapper.updateTaskStatus3(extraId);
+                        markTaskStatsDirty(extraId);
                     }
                 }
             }
@@ -879,6 +885,7 @@ public class WfProcessServiceImpl extends FlowServiceFactory implements IWfProce
             if (ProjectStatusEnum.PROJECT.getStatusName().equals(type) || ProjectStatusEnum.TASK.getStatusName().equals(type)) {
                 // 将任务状态改为进行中
                 wfTaskProcessMapper.updateTaskStatus3(extraId);
+                markTaskStatsDirty(extraId);
             }
 //            if (types.contains(type)) {
 //                MaterialsChangeRecords materialsChangeRecords = materialsChangeRecordsMapper.selectById(extraId);
@@ -1485,4 +1492,25 @@ public class WfProcessServiceImpl extends FlowServiceFactory implements IWfProce
         Set<String> rejectedSet = FlowableUtils.dfsFindRejects(bpmnModel, unfinishedTaskSet, finishedSequenceFlowSet, finishedTaskSet);
         return new WfViewerVo(finishedTaskSet, finishedSequenceFlowSet, unfinishedTaskSet, rejectedSet);
     }
+
+    /**
+     * 任务状态变化后登记所属项目，由项目服务校准任务统计；
+     * 处在事务中时推迟到提交之后，避免校准线程在提交前按旧状态重建计数，或在回滚后登记无效的项目
+     */
+    private void markTaskStatsDirty(String taskId) {
+        String projectId = wfTaskProcessMapper.selectProjectIdByTaskId(taskId);
+        if (StringUtils.isBlank(projectId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stringRedisTemplate.opsForSet().add(CacheConstants.TASK_STATS_DIRTY_KEY, projectId);
+                }
+            });
+        } else {
+            stringRedisTemplate.opsForSet().add(CacheConstants.TASK_STATS_DIRTY_KEY, projectId);
+        }
+    }
 }
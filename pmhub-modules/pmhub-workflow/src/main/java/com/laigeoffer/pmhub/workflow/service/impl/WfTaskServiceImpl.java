@@ -5,6 +5,8 @@ import cn.hutool.core.convert.Convert;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.laigeoffer.pmhub.base.core.config.redis.RedisService;
+import com.laigeoffer.pmhub.base.core.constant.CacheConstants;
 import com.laigeoffer.pmhub.base.core.core.domain.entity.SysUser;
 import com.laigeoffer.pmhub.base.core.exception.ServiceException;
 import com.laigeoffer.pmhub.base.security.utils.SecurityUtils;
@@ -45,8 +47,11 @@ import org.flowable.task.api.DelegationState;
 import org.flowable.task.api.Task;
 import org.flowable.task.api.history.HistoricTaskInstance;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.InputStream;
 import java.util.*;
@@ -64,6 +69,8 @@ public class WfTaskServiceImpl extends FlowServiceFactory implements IWfTaskServ
     private final IWfCopyService copyService;
     private final WfCopyMapper wfCopyMapper;
     private final WfTaskProcessMapper wfTaskProcessMapper;
+    private final RedisService redisService;
+    private final StringRedisTemplate stringRedisTemplate;
 //    private final WfMaterialsScrappedProcessMapper wfMaterialsScrappedProcessMapper;
 
     @Autowired
@@ -463,6 +470,7 @@ public class WfTaskServiceImpl extends FlowServiceFactory implements IWfTaskServ
             wfTaskProcessMapper.updateProcessState2(wfTaskProcess.getExtraId());
             // 取消修改任务状态为未开始
             wfTaskProcessMapper.updateTaskStatus2(wfTaskProcess.getExtraId());
+            onTaskStatusChanged(wfTaskProcess.getExtraId());
         }
         // 取消报废流程之后更新相应的审批申请
 //        LambdaQueryWrapper<WfMaterialsScrappedProcess> qw2 = new LambdaQueryWrapper<>();
@@ -693,4 +701,30 @@ public class WfTaskServiceImpl extends FlowServiceFactory implements IWfTaskServ
             }
         }
     }
+
+    /**
+     * 任务状态变化后清理所属项目的燃尽图缓存，并登记项目由项目服务校准任务统计；
+     * 处在事务中时推迟到提交之后，避免提交前被并发请求按旧状态重新写回缓存
+     */
+    private void onTaskStatusChanged(String taskId) {
+        String projectId = wfTaskProcessMapper.selectProjectIdByTaskId(taskId);
+        if (StringUtils.isBlank(projectId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictProjectStats(projectId);
+                }
+            });
+        } else {
+            evictProjectStats(projectId);
+        }
+    }
+
+    private void evictProjectStats(String projectId) {
+        redisService.deleteObject(CacheConstants.BURN_DOWN_CHART_KEY + projectId);
+        stringRedisTemplate.opsForSet().add(CacheConstants.TASK_STATS_DIRTY_KEY, projectId);
+    }
 }
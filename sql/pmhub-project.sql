@@ -110,7 +110,9 @@ CREATE TABLE `pmhub_project_file` (
   `user_id` bigint(20) DEFAULT NULL COMMENT '上传人id',
   `project_id` varchar(64) NOT NULL COMMENT '项目id',
   `path_name` varchar(200) DEFAULT NULL,
-  PRIMARY KEY (`id`) USING BTREE
+  `blob_hash` char(64) DEFAULT NULL COMMENT '文件内容SHA-256，为空表示未存入内容寻址存储',
+  PRIMARY KEY (`id`) USING BTREE,
+  KEY `idx_blob_hash` (`blob_hash`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目或任务附件表';
 
 -- ----------------------------
@@ -119,6 +121,56 @@ CREATE TABLE `pmhub_project_file` (
 BEGIN;
 COMMIT;
 
+-- ----------------------------
+-- Table structure for pmhub_file_blob
+-- ----------------------------
+DROP TABLE IF EXISTS `pmhub_file_blob`;
+CREATE TABLE `pmhub_file_blob` (
+  `hash` char(64) NOT NULL COMMENT '文件内容SHA-256',
+  `extension` varchar(32) DEFAULT NULL COMMENT '首次上传时的扩展名',
+  `file_size` bigint(20) NOT NULL COMMENT '文件大小（字节）',
+  `path_name` varchar(200) NOT NULL COMMENT '文件完整路径',
+  `file_url` varchar(200) NOT NULL COMMENT '文件访问地址',
+  `ref_count` int(11) NOT NULL DEFAULT '0' COMMENT '引用的附件数',
+  `created_time` datetime NOT NULL COMMENT '创建时间',
+  `updated_time` datetime NOT NULL COMMENT '最近一次引用变化时间',
+  PRIMARY KEY (`hash`) USING BTREE,
+  KEY `idx_ref_count` (`ref_count`, `updated_time`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='附件内容寻址存储';
+
+-- ----------------------------
+-- Table structure for pmhub_file_upload
+-- ----------------------------
+DROP TABLE IF EXISTS `pmhub_file_upload`;
+CREATE TABLE `pmhub_file_upload` (
+  `id` varchar(64) NOT NULL COMMENT '主键id',
+  `user_id` bigint(20) NOT NULL COMMENT '上传人id',
+  `type` varchar(16) NOT NULL COMMENT '文件归属类型 task 或者 project',
+  `pt_id` varchar(64) NOT NULL COMMENT '任务或项目id',
+  `file_name` varchar(255) NOT NULL COMMENT '文件名称',
+  `file_size` bigint(20) NOT NULL COMMENT '文件大小（字节）',
+  `file_hash` char(64) NOT NULL COMMENT '文件内容SHA-256',
+  `chunk_size` int(11) NOT NULL COMMENT '分片大小（字节）',
+  `chunk_count` int(11) NOT NULL COMMENT '分片数',
+  `expire_time` datetime NOT NULL COMMENT '过期时间，每收到一个分片顺延',
+  `created_time` datetime NOT NULL COMMENT '创建时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  KEY `idx_expire_time` (`expire_time`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分片上传';
+
+-- ----------------------------
+-- Table structure for pmhub_file_upload_chunk
+-- ----------------------------
+DROP TABLE IF EXISTS `pmhub_file_upload_chunk`;
+CREATE TABLE `pmhub_file_upload_chunk` (
+  `upload_id` varchar(64) NOT NULL COMMENT '分片上传id',
+  `chunk_index` int(11) NOT NULL COMMENT '分片序号，从0开始',
+  `checksum` char(64) NOT NULL COMMENT '分片内容SHA-256',
+  `writer` varchar(64) DEFAULT NULL COMMENT '正在写入的请求标识，已接收时为空',
+  `created_time` datetime NOT NULL COMMENT '开始写入时间',
+  PRIMARY KEY (`upload_id`, `chunk_index`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分片上传已接收的分片';
+
 -- ----------------------------
 -- Table structure for pmhub_project_log
 -- ----------------------------
@@ -140,7 +192,8 @@ CREATE TABLE `pmhub_project_log` (
   `file_url` varchar(500) DEFAULT NULL COMMENT '文件地址',
   `icon` varchar(20) DEFAULT NULL,
   `project_id` varchar(64) NOT NULL COMMENT '项目id',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  KEY `idx_project_created` (`project_id`, `created_time`, `id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目-任务日志';
 
 -- ----------------------------
@@ -171,6 +224,22 @@ INSERT INTO `pmhub_project_log` (`id`, `user_id`, `type`, `operate_type`, `conte
 INSERT INTO `pmhub_project_log` (`id`, `user_id`, `type`, `operate_type`, `content`, `remark`, `pt_id`, `to_user_id`, `created_by`, `created_time`, `updated_by`, `updated_time`, `log_type`, `file_url`, `icon`, `project_id`) VALUES ('f7b304aa2784877285cf5a66dc6c9bb6', 1, 'task', 'editTask', '[{\"field\":\"description\",\"fieldName\":\"描述\",\"newValue\":\"🚀来个offer，民间开源实战项目，助力学生党和工作党拿个更好的offer💪🏻，欢迎 Follow 关注我们 👉﻿7\",\"oldValue\":\"🚀来个offer，民间开源实战项目，助力学生党和工作党拿个更好的offer💪🏻，欢迎 Follow 关注我们 👉﻿\"}]', '更新了描述', '6dab92bed8d03d904962cca5dace9893', NULL, 'admin', '2024-06-02 13:34:01', 'admin', '2024-06-02 13:34:01', 1, NULL, NULL, 'aa3a0a9c72c6322d893768c3b05615fa');
 COMMIT;
 
+-- ----------------------------
+-- Table structure for pmhub_project_log_outbox
+-- ----------------------------
+DROP TABLE IF EXISTS `pmhub_project_log_outbox`;
+CREATE TABLE `pmhub_project_log_outbox` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键id',
+  `payload` text NOT NULL COMMENT '日志事件',
+  `created_time` datetime NOT NULL COMMENT '创建时间',
+  `claimed_by` varchar(64) DEFAULT NULL COMMENT '领取该事件的分发批次',
+  `claim_expire_time` datetime DEFAULT NULL COMMENT '领取到期时间，到期未处理完可被重新领取；处理失败时为下次重试时间',
+  `attempts` int(11) NOT NULL DEFAULT '0' COMMENT '已领取次数',
+  `dead` tinyint(1) NOT NULL DEFAULT '0' COMMENT '是否已转入死信（0否 1是），死信不再分发',
+  `last_error` varchar(512) DEFAULT NULL COMMENT '最近一次处理失败的原因',
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目-任务日志待写入事件';
+
 -- ----------------------------
 -- Table structure for pmhub_project_member
 -- ----------------------------
@@ -186,7 +255,8 @@ CREATE TABLE `pmhub_project_member` (
   `updated_time` datetime DEFAULT NULL COMMENT '更新时间',
   `type` varchar(32) NOT NULL COMMENT '类型是项目还是任务 task project',
   `creator` tinyint(1) DEFAULT '0' COMMENT '是否创建者',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  KEY `idx_user_type` (`user_id`, `type`, `pt_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目-任务成员';
 
 -- ----------------------------
@@ -266,7 +336,8 @@ CREATE TABLE `pmhub_project_task` (
   `task_flow` varchar(200) DEFAULT NULL COMMENT '所属流程',
   `task_type_id` varchar(64) DEFAULT NULL COMMENT '任务类型id',
   PRIMARY KEY (`id`) USING BTREE,
-  KEY `idx` (`id`,`project_id`,`user_id`) USING BTREE
+  KEY `idx` (`id`,`project_id`,`user_id`) USING BTREE,
+  KEY `idx_project_created` (`project_id`, `deleted`, `created_time`, `id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目-任务表';
 
 -- ----------------------------
@@ -280,6 +351,32 @@ INSERT INTO `pmhub_project_task` (`id`, `created_by`, `created_time`, `updated_b
 INSERT INTO `pmhub_project_task` (`id`, `created_by`, `created_time`, `updated_by`, `updated_time`, `task_name`, `project_id`, `task_priority`, `user_id`, `project_stage_id`, `description`, `begin_time`, `end_time`, `close_time`, `task_pid`, `assign_to`, `status`, `execute_status`, `task_process`, `deleted`, `deleted_time`, `task_flow`, `task_type_id`) VALUES ('f0ddb49790bba0cc58b833470de0d48c', 'admin', '2024-04-01 14:59:21', 'admin', '2024-04-01 14:59:21', '第一个任务', 'aa3a0a9c72c6322d893768c3b05615fa', 0, 1, '936cf8a130ce76e39b73e6e0ebe36800', '<p>测试任务</p>', NULL, NULL, NULL, NULL, NULL, 0, 0, 0.00, 1, '2024-04-04 01:39:33', '', NULL);
 COMMIT;
 
+-- ----------------------------
+-- Table structure for pmhub_project_task_closure
+-- ----------------------------
+DROP TABLE IF EXISTS `pmhub_project_task_closure`;
+CREATE TABLE `pmhub_project_task_closure` (
+  `ancestor` varchar(64) NOT NULL COMMENT '祖先任务id',
+  `descendant` varchar(64) NOT NULL COMMENT '后代任务id',
+  `depth` int(11) NOT NULL COMMENT '层级差，任务自身为0',
+  PRIMARY KEY (`ancestor`, `descendant`) USING BTREE,
+  KEY `idx_descendant` (`descendant`, `depth`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目-任务层级闭包表';
+
+-- ----------------------------
+-- Records of pmhub_project_task_closure
+-- 已有数据先写入自身记录，再重复执行第二条直到影响行数为0，每次补齐一层
+-- ----------------------------
+BEGIN;
+INSERT INTO `pmhub_project_task_closure` (`ancestor`, `descendant`, `depth`)
+SELECT `id`, `id`, 0 FROM `pmhub_project_task`;
+INSERT INTO `pmhub_project_task_closure` (`ancestor`, `descendant`, `depth`)
+SELECT c.`ancestor`, t.`id`, c.`depth` + 1 FROM `pmhub_project_task` t
+INNER JOIN `pmhub_project_task_closure` c ON c.`descendant` = t.`task_pid`
+LEFT JOIN `pmhub_project_task_closure` e ON e.`ancestor` = c.`ancestor` AND e.`descendant` = t.`id`
+WHERE e.`descendant` IS NULL;
+COMMIT;
+
 -- ----------------------------
 -- Table structure for pmhub_project_task_notify
 -- ----------------------------
@@ -293,7 +390,8 @@ CREATE TABLE `pmhub_project_task_notify` (
   `overdue` tinyint(1) DEFAULT NULL COMMENT '是否逾期 0-否 1-是',
   `close_time` datetime DEFAULT NULL,
   `task_name` varchar(255) DEFAULT NULL,
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  KEY `idx_task_id` (`task_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='任务提醒表';
 
 -- ----------------------------